@@ -134,7 +134,9 @@ public class GroupingLongCollectorBenchmark {
             Version.CURRENT,
             keyInputs.get(0),
             DataTypes.LONG,
-            Version.CURRENT
+            Version.CURRENT,
+            null,
+            null
         );
     }
 
@@ -105,7 +105,9 @@ public class GroupingStringCollectorBenchmark {
             Version.CURRENT,
             keyInputs.get(0),
             DataTypes.STRING,
-            Version.CURRENT
+            Version.CURRENT,
+            null,
+            null
         );
     }
 
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DataRowEncoderBenchmark {
+
+    private static final int NUM_ROWS = 10_000;
+
+    private final List<DataType> columnTypes = List.of(
+        DataTypes.INTEGER, DataTypes.LONG, DataTypes.DOUBLE, DataTypes.STRING, DataTypes.BOOLEAN);
+    private final List<Row> rows = new ArrayList<>(NUM_ROWS);
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(new RowN(new Object[] { i, (long) i * 31, i / 3.0, "name-" + i, i % 2 == 0 }));
+        }
+        channel = new EmbeddedChannel();
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void measureSendDataRowPerRow() {
+        for (int i = 0; i < rows.size(); i++) {
+            Messages.sendDataRow(channel, rows.get(i), columnTypes, null);
+            if ((i + 1) % 1000 == 0) {
+                channel.flush();
+            }
+        }
+        channel.flush();
+        channel.releaseOutbound();
+    }
+
+    @Benchmark
+    public void measureDataRowEncoder() {
+        DataRowEncoder encoder = new DataRowEncoder(channel, columnTypes, null);
+        for (int i = 0; i < rows.size(); i++) {
+            encoder.writeRow(rows.get(i));
+            if ((i + 1) % 1000 == 0) {
+                encoder.flush();
+            }
+        }
+        encoder.flush();
+        channel.releaseOutbound();
+    }
+}
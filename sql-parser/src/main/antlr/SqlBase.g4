@@ -74,9 +74,10 @@ statement
         onConflict?
         returning?                                                                   #insert
     | RESTORE SNAPSHOT qname (ALL | TABLE tableWithPartitions) withProperties?       #restore
-    | COPY tableWithPartition FROM path=expr withProperties? (RETURN SUMMARY)?       #copyFrom
+    | COPY tableWithPartition FROM (STDIN | path=expr) withProperties?
+        (RETURN SUMMARY)?                                                            #copyFrom
     | COPY tableWithPartition columns? where?
-        TO DIRECTORY? path=expr withProperties?                                      #copyTo
+        TO (STDOUT | DIRECTORY? path=expr) withProperties?                           #copyTo
     | DROP BLOB TABLE (IF EXISTS)? table                                             #dropBlobTable
     | DROP TABLE (IF EXISTS)? table                                                  #dropTable
     | DROP ALIAS qname                                                               #dropAlias
@@ -661,7 +662,7 @@ nonReserved
     | WORK | SERIALIZABLE | REPEATABLE | COMMITTED | UNCOMMITTED | READ | WRITE | WINDOW | DEFERRABLE
     | STRING_TYPE | IP | DOUBLE | FLOAT | TIMESTAMP | LONG | INT | INTEGER | SHORT | BYTE | BOOLEAN | PRECISION
     | REPLACE | RETURNING | SWAP | GC | DANGLING | ARTIFACTS | DECOMMISSION | LEADING | TRAILING | BOTH | TRIM
-    | CURRENT_SCHEMA | PROMOTE
+    | CURRENT_SCHEMA | PROMOTE | STDIN | STDOUT
     ;
 
 SELECT: 'SELECT';
@@ -917,6 +918,8 @@ SCHEMA: 'SCHEMA';
 
 RETURN: 'RETURN';
 SUMMARY: 'SUMMARY';
+STDIN: 'STDIN';
+STDOUT: 'STDOUT';
 
 EQ  : '=';
 NEQ : '<>' | '!=';
@@ -528,7 +528,7 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
         boolean returnSummary = context.SUMMARY() != null;
         return new CopyFrom(
             (Table) visit(context.tableWithPartition()),
-            visit(context.path),
+            context.STDIN() == null ? visit(context.path) : null,
             extractGenericProperties(context.withProperties()),
             returnSummary);
     }
@@ -540,7 +540,7 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
             context.columns() == null ? emptyList() : visitCollection(context.columns().primaryExpression(), Expression.class),
             visitIfPresent(context.where(), Expression.class),
             context.DIRECTORY() != null,
-            visit(context.path),
+            context.STDOUT() == null ? visit(context.path) : null,
             extractGenericProperties(context.withProperties()));
     }
 
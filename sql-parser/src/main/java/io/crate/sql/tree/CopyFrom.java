@@ -21,17 +21,19 @@
 
 package io.crate.sql.tree;
 
+import javax.annotation.Nullable;
 import java.util.Objects;
 
 public class CopyFrom<T> extends Statement {
 
     private final Table<T> table;
+    @Nullable
     private final T path;
     private final GenericProperties<T> properties;
     private final boolean returnSummary;
 
     public CopyFrom(Table<T> table,
-                    T path,
+                    @Nullable T path,
                     GenericProperties<T> properties,
                     boolean returnSummary) {
         this.table = table;
@@ -44,10 +46,18 @@ public class CopyFrom<T> extends Statement {
         return table;
     }
 
+    /**
+     * @return the uri to read from or null if the data is read from STDIN of the client
+     */
+    @Nullable
     public T path() {
         return path;
     }
 
+    public boolean isFromStdin() {
+        return path == null;
+    }
+
     public GenericProperties<T> properties() {
         return properties;
     }
@@ -31,6 +31,7 @@ import io.crate.sql.tree.ArrayLiteral;
 import io.crate.sql.tree.Assignment;
 import io.crate.sql.tree.ComparisonExpression;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyTo;
 import io.crate.sql.tree.CreateFunction;
 import io.crate.sql.tree.CreateTable;
 import io.crate.sql.tree.CreateUser;
@@ -1027,6 +1028,8 @@ public class TestStatementBuilder {
         printStatement("copy schemah.foo from '/folder/file.extension'");
         printStatement("copy schemah.foo from '/folder/file.extension' return summary");
         printStatement("copy schemah.foo from '/folder/file.extension' with (some_property=1) return summary");
+        printStatement("copy foo from stdin");
+        printStatement("copy foo from STDIN with (format='csv')");
 
         printStatement("copy foo (nae) to '/folder/file.extension'");
         printStatement("copy foo to '/folder/file.extension'");
@@ -1037,6 +1040,19 @@ public class TestStatementBuilder {
         printStatement("copy foo partition (a=?) to DIRECTORY '/folder' with (some_param=4)");
 
         printStatement("copy foo where a = 'x' to DIRECTORY '/folder'");
+        printStatement("copy foo to stdout");
+        printStatement("copy foo (a, b) to STDOUT with (format='json_array')");
+    }
+
+    @Test
+    public void testCopyFromStdinAndToStdout() {
+        CopyFrom<?> copyFrom = (CopyFrom<?>) SqlParser.createStatement("copy foo from stdin");
+        assertThat(copyFrom.isFromStdin(), is(true));
+        assertThat(copyFrom.path(), nullValue());
+
+        CopyTo<?> copyTo = (CopyTo<?>) SqlParser.createStatement("copy foo to stdout");
+        assertThat(copyTo.isToStdout(), is(true));
+        assertThat(copyTo.directoryUri(), is(false));
     }
 
     @Test
@@ -37,16 +37,20 @@ public class PreparedStmt {
     private final Statement parsedStatement;
     private final String rawStatement;
     @Nullable
+    private final StatementCache.Entry cacheEntry;
+    @Nullable
     private DataType[] describedParameterTypes;
 
     PreparedStmt(Statement parsedStatement,
                  AnalyzedStatement analyzedStatement,
                  String query,
-                 ParamTypeHints paramTypeHints) {
+                 ParamTypeHints paramTypeHints,
+                 @Nullable StatementCache.Entry cacheEntry) {
         this.parsedStatement = parsedStatement;
         this.analyzedStatement = analyzedStatement;
         this.paramTypeHints = paramTypeHints;
         this.rawStatement = query;
+        this.cacheEntry = cacheEntry;
     }
 
     public AnalyzedStatement analyzedStatement() {
@@ -65,6 +69,14 @@ public class PreparedStmt {
         return parsedStatement;
     }
 
+    /**
+     * @return the entry of the {@link StatementCache} which holds the analyzed statement, null if it isn't cached.
+     */
+    @Nullable
+    StatementCache.Entry cacheEntry() {
+        return cacheEntry;
+    }
+
     /**
      * Gets the list of effective parameter types which might be a combination
      * of the {@link ParamTypeHints} and the types determined during ParameterDescription.
@@ -54,6 +54,7 @@ public class SQLOperations {
     private final JobsLogs jobsLogs;
     private final ClusterService clusterService;
     private final UserManager userManager;
+    private final StatementCache statementCache;
     private final boolean isReadOnly;
     private volatile boolean disabled;
 
@@ -64,13 +65,15 @@ public class SQLOperations {
                          JobsLogs jobsLogs,
                          Settings settings,
                          ClusterService clusterService,
-                         Provider<UserManager> userManagerProvider) {
+                         Provider<UserManager> userManagerProvider,
+                         StatementCache statementCache) {
         this.analyzer = analyzer;
         this.planner = planner;
         this.executorProvider = executorProvider;
         this.jobsLogs = jobsLogs;
         this.clusterService = clusterService;
         this.userManager = userManagerProvider.get();
+        this.statementCache = statementCache;
         this.isReadOnly = NODE_READ_ONLY_SETTING.get(settings);
     }
 
@@ -85,7 +88,8 @@ public class SQLOperations {
             isReadOnly,
             executorProvider.get(),
             userManager.getAccessControl(sessionContext),
-            sessionContext);
+            sessionContext,
+            statementCache);
     }
 
     public Session newSystemSession() {
@@ -24,6 +24,8 @@ package io.crate.action.sql;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.crate.analyze.AnalyzedBegin;
+import io.crate.analyze.AnalyzedCopyFrom;
+import io.crate.analyze.AnalyzedCopyTo;
 import io.crate.analyze.AnalyzedDeallocate;
 import io.crate.analyze.AnalyzedStatement;
 import io.crate.analyze.Analyzer;
@@ -37,6 +39,7 @@ import io.crate.data.RowConsumer;
 import io.crate.data.RowN;
 import io.crate.exceptions.ReadOnlyException;
 import io.crate.exceptions.SQLExceptions;
+import io.crate.execution.engine.collect.files.StdinFileInputFactory;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.Symbols;
@@ -46,6 +49,7 @@ import io.crate.planner.DependencyCarrier;
 import io.crate.planner.Plan;
 import io.crate.planner.Planner;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.operators.LogicalPlan;
 import io.crate.planner.operators.StatementClassifier;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.protocols.postgres.FormatCodes;
@@ -61,6 +65,7 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.common.Randomness;
 
 import javax.annotation.Nullable;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -124,6 +129,7 @@ public class Session implements AutoCloseable {
     private final JobsLogs jobsLogs;
     private final boolean isReadOnly;
     private final ParameterTypeExtractor parameterTypeExtractor;
+    private final StatementCache statementCache;
 
     public Session(Analyzer analyzer,
                    Planner planner,
@@ -131,7 +137,8 @@ public class Session implements AutoCloseable {
                    boolean isReadOnly,
                    DependencyCarrier executor,
                    AccessControl accessControl,
-                   SessionContext sessionContext) {
+                   SessionContext sessionContext,
+                   StatementCache statementCache) {
         this.analyzer = analyzer;
         this.planner = planner;
         this.jobsLogs = jobsLogs;
@@ -140,13 +147,32 @@ public class Session implements AutoCloseable {
         this.accessControl = accessControl;
         this.sessionContext = sessionContext;
         this.parameterTypeExtractor = new ParameterTypeExtractor();
+        this.statementCache = statementCache;
     }
 
     /**
      * See {@link #quickExec(String, Function, ResultReceiver, Row)}
+     *
+     * The parsed and analyzed statement and its plan are looked up in the {@link StatementCache} first.
      */
     public void quickExec(String statement, ResultReceiver resultReceiver, Row params) {
-        quickExec(statement, SqlParser::createStatement, resultReceiver, params);
+        List<DataType> paramTypes = List.of();
+        long metaDataVersion = planner.currentClusterState().metaData().version();
+        StatementCache.Entry cachedEntry = statementCache.get(statement, sessionContext, paramTypes, metaDataVersion);
+        AnalyzedStatement analyzedStatement;
+        if (cachedEntry == null) {
+            Statement parsedStmt = SqlParser.createStatement(statement);
+            CoordinatorTxnCtx analysisTxnCtx = new CoordinatorTxnCtx(sessionContext);
+            analyzedStatement = analyzer.analyze(parsedStmt, analysisTxnCtx, ParamTypeHints.EMPTY);
+            if (!analysisTxnCtx.isBoundToCurrentTime()) {
+                cachedEntry = statementCache.put(
+                    statement, sessionContext, paramTypes, metaDataVersion, parsedStmt, analyzedStatement);
+            }
+        } else {
+            analyzedStatement = cachedEntry.analyzedStatement();
+            accessControl.ensureMayExecute(analyzedStatement);
+        }
+        quickExec(statement, analyzedStatement, cachedEntry, resultReceiver, params);
     }
 
     /**
@@ -157,9 +183,17 @@ public class Session implements AutoCloseable {
      *              Use {@link #quickExec(String, ResultReceiver, Row)} to use the regular parser
      */
     public void quickExec(String statement, Function<String, Statement> parse, ResultReceiver resultReceiver, Row params) {
-        CoordinatorTxnCtx txnCtx = new CoordinatorTxnCtx(sessionContext);
         Statement parsedStmt = parse.apply(statement);
         AnalyzedStatement analyzedStatement = analyzer.analyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+        quickExec(statement, analyzedStatement, null, resultReceiver, params);
+    }
+
+    private void quickExec(String statement,
+                           AnalyzedStatement analyzedStatement,
+                           @Nullable StatementCache.Entry cacheEntry,
+                           ResultReceiver resultReceiver,
+                           Row params) {
+        CoordinatorTxnCtx txnCtx = new CoordinatorTxnCtx(sessionContext);
         RoutingProvider routingProvider = new RoutingProvider(Randomness.get().nextInt(), planner.getAwarenessAttributes());
         UUID jobId = UUID.randomUUID();
         ClusterState clusterState = planner.currentClusterState();
@@ -174,7 +208,8 @@ public class Session implements AutoCloseable {
         );
         Plan plan;
         try {
-            plan = planner.plan(analyzedStatement, plannerContext);
+            ensureCopyIsStreamed(analyzedStatement, null);
+            plan = plan(analyzedStatement, plannerContext, cacheEntry);
         } catch (Throwable t) {
             jobsLogs.logPreExecutionFailure(jobId, statement, SQLExceptions.messageOf(t), sessionContext.user());
             throw t;
@@ -207,6 +242,28 @@ public class Session implements AutoCloseable {
         plan.execute(executor, plannerContext, consumer, params, SubQueryResults.EMPTY);
     }
 
+    /**
+     * Plans the statement, or re-uses the {@link LogicalPlan} cached along with the analyzed statement.
+     * The plan is only cached if planning didn't read the current time.
+     */
+    private Plan plan(AnalyzedStatement analyzedStatement,
+                      PlannerContext plannerContext,
+                      @Nullable StatementCache.Entry cacheEntry) {
+        if (cacheEntry == null) {
+            return planner.plan(analyzedStatement, plannerContext);
+        }
+        long tableStatsVersion = planner.tableStats().version();
+        LogicalPlan cachedPlan = cacheEntry.plan(tableStatsVersion);
+        if (cachedPlan != null) {
+            return cachedPlan;
+        }
+        Plan plan = planner.plan(analyzedStatement, plannerContext);
+        if (plan instanceof LogicalPlan && !plannerContext.transactionContext().isBoundToCurrentTime()) {
+            cacheEntry.cachePlan((LogicalPlan) plan, tableStatsVersion);
+        }
+        return plan;
+    }
+
     private void retryQuery(UUID jobId,
                             AnalyzedStatement stmt,
                             RoutingProvider routingProvider,
@@ -243,6 +300,31 @@ public class Session implements AutoCloseable {
             LOGGER.debug("method=parse stmtName={} query={} paramTypes={}", statementName, query, paramTypes);
         }
 
+        var paramTypeHints = new ParamTypeHints(paramTypes);
+        long metaDataVersion = planner.currentClusterState().metaData().version();
+        StatementCache.Entry cachedEntry = statementCache.get(query, sessionContext, paramTypes, metaDataVersion);
+        if (cachedEntry != null) {
+            try {
+                accessControl.ensureMayExecute(cachedEntry.analyzedStatement());
+            } catch (Throwable t) {
+                jobsLogs.logPreExecutionFailure(
+                    UUID.randomUUID(),
+                    query,
+                    SQLExceptions.messageOf(t),
+                    sessionContext.user());
+                throw t;
+            }
+            preparedStatements.put(
+                statementName,
+                new PreparedStmt(
+                    cachedEntry.parsedStatement(),
+                    cachedEntry.analyzedStatement(),
+                    query,
+                    paramTypeHints,
+                    cachedEntry));
+            return;
+        }
+
         Statement statement;
         try {
             statement = SqlParser.createStatement(query);
@@ -255,12 +337,12 @@ public class Session implements AutoCloseable {
             }
         }
 
-        var paramTypeHints = new ParamTypeHints(paramTypes);
         AnalyzedStatement analyzedStatement;
+        CoordinatorTxnCtx analysisTxnCtx = new CoordinatorTxnCtx(sessionContext);
         try {
             analyzedStatement = analyzer.analyze(
                 statement,
-                sessionContext,
+                analysisTxnCtx,
                 paramTypeHints);
         } catch (Throwable t) {
             jobsLogs.logPreExecutionFailure(
@@ -270,9 +352,14 @@ public class Session implements AutoCloseable {
                 sessionContext.user());
             throw t;
         }
+        StatementCache.Entry cacheEntry = null;
+        if (!analysisTxnCtx.isBoundToCurrentTime()) {
+            cacheEntry = statementCache.put(
+                query, sessionContext, paramTypes, metaDataVersion, statement, analyzedStatement);
+        }
         preparedStatements.put(
             statementName,
-            new PreparedStmt(statement, analyzedStatement, query, paramTypeHints));
+            new PreparedStmt(statement, analyzedStatement, query, paramTypeHints, cacheEntry));
     }
 
     public void bind(String portalName,
@@ -458,7 +545,7 @@ public class Session implements AutoCloseable {
 
         Plan plan;
         try {
-            plan = planner.plan(analyzedStatement, plannerContext);
+            plan = plan(analyzedStatement, plannerContext, firstPreparedStatement.cacheEntry());
         } catch (Throwable t) {
             jobsLogs.logPreExecutionFailure(
                 jobId,
@@ -536,7 +623,8 @@ public class Session implements AutoCloseable {
         }
         Plan plan;
         try {
-            plan = planner.plan(analyzedStmt, plannerContext);
+            ensureCopyIsStreamed(analyzedStmt, portal);
+            plan = plan(analyzedStmt, plannerContext, portal.preparedStmt().cacheEntry());
         } catch (Throwable t) {
             jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.user());
             throw t;
@@ -567,6 +655,12 @@ public class Session implements AutoCloseable {
         RowConsumerToResultReceiver consumer = new RowConsumerToResultReceiver(
             resultReceiver, maxRows, new JobsLogsUpdateListener(jobId, jobsLogs));
         portal.setActiveConsumer(consumer);
+        InputStream copyInStream = portal.copyInStream();
+        if (copyInStream != null) {
+            StdinFileInputFactory stdinFileInputFactory = executor.stdinFileInputFactory();
+            stdinFileInputFactory.register(jobId, copyInStream);
+            consumer.completionFuture().whenComplete((result, err) -> stdinFileInputFactory.unregister(jobId));
+        }
         plan.execute(executor, plannerContext, consumer, params, SubQueryResults.EMPTY);
         return resultReceiver.completionFuture();
     }
@@ -582,6 +676,61 @@ public class Session implements AutoCloseable {
         return null;
     }
 
+    /**
+     * @return true if the portal executes a {@code COPY FROM STDIN} and requires a stream with the data of the client
+     *         to be set using {@link #setCopyInStream(String, InputStream)}.
+     */
+    public boolean isCopyFromStdin(String portalName) {
+        return isCopyFromStdin(getSafePortal(portalName).analyzedStatement());
+    }
+
+    /**
+     * @return true if the portal executes a {@code COPY TO STDOUT} which must be marked using
+     *         {@link #setCopyToStdout(String)}. Each resulting row contains one line of the output.
+     */
+    public boolean isCopyToStdout(String portalName) {
+        return isCopyToStdout(getSafePortal(portalName).analyzedStatement());
+    }
+
+    public void setCopyInStream(String portalName, InputStream copyInStream) {
+        getSafePortal(portalName).setCopyInStream(copyInStream);
+    }
+
+    public void setCopyToStdout(String portalName) {
+        getSafePortal(portalName).setCopyToStdout();
+    }
+
+    private static boolean isCopyFromStdin(AnalyzedStatement analyzedStatement) {
+        return analyzedStatement instanceof AnalyzedCopyFrom && ((AnalyzedCopyFrom) analyzedStatement).isFromStdin();
+    }
+
+    private static boolean isCopyToStdout(AnalyzedStatement analyzedStatement) {
+        return analyzedStatement instanceof AnalyzedCopyTo && ((AnalyzedCopyTo) analyzedStatement).isToStdout();
+    }
+
+    /**
+     * The data of COPY FROM STDIN and COPY TO STDOUT is exchanged using the copy messages of the PostgreSQL wire
+     * protocol, which must have been set up on the portal.
+     */
+    private static void ensureCopyIsStreamed(AnalyzedStatement analyzedStatement, @Nullable Portal portal) {
+        boolean missingCopyIn = isCopyFromStdin(analyzedStatement) && (portal == null || portal.copyInStream() == null);
+        boolean missingCopyOut = isCopyToStdout(analyzedStatement) && (portal == null || !portal.isCopyToStdout());
+        if (missingCopyIn || missingCopyOut) {
+            throw new UnsupportedOperationException(
+                "COPY FROM STDIN and COPY TO STDOUT are only supported using simple queries of the PostgreSQL wire protocol");
+        }
+    }
+
+    /**
+     * Resumes the execution of a portal which suspended itself after it emitted {@code maxRows} rows.
+     */
+    public void resume(String portalName) {
+        RowConsumerToResultReceiver activeConsumer = getSafePortal(portalName).activeConsumer();
+        if (activeConsumer != null && activeConsumer.suspended()) {
+            activeConsumer.resume();
+        }
+    }
+
     public String getQuery(String portalName) {
         return getSafePortal(portalName).preparedStmt().rawStatement();
     }
@@ -0,0 +1,265 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.analyze.AnalyzedDeleteStatement;
+import io.crate.analyze.AnalyzedInsertStatement;
+import io.crate.analyze.AnalyzedStatement;
+import io.crate.analyze.AnalyzedUpdateStatement;
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.metadata.SearchPath;
+import io.crate.planner.operators.LogicalPlan;
+import io.crate.sql.tree.Statement;
+import io.crate.types.DataType;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Node level cache of parsed and analyzed statements and of their logical plans.
+ *
+ * Statements are looked up by their query string together with everything else the analysis depends on:
+ * The user, the search path, session settings, the parameter type hints and the version of the cluster metaData.
+ * The whole cache is invalidated whenever the metaData changes, as tables, views, functions or privileges might have
+ * changed.
+ *
+ * Only statements which don't depend on the time of the analysis (e.g. via a normalized current_timestamp) and
+ * whose analyzed form is immutable (queries, insert, update and delete) are cached.
+ *
+ * The {@link LogicalPlan} of a statement is cached next to the analyzed statement, see {@link Entry#plan(long)}.
+ * A logical plan doesn't depend on the parameters, they are only bound (together with the subquery results and the
+ * routing of the current cluster state) when the plan is executed. Plans are invalidated if the nodes of the cluster
+ * change, as the planner takes the minimum node version into account, and they are replaced once the
+ * {@link io.crate.statistics.TableStats} have been updated.
+ */
+@Singleton
+public class StatementCache implements ClusterStateListener {
+
+    public static final Setting<Integer> STATEMENT_CACHE_SIZE_SETTING = Setting.intSetting(
+        "node.sql.statement_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
+    private final int maxSize;
+    @Nullable
+    private final Cache<Key, Entry> cache;
+
+    @Inject
+    public StatementCache(Settings settings, ClusterService clusterService) {
+        this(STATEMENT_CACHE_SIZE_SETTING.get(settings));
+        clusterService.addListener(this);
+    }
+
+    public StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    @Nullable
+    Entry get(String query,
+              SessionContext sessionContext,
+              List<DataType> paramTypes,
+              long metaDataVersion) {
+        if (cache == null) {
+            return null;
+        }
+        return cache.getIfPresent(new Key(query, sessionContext, paramTypes, metaDataVersion));
+    }
+
+    /**
+     * @return the new entry, or null if the statement isn't cacheable
+     */
+    @Nullable
+    Entry put(String query,
+              SessionContext sessionContext,
+              List<DataType> paramTypes,
+              long metaDataVersion,
+              Statement parsedStatement,
+              AnalyzedStatement analyzedStatement) {
+        if (cache == null || !isCacheable(analyzedStatement)) {
+            return null;
+        }
+        Entry entry = new Entry(parsedStatement, analyzedStatement);
+        cache.put(new Key(query, sessionContext, paramTypes, metaDataVersion), entry);
+        return entry;
+    }
+
+    private static boolean isCacheable(AnalyzedStatement analyzedStatement) {
+        return analyzedStatement instanceof AnalyzedRelation
+               || analyzedStatement instanceof AnalyzedInsertStatement
+               || analyzedStatement instanceof AnalyzedUpdateStatement
+               || analyzedStatement instanceof AnalyzedDeleteStatement;
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private void invalidatePlans() {
+        if (cache != null) {
+            for (Entry entry : cache.asMap().values()) {
+                entry.cachedPlan = null;
+            }
+        }
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.metaDataChanged()) {
+            invalidateAll();
+        } else if (event.nodesChanged()) {
+            invalidatePlans();
+        }
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long size() {
+        return cache == null ? 0L : cache.size();
+    }
+
+    public long hitCount() {
+        return cache == null ? 0L : cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache == null ? 0L : cache.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return cache == null ? 0L : cache.stats().evictionCount();
+    }
+
+    static final class Entry {
+
+        private final Statement parsedStatement;
+        private final AnalyzedStatement analyzedStatement;
+        @Nullable
+        private volatile CachedPlan cachedPlan;
+
+        private Entry(Statement parsedStatement, AnalyzedStatement analyzedStatement) {
+            this.parsedStatement = parsedStatement;
+            this.analyzedStatement = analyzedStatement;
+        }
+
+        Statement parsedStatement() {
+            return parsedStatement;
+        }
+
+        AnalyzedStatement analyzedStatement() {
+            return analyzedStatement;
+        }
+
+        /**
+         * @return the cached plan if it was created with the given version of the table statistics, otherwise null.
+         */
+        @Nullable
+        LogicalPlan plan(long tableStatsVersion) {
+            CachedPlan plan = cachedPlan;
+            if (plan == null || plan.tableStatsVersion != tableStatsVersion) {
+                return null;
+            }
+            return plan.plan;
+        }
+
+        void cachePlan(LogicalPlan plan, long tableStatsVersion) {
+            cachedPlan = new CachedPlan(plan, tableStatsVersion);
+        }
+    }
+
+    private static final class CachedPlan {
+
+        private final LogicalPlan plan;
+        private final long tableStatsVersion;
+
+        private CachedPlan(LogicalPlan plan, long tableStatsVersion) {
+            this.plan = plan;
+            this.tableStatsVersion = tableStatsVersion;
+        }
+    }
+
+    private static final class Key {
+
+        private final String query;
+        private final String userName;
+        private final SearchPath searchPath;
+        private final boolean hashJoinEnabled;
+        private final List<DataType> paramTypes;
+        private final long metaDataVersion;
+        private final int hashCode;
+
+        private Key(String query, SessionContext sessionContext, List<DataType> paramTypes, long metaDataVersion) {
+            this.query = query;
+            this.userName = sessionContext.user().name();
+            this.searchPath = sessionContext.searchPath();
+            this.hashJoinEnabled = sessionContext.isHashJoinEnabled();
+            this.paramTypes = paramTypes;
+            this.metaDataVersion = metaDataVersion;
+            this.hashCode = Objects.hash(query, userName, searchPath, hashJoinEnabled, paramTypes, metaDataVersion);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashJoinEnabled == key.hashJoinEnabled &&
+                   metaDataVersion == key.metaDataVersion &&
+                   query.equals(key.query) &&
+                   userName.equals(key.userName) &&
+                   searchPath.equals(key.searchPath) &&
+                   paramTypes.equals(key.paramTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
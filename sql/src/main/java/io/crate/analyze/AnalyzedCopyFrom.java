@@ -28,6 +28,7 @@ import io.crate.sql.tree.GenericProperties;
 import io.crate.sql.tree.Table;
 import io.crate.types.DataType;
 
+import javax.annotation.Nullable;
 import java.util.function.Consumer;
 
 public class AnalyzedCopyFrom implements AnalyzedStatement {
@@ -35,12 +36,13 @@ public class AnalyzedCopyFrom implements AnalyzedStatement {
     private final DocTableInfo tableInfo;
     private final Table<Symbol> table;
     private final GenericProperties<Symbol> properties;
+    @Nullable
     private final Symbol uri;
 
     AnalyzedCopyFrom(DocTableInfo tableInfo,
                      Table<Symbol> table,
                      GenericProperties<Symbol> properties,
-                     Symbol uri) {
+                     @Nullable Symbol uri) {
         this.tableInfo = tableInfo;
         this.table = table;
         this.properties = properties;
@@ -59,17 +61,27 @@ public class AnalyzedCopyFrom implements AnalyzedStatement {
         return table;
     }
 
+    /**
+     * @return the uri to read from or null if the data is sent by the client via {@code COPY FROM STDIN}
+     */
+    @Nullable
     public Symbol uri() {
         return uri;
     }
 
+    public boolean isFromStdin() {
+        return uri == null;
+    }
+
     @Override
     public void visitSymbols(Consumer<? super Symbol> consumer) {
         for (var partitionProperty : table.partitionProperties()) {
             partitionProperty.expressions().forEach(consumer);
         }
         properties.properties().values().forEach(consumer);
-        consumer.accept(uri);
+        if (uri != null) {
+            consumer.accept(uri);
+        }
     }
 
     @Override
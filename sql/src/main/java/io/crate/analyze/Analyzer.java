@@ -182,12 +182,16 @@ public class Analyzer {
     public AnalyzedStatement analyze(Statement statement,
                                      SessionContext sessionContext,
                                      ParamTypeHints paramTypeHints) {
+        return analyze(statement, new CoordinatorTxnCtx(sessionContext), paramTypeHints);
+    }
+
+    public AnalyzedStatement analyze(Statement statement,
+                                     CoordinatorTxnCtx txnCtx,
+                                     ParamTypeHints paramTypeHints) {
         var analyzedStatement = statement.accept(
             dispatcher,
-            new Analysis(
-                new CoordinatorTxnCtx(sessionContext),
-                paramTypeHints));
-        userManager.getAccessControl(sessionContext).ensureMayExecute(analyzedStatement);
+            new Analysis(txnCtx, paramTypeHints));
+        userManager.getAccessControl(txnCtx.sessionContext()).ensureMayExecute(analyzedStatement);
         return analyzedStatement;
     }
 
@@ -39,7 +39,10 @@ import io.crate.metadata.PartitionName;
 import io.crate.metadata.Reference;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.doc.DocTableInfo;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -57,6 +60,13 @@ public final class InsertSourceFromCells implements InsertSourceGen {
     private final Object[] defaultValues;
     private final List<Reference> partitionedByColumns;
 
+    /**
+     * Set if the source can be written directly from the values, without creating an intermediate map:
+     * All targets are top-level columns and there are neither partitioned by columns nor generated columns.
+     */
+    @Nullable
+    private final CheckConstraints<Row, CollectExpression<Row, ?>> rowChecks;
+
     public InsertSourceFromCells(TransactionContext txnCtx,
                                  Functions functions,
                                  DocTableInfo table,
@@ -92,6 +102,26 @@ public final class InsertSourceFromCells implements InsertSourceGen {
             new FromSourceRefResolver(table.partitionedByColumns(), indexName),
             table
         );
+        boolean writeDirectly = partitionedByColumns.isEmpty()
+                                && table.generatedColumns().isEmpty()
+                                && this.targets.stream().allMatch(ref -> ref.column().isTopLevel());
+        rowChecks = writeDirectly ? new CheckConstraints<>(txnCtx, inputFactory, referenceResolver, table) : null;
+    }
+
+    @Override
+    public BytesReference generateSourceAndCheckConstraintsAsBytesReference(Object[] values) throws IOException {
+        if (rowChecks == null) {
+            return InsertSourceGen.super.generateSourceAndCheckConstraintsAsBytesReference(values);
+        }
+        row.firstCells(values);
+        row.secondCells(defaultValues);
+        rowChecks.validate(row);
+
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        for (int i = 0; i < targets.size(); i++) {
+            builder.field(targets.get(i).column().name(), row.get(i));
+        }
+        return BytesReference.bytes(builder.endObject());
     }
 
     @Override
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.dml.upsert;
+
+import io.crate.metadata.ColumnIdent;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Sets the values of columns in a JSON source without parsing the whole source into a map.
+ *
+ * The existing source is streamed token by token into a new source. Sub-trees which aren't affected by the patch
+ * are copied as they are, values of patched columns are replaced and patched columns which don't exist yet are
+ * appended to their parent object. This has the same semantics as applying
+ * {@link io.crate.common.collections.Maps#mergeInto(Map, String, java.util.List, Object)} for each column on the
+ * parsed source.
+ */
+final class SourcePatch {
+
+    /**
+     * Children are either nested Nodes, for objects containing patched columns, or the values of patched columns.
+     */
+    private static final class Node {
+        private final HashMap<String, Object> children = new HashMap<>();
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * @return false if the column can't be added because it is a parent or a child of a column which has
+     *         already been added. In that case the patch must not be used.
+     */
+    boolean put(ColumnIdent column, @Nullable Object value) {
+        Node node = root;
+        String key = column.name();
+        for (String childKey : column.path()) {
+            Object child = node.children.get(key);
+            if (child == null) {
+                if (node.children.containsKey(key)) {
+                    return false;
+                }
+                Node childNode = new Node();
+                node.children.put(key, childNode);
+                node = childNode;
+            } else if (child instanceof Node) {
+                node = (Node) child;
+            } else {
+                return false;
+            }
+            key = childKey;
+        }
+        if (node.children.get(key) instanceof Node) {
+            return false;
+        }
+        node.children.put(key, value);
+        return true;
+    }
+
+    BytesReference applyTo(String source) throws IOException {
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(
+            NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source)) {
+
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            XContentParser.Token token = parser.nextToken();
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new IllegalArgumentException("Source must be an object, got: " + token);
+            }
+            patchObject(parser, builder, root);
+            return BytesReference.bytes(builder);
+        }
+    }
+
+    private static void patchObject(XContentParser parser, XContentBuilder builder, Node node) throws IOException {
+        HashSet<String> patchedKeys = new HashSet<>();
+        builder.startObject();
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String key = parser.currentName();
+            XContentParser.Token token = parser.nextToken();
+            builder.field(key);
+            Object patch = node.children.get(key);
+            if (patch == null && !node.children.containsKey(key)) {
+                builder.copyCurrentStructure(parser);
+                continue;
+            }
+            patchedKeys.add(key);
+            if (patch instanceof Node) {
+                if (token == XContentParser.Token.START_OBJECT) {
+                    patchObject(parser, builder, (Node) patch);
+                } else if (token == XContentParser.Token.VALUE_NULL) {
+                    writeNode(builder, (Node) patch);
+                } else {
+                    throw new IllegalArgumentException(
+                        "Cannot set a child of \"" + key + "\" because it isn't an object, but: " + token);
+                }
+            } else {
+                parser.skipChildren();
+                builder.value(patch);
+            }
+        }
+        if (patchedKeys.size() < node.children.size()) {
+            for (Map.Entry<String, Object> entry : node.children.entrySet()) {
+                String key = entry.getKey();
+                if (!patchedKeys.contains(key)) {
+                    builder.field(key);
+                    writePatch(builder, entry.getValue());
+                }
+            }
+        }
+        builder.endObject();
+    }
+
+    private static void writePatch(XContentBuilder builder, @Nullable Object patch) throws IOException {
+        if (patch instanceof Node) {
+            writeNode(builder, (Node) patch);
+        } else {
+            builder.value(patch);
+        }
+    }
+
+    private static void writeNode(XContentBuilder builder, Node node) throws IOException {
+        builder.startObject();
+        for (Map.Entry<String, Object> entry : node.children.entrySet()) {
+            builder.field(entry.getKey());
+            writePatch(builder, entry.getValue());
+        }
+        builder.endObject();
+    }
+}
@@ -317,8 +317,8 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         Map<String, Object> source = null;
         try {
             // This optimizes for the case where the insert value is already string-based, so we can take directly
-            // the rawSource
-            if (insertSourceGen instanceof FromRawInsertSource) {
+            // the rawSource. Without return values the source map isn't needed either, so it can be written directly.
+            if (returnGen == null || insertSourceGen instanceof FromRawInsertSource) {
                 rawSource = insertSourceGen.generateSourceAndCheckConstraintsAsBytesReference(item.insertValues());
             } else {
                 source = insertSourceGen.generateSourceAndCheckConstraints(item.insertValues());
@@ -369,12 +369,19 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
                                        UpdateSourceGen updateSourceGen) throws Exception {
         assert updateSourceGen != null : "UpdateSourceGen must not be null";
         Doc fetchedDoc = getDocument(indexShard, item.id(), item.version(), item.seqNo(), item.primaryTerm());
-        Map<String, Object> source = updateSourceGen.generateSource(
-            fetchedDoc,
-            item.updateAssignments(),
-            item.insertValues()
-        );
-        BytesReference rawSource = BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
+        Map<String, Object> source = null;
+        BytesReference rawSource;
+        if (returnGen == null && updateSourceGen.canPatch(item.updateAssignments())) {
+            // Avoids parsing the existing source into a map and serializing it again
+            rawSource = updateSourceGen.patchSource(fetchedDoc, item.updateAssignments(), item.insertValues());
+        } else {
+            source = updateSourceGen.generateSource(
+                fetchedDoc,
+                item.updateAssignments(),
+                item.insertValues()
+            );
+            rawSource = BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
+        }
         item.source(rawSource);
         long seqNo = item.seqNo();
         long primaryTerm = item.primaryTerm();
@@ -462,7 +469,7 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         if (doc == null) {
             throw new DocumentMissingException(indexShard.shardId(), Constants.DEFAULT_MAPPING_TYPE, id);
         }
-        if (doc.getSource() == null) {
+        if (!doc.hasSource()) {
             throw new DocumentSourceMissingException(indexShard.shardId(), Constants.DEFAULT_MAPPING_TYPE, id);
         }
         if (version != Versions.MATCH_ANY && version != doc.getVersion()) {
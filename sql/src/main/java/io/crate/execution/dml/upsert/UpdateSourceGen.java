@@ -33,14 +33,20 @@ import io.crate.expression.reference.ReferenceResolver;
 import io.crate.expression.symbol.InputColumn;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolVisitors;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.doc.DocTableInfo;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -79,12 +85,16 @@ final class UpdateSourceGen {
     private final GeneratedColumns<Doc> generatedColumns;
     private final ArrayList<Reference> updateColumns;
     private final CheckConstraints<Doc, CollectExpression<Doc, ?>> checks;
+    private final List<ColumnIdent> notNullColumns;
+    private final boolean hasGeneratedColumns;
 
     UpdateSourceGen(Functions functions, TransactionContext txnCtx, DocTableInfo table, String[] updateColumns) {
         DocRefResolver refResolver = new DocRefResolver(table.partitionedBy());
         this.eval = new Evaluator(functions, txnCtx, refResolver);
         InputFactory inputFactory = new InputFactory(functions);
         this.checks = new CheckConstraints<>(txnCtx, inputFactory, refResolver, table);
+        this.notNullColumns = new ArrayList<>(table.notNullColumns());
+        this.hasGeneratedColumns = !table.generatedColumns().isEmpty();
         this.updateColumns = new ArrayList<>(updateColumns.length);
         for (String updateColumn : updateColumns) {
             ColumnIdent column = ColumnIdent.fromPath(updateColumn);
@@ -130,6 +140,67 @@ final class UpdateSourceGen {
         return updatedSource;
     }
 
+    /**
+     * @return true if {@link #patchSource(Doc, Symbol[], Object[])} can be used for the given assignments.
+     *         This is the case if the assignments don't refer to values of the existing document,
+     *         e.g. {@code ON CONFLICT DO UPDATE SET x = excluded.x}, and there are no generated columns which
+     *         would have to be re-computed.
+     */
+    boolean canPatch(Symbol[] updateAssignments) {
+        return !hasGeneratedColumns
+               && !SymbolVisitors.any(s -> s instanceof Reference, Arrays.asList(updateAssignments));
+    }
+
+    /**
+     * Like {@link #generateSource(Doc, Symbol[], Object[])} but writes the updated values into the raw source
+     * of the existing document without parsing it into a map and serializing the map again.
+     *
+     * Must only be used if {@link #canPatch(Symbol[])} is true.
+     */
+    BytesReference patchSource(Doc result, Symbol[] updateAssignments, Object[] insertValues) throws IOException {
+        Values values = new Values(result, insertValues);
+        SourcePatch patch = new SourcePatch();
+        for (int i = 0; i < updateColumns.size(); i++) {
+            ColumnIdent column = updateColumns.get(i).column();
+            Object value = updateAssignments[i].accept(eval, values).value();
+            validateNotNull(column, value);
+            if (!patch.put(column, value)) {
+                // Assignments to a column and one of its children; the order matters, let mergeInto handle it
+                Map<String, Object> source = generateSource(result, updateAssignments, insertValues);
+                return BytesReference.bytes(XContentFactory.jsonBuilder().map(source));
+            }
+        }
+        return patch.applyTo(result.getRaw());
+    }
+
+    /**
+     * Columns which aren't updated were already valid in the existing document,
+     * so only the updated columns and their children need to be checked.
+     */
+    private void validateNotNull(ColumnIdent updatedColumn, Object value) {
+        for (int i = 0; i < notNullColumns.size(); i++) {
+            ColumnIdent notNullColumn = notNullColumns.get(i);
+            Object notNullValue;
+            if (notNullColumn.equals(updatedColumn)) {
+                notNullValue = value;
+            } else if (notNullColumn.isChildOf(updatedColumn)) {
+                if (!(value instanceof Map)) {
+                    notNullValue = null;
+                } else {
+                    List<String> path = notNullColumn.path();
+                    //noinspection unchecked
+                    notNullValue = Maps.getByPath(
+                        (Map<String, Object>) value, path.subList(updatedColumn.path().size(), path.size()));
+                }
+            } else {
+                continue;
+            }
+            if (notNullValue == null) {
+                throw new IllegalArgumentException("\"" + notNullColumn + "\" must not be null");
+            }
+        }
+    }
+
     private void injectGeneratedColumns(HashMap<String, Object> updatedSource) {
         for (Map.Entry<Reference, Input<?>> entry : generatedColumns.generatedToInject()) {
             ColumnIdent column = entry.getKey().column();
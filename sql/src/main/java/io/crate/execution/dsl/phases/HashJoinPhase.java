@@ -28,6 +28,7 @@ import io.crate.expression.symbol.Symbols;
 import io.crate.planner.node.dql.join.JoinType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
@@ -43,6 +44,8 @@ public class HashJoinPhase extends JoinPhase {
     private final List<Symbol> rightJoinConditionInputs;
 
     private final Collection<DataType> leftOutputTypes;
+    @Nullable
+    private final Collection<DataType> rightOutputTypes;
     private final long estimatedRowSizeForLeft;
     private final long numberOfRowsForLeft;
 
@@ -55,10 +58,12 @@ public class HashJoinPhase extends JoinPhase {
                          int numLeftOutputs,
                          int numRightOutputs,
                          Collection<String> executionNodes,
+                         JoinType joinType,
                          @Nullable Symbol joinCondition,
                          List<Symbol> leftJoinConditionInputs,
                          List<Symbol> rightJoinConditionInputs,
                          Collection<DataType> leftOutputTypes,
+                         Collection<DataType> rightOutputTypes,
                          long estimatedRowSizeForLeft,
                          long numberOfRowsForLeft) {
         super(
@@ -71,12 +76,13 @@ public class HashJoinPhase extends JoinPhase {
             numLeftOutputs,
             numRightOutputs,
             executionNodes,
-            JoinType.INNER,
+            joinType,
             joinCondition);
         assert joinCondition != null : "JoinCondition for HashJoin cannot be null";
         this.leftJoinConditionInputs = leftJoinConditionInputs;
         this.rightJoinConditionInputs = rightJoinConditionInputs;
         this.leftOutputTypes = leftOutputTypes;
+        this.rightOutputTypes = rightOutputTypes;
         this.estimatedRowSizeForLeft = estimatedRowSizeForLeft;
         this.numberOfRowsForLeft = numberOfRowsForLeft;
     }
@@ -90,6 +96,11 @@ public class HashJoinPhase extends JoinPhase {
 
         estimatedRowSizeForLeft = in.readZLong();
         numberOfRowsForLeft = in.readZLong();
+        if (in.getVersion().onOrAfter(Version.V_4_2_0)) {
+            rightOutputTypes = DataTypes.listFromStream(in);
+        } else {
+            rightOutputTypes = null;
+        }
     }
 
     @Override
@@ -102,6 +113,9 @@ public class HashJoinPhase extends JoinPhase {
 
         out.writeZLong(estimatedRowSizeForLeft);
         out.writeZLong(numberOfRowsForLeft);
+        if (out.getVersion().onOrAfter(Version.V_4_2_0)) {
+            DataTypes.toStream(rightOutputTypes, out);
+        }
     }
 
     @Override
@@ -126,6 +140,15 @@ public class HashJoinPhase extends JoinPhase {
         return leftOutputTypes;
     }
 
+    /**
+     * The types of the right outputs, required to spill the right side to disk.
+     * Null if the phase was sent by a node which doesn't provide them.
+     */
+    @Nullable
+    public Collection<DataType> rightOutputTypes() {
+        return rightOutputTypes;
+    }
+
     public long estimatedRowSizeForLeft() {
         return estimatedRowSizeForLeft;
     }
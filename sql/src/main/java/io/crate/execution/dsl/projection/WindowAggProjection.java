@@ -47,10 +47,23 @@ public class WindowAggProjection extends Projection {
     private final ArrayList<Symbol> outputs;
     private final ArrayList<WindowFunctionContext> windowFunctionContexts;
     private final ArrayList<WindowFunction> windowFunctions;
+    private final boolean sourceIsSorted;
 
     public WindowAggProjection(WindowDefinition windowDefinition,
                                ArrayList<WindowFunctionContext> windowFunctionContexts,
                                List<Symbol> standaloneWithInputs) {
+        this(windowDefinition, windowFunctionContexts, standaloneWithInputs, false);
+    }
+
+    /**
+     * @param sourceIsSorted true if the rows of the source are already sorted by the partition by and order by
+     *                       symbols of the window definition. The window functions are then computed partition by
+     *                       partition while the source is consumed.
+     */
+    public WindowAggProjection(WindowDefinition windowDefinition,
+                               ArrayList<WindowFunctionContext> windowFunctionContexts,
+                               List<Symbol> standaloneWithInputs,
+                               boolean sourceIsSorted) {
         this.windowFunctions = windowFunctionContexts.stream()
             .map(WindowFunctionContext::function)
             .collect(Collectors.toCollection(ArrayList::new));
@@ -61,6 +74,7 @@ public class WindowAggProjection extends Projection {
         this.windowDefinition = windowDefinition;
         this.windowFunctionContexts = windowFunctionContexts;
         this.standaloneWithInputs = standaloneWithInputs;
+        this.sourceIsSorted = sourceIsSorted;
         outputs = new ArrayList<>(standaloneWithInputs);
         outputs.addAll(windowFunctions);
     }
@@ -85,6 +99,11 @@ public class WindowAggProjection extends Projection {
                 new WindowFunctionContext(function, inputs, filter));
             windowFunctions.add(function);
         }
+        if (in.getVersion().onOrAfter(Version.V_4_2_0)) {
+            sourceIsSorted = in.readBoolean();
+        } else {
+            sourceIsSorted = false;
+        }
         outputs = new ArrayList<>(standaloneWithInputs);
         outputs.addAll(windowFunctions);
     }
@@ -101,6 +120,10 @@ public class WindowAggProjection extends Projection {
         return standaloneWithInputs;
     }
 
+    public boolean sourceIsSorted() {
+        return sourceIsSorted;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -110,13 +133,14 @@ public class WindowAggProjection extends Projection {
             return false;
         }
         WindowAggProjection that = (WindowAggProjection) o;
-        return Objects.equals(windowDefinition, that.windowDefinition) &&
+        return sourceIsSorted == that.sourceIsSorted &&
+               Objects.equals(windowDefinition, that.windowDefinition) &&
                Objects.equals(windowFunctionContexts, that.windowFunctionContexts);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), windowDefinition, windowFunctionContexts);
+        return Objects.hash(super.hashCode(), windowDefinition, windowFunctionContexts, sourceIsSorted);
     }
 
     @Override
@@ -153,6 +177,9 @@ public class WindowAggProjection extends Projection {
             }
             Symbols.toStream(windowFunctionContext.inputs(), out);
         }
+        if (out.getVersion().onOrAfter(Version.V_4_2_0)) {
+            out.writeBoolean(sourceIsSorted);
+        }
     }
 
     @Override
@@ -105,6 +105,45 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
         return false;
     }
 
+    /**
+     * Indicates if the partial states of this aggregation are immutable values, which means that neither
+     * {@link #iterate(RamAccounting, MemoryManager, Object, Input[])} nor
+     * {@link #reduce(RamAccounting, Object, Object)} mutate the states they are called with.
+     * Such states can be shared and reduced in any grouping, which allows to compute sliding window frames
+     * out of pre-aggregated states of ranges of rows.
+     */
+    public boolean hasImmutablePartialState() {
+        return false;
+    }
+
+    /**
+     * Indicates if {@link #reduceShared(RamAccounting, MemoryManager, Object, Object)} is supported.
+     * This is the case for all aggregations with {@link #hasImmutablePartialState()}.
+     */
+    public boolean supportsReduceShared() {
+        return hasImmutablePartialState();
+    }
+
+    /**
+     * Reduces {@code sharedState} into {@code state}.
+     * <p>
+     * Other than {@link #reduce(RamAccounting, Object, Object)} this must neither mutate {@code sharedState} nor
+     * return it or any mutable part of it, because it is reduced into other states as well. {@code state} is owned
+     * by the caller and may be mutated.
+     * This allows to compute sliding window frames out of pre-aggregated states of ranges of rows.
+     * </p>
+     *
+     * @return the reduced state. This might be a new instance or the mutated {@code state}.
+     */
+    public TPartial reduceShared(RamAccounting ramAccounting,
+                                 MemoryManager memoryManager,
+                                 TPartial state,
+                                 TPartial sharedState) {
+        assert hasImmutablePartialState()
+            : "Aggregations with mutable partial states must implement reduceShared themselves";
+        return reduce(ramAccounting, state, sharedState);
+    }
+
     public TPartial removeFromAggregatedState(RamAccounting ramAccounting,
                                               TPartial previousAggState,
                                               Input[] stateToRemove) {
@@ -0,0 +1,325 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.memory.MemoryManager;
+import io.netty.buffer.ByteBuf;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Open addressing hash map for {@link BytesRef} keys, e.g. keys encoded by {@link GroupKeyEncoder}.
+ *
+ * <p>
+ * Each new key gets an id. The bytes of all keys are copied into pages allocated via a {@link MemoryManager}, so
+ * they are off-heap if the {@link MemoryManager} is, and the values are stored in an array indexed by the id.
+ * A lookup doesn't allocate and an insert only copies the key bytes, so the given key can be a reused instance.
+ * </p>
+ *
+ * <p>
+ * The pages are accounted by the {@link MemoryManager}. On {@link #close()} or {@link #clear()} they are handed back
+ * to the {@link KeyPages} so that the next map can re-use them, e.g. after the groups have been spilled to disk.
+ * </p>
+ *
+ * <p>
+ * Null keys and removals are not supported.
+ * </p>
+ */
+final class BytesRefObjectHashMap<V> extends AbstractMap<BytesRef, V> implements Releasable {
+
+    static final int PAGE_SIZE = 16 * 1024;
+
+    /**
+     * Bytes used per entry in addition to the key bytes:
+     * page, offset, length and hash (4 * 4), value reference (8) and 2 slots (2 * 4) due to the load factor of 0.5,
+     * plus some headroom for the over-allocation of growing arrays.
+     */
+    static final int ENTRY_OVERHEAD = 40;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final KeyPages keyPages;
+    private final ArrayList<ByteBuf> pages = new ArrayList<>();
+    private int pageOffset = 0;
+
+    private int[] slots;
+    private int mask;
+
+    private int[] keyPageIds = new int[INITIAL_CAPACITY];
+    private int[] keyOffsets = new int[INITIAL_CAPACITY];
+    private int[] keyLengths = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+
+    BytesRefObjectHashMap(KeyPages keyPages) {
+        this.keyPages = keyPages;
+        initSlots(INITIAL_CAPACITY * 2);
+    }
+
+    private void initSlots(int numSlots) {
+        // slots contain id + 1, 0 marks an empty slot
+        slots = new int[numSlots];
+        mask = numSlots - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof BytesRef && find((BytesRef) key, key.hashCode()) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key instanceof BytesRef) {
+            int id = find((BytesRef) key, key.hashCode());
+            return id < 0 ? null : (V) values[id];
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(BytesRef key, V value) {
+        int hash = key.hashCode();
+        int id = find(key, hash);
+        if (id >= 0) {
+            V previous = (V) values[id];
+            values[id] = value;
+            return previous;
+        }
+        id = size;
+        if (id == values.length) {
+            growEntries();
+        }
+        ByteBuf page = pageFor(key.length);
+        page.setBytes(pageOffset, key.bytes, key.offset, key.length);
+        keyPageIds[id] = pages.size() - 1;
+        keyOffsets[id] = pageOffset;
+        keyLengths[id] = key.length;
+        pageOffset += key.length;
+        hashes[id] = hash;
+        values[id] = value;
+        size++;
+        if (size * 2 > slots.length) {
+            initSlots(slots.length * 2);
+            for (int i = 0; i < size; i++) {
+                insertSlot(i);
+            }
+        } else {
+            insertSlot(id);
+        }
+        return null;
+    }
+
+    /**
+     * @return the last page, or a new last page if the last one doesn't have room for {@code length} bytes
+     */
+    private ByteBuf pageFor(int length) {
+        if (!pages.isEmpty()) {
+            ByteBuf page = pages.get(pages.size() - 1);
+            if (pageOffset + length <= page.capacity()) {
+                return page;
+            }
+        }
+        ByteBuf page = keyPages.acquire(length);
+        pages.add(page);
+        pageOffset = 0;
+        return page;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        releasePages();
+    }
+
+    /**
+     * Hands the pages back to the {@link KeyPages}. The map must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        releasePages();
+    }
+
+    private void releasePages() {
+        for (ByteBuf page : pages) {
+            keyPages.release(page);
+        }
+        pages.clear();
+        pageOffset = 0;
+    }
+
+    /**
+     * The key of an entry is re-used and only valid until the next call to {@link Iterator#next()}.
+     */
+    @Override
+    public Set<Entry<BytesRef, V>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<BytesRef, V>> iterator() {
+                return new Iterator<>() {
+
+                    final BytesRef key = new BytesRef();
+                    int id = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return id < size;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<BytesRef, V> next() {
+                        if (id >= size) {
+                            throw new NoSuchElementException("Iterator is exhausted");
+                        }
+                        int length = keyLengths[id];
+                        key.bytes = ArrayUtil.grow(key.bytes, length);
+                        key.length = length;
+                        pages.get(keyPageIds[id]).getBytes(keyOffsets[id], key.bytes, 0, length);
+                        Entry<BytesRef, V> entry = new SimpleImmutableEntry<>(key, (V) values[id]);
+                        id++;
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+
+    private int find(BytesRef key, int hash) {
+        int slot = hash & mask;
+        while (true) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && equalsKey(id, key)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean equalsKey(int id, BytesRef key) {
+        int length = keyLengths[id];
+        if (length != key.length) {
+            return false;
+        }
+        ByteBuf page = pages.get(keyPageIds[id]);
+        int offset = keyOffsets[id];
+        for (int i = 0; i < length; i++) {
+            if (page.getByte(offset + i) != key.bytes[key.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insertSlot(int id) {
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private void growEntries() {
+        int newLength = ArrayUtil.oversize(size + 1, Integer.BYTES);
+        keyPageIds = Arrays.copyOf(keyPageIds, newLength);
+        keyOffsets = Arrays.copyOf(keyOffsets, newLength);
+        keyLengths = Arrays.copyOf(keyLengths, newLength);
+        hashes = Arrays.copyOf(hashes, newLength);
+        values = Arrays.copyOf(values, newLength);
+    }
+
+    /**
+     * Allocates the pages for the key bytes of one or more {@link BytesRefObjectHashMap} instances via a
+     * {@link MemoryManager} and keeps the pages of closed maps for re-use.
+     * Pages are {@link #PAGE_SIZE} bytes, keys which are larger get a page of their own.
+     *
+     * Like the {@link MemoryManager}, this class doesn't support concurrent access.
+     */
+    static final class KeyPages {
+
+        private final MemoryManager memoryManager;
+        private final ArrayDeque<ByteBuf> freePages = new ArrayDeque<>();
+        private final ArrayList<ByteBuf> freeLargePages = new ArrayList<>();
+
+        KeyPages(MemoryManager memoryManager) {
+            this.memoryManager = memoryManager;
+        }
+
+        ByteBuf acquire(int minCapacity) {
+            if (minCapacity <= PAGE_SIZE) {
+                ByteBuf page = freePages.poll();
+                return page == null ? memoryManager.allocate(PAGE_SIZE) : page;
+            }
+            for (int i = 0; i < freeLargePages.size(); i++) {
+                ByteBuf page = freeLargePages.get(i);
+                if (page.capacity() >= minCapacity) {
+                    freeLargePages.remove(i);
+                    return page;
+                }
+            }
+            return memoryManager.allocate(minCapacity);
+        }
+
+        void release(ByteBuf page) {
+            if (page.capacity() == PAGE_SIZE) {
+                freePages.add(page);
+            } else {
+                freeLargePages.add(page);
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.IpType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.UnicodeUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Serializes the values of multiple GROUP BY keys into a single, reusable {@link BytesRef}.
+ *
+ * <p>
+ * Each value is prefixed with a null marker, followed by a fixed-width representation for numeric types
+ * and the length prefixed UTF-8 bytes for strings. Two keys are equal if their encoded bytes are equal.
+ * </p>
+ *
+ * <p>
+ * The returned {@link BytesRef} is only valid until the next call to one of the {@code encode} methods.
+ * </p>
+ */
+final class GroupKeyEncoder {
+
+    private static final byte NULL = 0;
+    private static final byte NOT_NULL = 1;
+
+    private final int[] typeIds;
+    private final BytesRefBuilder scratch = new BytesRefBuilder();
+
+    static boolean supports(List<? extends DataType> keyTypes) {
+        for (DataType<?> keyType : keyTypes) {
+            switch (keyType.id()) {
+                case BooleanType.ID:
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                case FloatType.ID:
+                case DoubleType.ID:
+                case StringType.ID:
+                case IpType.ID:
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    GroupKeyEncoder(List<? extends DataType> keyTypes) {
+        assert supports(keyTypes) : "All key types must be supported, got: " + keyTypes;
+        typeIds = new int[keyTypes.size()];
+        for (int i = 0; i < typeIds.length; i++) {
+            typeIds[i] = keyTypes.get(i).id();
+        }
+    }
+
+    BytesRef encode(List<Input<?>> keyInputs) {
+        scratch.clear();
+        for (int i = 0; i < typeIds.length; i++) {
+            encodeValue(typeIds[i], keyInputs.get(i).value());
+        }
+        return scratch.get();
+    }
+
+    /**
+     * Encodes the leading key columns of a row, e.g. a row of spilled groups
+     */
+    BytesRef encode(Row row) {
+        scratch.clear();
+        for (int i = 0; i < typeIds.length; i++) {
+            encodeValue(typeIds[i], row.get(i));
+        }
+        return scratch.get();
+    }
+
+    /**
+     * Decodes the key values into the leading cells
+     */
+    void decode(BytesRef key, Object[] cells) {
+        byte[] bytes = key.bytes;
+        int pos = key.offset;
+        for (int i = 0; i < typeIds.length; i++) {
+            if (bytes[pos++] == NULL) {
+                cells[i] = null;
+                continue;
+            }
+            switch (typeIds[i]) {
+                case BooleanType.ID:
+                    cells[i] = bytes[pos] == 1;
+                    pos += 1;
+                    break;
+
+                case ByteType.ID:
+                    cells[i] = bytes[pos];
+                    pos += 1;
+                    break;
+
+                case ShortType.ID:
+                    cells[i] = (short) readInt(bytes, pos);
+                    pos += 4;
+                    break;
+
+                case IntegerType.ID:
+                    cells[i] = readInt(bytes, pos);
+                    pos += 4;
+                    break;
+
+                case FloatType.ID:
+                    cells[i] = Float.intBitsToFloat(readInt(bytes, pos));
+                    pos += 4;
+                    break;
+
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                    cells[i] = readLong(bytes, pos);
+                    pos += 8;
+                    break;
+
+                case DoubleType.ID:
+                    cells[i] = Double.longBitsToDouble(readLong(bytes, pos));
+                    pos += 8;
+                    break;
+
+                case StringType.ID:
+                case IpType.ID:
+                    int length = readInt(bytes, pos);
+                    pos += 4;
+                    cells[i] = new String(bytes, pos, length, StandardCharsets.UTF_8);
+                    pos += length;
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unsupported key type: " + typeIds[i]);
+            }
+        }
+        assert pos == key.offset + key.length : "Must consume all bytes of the key";
+    }
+
+    private void encodeValue(int typeId, Object value) {
+        if (value == null) {
+            scratch.append(NULL);
+            return;
+        }
+        scratch.append(NOT_NULL);
+        switch (typeId) {
+            case BooleanType.ID:
+                scratch.append((byte) ((Boolean) value ? 1 : 0));
+                break;
+
+            case ByteType.ID:
+                scratch.append(((Number) value).byteValue());
+                break;
+
+            case ShortType.ID:
+            case IntegerType.ID:
+                writeInt(((Number) value).intValue());
+                break;
+
+            case FloatType.ID:
+                writeInt(Float.floatToIntBits(((Number) value).floatValue()));
+                break;
+
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                writeLong(((Number) value).longValue());
+                break;
+
+            case DoubleType.ID:
+                writeLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+                break;
+
+            case StringType.ID:
+            case IpType.ID:
+                writeString((String) value);
+                break;
+
+            default:
+                throw new IllegalStateException("Unsupported key type: " + typeId);
+        }
+    }
+
+    private void writeInt(int value) {
+        int pos = scratch.length();
+        scratch.grow(pos + 4);
+        byte[] bytes = scratch.bytes();
+        bytes[pos] = (byte) (value >>> 24);
+        bytes[pos + 1] = (byte) (value >>> 16);
+        bytes[pos + 2] = (byte) (value >>> 8);
+        bytes[pos + 3] = (byte) value;
+        scratch.setLength(pos + 4);
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeString(String value) {
+        int lengthPos = scratch.length();
+        int start = lengthPos + 4;
+        scratch.grow(start + UnicodeUtil.maxUTF8Length(value.length()));
+        int end = UnicodeUtil.UTF16toUTF8(value, 0, value.length(), scratch.bytes(), start);
+        scratch.setLength(lengthPos);
+        writeInt(end - start);
+        scratch.setLength(end);
+    }
+
+    private static int readInt(byte[] bytes, int pos) {
+        return ((bytes[pos] & 0xFF) << 24)
+               | ((bytes[pos + 1] & 0xFF) << 16)
+               | ((bytes[pos + 2] & 0xFF) << 8)
+               | (bytes[pos + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int pos) {
+        return ((long) readInt(bytes, pos) << 32) | (readInt(bytes, pos + 4) & 0xFFFFFFFFL);
+    }
+}
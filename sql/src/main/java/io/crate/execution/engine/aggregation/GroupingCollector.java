@@ -22,7 +22,10 @@
 
 package io.crate.execution.engine.aggregation;
 
+import com.carrotsearch.hppc.BitMixer;
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
@@ -30,18 +33,30 @@ import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.RowN;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.RowSpillFile;
 import io.crate.expression.InputCondition;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.memory.MemoryManager;
 import io.crate.types.DataType;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasable;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -53,9 +68,33 @@ import java.util.stream.Collector;
  * Collector implementation which uses {@link AggregateMode}s and {@code keyInputs}
  * to group rows by key and aggregate the grouped values.
  *
+ * <p>
+ * If a spill directory is available and the circuit breaker is about to trip, the groups which are held in memory
+ * are written to disk: The keys and partial aggregation states (serialized using the streamer of
+ * {@link AggregationFunction#partialType()}) are hash-partitioned into {@link #NUM_PARTITIONS} files and the
+ * in-memory groups are cleared. Once all rows are consumed, the partitions are merged one after another by reducing
+ * the partial states of each key. A partition which still doesn't fit into memory is partitioned again using
+ * different bits of the hash, up to {@link #MAX_SPILL_LEVELS} times.
+ * </p>
+ *
  * @param <K> type of the key
  */
-public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, Iterable<Row>> {
+public class GroupingCollector<K> implements Collector<Row, GroupingCollector.Groups<K>, Iterable<Row>>, Closeable {
+
+    private static final int PARTITION_BITS = 5;
+    static final int NUM_PARTITIONS = 1 << PARTITION_BITS;
+    static final int MAX_SPILL_LEVELS = 3;
+
+    /**
+     * Groups are spilled if the used memory of the circuit breaker exceeds this fraction of its limit ...
+     */
+    private static final double SPILL_THRESHOLD = 0.9;
+
+    /**
+     * ... and if the groups use at least this fraction of the limit,
+     * to avoid spilling small group maps in favour of other memory consumers.
+     */
+    private static final double MIN_FRACTION_TO_SPILL = 0.05;
 
     private final CollectExpression<Row, ?>[] expressions;
     private final AggregationFunction[] aggregations;
@@ -68,10 +107,17 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
     private final int numKeyColumns;
     private final BiConsumer<Map<K, Object[]>, K> accountForNewEntry;
     private final Function<Row, K> keyExtractor;
+    private final Function<Row, K> keyFromSpilledRow;
     private final Version indexVersionCreated;
-    private final BiConsumer<Map<K, Object[]>, Row> accumulator;
-    private final Supplier<Map<K, Object[]>> supplier;
+    private final BiConsumer<Groups<K>, Row> accumulator;
+    private final Supplier<Map<K, Object[]>> mapSupplier;
     private final Version minNodeVersion;
+    private final List<? extends DataType> keyTypes;
+    @Nullable
+    private final Path spillDirectory;
+    @Nullable
+    private final CircuitBreaker circuitBreaker;
+    private final List<RowSpillFile> spillFiles = new ArrayList<>();
 
     static GroupingCollector<Object> singleKey(CollectExpression<Row, ?>[] expressions,
                                                AggregateMode mode,
@@ -83,26 +129,33 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                Version minNodeVersion,
                                                Input<?> keyInput,
                                                DataType keyType,
-                                               Version indexVersionCreated) {
+                                               Version indexVersionCreated,
+                                               @Nullable Path spillDirectory,
+                                               @Nullable CircuitBreaker circuitBreaker) {
+        RamAccounting groupsRamAccounting = groupsRamAccounting(ramAccounting);
         return new GroupingCollector<>(
             expressions,
             aggregations,
             mode,
             inputs,
             filters,
-            ramAccounting,
+            groupsRamAccounting,
             memoryManager,
             minNodeVersion,
             (key, cells) -> cells[0] = key,
             1,
             GroupByMaps.accountForNewEntry(
-                ramAccounting,
+                groupsRamAccounting,
                 SizeEstimatorFactory.create(keyType),
                 keyType
             ),
             row -> keyInput.value(),
+            row -> row.get(0),
             indexVersionCreated,
-            GroupByMaps.mapForType(keyType)
+            GroupByMaps.mapForType(keyType),
+            List.of(keyType),
+            spillDirectory,
+            circuitBreaker
         );
     }
 
@@ -116,29 +169,86 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                     Version minNodeVersion,
                                                     List<Input<?>> keyInputs,
                                                     List<? extends DataType> keyTypes,
-                                                    Version indexVersionCreated) {
+                                                    Version indexVersionCreated,
+                                                    @Nullable Path spillDirectory,
+                                                    @Nullable CircuitBreaker circuitBreaker) {
+        RamAccounting groupsRamAccounting = groupsRamAccounting(ramAccountingContext);
         return new GroupingCollector<>(
             expressions,
             aggregations,
             mode,
             inputs,
             filters,
-            ramAccountingContext,
+            groupsRamAccounting,
             memoryManager,
             minNodeVersion,
             GroupingCollector::applyKeysToCells,
             keyInputs.size(),
             GroupByMaps.accountForNewEntry(
-                ramAccountingContext,
+                groupsRamAccounting,
                 new MultiSizeEstimator(keyTypes),
                 null
             ),
             row -> evalKeyInputs(keyInputs),
+            row -> keysFromRow(row, keyTypes.size()),
+            indexVersionCreated,
+            HashMap::new,
+            keyTypes,
+            spillDirectory,
+            circuitBreaker
+        );
+    }
+
+    /**
+     * Like {@link #manyKeys}, but the keys are encoded into a {@link BytesRef} which is re-used for each row.
+     * Only key types supported by {@link GroupKeyEncoder} can be used.
+     * The bytes of the keys are stored in pages allocated via the {@code memoryManager}, which accounts them.
+     */
+    static GroupingCollector<BytesRef> encodedKeys(CollectExpression<Row, ?>[] expressions,
+                                                   AggregateMode mode,
+                                                   AggregationFunction[] aggregations,
+                                                   Input[][] inputs,
+                                                   Input<Boolean>[] filters,
+                                                   RamAccounting ramAccounting,
+                                                   MemoryManager memoryManager,
+                                                   Version minNodeVersion,
+                                                   List<Input<?>> keyInputs,
+                                                   List<? extends DataType> keyTypes,
+                                                   Version indexVersionCreated,
+                                                   @Nullable Path spillDirectory,
+                                                   @Nullable CircuitBreaker circuitBreaker) {
+        RamAccounting groupsRamAccounting = groupsRamAccounting(ramAccounting);
+        GroupKeyEncoder keyEncoder = new GroupKeyEncoder(keyTypes);
+        BytesRefObjectHashMap.KeyPages keyPages = new BytesRefObjectHashMap.KeyPages(memoryManager);
+        return new GroupingCollector<>(
+            expressions,
+            aggregations,
+            mode,
+            inputs,
+            filters,
+            groupsRamAccounting,
+            memoryManager,
+            minNodeVersion,
+            keyEncoder::decode,
+            keyInputs.size(),
+            (map, key) -> groupsRamAccounting.addBytes(BytesRefObjectHashMap.ENTRY_OVERHEAD),
+            row -> keyEncoder.encode(keyInputs),
+            keyEncoder::encode,
             indexVersionCreated,
-            HashMap::new
+            () -> new BytesRefObjectHashMap<>(keyPages),
+            keyTypes,
+            spillDirectory,
+            circuitBreaker
         );
     }
 
+    /**
+     * The groups account their memory separately, so that it can be released once they're spilled to disk.
+     */
+    private static RamAccounting groupsRamAccounting(RamAccounting ramAccounting) {
+        return new ConcurrentRamAccounting(ramAccounting::addBytes, bytes -> ramAccounting.addBytes(- bytes));
+    }
+
     private static List<Object> evalKeyInputs(List<Input<?>> keyInputs) {
         List<Object> key = new ArrayList<>(keyInputs.size());
         for (Input<?> keyInput : keyInputs) {
@@ -147,6 +257,14 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         return key;
     }
 
+    private static List<Object> keysFromRow(Row row, int numKeys) {
+        List<Object> key = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            key.add(row.get(i));
+        }
+        return key;
+    }
+
     private static void applyKeysToCells(List<Object> keys, Object[] cells) {
         for (int i = 0; i < keys.size(); i++) {
             cells[i] = keys.get(i);
@@ -165,8 +283,12 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                               int numKeyColumns,
                               BiConsumer<Map<K, Object[]>, K> accountForNewEntry,
                               Function<Row, K> keyExtractor,
+                              Function<Row, K> keyFromSpilledRow,
                               Version indexVersionCreated,
-                              Supplier<Map<K, Object[]>> supplier) {
+                              Supplier<Map<K, Object[]>> mapSupplier,
+                              List<? extends DataType> keyTypes,
+                              @Nullable Path spillDirectory,
+                              @Nullable CircuitBreaker circuitBreaker) {
         this.expressions = expressions;
         this.aggregations = aggregations;
         this.mode = mode;
@@ -178,32 +300,36 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         this.numKeyColumns = numKeyColumns;
         this.accountForNewEntry = accountForNewEntry;
         this.keyExtractor = keyExtractor;
+        this.keyFromSpilledRow = keyFromSpilledRow;
         this.indexVersionCreated = indexVersionCreated;
         this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
-        this.supplier = supplier;
+        this.mapSupplier = mapSupplier;
         this.minNodeVersion = minNodeVersion;
+        this.spillDirectory = spillDirectory;
+        this.circuitBreaker = circuitBreaker;
+        this.keyTypes = keyTypes;
     }
 
     @Override
-    public Supplier<Map<K, Object[]>> supplier() {
-        return supplier;
+    public Supplier<Groups<K>> supplier() {
+        return () -> new Groups<>(mapSupplier.get(), 0);
     }
 
     @Override
-    public BiConsumer<Map<K, Object[]>, Row> accumulator() {
+    public BiConsumer<Groups<K>, Row> accumulator() {
         return accumulator;
     }
 
     @Override
-    public BinaryOperator<Map<K, Object[]>> combiner() {
+    public BinaryOperator<Groups<K>> combiner() {
         return (state1, state2) -> {
             throw new UnsupportedOperationException("combine not supported");
         };
     }
 
     @Override
-    public Function<Map<K, Object[]>, Iterable<Row>> finisher() {
-        return this::mapToRows;
+    public Function<Groups<K>, Iterable<Row>> finisher() {
+        return this::finish;
     }
 
     @Override
@@ -211,18 +337,29 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         return Collections.emptySet();
     }
 
-    private void reduce(Map<K, Object[]> statesByKey, Row row) {
+    /**
+     * Deletes the files of spilled groups
+     */
+    @Override
+    public void close() {
+        for (RowSpillFile spillFile : spillFiles) {
+            spillFile.close();
+        }
+        spillFiles.clear();
+    }
+
+    private void reduce(Groups<K> groups, Row row) {
         for (CollectExpression<Row, ?> expression : expressions) {
             expression.setNextRow(row);
         }
         K key = keyExtractor.apply(row);
-        Object[] states = statesByKey.get(key);
+        Object[] states = groups.statesByKey.get(key);
         if (states == null) {
             states = new Object[aggregations.length];
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = inputs[i][0].value();
             }
-            addWithAccounting(statesByKey, key, states);
+            addWithAccounting(groups, key, states);
         } else {
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = aggregations[i].reduce(ramAccounting, states[i], inputs[i][0].value());
@@ -230,19 +367,31 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         }
     }
 
-    private void addWithAccounting(Map<K, Object[]> statesByKey, K key, Object[] states) {
-        accountForNewEntry.accept(statesByKey, key);
-        statesByKey.put(key, states);
+    private void addWithAccounting(Groups<K> groups, K key, Object[] states) {
+        try {
+            accountForNewEntry.accept(groups.statesByKey, key);
+        } catch (CircuitBreakingException e) {
+            // A growing map is accounted in big steps which can trip the breaker before the spill threshold is reached
+            if (!canSpill(groups) || groups.statesByKey.isEmpty()) {
+                throw e;
+            }
+            spill(groups);
+            accountForNewEntry.accept(groups.statesByKey, key);
+        }
+        groups.statesByKey.put(key, states);
+        if (shouldSpill(groups)) {
+            spill(groups);
+        }
     }
 
-    private void iter(Map<K, Object[]> statesByKey, Row row) {
+    private void iter(Groups<K> groups, Row row) {
         for (CollectExpression<Row, ?> expression : expressions) {
             expression.setNextRow(row);
         }
         K key = keyExtractor.apply(row);
-        Object[] states = statesByKey.get(key);
+        Object[] states = groups.statesByKey.get(key);
         if (states == null) {
-            addNewEntry(statesByKey, key);
+            addNewEntry(groups, key);
         } else {
             for (int i = 0; i < aggregations.length; i++) {
                 if (InputCondition.matches(filters[i])) {
@@ -253,7 +402,7 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         }
     }
 
-    private void addNewEntry(Map<K, Object[]> statesByKey, K key) {
+    private void addNewEntry(Groups<K> groups, K key) {
         Object[] states;
         states = new Object[aggregations.length];
         for (int i = 0; i < aggregations.length; i++) {
@@ -267,7 +416,105 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                 states[i] = newState;
             }
         }
-        addWithAccounting(statesByKey, key, states);
+        addWithAccounting(groups, key, states);
+    }
+
+    /**
+     * Merges a row of spilled groups (keys followed by the partial states) into the given groups.
+     */
+    private void mergeSpilled(Groups<K> groups, Row row) {
+        K key = keyFromSpilledRow.apply(row);
+        Object[] states = groups.statesByKey.get(key);
+        if (states == null) {
+            states = new Object[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++) {
+                states[i] = row.get(numKeyColumns + i);
+            }
+            addWithAccounting(groups, key, states);
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                states[i] = aggregations[i].reduce(ramAccounting, states[i], row.get(numKeyColumns + i));
+            }
+        }
+    }
+
+    private boolean canSpill(Groups<K> groups) {
+        return spillDirectory != null && circuitBreaker != null && groups.level < MAX_SPILL_LEVELS;
+    }
+
+    private boolean shouldSpill(Groups<K> groups) {
+        if (!canSpill(groups)) {
+            return false;
+        }
+        long limit = circuitBreaker.getLimit();
+        return limit > 0
+               && ramAccounting.totalBytes() >= limit * MIN_FRACTION_TO_SPILL
+               && circuitBreaker.getUsed() >= limit * SPILL_THRESHOLD;
+    }
+
+    private void spill(Groups<K> groups) {
+        assert spillDirectory != null : "spillDirectory must be available to spill groups";
+        if (groups.partitions == null) {
+            Streamer<?>[] streamers = new Streamer[numKeyColumns + aggregations.length];
+            for (int i = 0; i < numKeyColumns; i++) {
+                streamers[i] = keyTypes.get(i).streamer();
+            }
+            for (int i = 0; i < aggregations.length; i++) {
+                streamers[numKeyColumns + i] = aggregations[i].partialType().streamer();
+            }
+            RowSpillFile[] partitions = new RowSpillFile[NUM_PARTITIONS];
+            try {
+                for (int i = 0; i < partitions.length; i++) {
+                    partitions[i] = new RowSpillFile(spillDirectory, "group-by-", streamers);
+                    spillFiles.add(partitions[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            groups.partitions = partitions;
+        }
+        Object[] cells = new Object[numKeyColumns + aggregations.length];
+        RowN row = new RowN(cells);
+        for (Map.Entry<K, Object[]> entry : groups.statesByKey.entrySet()) {
+            K key = entry.getKey();
+            applyKeyToCells.accept(key, cells);
+            System.arraycopy(entry.getValue(), 0, cells, numKeyColumns, aggregations.length);
+            groups.partitions[partition(key, groups.level)].add(row);
+        }
+        releaseMap(groups.statesByKey);
+        groups.statesByKey = mapSupplier.get();
+        ramAccounting.release();
+    }
+
+    /**
+     * Maps which hold memory from the {@link MemoryManager} hand it back, so that the next map can re-use it.
+     */
+    private static void releaseMap(Map<?, ?> statesByKey) {
+        if (statesByKey instanceof Releasable) {
+            ((Releasable) statesByKey).close();
+        }
+    }
+
+    /**
+     * Each level uses different bits of the hash, so that the groups of a partition are spread over all partitions
+     * of the next level.
+     */
+    private static int partition(Object key, int level) {
+        return (BitMixer.mix32(Objects.hashCode(key)) >>> (level * PARTITION_BITS)) & (NUM_PARTITIONS - 1);
+    }
+
+    private Iterable<Row> finish(Groups<K> groups) {
+        if (groups.partitions == null) {
+            return mapToRows(groups.statesByKey);
+        }
+        spill(groups);
+        for (RowSpillFile partition : groups.partitions) {
+            partition.finishWriting();
+        }
+        RowSpillFile[] partitions = groups.partitions;
+        int level = groups.level;
+        return () -> new SpilledGroupsIterator(partitions, level);
     }
 
     private Iterable<Row> mapToRows(Map<K, Object[]> statesByKey) {
@@ -297,6 +544,76 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         });
     }
 
+    /**
+     * The groups which are aggregated in memory. Spilled groups are no longer part of {@link #statesByKey}.
+     */
+    static final class Groups<K> {
+
+        private Map<K, Object[]> statesByKey;
+        private final int level;
+
+        @Nullable
+        private RowSpillFile[] partitions;
+
+        private Groups(Map<K, Object[]> statesByKey, int level) {
+            this.statesByKey = statesByKey;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Loads the spilled partitions one at a time into memory and emits their groups.
+     */
+    private class SpilledGroupsIterator implements Iterator<Row> {
+
+        private final RowSpillFile[] partitions;
+        private final int level;
+        private int partitionIdx = 0;
+        private Iterator<Row> currentRows = Collections.emptyIterator();
+        @Nullable
+        private Groups<K> currentGroups;
+
+        SpilledGroupsIterator(RowSpillFile[] partitions, int level) {
+            this.partitions = partitions;
+            this.level = level;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentRows.hasNext()) {
+                if (partitionIdx == partitions.length) {
+                    return false;
+                }
+                currentRows = loadPartition(partitions[partitionIdx]).iterator();
+                partitionIdx++;
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more spilled groups");
+            }
+            return currentRows.next();
+        }
+
+        private Iterable<Row> loadPartition(RowSpillFile partition) {
+            // The groups of the previous partition have been emitted
+            if (currentGroups != null) {
+                releaseMap(currentGroups.statesByKey);
+            }
+            ramAccounting.release();
+            Groups<K> groups = new Groups<>(mapSupplier.get(), level + 1);
+            currentGroups = groups;
+            try (RowSpillFile.Reader reader = partition.reader()) {
+                while (reader.hasNext()) {
+                    mergeSpilled(groups, reader.next());
+                }
+            }
+            return finish(groups);
+        }
+    }
 
     private static class MultiSizeEstimator extends SizeEstimator<List<Object>> {
 
@@ -24,6 +24,7 @@ package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
@@ -36,7 +37,10 @@ import io.crate.types.ArrayType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collector;
 
@@ -44,7 +48,7 @@ import static io.crate.expression.symbol.Symbols.typeView;
 
 public class GroupingProjector implements Projector {
 
-    private final Collector<Row, ?, Iterable<Row>> collector;
+    private final GroupingCollector<Object> collector;
 
 
     public GroupingProjector(List<? extends Symbol> keys,
@@ -55,7 +59,9 @@ public class GroupingProjector implements Projector {
                              RamAccounting ramAccounting,
                              MemoryManager memoryManager,
                              Version minNodeVersion,
-                             Version indexVersionCreated) {
+                             Version indexVersionCreated,
+                             @Nullable Path spillDirectory,
+                             @Nullable CircuitBreaker circuitBreaker) {
         assert keys.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         ensureAllTypesSupported(keys);
 
@@ -81,7 +87,26 @@ public class GroupingProjector implements Projector {
                 minNodeVersion,
                 keyInputs.get(0),
                 key.valueType(),
-                indexVersionCreated
+                indexVersionCreated,
+                spillDirectory,
+                circuitBreaker
+            );
+        } else if (GroupKeyEncoder.supports(typeView(keys))) {
+            //noinspection unchecked
+            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.encodedKeys(
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                filters,
+                ramAccounting,
+                memoryManager,
+                minNodeVersion,
+                keyInputs,
+                typeView(keys),
+                indexVersionCreated,
+                spillDirectory,
+                circuitBreaker
             );
         } else {
             //noinspection unchecked
@@ -96,7 +121,9 @@ public class GroupingProjector implements Projector {
                 minNodeVersion,
                 keyInputs,
                 typeView(keys),
-                indexVersionCreated
+                indexVersionCreated,
+                spillDirectory,
+                circuitBreaker
             );
         }
     }
@@ -112,7 +139,18 @@ public class GroupingProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    batchIterator.close();
+                } finally {
+                    collector.close();
+                }
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.involvesIO()
+        );
     }
 
     public Collector<Row, ?, Iterable<Row>> getCollector() {
@@ -36,6 +36,7 @@ import io.crate.metadata.FunctionInfo.Type;
 import io.crate.metadata.functions.params.FuncParams;
 import io.crate.types.ArrayType;
 import io.crate.types.DataType;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 
@@ -99,6 +100,22 @@ public final class ArrayAgg extends AggregationFunction<List<Object>, List<Objec
         return state1;
     }
 
+    @Override
+    public boolean supportsReduceShared() {
+        return true;
+    }
+
+    @Override
+    public List<Object> reduceShared(RamAccounting ramAccounting,
+                                     MemoryManager memoryManager,
+                                     List<Object> state,
+                                     List<Object> sharedState) {
+        // the values are already accounted, but the state holds additional references to them
+        ramAccounting.addBytes((long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * sharedState.size());
+        state.addAll(sharedState);
+        return state;
+    }
+
     @Override
     public List<Object> terminatePartial(RamAccounting ramAccounting, List<Object> state) {
         return state;
@@ -137,6 +137,11 @@ public abstract class MinimumAggregation extends AggregationFunction<Comparable,
         return info;
     }
 
+    @Override
+    public boolean hasImmutablePartialState() {
+        return true;
+    }
+
     @Override
     public DataType partialType() {
         return info().returnType();
@@ -127,6 +127,27 @@ class PercentileAggregation extends AggregationFunction<TDigestState, Object> {
         return state1;
     }
 
+    @Override
+    public boolean supportsReduceShared() {
+        return true;
+    }
+
+    @Override
+    public TDigestState reduceShared(RamAccounting ramAccounting,
+                                     MemoryManager memoryManager,
+                                     TDigestState state,
+                                     TDigestState sharedState) {
+        if (sharedState.isEmpty()) {
+            return state;
+        }
+        if (state.isEmpty()) {
+            state.fractions(sharedState.fractions());
+        }
+        // adds the centroids of the shared state, which isn't modified
+        state.add(sharedState);
+        return state;
+    }
+
     @Override
     @Nullable
     public Object terminatePartial(RamAccounting ramAccounting, TDigestState state) {
@@ -22,6 +22,8 @@
 
 package io.crate.execution.engine.collect;
 
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.StringSizeEstimator;
 import io.crate.data.BatchIterator;
@@ -76,6 +78,7 @@ import org.elasticsearch.index.shard.ShardId;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -83,6 +86,7 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -108,30 +112,36 @@ final class GroupByOptimizedIterator {
      */
     private static final double CARDINALITY_RATIO_THRESHOLD = 0.5;
     private static final long HASH_MAP_ENTRY_OVERHEAD = 32; // see private RamUsageEstimator.shallowSizeOfInstance(HashMap.Node.class)
+    private static final long LIST_OVERHEAD = 32; // ArrayList instance and its backing array
+    private static final long LONG_HASH_MAP_ENTRY_OVERHEAD = 24; // key and value slot with the default load factor of 0.75
 
     @Nullable
-    static BatchIterator<Row> tryOptimizeSingleStringKey(IndexShard indexShard,
-                                                         DocTableInfo table,
-                                                         LuceneQueryBuilder luceneQueryBuilder,
-                                                         FieldTypeLookup fieldTypeLookup,
-                                                         BigArrays bigArrays,
-                                                         InputFactory inputFactory,
-                                                         DocInputFactory docInputFactory,
-                                                         RoutedCollectPhase collectPhase,
-                                                         CollectTask collectTask) {
+    static BatchIterator<Row> tryOptimizeStringKeys(IndexShard indexShard,
+                                                    DocTableInfo table,
+                                                    LuceneQueryBuilder luceneQueryBuilder,
+                                                    FieldTypeLookup fieldTypeLookup,
+                                                    BigArrays bigArrays,
+                                                    InputFactory inputFactory,
+                                                    DocInputFactory docInputFactory,
+                                                    RoutedCollectPhase collectPhase,
+                                                    CollectTask collectTask) {
         Collection<? extends Projection> shardProjections = shardProjections(collectPhase.projections());
-        GroupProjection groupProjection = getSingleStringKeyGroupProjection(shardProjections);
+        GroupProjection groupProjection = getStringKeysGroupProjection(shardProjections);
         if (groupProjection == null) {
             return null;
         }
-        assert groupProjection.keys().size() == 1 : "Must have 1 key if getSingleStringKeyGroupProjection returned a projection";
-        Reference keyRef = getKeyRef(collectPhase.toCollect(), groupProjection.keys().get(0));
-        if (keyRef == null) {
-            return null; // group by on non-reference
-        }
-        MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
-        if (keyFieldType == null || !keyFieldType.hasDocValues()) {
-            return null;
+        List<Symbol> keys = groupProjection.keys();
+        List<MappedFieldType> keyFieldTypes = new ArrayList<>(keys.size());
+        for (Symbol key : keys) {
+            Reference keyRef = getKeyRef(collectPhase.toCollect(), key);
+            if (keyRef == null) {
+                return null; // group by on non-reference
+            }
+            MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
+            if (keyFieldType == null || !keyFieldType.hasDocValues()) {
+                return null;
+            }
+            keyFieldTypes.add(keyFieldType);
         }
         if (Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE)
             || Symbols.containsColumn(collectPhase.where(), DocSysColumns.SCORE)) {
@@ -139,8 +149,10 @@ final class GroupByOptimizedIterator {
             // to keep the optimized implementation a bit simpler
             return null;
         }
-        if (hasHighCardinalityRatio(() -> indexShard.acquireSearcher("group-by-cardinality-check"), keyFieldType.name())) {
-            return null;
+        for (MappedFieldType keyFieldType : keyFieldTypes) {
+            if (hasHighCardinalityRatio(() -> indexShard.acquireSearcher("group-by-cardinality-check"), keyFieldType.name())) {
+                return null;
+            }
         }
 
         ShardId shardId = indexShard.shardId();
@@ -154,7 +166,10 @@ final class GroupByOptimizedIterator {
 
             InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx = docInputFactory.getCtx(collectTask.txnCtx());
             docCtx.add(collectPhase.toCollect().stream()::iterator);
-            IndexOrdinalsFieldData keyIndexFieldData = queryShardContext.getForField(keyFieldType);
+            List<IndexOrdinalsFieldData> keyIndexFieldData = new ArrayList<>(keyFieldTypes.size());
+            for (MappedFieldType keyFieldType : keyFieldTypes) {
+                keyIndexFieldData.add(queryShardContext.getForField(keyFieldType));
+            }
 
             InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations = inputFactory.ctxForAggregations(collectTask.txnCtx());
             ctxForAggregations.add(groupProjection.values());
@@ -180,11 +195,34 @@ final class GroupByOptimizedIterator {
                 sharedShardContext.indexService().cache()
             );
 
-            return getIterator(
-                bigArrays,
+            if (keyIndexFieldData.size() == 1) {
+                IndexOrdinalsFieldData keyFieldData = keyIndexFieldData.get(0);
+                return getIterator(
+                    bigArrays,
+                    indexSearcher,
+                    leaf -> keyFieldData.load(leaf).getOrdinalsValues(),
+                    keyFieldData.getFieldName(),
+                    aggregations,
+                    expressions,
+                    aggExpressions,
+                    ramAccounting,
+                    collectTask.memoryManager(),
+                    collectTask.minNodeVersion(),
+                    inputRow,
+                    queryContext.query(),
+                    collectorContext,
+                    groupProjection.mode());
+            }
+            List<Function<LeafReaderContext, SortedSetDocValues>> ordinalsFunctions = new ArrayList<>(keyIndexFieldData.size());
+            List<String> keyColumnNames = new ArrayList<>(keyIndexFieldData.size());
+            for (IndexOrdinalsFieldData keyFieldData : keyIndexFieldData) {
+                ordinalsFunctions.add(leaf -> keyFieldData.load(leaf).getOrdinalsValues());
+                keyColumnNames.add(keyFieldData.getFieldName());
+            }
+            return getIteratorForManyKeys(
                 indexSearcher,
-                leaf -> keyIndexFieldData.load(leaf).getOrdinalsValues(),
-                keyIndexFieldData.getFieldName(),
+                ordinalsFunctions,
+                keyColumnNames,
                 aggregations,
                 expressions,
                 aggExpressions,
@@ -215,6 +253,100 @@ final class GroupByOptimizedIterator {
                                           Query query,
                                           CollectorContext collectorContext,
                                           AggregateMode aggregateMode) {
+        return getIterator(
+            expressions,
+            collectorContext,
+            (killed, closed) -> getRows(
+                applyAggregatesGroupedByKey(
+                    bigArrays,
+                    indexSearcher,
+                    ordinalsFunction,
+                    keyColumnName,
+                    aggregations,
+                    expressions,
+                    aggExpressions,
+                    ramAccounting,
+                    memoryManager,
+                    minNodeVersion,
+                    inputRow,
+                    query,
+                    killed,
+                    closed
+                ),
+                1,
+                (key, cells) -> cells[0] = BytesRefs.toString(key),
+                ramAccounting,
+                aggregations,
+                aggregateMode
+            )
+        );
+    }
+
+    /**
+     * Like {@link #getIterator(BigArrays, IndexSearcher, Function, String, List, List, List, RamAccounting,
+     * MemoryManager, Version, InputRow, Query, CollectorContext, AggregateMode)} but for multiple keys.
+     *
+     * <p>
+     * Within a segment the ordinals of all keys are combined into a single long which is used as group key.
+     * The ordinals are only mapped to their terms once per segment and group, after all documents of the segment
+     * are aggregated.
+     * </p>
+     */
+    static BatchIterator<Row> getIteratorForManyKeys(IndexSearcher indexSearcher,
+                                                     List<Function<LeafReaderContext, SortedSetDocValues>> ordinalsFunctions,
+                                                     List<String> keyColumnNames,
+                                                     List<AggregationContext> aggregations,
+                                                     List<? extends LuceneCollectorExpression<?>> expressions,
+                                                     List<CollectExpression<Row, ?>> aggExpressions,
+                                                     RamAccounting ramAccounting,
+                                                     MemoryManager memoryManager,
+                                                     Version minNodeVersion,
+                                                     InputRow inputRow,
+                                                     Query query,
+                                                     CollectorContext collectorContext,
+                                                     AggregateMode aggregateMode) {
+        int numKeys = ordinalsFunctions.size();
+        return getIterator(
+            expressions,
+            collectorContext,
+            (killed, closed) -> getRows(
+                applyAggregatesGroupedByKeys(
+                    indexSearcher,
+                    ordinalsFunctions,
+                    keyColumnNames,
+                    aggregations,
+                    expressions,
+                    aggExpressions,
+                    ramAccounting,
+                    memoryManager,
+                    minNodeVersion,
+                    inputRow,
+                    query,
+                    killed,
+                    closed
+                ),
+                numKeys,
+                (keys, cells) -> {
+                    for (int i = 0; i < numKeys; i++) {
+                        cells[i] = keys.get(i);
+                    }
+                },
+                ramAccounting,
+                aggregations,
+                aggregateMode
+            )
+        );
+    }
+
+    @FunctionalInterface
+    private interface GroupedRowsSupplier {
+
+        Iterable<Row> get(AtomicReference<Throwable> killed, AtomicBoolean closed) throws IOException;
+    }
+
+    private static BatchIterator<Row> getIterator(List<? extends LuceneCollectorExpression<?>> expressions,
+                                                  CollectorContext collectorContext,
+                                                  GroupedRowsSupplier groupedRows) {
         for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
             expressions.get(i).startCollect(collectorContext);
         }
@@ -226,53 +358,32 @@ final class GroupByOptimizedIterator {
             killed::set,
             () -> {
                 try {
-                    return CompletableFuture.completedFuture(
-                        getRows(
-                            applyAggregatesGroupedByKey(
-                                bigArrays,
-                                indexSearcher,
-                                ordinalsFunction,
-                                keyColumnName,
-                                aggregations,
-                                expressions,
-                                aggExpressions,
-                                ramAccounting,
-                                memoryManager,
-                                minNodeVersion,
-                                inputRow,
-                                query,
-                                killed,
-                                closed
-                            ),
-                            ramAccounting,
-                            aggregations,
-                            aggregateMode
-                        )
-                    );
+                    return CompletableFuture.completedFuture(groupedRows.get(killed, closed));
                 } catch (Throwable t) {
                     return CompletableFuture.failedFuture(t);
                 }
             },
             true
         );
-
     }
 
-    private static Iterable<Row> getRows(Map<BytesRef, Object[]> groupedStates,
-                                         RamAccounting ramAccounting,
-                                         List<AggregationContext> aggregations,
-                                         AggregateMode mode) {
+    private static <K> Iterable<Row> getRows(Map<K, Object[]> groupedStates,
+                                             int numKeys,
+                                             BiConsumer<K, Object[]> applyKeyToCells,
+                                             RamAccounting ramAccounting,
+                                             List<AggregationContext> aggregations,
+                                             AggregateMode mode) {
         return () -> groupedStates.entrySet().stream()
-            .map(new Function<Map.Entry<BytesRef, Object[]>, Row>() {
+            .map(new Function<Map.Entry<K, Object[]>, Row>() {
 
-                final Object[] cells = new Object[1 + aggregations.size()];
+                final Object[] cells = new Object[numKeys + aggregations.size()];
                 final RowN row = new RowN(cells);
 
                 @Override
-                public Row apply(Map.Entry<BytesRef, Object[]> entry) {
-                    cells[0] = BytesRefs.toString(entry.getKey());
+                public Row apply(Map.Entry<K, Object[]> entry) {
+                    applyKeyToCells.accept(entry.getKey(), cells);
                     Object[] states = entry.getValue();
-                    for (int i = 0, c = 1; i < states.length; i++, c++) {
+                    for (int i = 0, c = numKeys; i < states.length; i++, c++) {
                         //noinspection unchecked
                         cells[c] = mode.finishCollect(ramAccounting, aggregations.get(i).function(), states[i]);
                     }
@@ -375,6 +486,147 @@ final class GroupByOptimizedIterator {
         return statesByKey;
     }
 
+    private static Map<List<String>, Object[]> applyAggregatesGroupedByKeys(IndexSearcher indexSearcher,
+                                                                           List<Function<LeafReaderContext, SortedSetDocValues>> ordinalsFunctions,
+                                                                           List<String> keyColumnNames,
+                                                                           List<AggregationContext> aggregations,
+                                                                           List<? extends LuceneCollectorExpression<?>> expressions,
+                                                                           List<CollectExpression<Row, ?>> aggExpressions,
+                                                                           RamAccounting ramAccounting,
+                                                                           MemoryManager memoryManager,
+                                                                           Version minNodeVersion,
+                                                                           InputRow inputRow,
+                                                                           Query query,
+                                                                           AtomicReference<Throwable> killed,
+                                                                           AtomicBoolean closed) throws IOException {
+        final int numKeys = ordinalsFunctions.size();
+        final Map<List<String>, Object[]> statesByKeys = new HashMap<>();
+        final Weight weight = indexSearcher.createWeight(indexSearcher.rewrite(query), ScoreMode.COMPLETE, 1f);
+        final List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        final SortedSetDocValues[] values = new SortedSetDocValues[numKeys];
+        final long[] ords = new long[numKeys];
+        final int[] shifts = new int[numKeys];
+        final long[] masks = new long[numKeys];
+
+        for (LeafReaderContext leaf: leaves) {
+            raiseIfClosedOrKilled(killed, closed);
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) {
+                continue;
+            }
+            for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                expressions.get(i).setNextReader(leaf);
+            }
+            // ordinal + 1 is stored so that 0 can be used for null
+            int numBits = 0;
+            for (int i = 0; i < numKeys; i++) {
+                values[i] = ordinalsFunctions.get(i).apply(leaf);
+                int bits = Long.SIZE - Long.numberOfLeadingZeros(values[i].getValueCount());
+                shifts[i] = numBits;
+                masks[i] = (1L << bits) - 1;
+                numBits += bits;
+            }
+            // If the ordinals don't fit into a long the terms are looked up for each document
+            boolean combineOrds = numBits < Long.SIZE;
+            LongObjectHashMap<Object[]> statesByOrds = new LongObjectHashMap<>();
+            long statesByOrdsBytes = 0;
+            DocIdSetIterator docs = scorer.iterator();
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                raiseIfClosedOrKilled(killed, closed);
+                if (docDeleted(liveDocs, doc)) {
+                    continue;
+                }
+                for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                    expressions.get(i).setNextDocId(doc);
+                }
+                for (int i = 0, expressionsSize = aggExpressions.size(); i < expressionsSize; i++) {
+                    aggExpressions.get(i).setNextRow(inputRow);
+                }
+                for (int i = 0; i < numKeys; i++) {
+                    SortedSetDocValues keyValues = values[i];
+                    if (keyValues.advanceExact(doc)) {
+                        ords[i] = keyValues.nextOrd() + 1;
+                        if (keyValues.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                            throw new GroupByOnArrayUnsupportedException(keyColumnNames.get(i));
+                        }
+                    } else {
+                        ords[i] = 0;
+                    }
+                }
+                if (combineOrds) {
+                    long combinedOrds = 0;
+                    for (int i = 0; i < numKeys; i++) {
+                        combinedOrds |= ords[i] << shifts[i];
+                    }
+                    Object[] states = statesByOrds.get(combinedOrds);
+                    if (states == null) {
+                        ramAccounting.addBytes(LONG_HASH_MAP_ENTRY_OVERHEAD);
+                        statesByOrdsBytes += LONG_HASH_MAP_ENTRY_OVERHEAD;
+                        statesByOrds.put(combinedOrds, initStates(aggregations, ramAccounting, memoryManager, minNodeVersion));
+                    } else {
+                        aggregateValues(aggregations, ramAccounting, memoryManager, states);
+                    }
+                } else {
+                    List<String> keys = lookupKeys(values, ords);
+                    Object[] states = statesByKeys.get(keys);
+                    if (states == null) {
+                        states = initStates(aggregations, ramAccounting, memoryManager, minNodeVersion);
+                        addWithAccounting(statesByKeys, keys, states, ramAccounting);
+                    } else {
+                        aggregateValues(aggregations, ramAccounting, memoryManager, states);
+                    }
+                }
+            }
+            for (LongObjectCursor<Object[]> cursor : statesByOrds) {
+                raiseIfClosedOrKilled(killed, closed);
+                for (int i = 0; i < numKeys; i++) {
+                    ords[i] = (cursor.key >>> shifts[i]) & masks[i];
+                }
+                List<String> keys = lookupKeys(values, ords);
+                Object[] states = cursor.value;
+                Object[] prevStates = statesByKeys.get(keys);
+                if (prevStates == null) {
+                    addWithAccounting(statesByKeys, keys, states, ramAccounting);
+                } else {
+                    for (int i = 0; i < aggregations.size(); i++) {
+                        AggregationContext aggregation = aggregations.get(i);
+                        //noinspection unchecked
+                        prevStates[i] = aggregation.function().reduce(
+                            ramAccounting,
+                            prevStates[i],
+                            states[i]
+                        );
+                    }
+                }
+            }
+            // the states are now referenced by statesByKeys, only the per-segment map is released
+            ramAccounting.addBytes(-statesByOrdsBytes);
+        }
+        return statesByKeys;
+    }
+
+    private static List<String> lookupKeys(SortedSetDocValues[] values, long[] ords) throws IOException {
+        List<String> keys = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            long ord = ords[i];
+            keys.add(ord == 0 ? null : values[i].lookupOrd(ord - 1).utf8ToString());
+        }
+        return keys;
+    }
+
+    private static void addWithAccounting(Map<List<String>, Object[]> statesByKeys,
+                                          List<String> keys,
+                                          Object[] states,
+                                          RamAccounting ramAccounting) {
+        long size = HASH_MAP_ENTRY_OVERHEAD + LIST_OVERHEAD;
+        for (int i = 0; i < keys.size(); i++) {
+            size += StringSizeEstimator.estimate(keys.get(i));
+        }
+        ramAccounting.addBytes(size);
+        statesByKeys.put(keys, states);
+    }
+
     static boolean hasHighCardinalityRatio(Supplier<Engine.Searcher> acquireSearcher, String fieldName) {
         // acquire separate searcher:
         // Can't use sharedShardContexts() yet, if we bail out the "getOrCreateContext" causes issues later on in the fallback logic
@@ -453,7 +705,7 @@ final class GroupByOptimizedIterator {
         return null;
     }
 
-    private static GroupProjection getSingleStringKeyGroupProjection(Collection<? extends Projection> shardProjections) {
+    private static GroupProjection getStringKeysGroupProjection(Collection<? extends Projection> shardProjections) {
         if (shardProjections.size() != 1) {
             return null;
         }
@@ -462,8 +714,10 @@ final class GroupByOptimizedIterator {
             return null;
         }
         GroupProjection groupProjection = (GroupProjection) shardProjection;
-        if (groupProjection.keys().size() != 1 || groupProjection.keys().get(0).valueType() != DataTypes.STRING) {
-            return null;
+        for (Symbol key : groupProjection.keys()) {
+            if (key.valueType() != DataTypes.STRING) {
+                return null;
+            }
         }
         return groupProjection;
     }
@@ -49,7 +49,9 @@ import io.crate.metadata.table.Operation;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.IndexService;
@@ -62,6 +64,8 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -69,6 +73,17 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
 
     private static final Logger LOGGER = LogManager.getLogger(LuceneShardCollectorProvider.class);
 
+    /**
+     * Smaller shards are collected by a single thread, splitting them wouldn't outweigh the overhead
+     */
+    private static final int DEFAULT_MIN_DOCS_PER_SLICE = 250_000;
+
+    public static final Setting<Integer> MIN_DOCS_PER_SLICE_SETTING = Setting.intSetting(
+        "node.sql.collect.min_docs_per_slice",
+        DEFAULT_MIN_DOCS_PER_SLICE,
+        1,
+        Setting.Property.NodeScope);
+
     private final Supplier<String> localNodeId;
     private final LuceneQueryBuilder luceneQueryBuilder;
     private final Functions functions;
@@ -77,6 +92,7 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     private final BigArrays bigArrays;
     private final FieldTypeLookup fieldTypeLookup;
     private final DocTableInfo table;
+    private final int minDocsPerSlice;
 
     public LuceneShardCollectorProvider(Schemas schemas,
                                         LuceneQueryBuilder luceneQueryBuilder,
@@ -118,40 +134,59 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
             )
         );
         this.bigArrays = bigArrays;
+        this.minDocsPerSlice = MIN_DOCS_PER_SLICE_SETTING.get(settings);
     }
 
     @Override
     protected BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                       boolean requiresScroll,
                                                       CollectTask collectTask) {
+        return getUnorderedSliceIterators(collectPhase, collectTask, 1).get(0);
+    }
+
+    @Override
+    protected List<BatchIterator<Row>> getUnorderedSliceIterators(RoutedCollectPhase collectPhase,
+                                                                  CollectTask collectTask,
+                                                                  int maxSlices) {
         ShardId shardId = indexShard.shardId();
         SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(shardId);
         Engine.Searcher searcher = sharedShardContext.acquireSearcher(formatSource(collectPhase));
         IndexShard indexShard = sharedShardContext.indexShard();
         try {
-            QueryShardContext queryShardContext = sharedShardContext.indexService().newQueryShardContext();
-            LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
-                collectPhase.where(),
-                collectTask.txnCtx(),
-                indexShard.mapperService(),
-                indexShard.shardId().getIndexName(),
-                queryShardContext,
-                table,
-                sharedShardContext.indexService().cache()
+            List<List<LeafReaderContext>> slices = LuceneBatchIterator.slices(
+                searcher.searcher().getTopReaderContext().leaves(),
+                maxSlices,
+                minDocsPerSlice
             );
+            boolean doScores = Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE);
+            ArrayList<BatchIterator<Row>> iterators = new ArrayList<>(slices.size());
+            for (List<LeafReaderContext> leaves : slices) {
+                // The query and expressions are stateful, each slice needs its own instances
+                QueryShardContext queryShardContext = sharedShardContext.indexService().newQueryShardContext();
+                LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
+                    collectPhase.where(),
+                    collectTask.txnCtx(),
+                    indexShard.mapperService(),
+                    indexShard.shardId().getIndexName(),
+                    queryShardContext,
+                    table,
+                    sharedShardContext.indexService().cache()
+                );
+                InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+                    docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
+                iterators.add(new LuceneBatchIterator(
+                    searcher.searcher(),
+                    leaves,
+                    queryContext.query(),
+                    queryContext.minScore(),
+                    doScores,
+                    getCollectorContext(sharedShardContext.readerId(), queryShardContext::getForField),
+                    docCtx.topLevelInputs(),
+                    docCtx.expressions()
+                ));
+            }
             collectTask.addSearcher(sharedShardContext.readerId(), searcher);
-            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
-                docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
-
-            return new LuceneBatchIterator(
-                searcher.searcher(),
-                queryContext.query(),
-                queryContext.minScore(),
-                Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
-                getCollectorContext(sharedShardContext.readerId(), queryShardContext::getForField),
-                docCtx.topLevelInputs(),
-                docCtx.expressions()
-            );
+            return iterators;
         } catch (Throwable t) {
             searcher.close();
             throw t;
@@ -161,7 +196,7 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     @Nullable
     @Override
     protected BatchIterator<Row> getProjectionFusedIterator(RoutedCollectPhase normalizedPhase, CollectTask collectTask) {
-        return GroupByOptimizedIterator.tryOptimizeSingleStringKey(
+        return GroupByOptimizedIterator.tryOptimizeStringKeys(
             indexShard,
             table,
             luceneQueryBuilder,
@@ -40,6 +40,7 @@ import io.crate.memory.MemoryManager;
 import io.crate.metadata.TransactionContext;
 import io.crate.planner.operators.PKAndVersion;
 import org.apache.lucene.index.Term;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.IndexService;
@@ -139,15 +140,28 @@ public final class PKLookupOperation {
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-            return new Doc(
+            BytesReference source = visitor.source();
+            if (source == null) {
+                return new Doc(
+                    docIdAndVersion.docId,
+                    shard.shardId().getIndexName(),
+                    id,
+                    docIdAndVersion.version,
+                    docIdAndVersion.seqNo,
+                    docIdAndVersion.primaryTerm,
+                    null,
+                    () -> null
+                );
+            }
+            return Doc.withLazySource(
                 docIdAndVersion.docId,
                 shard.shardId().getIndexName(),
                 id,
                 docIdAndVersion.version,
                 docIdAndVersion.seqNo,
                 docIdAndVersion.primaryTerm,
-                convertToMap(visitor.source(), false, XContentType.JSON).v2(),
-                () -> visitor.source().utf8ToString()
+                () -> convertToMap(source, false, XContentType.JSON).v2(),
+                source::utf8ToString
             );
         }
     }
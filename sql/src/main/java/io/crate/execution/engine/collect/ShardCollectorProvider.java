@@ -24,11 +24,16 @@ package io.crate.execution.engine.collect;
 
 import io.crate.analyze.WhereClause;
 import io.crate.data.BatchIterator;
+import io.crate.data.CompositeBatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
 import io.crate.data.SentinelRow;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.FilterProjection;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
@@ -39,6 +44,7 @@ import io.crate.execution.jobs.SharedShardContext;
 import io.crate.expression.InputFactory;
 import io.crate.expression.eval.EvaluatingNormalizer;
 import io.crate.expression.reference.sys.shard.ShardRowContext;
+import io.crate.expression.symbol.AggregateMode;
 import io.crate.metadata.Functions;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.Schemas;
@@ -46,15 +52,25 @@ import io.crate.metadata.shard.ShardReferenceResolver;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
+
+import static io.crate.execution.support.ThreadPools.numIdleThreads;
 
 public abstract class ShardCollectorProvider {
 
     private final ProjectorFactory projectorFactory;
     private final ShardRowContext shardRowContext;
+    private final ThreadPool threadPool;
+    private final int numProcessors;
     final EvaluatingNormalizer shardNormalizer;
 
     ShardCollectorProvider(ClusterService clusterService,
@@ -68,6 +84,8 @@ public abstract class ShardCollectorProvider {
                            ShardRowContext shardRowContext,
                            BigArrays bigArrays) {
         this.shardRowContext = shardRowContext;
+        this.threadPool = threadPool;
+        this.numProcessors = EsExecutors.numberOfProcessors(settings);
         shardNormalizer = new EvaluatingNormalizer(
             functions,
             RowGranularity.SHARD,
@@ -87,7 +105,9 @@ public abstract class ShardCollectorProvider {
             t -> null,
             indexShard.indexSettings().getIndexVersionCreated(),
             bigArrays,
-            indexShard.shardId()
+            indexShard.shardId(),
+            null,
+            null
         );
     }
 
@@ -108,14 +128,27 @@ public abstract class ShardCollectorProvider {
         if (fusedIterator != null) {
             return fusedIterator;
         }
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
         final BatchIterator<Row> iterator;
         if (WhereClause.canMatch(normalizedCollectNode.where())) {
-            iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            if (requiresScroll == false && canCollectInSlices(shardProjections)) {
+                ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+                IntSupplier availableThreads = numIdleThreads(executor, numProcessors);
+                List<BatchIterator<Row>> slices = getUnorderedSliceIterators(
+                    normalizedCollectNode, collectTask, availableThreads.getAsInt());
+                if (slices.size() > 1) {
+                    return collectSlicesConcurrently(
+                        collectPhase, collectTask, shardProjections, slices, executor, availableThreads);
+                }
+                iterator = slices.get(0);
+            } else {
+                iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            }
         } else {
             iterator = InMemoryBatchIterator.empty(SentinelRow.SENTINEL);
         }
         return Projectors.wrap(
-            Projections.shardProjections(collectPhase.projections()),
+            shardProjections,
             collectPhase.jobId(),
             collectTask.txnCtx(),
             collectTask.getRamAccounting(),
@@ -125,6 +158,49 @@ public abstract class ShardCollectorProvider {
         );
     }
 
+    private BatchIterator<Row> collectSlicesConcurrently(RoutedCollectPhase collectPhase,
+                                                         CollectTask collectTask,
+                                                         Collection<? extends Projection> shardProjections,
+                                                         List<BatchIterator<Row>> slices,
+                                                         Executor executor,
+                                                         IntSupplier availableThreads) {
+        @SuppressWarnings("unchecked")
+        BatchIterator<Row>[] projectedSlices = new BatchIterator[slices.size()];
+        for (int i = 0; i < projectedSlices.length; i++) {
+            projectedSlices[i] = Projectors.wrap(
+                shardProjections,
+                collectPhase.jobId(),
+                collectTask.txnCtx(),
+                collectTask.getRamAccounting(),
+                collectTask.memoryManager(),
+                projectorFactory,
+                slices.get(i)
+            );
+        }
+        return CompositeBatchIterator.asyncComposite(executor, availableThreads, projectedSlices);
+    }
+
+    /**
+     * The documents of a shard can be collected in multiple slices if the shard projections end with a partial
+     * aggregation. The partial results of the slices are merged the same way as the results of multiple shards.
+     */
+    private static boolean canCollectInSlices(Collection<? extends Projection> shardProjections) {
+        Projection lastProjection = null;
+        for (Projection projection : shardProjections) {
+            if (lastProjection != null && !(lastProjection instanceof FilterProjection)) {
+                return false;
+            }
+            lastProjection = projection;
+        }
+        if (lastProjection instanceof AggregationProjection) {
+            return ((AggregationProjection) lastProjection).mode() == AggregateMode.ITER_PARTIAL;
+        }
+        if (lastProjection instanceof GroupProjection) {
+            return ((GroupProjection) lastProjection).mode() == AggregateMode.ITER_PARTIAL;
+        }
+        return false;
+    }
+
     /**
      * @return A BatchIterator which already applies the transformation described in the shardProjections of the collectPhase.
      *         This can be used to return a specialized BatchIterator for certain projections. If this returns null
@@ -134,6 +210,16 @@ public abstract class ShardCollectorProvider {
     protected abstract BatchIterator<Row> getProjectionFusedIterator(RoutedCollectPhase normalizedPhase,
                                                                      CollectTask collectTask);
 
+    /**
+     * @return BatchIterators which together return the same rows as {@link #getUnorderedIterator}.
+     *         They are collected concurrently, so implementations should create at most {@code maxSlices} iterators.
+     */
+    protected List<BatchIterator<Row>> getUnorderedSliceIterators(RoutedCollectPhase collectPhase,
+                                                                  CollectTask collectTask,
+                                                                  int maxSlices) {
+        return List.of(getUnorderedIterator(collectPhase, false, collectTask));
+    }
+
     protected abstract BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                                boolean requiresScroll,
                                                                CollectTask collectTask);
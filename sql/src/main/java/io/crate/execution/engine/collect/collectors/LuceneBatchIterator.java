@@ -42,7 +42,9 @@ import org.apache.lucene.util.Bits;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
@@ -52,6 +54,9 @@ import java.util.concurrent.CompletionStage;
  * It supports filtering the data using a lucene {@link Query} or via {@code minScore}.
  * <p>
  * Row data depends on {@code inputs} and {@code expressions}. The data is unordered.
+ * <p>
+ * To collect a shard concurrently, the leaves of the searcher can be split into {@link #slices(List, int, int)},
+ * each collected by a separate LuceneBatchIterator.
  */
 public class LuceneBatchIterator implements BatchIterator<Row> {
 
@@ -79,6 +84,26 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
                                CollectorContext collectorContext,
                                List<? extends Input<?>> inputs,
                                Collection<? extends LuceneCollectorExpression<?>> expressions) {
+        this(
+            indexSearcher,
+            indexSearcher.getTopReaderContext().leaves(),
+            query,
+            minScore,
+            doScores,
+            collectorContext,
+            inputs,
+            expressions
+        );
+    }
+
+    public LuceneBatchIterator(IndexSearcher indexSearcher,
+                               List<LeafReaderContext> leaves,
+                               Query query,
+                               @Nullable Float minScore,
+                               boolean doScores,
+                               CollectorContext collectorContext,
+                               List<? extends Input<?>> inputs,
+                               Collection<? extends LuceneCollectorExpression<?>> expressions) {
         this.indexSearcher = indexSearcher;
         this.query = query;
         this.doScores = doScores || minScore != null;
@@ -86,10 +111,46 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
         this.collectorContext = collectorContext;
         this.row = new InputRow(inputs);
         this.expressions = expressions.toArray(new LuceneCollectorExpression[0]);
-        leaves = indexSearcher.getTopReaderContext().leaves();
+        this.leaves = leaves;
         leavesIt = leaves.iterator();
     }
 
+    /**
+     * Splits the leaves into at most {@code maxSlices} slices with a similar number of documents.
+     * Less slices are created if a slice would contain less than {@code minDocsPerSlice} documents.
+     */
+    public static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves,
+                                                       int maxSlices,
+                                                       int minDocsPerSlice) {
+        long numDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            numDocs += leaf.reader().maxDoc();
+        }
+        int numSlices = (int) Math.min(Math.min(maxSlices, leaves.size()), numDocs / minDocsPerSlice);
+        if (numSlices <= 1) {
+            return List.of(leaves);
+        }
+        ArrayList<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        sortedLeaves.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+        ArrayList<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        long[] docsPerSlice = new long[numSlices];
+        for (int i = 0; i < numSlices; i++) {
+            slices.add(new ArrayList<>());
+        }
+        // Largest leaves first, each into the slice with the fewest documents so far
+        for (LeafReaderContext leaf : sortedLeaves) {
+            int smallestSlice = 0;
+            for (int i = 1; i < numSlices; i++) {
+                if (docsPerSlice[i] < docsPerSlice[smallestSlice]) {
+                    smallestSlice = i;
+                }
+            }
+            slices.get(smallestSlice).add(leaf);
+            docsPerSlice[smallestSlice] += leaf.reader().maxDoc();
+        }
+        return slices;
+    }
+
     @Override
     public Row currentElement() {
         return row;
@@ -43,5 +43,24 @@ public interface FileInput {
 
     InputStream getStream(URI uri) throws IOException;
 
+    /**
+     * @return the size of the file in bytes or -1 if the size is unknown.
+     *         A concrete implementation which returns the size must support {@link #getStream(URI, long)}.
+     */
+    default long size(URI uri) throws IOException {
+        return -1L;
+    }
+
+    /**
+     * Returns a stream of the file starting at the given byte offset.
+     * Only called for files whose {@link #size(URI)} is known.
+     */
+    default InputStream getStream(URI uri, long offset) throws IOException {
+        if (offset == 0L) {
+            return getStream(uri);
+        }
+        throw new UnsupportedOperationException("Reading from an offset is not supported for " + uri);
+    }
+
     boolean sharedStorageDefault();
 }
@@ -133,7 +133,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
 
         List<Tuple<FileInput, UriWithGlob>> fileInputs = new ArrayList<>(urisWithGlob.size());
         for (UriWithGlob fileUri : urisWithGlob) {
-            FileInput fileInput = getFileInput(fileUri.uri);
+            FileInput fileInput = getFileInput(fileInputFactories, fileUri.uri);
             fileInputs.add(new Tuple<>(fileInput, fileUri));
         }
         fileInputsIterator = fileInputs.iterator();
@@ -273,7 +273,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return true;
     }
 
-    private static class UriWithGlob {
+    static class UriWithGlob {
         final URI uri;
         final URI preGlobUri;
         @Nullable
@@ -286,7 +286,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         }
     }
 
-    private List<UriWithGlob> getUrisWithGlob(Collection<String> fileUris) {
+    static List<UriWithGlob> getUrisWithGlob(Collection<String> fileUris) {
         List<UriWithGlob> uris = new ArrayList<>(fileUris.size());
         for (String fileUri : fileUris) {
             URI uri = toURI(fileUri);
@@ -330,7 +330,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return uris;
     }
 
-    private URI toURI(String fileUri) {
+    private static URI toURI(String fileUri) {
         if (fileUri.startsWith("/")) {
             // using Paths.get().toUri instead of new URI(...) as it also encodes umlauts and other special characters
             return Paths.get(fileUri).toUri();
@@ -346,8 +346,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         }
     }
 
-    @Nullable
-    private FileInput getFileInput(URI fileUri) {
+    static FileInput getFileInput(Map<String, FileInputFactory> fileInputFactories, URI fileUri) {
         FileInputFactory fileInputFactory = fileInputFactories.get(fileUri.getScheme());
         if (fileInputFactory != null) {
             return fileInputFactory.create();
@@ -366,7 +365,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return reader;
     }
 
-    private static List<URI> getUris(FileInput fileInput, URI fileUri, URI preGlobUri, Predicate<URI> uriPredicate) throws IOException {
+    static List<URI> getUris(FileInput fileInput, URI fileUri, URI preGlobUri, Predicate<URI> uriPredicate) throws IOException {
         List<URI> uris;
         if (preGlobUri != null) {
             uris = fileInput.listUris(preGlobUri, uriPredicate);
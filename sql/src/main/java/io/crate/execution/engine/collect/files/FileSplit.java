@@ -0,0 +1,152 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.execution.engine.collect.files;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A byte range of a file which can be read independently of the other ranges of the same file.
+ *
+ * The lines of a file are assigned to the split containing the first byte of the line.
+ * A reader of a split which doesn't start at the beginning of the file skips the partial first line
+ * and reads over the end of the split to finish the last line.
+ */
+public final class FileSplit {
+
+    private final FileInput fileInput;
+    private final URI uri;
+    private final int index;
+    private final long start;
+    private final long end;
+
+    FileSplit(FileInput fileInput, URI uri, int index, long start, long end) {
+        this.fileInput = fileInput;
+        this.uri = uri;
+        this.index = index;
+        this.start = start;
+        this.end = end;
+    }
+
+    FileInput fileInput() {
+        return fileInput;
+    }
+
+    URI uri() {
+        return uri;
+    }
+
+    /**
+     * Position of the split within the file. 0 for the first split.
+     */
+    int index() {
+        return index;
+    }
+
+    long start() {
+        return start;
+    }
+
+    /**
+     * Exclusive end of the split; {@link Long#MAX_VALUE} for the last split of a file.
+     */
+    long end() {
+        return end;
+    }
+
+    /**
+     * Resolves the URIs, including globs, and splits the matching files into ranges of {@code splitSize} bytes.
+     *
+     * If the files are on shared storage, the splits are distributed across the readers the same way
+     * {@link FileReadingIterator} distributes whole files, so that every split is read by exactly one reader.
+     * The readers decide independently whether to read splits, so a file which can't be listed or accessed
+     * fails the reader instead of falling back to reading whole files; that would read some ranges twice and
+     * others not at all.
+     *
+     * @return the splits to be read by the reader {@code readerNumber} or null if the files are read as a whole,
+     *         because they're not larger than {@code splitSize} or the {@link FileInput} doesn't know their size.
+     * @throws IOException if a URI doesn't match any file or a file can't be accessed.
+     */
+    @Nullable
+    public static List<FileSplit> create(Collection<String> fileUris,
+                                         Map<String, FileInputFactory> fileInputFactories,
+                                         @Nullable Boolean shared,
+                                         int numReaders,
+                                         int readerNumber,
+                                         long splitSize) throws IOException {
+        List<FileSplit> splits = new ArrayList<>();
+        int numAllSplits = 0;
+        for (FileReadingIterator.UriWithGlob uriWithGlob : FileReadingIterator.getUrisWithGlob(fileUris)) {
+            FileInput fileInput = FileReadingIterator.getFileInput(fileInputFactories, uriWithGlob.uri);
+            Predicate<URI> uriPredicate = uriWithGlob.globPredicate == null ? uri -> true : uriWithGlob.globPredicate;
+            List<URI> uris = FileReadingIterator.getUris(
+                fileInput, uriWithGlob.uri, uriWithGlob.preGlobUri, uriPredicate);
+            if (uris.isEmpty()) {
+                throw new IOException("Cannot find any URI matching: " + uriWithGlob.uri);
+            }
+            boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
+            for (URI uri : uris) {
+                long size = fileInput.size(uri);
+                if (size < 0) {
+                    // Depends only on the FileInput, so all readers fall back to whole files
+                    return null;
+                }
+                int numSplits = (int) Math.max(1L, (size + splitSize - 1) / splitSize);
+                numAllSplits += numSplits;
+                for (int i = 0; i < numSplits; i++) {
+                    if (sharedStorage && readerOf(uri, i, numReaders) != readerNumber) {
+                        continue;
+                    }
+                    long end = i == numSplits - 1 ? Long.MAX_VALUE : (i + 1) * splitSize;
+                    splits.add(new FileSplit(fileInput, uri, i, i * splitSize, end));
+                }
+            }
+        }
+        // The decision must not depend on the splits of the local reader, so that all readers make the same one
+        return numAllSplits > 1 ? splits : null;
+    }
+
+    /**
+     * For the first split this is the same as the file based distribution of {@link FileReadingIterator}
+     */
+    private static int readerOf(URI uri, int splitIndex, int numReaders) {
+        int hash = uri.hashCode();
+        if (hash == Integer.MIN_VALUE) {
+            hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
+        }
+        return (int) ((Math.abs(hash) + (long) splitIndex) % numReaders);
+    }
+
+    @Override
+    public String toString() {
+        return uri + "[" + start + "-" + (end == Long.MAX_VALUE ? "" : end) + "]";
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.CloseAssertingBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.expression.InputRow;
+import io.crate.expression.reference.file.ColumnExtractingLineExpression;
+import io.crate.expression.reference.file.LineContext;
+import io.crate.expression.reference.file.SourceAsMapLineExpression;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Reads the lines of a list of {@link FileSplit}s.
+ *
+ * Unlike {@link FileReadingIterator} the lines are read in batches within {@link #loadNextBatch()}.
+ * This includes converting CSV lines to JSON and, if the source is accessed as map, parsing the JSON.
+ * If multiple of these iterators are combined using
+ * {@link io.crate.data.CompositeBatchIterator#asyncComposite}, the splits are read and parsed concurrently.
+ */
+public class FileSplitReadingIterator implements BatchIterator<Row> {
+
+    private static final Logger LOGGER = LogManager.getLogger(FileSplitReadingIterator.class);
+    private static final int BATCH_SIZE = 10_000;
+    private static final long BATCH_SIZE_BYTES = 4 * 1024 * 1024;
+
+    private final List<FileSplit> splits;
+    private final Iterable<LineCollectorExpression<?>> collectorExpressions;
+    private final FileUriCollectPhase.InputFormat inputFormat;
+    private final boolean parseSource;
+    private final Row row;
+    private final List<Line> lines = new ArrayList<>();
+
+    private LineContext lineContext;
+    private int lineIdx = 0;
+    private int splitIdx = 0;
+    @Nullable
+    private URI currentUri;
+
+    @Nullable
+    private FileSplit currentSplit;
+    @Nullable
+    private SplitLineReader currentReader;
+    private LineParser currentLineParser;
+    private long currentSplitStartNanos;
+
+    private FileSplitReadingIterator(List<FileSplit> splits,
+                                     List<? extends Input<?>> inputs,
+                                     Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                     FileUriCollectPhase.InputFormat inputFormat) {
+        this.splits = splits;
+        this.row = new InputRow(inputs);
+        this.collectorExpressions = collectorExpressions;
+        this.inputFormat = inputFormat;
+        boolean parseSource = false;
+        for (LineCollectorExpression<?> expression : collectorExpressions) {
+            if (expression instanceof SourceAsMapLineExpression || expression instanceof ColumnExtractingLineExpression) {
+                parseSource = true;
+                break;
+            }
+        }
+        this.parseSource = parseSource;
+        startCollect();
+    }
+
+    public static BatchIterator<Row> newInstance(List<FileSplit> splits,
+                                                 List<? extends Input<?>> inputs,
+                                                 Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                                 FileUriCollectPhase.InputFormat inputFormat) {
+        return new CloseAssertingBatchIterator<>(
+            new FileSplitReadingIterator(splits, inputs, collectorExpressions, inputFormat));
+    }
+
+    private void startCollect() {
+        lineContext = new LineContext();
+        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
+            collectorExpression.startCollect(lineContext);
+        }
+        currentUri = null;
+    }
+
+    @Override
+    public Row currentElement() {
+        return row;
+    }
+
+    @Override
+    public void moveToStart() {
+        closeCurrentReader();
+        lines.clear();
+        lineIdx = 0;
+        splitIdx = 0;
+        startCollect();
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (lineIdx >= lines.size()) {
+            return false;
+        }
+        Line line = lines.get(lineIdx++);
+        if (!line.uri.equals(currentUri)) {
+            currentUri = line.uri;
+            lineContext.currentUri(line.uri);
+        }
+        if (line.failure == null) {
+            lineContext.incrementCurrentLineNumber();
+            lineContext.rawSource(line.rawSource, line.parsedSource);
+        } else {
+            lineContext.setCurrentUriFailure(line.failure);
+            lineContext.rawSource(null);
+            // a later line of the same URI must not carry the failure
+            currentUri = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closeCurrentReader();
+        lines.clear();
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        if (allLoaded()) {
+            throw new IllegalStateException("All batches already loaded");
+        }
+        lines.clear();
+        lineIdx = 0;
+        long numBytes = 0;
+        while (lines.size() < BATCH_SIZE && numBytes < BATCH_SIZE_BYTES && !allLoaded()) {
+            if (currentReader == null) {
+                openNextSplit();
+                continue;
+            }
+            FileSplit split = currentSplit;
+            assert split != null : "currentSplit must be set if there is a currentReader";
+            try {
+                byte[] line = currentReader.readLine();
+                if (line == null) {
+                    closeCurrentReader();
+                } else if (line.length > 0) {
+                    numBytes += line.length;
+                    lines.add(parse(split.uri(), line));
+                }
+            } catch (IOException e) {
+                addFailure(split, e);
+                closeCurrentReader();
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private Line parse(URI uri, byte[] line) {
+        byte[] rawSource;
+        try {
+            rawSource = currentLineParser.getByteArray(line);
+        } catch (IOException e) {
+            return new Line(uri, null, null, e.getMessage());
+        }
+        Map<String, Object> parsedSource = null;
+        if (parseSource) {
+            try {
+                parsedSource = XContentHelper.convertToMap(new BytesArray(rawSource), false, XContentType.JSON).v2();
+            } catch (Exception ignored) {
+                // The consumer parses the source again on access and surfaces the error
+            }
+        }
+        return new Line(uri, rawSource, parsedSource, null);
+    }
+
+    private void openNextSplit() {
+        FileSplit split = splits.get(splitIdx++);
+        currentSplit = split;
+        currentSplitStartNanos = System.nanoTime();
+        URI uri = split.uri();
+        FileInput fileInput = split.fileInput();
+        try {
+            currentLineParser = new LineParser();
+            boolean hasHeader = LineParser.isInputCsv(inputFormat, uri);
+            if (hasHeader) {
+                try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(fileInput.getStream(uri), StandardCharsets.UTF_8))) {
+                    currentLineParser.readFirstLine(uri, inputFormat, reader);
+                }
+            } else {
+                currentLineParser.readFirstLine(uri, inputFormat, null);
+            }
+            long start = split.start();
+            if (start == 0) {
+                currentReader = new SplitLineReader(fileInput.getStream(uri, 0), 0, split.end(), hasHeader);
+            } else {
+                // Start one byte earlier to detect if the split begins with a complete line
+                currentReader = new SplitLineReader(fileInput.getStream(uri, start - 1), start - 1, split.end(), true);
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Reading split {}", split);
+            }
+        } catch (IOException | RuntimeException e) {
+            addFailure(split, e);
+            closeCurrentReader();
+        }
+    }
+
+    private void addFailure(FileSplit split, Exception e) {
+        LOGGER.info("Error during COPY FROM '{}'", e, split);
+        lines.add(new Line(split.uri(), null, null, e.getMessage()));
+    }
+
+    private void closeCurrentReader() {
+        SplitLineReader reader = currentReader;
+        FileSplit split = currentSplit;
+        if (reader != null) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Finished split {}: {} bytes read in {}ms",
+                    split,
+                    reader.position() - Math.max(0, split.start() - 1),
+                    (System.nanoTime() - currentSplitStartNanos) / 1_000_000);
+            }
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOGGER.error("Unable to close reader for {}", e, split);
+            }
+        }
+        currentReader = null;
+        currentSplit = null;
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return currentReader == null && splitIdx >= splits.size();
+    }
+
+    @Override
+    public boolean involvesIO() {
+        return true;
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        // handled by CloseAssertingBatchIterator
+    }
+
+    private static class Line {
+
+        private final URI uri;
+        @Nullable
+        private final byte[] rawSource;
+        @Nullable
+        private final Map<String, Object> parsedSource;
+        @Nullable
+        private final String failure;
+
+        Line(URI uri, @Nullable byte[] rawSource, @Nullable Map<String, Object> parsedSource, @Nullable String failure) {
+            this.uri = uri;
+            this.rawSource = rawSource;
+            this.parsedSource = parsedSource;
+            this.failure = failure;
+        }
+    }
+}
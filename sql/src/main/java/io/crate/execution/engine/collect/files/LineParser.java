@@ -58,7 +58,15 @@ public class LineParser {
         }
     }
 
-    private boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
+    public byte[] getByteArray(byte[] line) throws IOException {
+        if (inputType == InputType.CSV) {
+            return csvLineParser.parse(new String(line, StandardCharsets.UTF_8));
+        } else {
+            return line;
+        }
+    }
+
+    static boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
         return (inputFormat == FileUriCollectPhase.InputFormat.CSV) || currentUri.toString().endsWith(".csv");
     }
 }
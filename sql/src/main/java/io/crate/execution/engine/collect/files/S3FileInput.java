@@ -22,6 +22,7 @@
 package io.crate.execution.engine.collect.files;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
@@ -98,6 +99,28 @@ public class S3FileInput implements FileInput {
         throw new IOException("Failed to load S3 URI: " + uri.toString());
     }
 
+    @Override
+    public long size(URI uri) throws IOException {
+        if (client == null) {
+            client = clientBuilder.client(uri);
+        }
+        return client.getObjectMetadata(uri.getHost(), uri.getPath().substring(1)).getContentLength();
+    }
+
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        if (client == null) {
+            client = clientBuilder.client(uri);
+        }
+        S3Object object = client.getObject(
+            new GetObjectRequest(uri.getHost(), uri.getPath().substring(1)).withRange(offset));
+
+        if (object != null) {
+            return object.getObjectContent();
+        }
+        throw new IOException("Failed to load S3 URI: " + uri.toString());
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return true;
@@ -0,0 +1,125 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.execution.engine.collect.files;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a {@link FileSplit}.
+ *
+ * Works on bytes instead of characters to keep track of the position within the file.
+ * This is safe for UTF-8, as the bytes of a line break never occur within a multi-byte character.
+ */
+final class SplitLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final long end;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos = 0;
+    private int bufferLength = 0;
+    private byte[] line = new byte[256];
+    private long position;
+
+    /**
+     * @param in stream positioned at {@code position}
+     * @param skipFirstLine true to skip all bytes up to and including the first line break
+     */
+    SplitLineReader(InputStream in, long position, long end, boolean skipFirstLine) throws IOException {
+        this.in = in;
+        this.position = position;
+        this.end = end;
+        if (skipFirstLine) {
+            readLine(true);
+        }
+    }
+
+    /**
+     * @return the next line without the line break or null if there are no more lines starting within the split
+     */
+    @Nullable
+    byte[] readLine() throws IOException {
+        if (position >= end) {
+            return null;
+        }
+        return readLine(false);
+    }
+
+    long position() {
+        return position;
+    }
+
+    @Nullable
+    private byte[] readLine(boolean skip) throws IOException {
+        int lineLength = 0;
+        boolean readAny = false;
+        while (true) {
+            if (bufferPos == bufferLength) {
+                bufferLength = in.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferLength <= 0) {
+                    bufferLength = 0;
+                    break;
+                }
+            }
+            readAny = true;
+            int lineEnd = bufferPos;
+            while (lineEnd < bufferLength && buffer[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int numBytes = lineEnd - bufferPos;
+            if (!skip) {
+                if (lineLength + numBytes > line.length) {
+                    line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + numBytes));
+                }
+                System.arraycopy(buffer, bufferPos, line, lineLength, numBytes);
+                lineLength += numBytes;
+            }
+            position += numBytes;
+            bufferPos = lineEnd;
+            if (lineEnd < bufferLength) {
+                // consume the line break
+                bufferPos++;
+                position++;
+                break;
+            }
+        }
+        if (!readAny || skip) {
+            return null;
+        }
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        return Arrays.copyOf(line, lineLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import org.elasticsearch.common.inject.Singleton;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the streams of {@code COPY FROM STDIN} statements.
+ *
+ * The client connection executing the statement registers the stream it receives the data on under the jobId of the
+ * statement. The {@link FileReadingIterator} then reads it like any other file by using the {@link #uri(UUID)} of
+ * the job.
+ */
+@Singleton
+public class StdinFileInputFactory implements FileInputFactory {
+
+    public static final String NAME = "stdin";
+
+    private final Map<UUID, InputStream> streams = new ConcurrentHashMap<>();
+
+    public static String uri(UUID jobId) {
+        return NAME + ":///" + jobId;
+    }
+
+    public void register(UUID jobId, InputStream stream) {
+        InputStream previous = streams.put(jobId, stream);
+        assert previous == null : "There must be only one stream registered per job";
+    }
+
+    public void unregister(UUID jobId) {
+        streams.remove(jobId);
+    }
+
+    InputStream getStream(URI uri) {
+        UUID jobId = UUID.fromString(uri.getPath().substring(1));
+        return streams.get(jobId);
+    }
+
+    @Override
+    public FileInput create() {
+        return new StdinFileInput(this);
+    }
+}
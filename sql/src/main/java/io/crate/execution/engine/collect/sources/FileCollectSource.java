@@ -24,15 +24,21 @@ package io.crate.execution.engine.collect.sources;
 import io.crate.analyze.AnalyzedCopyFrom;
 import io.crate.analyze.SymbolEvaluator;
 import io.crate.data.BatchIterator;
+import io.crate.data.CompositeBatchIterator;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.CollectPhase;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.dsl.projection.SourceIndexWriterProjection;
 import io.crate.execution.engine.collect.CollectTask;
 import io.crate.execution.engine.collect.files.FileInputFactory;
 import io.crate.execution.engine.collect.files.FileReadingIterator;
+import io.crate.execution.engine.collect.files.FileSplit;
+import io.crate.execution.engine.collect.files.FileSplitReadingIterator;
 import io.crate.execution.engine.collect.files.LineCollectorExpression;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.file.FileLineReferenceResolver;
+import io.crate.expression.reference.file.SourceLineNumberExpression;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.Functions;
 import io.crate.metadata.TransactionContext;
@@ -42,27 +48,53 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
+
+import static io.crate.execution.support.ThreadPools.numIdleThreads;
 
 @Singleton
 public class FileCollectSource implements CollectSource {
 
+    /**
+     * Uncompressed files larger than this are split into ranges which are read concurrently
+     */
+    static final long SPLIT_SIZE = ByteSizeUnit.MB.toBytes(64);
+
     private final ClusterService clusterService;
     private final Map<String, FileInputFactory> fileInputFactoryMap;
     private final InputFactory inputFactory;
     private final Functions functions;
+    private final ThreadPoolExecutor executor;
+    private final IntSupplier availableThreads;
+    private final int numProcessors;
 
     @Inject
-    public FileCollectSource(Functions functions, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(Settings settings,
+                             Functions functions,
+                             ClusterService clusterService,
+                             ThreadPool threadPool,
+                             Map<String, FileInputFactory> fileInputFactoryMap) {
         this.fileInputFactoryMap = fileInputFactoryMap;
         this.functions = functions;
         this.inputFactory = new InputFactory(functions);
         this.clusterService = clusterService;
+        this.executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+        this.numProcessors = EsExecutors.numberOfProcessors(settings);
+        this.availableThreads = numIdleThreads(executor, numProcessors);
     }
 
     @Override
@@ -76,6 +108,26 @@ public class FileCollectSource implements CollectSource {
         ctx.add(collectPhase.toCollect());
 
         List<String> fileUris = targetUriToStringList(txnCtx, functions, fileUriCollectPhase.targetUri());
+        int numReaders = fileUriCollectPhase.nodeIds().size();
+        int readerNumber = getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId());
+        if (canReadSplits(fileUriCollectPhase, ctx.expressions())) {
+            List<FileSplit> splits;
+            try {
+                splits = FileSplit.create(
+                    fileUris,
+                    fileInputFactoryMap,
+                    fileUriCollectPhase.sharedStorage(),
+                    numReaders,
+                    readerNumber,
+                    SPLIT_SIZE
+                );
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (splits != null) {
+                return readSplits(txnCtx, fileUriCollectPhase, splits);
+            }
+        }
         return FileReadingIterator.newInstance(
             fileUris,
             ctx.topLevelInputs(),
@@ -83,12 +135,65 @@ public class FileCollectSource implements CollectSource {
             fileUriCollectPhase.compression(),
             fileInputFactoryMap,
             fileUriCollectPhase.sharedStorage(),
-            fileUriCollectPhase.nodeIds().size(),
-            getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId()),
+            numReaders,
+            readerNumber,
             fileUriCollectPhase.inputFormat()
         );
     }
 
+    /**
+     * Compressed files can't be read starting at an offset and line numbers (used for RETURN SUMMARY)
+     * are only known if a file is read sequentially.
+     * Splits of a file are read concurrently and don't preserve the order of its lines, so they're not used
+     * if duplicates are overwritten, where the last line of a primary key has to win.
+     */
+    private static boolean canReadSplits(FileUriCollectPhase phase,
+                                         Collection<LineCollectorExpression<?>> expressions) {
+        if (phase.compression() != null) {
+            return false;
+        }
+        for (Projection projection : phase.projections()) {
+            if (projection instanceof SourceIndexWriterProjection
+                && ((SourceIndexWriterProjection) projection).overwriteDuplicates()) {
+                return false;
+            }
+        }
+        for (LineCollectorExpression<?> expression : expressions) {
+            if (expression instanceof SourceLineNumberExpression) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BatchIterator<Row> readSplits(TransactionContext txnCtx,
+                                          FileUriCollectPhase phase,
+                                          List<FileSplit> splits) {
+        int numIterators = Math.max(1, Math.min(numProcessors, splits.size()));
+        List<List<FileSplit>> splitsPerIterator = new ArrayList<>(numIterators);
+        for (int i = 0; i < numIterators; i++) {
+            splitsPerIterator.add(new ArrayList<>());
+        }
+        for (int i = 0; i < splits.size(); i++) {
+            splitsPerIterator.get(i % numIterators).add(splits.get(i));
+        }
+        @SuppressWarnings("unchecked")
+        BatchIterator<Row>[] iterators = new BatchIterator[numIterators];
+        for (int i = 0; i < numIterators; i++) {
+            // Each iterator is loaded by a different thread and needs its own inputs and expressions
+            InputFactory.Context<LineCollectorExpression<?>> ctx =
+                inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
+            ctx.add(phase.toCollect());
+            iterators[i] = FileSplitReadingIterator.newInstance(
+                splitsPerIterator.get(i),
+                ctx.topLevelInputs(),
+                ctx.expressions(),
+                phase.inputFormat()
+            );
+        }
+        return CompositeBatchIterator.asyncComposite(executor, availableThreads, iterators);
+    }
+
     private static int getReaderNumber(Collection<String> nodeIds, String localNodeId) {
         String[] readers = nodeIds.toArray(new String[0]);
         Arrays.sort(readers);
@@ -49,6 +49,7 @@ import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
 import io.crate.execution.engine.pipeline.ProjectorFactory;
 import io.crate.execution.engine.pipeline.Projectors;
 import io.crate.execution.engine.sort.OrderingByPosition;
+import io.crate.execution.engine.spill.RowSpillFile;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.execution.jobs.SharedShardContext;
 import io.crate.execution.jobs.SharedShardContexts;
@@ -72,6 +73,7 @@ import io.crate.plugin.IndexEventListenerProxy;
 import io.crate.types.DataType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
@@ -83,6 +85,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.IndexService;
@@ -171,7 +174,8 @@ public class ShardCollectSource implements CollectSource {
                               IndexEventListenerProxy indexEventListenerProxy,
                               BlobIndicesService blobIndicesService,
                               PageCacheRecycler pageCacheRecycler,
-                              CrateCircuitBreakerService circuitBreakerService) {
+                              CrateCircuitBreakerService circuitBreakerService,
+                              NodeEnvironment nodeEnvironment) {
         this.unassignedShardReferenceResolver = new StaticTableReferenceResolver<>(
             SysShardsTableInfo.unassignedShardsExpressions());
         this.shardReferenceResolver = new StaticTableReferenceResolver<>(SysShardsTableInfo.expressions());
@@ -211,7 +215,11 @@ public class ShardCollectSource implements CollectSource {
             nodeNormalizer,
             systemCollectSource::getRowUpdater,
             systemCollectSource::tableDefinition,
-            bigArrays
+            Version.CURRENT,
+            bigArrays,
+            null,
+            RowSpillFile.spillDirectory(nodeEnvironment),
+            circuitBreakerService.getBreaker(CrateCircuitBreakerService.QUERY)
         );
 
         indexEventListenerProxy.addLast(new LifecycleListener());
@@ -33,11 +33,11 @@ import io.crate.data.Row;
 public class BroadcastingBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
-    private final StreamBucket.Builder bucketBuilder;
+    private final ColumnarPage.Builder bucketBuilder;
 
     public BroadcastingBucketBuilder(Streamer<?>[] streamers, int numBuckets, RamAccounting ramAccounting) {
         this.numBuckets = numBuckets;
-        this.bucketBuilder = new StreamBucket.Builder(streamers, ramAccounting);
+        this.bucketBuilder = new ColumnarPage.Builder(streamers, ramAccounting);
     }
 
     @Override
@@ -56,9 +56,9 @@ public class BroadcastingBucketBuilder implements MultiBucketBuilder {
     }
 
     @Override
-    public void build(StreamBucket[] buckets) {
+    public void build(ColumnarPage[] buckets) {
         assert buckets.length == numBuckets : "length of the provided array must match numBuckets";
-        StreamBucket bucket = bucketBuilder.build();
+        ColumnarPage bucket = bucketBuilder.build();
         bucketBuilder.reset();
         for (int i = 0; i < numBuckets; i++) {
             buckets[i] = bucket;
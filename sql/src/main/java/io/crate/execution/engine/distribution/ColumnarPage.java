@@ -0,0 +1,633 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Bucket;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A page of rows which is sent between nodes encoded column by column.
+ *
+ * <p>
+ * Each column is encoded using the first matching encoding:
+ * <ul>
+ *     <li>{@link #RLE}: runs of equal values, if the column has on average at least 2 equal values in a row</li>
+ *     <li>{@link #DICTIONARY}: the distinct values and an index per row,
+ *          if there are at most a quarter as many distinct values as rows</li>
+ *     <li>{@link #DELTA_LONG}, {@link #DELTA_INT}: a bitmap of the null values and the
+ *          zig-zag encoded differences of the values, for integral columns</li>
+ *     <li>{@link #PLAIN}: the values, one after another</li>
+ * </ul>
+ * Values are written using the {@link Streamer} of the column. The encoded columns are preceded by their lengths.
+ * Pages larger than {@link #COMPRESSION_THRESHOLD} bytes are compressed using LZ4 if that makes them smaller.
+ * </p>
+ *
+ * <p>
+ * A page is either built by a {@link Builder}, which keeps the values of each column, or received from another node.
+ * A received page keeps the encoded columns and decodes the values while its rows are iterated,
+ * only the distinct values of dictionary encoded columns are decoded up-front.
+ * Like for a {@link StreamBucket}, the streamers of a received page must be set using
+ * {@link #streamers(Streamer[])} before its rows can be iterated.
+ * </p>
+ */
+final class ColumnarPage implements Bucket {
+
+    static final byte PLAIN = 0;
+    static final byte RLE = 1;
+    static final byte DICTIONARY = 2;
+    static final byte DELTA_LONG = 3;
+    static final byte DELTA_INT = 4;
+
+    static final int COMPRESSION_THRESHOLD = 4 * 1024;
+
+    private static final byte FLAG_LZ4 = 1;
+
+    private final int numRows;
+
+    /**
+     * The values of each column of a built page. The arrays can be longer than {@link #numRows}.
+     *
+     * These are the values of the upstream rows, not copies. A page pushed to the local node is handed
+     * to the receiver as is, without being serialized, so this relies on the row values being immutable.
+     */
+    @Nullable
+    private final Object[][] columnValues;
+
+    /**
+     * The values of each column of a built page, encoded using {@link #PLAIN}.
+     */
+    @Nullable
+    private final BytesReference[] plainColumns;
+
+    /**
+     * The encoded columns, set once a built page is written for the first time or if the page is received.
+     * Pages can be sent to several nodes concurrently. They encode the same bytes, so a race is harmless.
+     */
+    @Nullable
+    private volatile EncodedColumns encodedColumns;
+
+    private Streamer<?>[] streamers;
+
+    private ColumnarPage(Streamer<?>[] streamers, Object[][] columnValues, BytesReference[] plainColumns, int numRows) {
+        this.streamers = streamers;
+        this.columnValues = columnValues;
+        this.plainColumns = plainColumns;
+        this.numRows = numRows;
+    }
+
+    ColumnarPage(StreamInput in) throws IOException {
+        columnValues = null;
+        plainColumns = null;
+        numRows = in.readVInt();
+        if (numRows > 0) {
+            byte flags = in.readByte();
+            int length = in.readVInt();
+            BytesReference bytes = in.readBytesReference();
+            BytesReference columns = (flags & FLAG_LZ4) == FLAG_LZ4 ? decompress(bytes, length) : bytes;
+            encodedColumns = new EncodedColumns(columns, flags, bytes);
+        }
+    }
+
+    @Override
+    public int size() {
+        return numRows;
+    }
+
+    void streamers(Streamer<?>[] streamers) {
+        this.streamers = streamers;
+    }
+
+    /**
+     * Writes the encoded columns, encoding them if necessary.
+     *
+     * @param stats updated with the number of rows and bytes of the page, if not null
+     */
+    void writeTo(StreamOutput out, @Nullable PageStats stats) throws IOException {
+        out.writeVInt(numRows);
+        if (numRows <= 0) {
+            return;
+        }
+        EncodedColumns encoded = encodedColumns;
+        if (encoded == null) {
+            encoded = encode();
+            encodedColumns = encoded;
+        }
+        out.writeByte(encoded.flags);
+        out.writeVInt(encoded.columns.length());
+        out.writeBytesReference(encoded.payload);
+        if (stats != null) {
+            stats.add(numRows, encoded.columns.length(), encoded.payload.length());
+        }
+    }
+
+    /**
+     * Writes the rows in the format of a {@link StreamBucket}, for nodes which don't support columnar pages.
+     */
+    void writeRowsTo(StreamOutput out) throws IOException {
+        out.writeVInt(numRows);
+        if (numRows <= 0) {
+            return;
+        }
+        BytesStreamOutput rowsOut = new BytesStreamOutput();
+        for (Row row : this) {
+            for (int c = 0; c < streamers.length; c++) {
+                //noinspection unchecked
+                ((Streamer<Object>) streamers[c]).writeValueTo(rowsOut, row.get(c));
+            }
+        }
+        out.writeBytesReference(rowsOut.bytes());
+    }
+
+    private EncodedColumns encode() throws IOException {
+        assert columnValues != null && plainColumns != null : "Only a built page can be encoded";
+        BytesReference[] encoded = new BytesReference[columnValues.length];
+        BytesStreamOutput columnsOut = new BytesStreamOutput();
+        for (int c = 0; c < columnValues.length; c++) {
+            BytesStreamOutput columnOut = new BytesStreamOutput();
+            writeColumn(columnOut, streamers[c], columnValues[c], numRows, plainColumns[c]);
+            encoded[c] = columnOut.bytes();
+            columnsOut.writeInt(encoded[c].length());
+        }
+        for (BytesReference column : encoded) {
+            column.writeTo(columnsOut);
+        }
+        BytesReference columns = columnsOut.bytes();
+        if (columns.length() >= COMPRESSION_THRESHOLD) {
+            BytesReference compressed = compress(columns);
+            if (compressed.length() < columns.length()) {
+                return new EncodedColumns(columns, FLAG_LZ4, compressed);
+            }
+        }
+        return new EncodedColumns(columns, (byte) 0, columns);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeColumn(StreamOutput out,
+                                    Streamer<?> streamer,
+                                    Object[] values,
+                                    int numValues,
+                                    BytesReference plainValues) throws IOException {
+        Streamer<Object> valueStreamer = (Streamer<Object>) streamer;
+        int numRuns = 1;
+        for (int i = 1; i < numValues; i++) {
+            if (!Objects.equals(values[i], values[i - 1])) {
+                numRuns++;
+            }
+        }
+        if (numRuns * 2 <= numValues) {
+            out.writeByte(RLE);
+            out.writeVInt(numRuns);
+            int runStart = 0;
+            for (int i = 1; i <= numValues; i++) {
+                if (i == numValues || !Objects.equals(values[i], values[runStart])) {
+                    out.writeVInt(i - runStart);
+                    valueStreamer.writeValueTo(out, values[runStart]);
+                    runStart = i;
+                }
+            }
+            return;
+        }
+        Map<Object, Integer> dictionary = dictionary(values, numValues);
+        if (dictionary != null) {
+            out.writeByte(DICTIONARY);
+            out.writeVInt(dictionary.size());
+            Object[] distinctValues = new Object[dictionary.size()];
+            for (Map.Entry<Object, Integer> entry : dictionary.entrySet()) {
+                distinctValues[entry.getValue()] = entry.getKey();
+            }
+            for (Object value : distinctValues) {
+                valueStreamer.writeValueTo(out, value);
+            }
+            for (int i = 0; i < numValues; i++) {
+                out.writeVInt(dictionary.get(values[i]));
+            }
+            return;
+        }
+        byte integralType = integralType(values, numValues);
+        if (integralType != PLAIN) {
+            out.writeByte(integralType);
+            writeNullBitmap(out, values, numValues);
+            long previous = 0;
+            for (int i = 0; i < numValues; i++) {
+                Object value = values[i];
+                if (value != null) {
+                    long longValue = ((Number) value).longValue();
+                    out.writeZLong(longValue - previous);
+                    previous = longValue;
+                }
+            }
+            return;
+        }
+        out.writeByte(PLAIN);
+        plainValues.writeTo(out);
+    }
+
+    /**
+     * @return the index of each distinct value or null if there are too many distinct values
+     */
+    @Nullable
+    private static Map<Object, Integer> dictionary(Object[] values, int numValues) {
+        int maxSize = numValues / 4;
+        if (maxSize == 0) {
+            return null;
+        }
+        HashMap<Object, Integer> dictionary = new HashMap<>();
+        for (int i = 0; i < numValues; i++) {
+            Object value = values[i];
+            if (!dictionary.containsKey(value)) {
+                if (dictionary.size() == maxSize) {
+                    return null;
+                }
+                dictionary.put(value, dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * @return {@link #DELTA_LONG} or {@link #DELTA_INT} if all values are Long or Integer values,
+     *         otherwise {@link #PLAIN}
+     */
+    private static byte integralType(Object[] values, int numValues) {
+        Class<?> type = null;
+        for (int i = 0; i < numValues; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (type == null) {
+                type = value.getClass();
+                if (type != Long.class && type != Integer.class) {
+                    return PLAIN;
+                }
+            } else if (value.getClass() != type) {
+                return PLAIN;
+            }
+        }
+        if (type == null) {
+            return PLAIN;
+        }
+        return type == Long.class ? DELTA_LONG : DELTA_INT;
+    }
+
+    private static void writeNullBitmap(StreamOutput out, Object[] values, int numValues) throws IOException {
+        byte[] bitmap = new byte[(numValues + 7) / 8];
+        for (int i = 0; i < numValues; i++) {
+            if (values[i] == null) {
+                bitmap[i >> 3] |= 1 << (i & 7);
+            }
+        }
+        out.writeBytes(bitmap);
+    }
+
+    private static BytesReference compress(BytesReference bytes) throws IOException {
+        BytesRef bytesRef = bytes.toBytesRef();
+        ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        try (Compressor compressor = CompressionMode.FAST.newCompressor()) {
+            compressor.compress(bytesRef.bytes, bytesRef.offset, bytesRef.length, out);
+        }
+        return new BytesArray(out.toArrayCopy());
+    }
+
+    private static BytesReference decompress(BytesReference compressed, int length) throws IOException {
+        BytesRef compressedRef = compressed.toBytesRef();
+        Decompressor decompressor = CompressionMode.FAST.newDecompressor();
+        BytesRef decompressed = new BytesRef();
+        decompressor.decompress(
+            new ByteArrayDataInput(compressedRef.bytes, compressedRef.offset, compressedRef.length),
+            length,
+            0,
+            length,
+            decompressed
+        );
+        return new BytesArray(decompressed.bytes, decompressed.offset, decompressed.length);
+    }
+
+    @Override
+    @Nonnull
+    public Iterator<Row> iterator() {
+        if (numRows < 1) {
+            return Collections.emptyIterator();
+        }
+        assert streamers != null : "streamers must not be null";
+        ColumnReader[] readers = new ColumnReader[streamers.length];
+        if (columnValues != null) {
+            for (int c = 0; c < readers.length; c++) {
+                readers[c] = new ValuesReader(columnValues[c]);
+            }
+        } else {
+            EncodedColumns encoded = encodedColumns;
+            assert encoded != null : "A received page must have encoded columns";
+            try {
+                StreamInput lengths = encoded.columns.streamInput();
+                int offset = readers.length * Integer.BYTES;
+                for (int c = 0; c < readers.length; c++) {
+                    int length = lengths.readInt();
+                    StreamInput in = encoded.columns.slice(offset, length).streamInput();
+                    readers[c] = new EncodedColumnReader(in, streamers[c], numRows);
+                    offset += length;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        Object[] cells = new Object[readers.length];
+        RowN row = new RowN(cells);
+        return new Iterator<>() {
+
+            int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                return pos < numRows;
+            }
+
+            @Override
+            public Row next() {
+                if (pos >= numRows) {
+                    throw new NoSuchElementException("ColumnarPage has no more rows");
+                }
+                try {
+                    for (int c = 0; c < readers.length; c++) {
+                        cells[c] = readers[c].next();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                pos++;
+                return row;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarPage{" +
+               "numRows=" + numRows +
+               '}';
+    }
+
+    /**
+     * Builds a page out of rows. The values are kept per column and additionally encoded using {@link #PLAIN} as
+     * they are added, so that plain encoded columns don't have to be written twice.
+     */
+    static final class Builder implements Accountable {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final Streamer<?>[] streamers;
+        private final RamAccounting ramAccounting;
+
+        private Object[][] columnValues;
+        private BytesStreamOutput[] plainColumns;
+        private int capacity;
+        private int size = 0;
+        private long pageBytes = 0;
+        private long previousPageBytes = 0;
+
+        Builder(Streamer<?>[] streamers, RamAccounting ramAccounting) {
+            this.ramAccounting = requireNonNull(ramAccounting, "RamAccounting must not be null");
+            this.streamers = streamers;
+            init(INITIAL_CAPACITY);
+        }
+
+        private void init(int capacity) {
+            this.capacity = capacity;
+            columnValues = new Object[streamers.length][capacity];
+            plainColumns = new BytesStreamOutput[streamers.length];
+            for (int c = 0; c < plainColumns.length; c++) {
+                plainColumns[c] = new BytesStreamOutput();
+            }
+        }
+
+        void add(Row row) {
+            assert streamers.length == row.numColumns() : "number of streamer must match row size";
+            if (size == capacity) {
+                capacity = ArrayUtil.oversize(size + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+                for (int c = 0; c < columnValues.length; c++) {
+                    columnValues[c] = Arrays.copyOf(columnValues[c], capacity);
+                }
+            }
+            long bytes = 0;
+            for (int c = 0; c < streamers.length; c++) {
+                Object value = row.get(c);
+                columnValues[c][size] = value;
+                BytesStreamOutput plainColumn = plainColumns[c];
+                long prevSize = plainColumn.size();
+                try {
+                    //noinspection unchecked
+                    ((Streamer<Object>) streamers[c]).writeValueTo(plainColumn, value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                bytes += plainColumn.size() - prevSize;
+            }
+            size++;
+            // The encoded size is also used as estimate for the size of the values
+            long rowBytes = 2 * bytes + streamers.length * (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+            ramAccounting.addBytes(rowBytes);
+            pageBytes += rowBytes;
+        }
+
+        ColumnarPage build() {
+            BytesReference[] plainValues = new BytesReference[plainColumns.length];
+            for (int c = 0; c < plainColumns.length; c++) {
+                plainValues[c] = plainColumns[c].bytes();
+            }
+            return new ColumnarPage(streamers, columnValues, plainValues, size);
+        }
+
+        /**
+         * Starts a new page. The page built previously keeps the values.
+         *
+         * <p>
+         * The page built previously is still being sent, but the one built before it has been handed off:
+         * A new page is only built once all downstreams responded to the previous one.
+         * So the bytes of that older page are released.
+         * </p>
+         */
+        void reset() {
+            init(Math.max(size, INITIAL_CAPACITY)); // next page is probably going to have the same size
+            size = 0;
+            ramAccounting.addBytes(-previousPageBytes);
+            previousPageBytes = pageBytes;
+            pageBytes = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return the bytes accounted for the rows of the current page
+         */
+        @Override
+        public long ramBytesUsed() {
+            return pageBytes;
+        }
+    }
+
+    private static final class EncodedColumns {
+
+        private final BytesReference columns;
+        private final byte flags;
+        private final BytesReference payload;
+
+        /**
+         * @param columns the encoded columns
+         * @param payload the columns as they are sent, possibly compressed
+         */
+        EncodedColumns(BytesReference columns, byte flags, BytesReference payload) {
+            this.columns = columns;
+            this.flags = flags;
+            this.payload = payload;
+        }
+    }
+
+    private abstract static class ColumnReader {
+
+        abstract Object next() throws IOException;
+    }
+
+    private static final class ValuesReader extends ColumnReader {
+
+        private final Object[] values;
+        private int pos = 0;
+
+        ValuesReader(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Object next() {
+            return values[pos++];
+        }
+    }
+
+    private static final class EncodedColumnReader extends ColumnReader {
+
+        private final StreamInput in;
+        private final Streamer<?> streamer;
+        private final byte encoding;
+        private int pos = 0;
+
+        private int remainingRunLength = 0;
+        private Object runValue;
+
+        private Object[] distinctValues;
+
+        private byte[] nullBitmap;
+        private long previous = 0;
+
+        EncodedColumnReader(StreamInput in, Streamer<?> streamer, int numRows) throws IOException {
+            this.in = in;
+            this.streamer = streamer;
+            this.encoding = in.readByte();
+            switch (encoding) {
+                case PLAIN:
+                    break;
+
+                case RLE:
+                    in.readVInt(); // number of runs
+                    break;
+
+                case DICTIONARY:
+                    distinctValues = new Object[in.readVInt()];
+                    for (int i = 0; i < distinctValues.length; i++) {
+                        distinctValues[i] = streamer.readValueFrom(in);
+                    }
+                    break;
+
+                case DELTA_LONG:
+                case DELTA_INT:
+                    nullBitmap = new byte[(numRows + 7) / 8];
+                    in.readBytes(nullBitmap, 0, nullBitmap.length);
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown column encoding: " + encoding);
+            }
+        }
+
+        @Override
+        Object next() throws IOException {
+            int i = pos++;
+            switch (encoding) {
+                case PLAIN:
+                    return streamer.readValueFrom(in);
+
+                case RLE:
+                    if (remainingRunLength == 0) {
+                        remainingRunLength = in.readVInt();
+                        runValue = streamer.readValueFrom(in);
+                    }
+                    remainingRunLength--;
+                    return runValue;
+
+                case DICTIONARY:
+                    return distinctValues[in.readVInt()];
+
+                case DELTA_LONG:
+                case DELTA_INT:
+                    if ((nullBitmap[i >> 3] & (1 << (i & 7))) != 0) {
+                        return null;
+                    }
+                    previous += in.readZLong();
+                    return encoding == DELTA_LONG ? (Object) previous : (Object) (int) previous;
+
+                default:
+                    throw new AssertionError("Unknown column encoding: " + encoding);
+            }
+        }
+    }
+}
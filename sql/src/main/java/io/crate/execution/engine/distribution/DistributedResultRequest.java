@@ -24,6 +24,7 @@ package io.crate.execution.engine.distribution;
 
 import io.crate.Streamer;
 import io.crate.data.Bucket;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.transport.TransportRequest;
@@ -38,7 +39,15 @@ public class DistributedResultRequest extends TransportRequest {
     private final int executionPhaseId;
     private final int bucketIdx;
 
+    /**
+     * Rows received from a node which doesn't support {@link ColumnarPage}s
+     */
+    @Nullable
     private StreamBucket rows;
+    @Nullable
+    private ColumnarPage page;
+    @Nullable
+    private PageStats pageStats;
     private final UUID jobId;
     private boolean isLast = true;
 
@@ -52,15 +61,29 @@ public class DistributedResultRequest extends TransportRequest {
         this.inputId = inputId;
     }
 
-    public DistributedResultRequest(UUID jobId,
-                                    int executionPhaseId,
-                                    byte inputId,
-                                    int bucketIdx,
-                                    StreamBucket rows,
-                                    boolean isLast) {
+    DistributedResultRequest(UUID jobId,
+                             int executionPhaseId,
+                             byte inputId,
+                             int bucketIdx,
+                             ColumnarPage page,
+                             boolean isLast) {
+        this(jobId, executionPhaseId, inputId, bucketIdx, page, isLast, null);
+    }
+
+    /**
+     * @param pageStats updated with the number of rows and bytes once the rows are sent to another node
+     */
+    DistributedResultRequest(UUID jobId,
+                             int executionPhaseId,
+                             byte inputId,
+                             int bucketIdx,
+                             ColumnarPage page,
+                             boolean isLast,
+                             @Nullable PageStats pageStats) {
         this(jobId, inputId, executionPhaseId, bucketIdx);
-        this.rows = rows;
+        this.page = page;
         this.isLast = isLast;
+        this.pageStats = pageStats;
     }
 
     public DistributedResultRequest(UUID jobId,
@@ -91,6 +114,11 @@ public class DistributedResultRequest extends TransportRequest {
     }
 
     public Bucket readRows(Streamer<?>[] streamers) {
+        if (page != null) {
+            page.streamers(streamers);
+            return page;
+        }
+        assert rows != null : "request must contain either a page or rows";
         rows.streamers(streamers);
         return rows;
     }
@@ -120,6 +148,8 @@ public class DistributedResultRequest extends TransportRequest {
         if (failure) {
             throwable = in.readException();
             isKilled = in.readBoolean();
+        } else if (in.getVersion().onOrAfter(Version.V_4_2_0)) {
+            page = new ColumnarPage(in);
         } else {
             rows = new StreamBucket(in);
         }
@@ -140,8 +170,10 @@ public class DistributedResultRequest extends TransportRequest {
         if (failure) {
             out.writeException(throwable);
             out.writeBoolean(isKilled);
+        } else if (out.getVersion().onOrAfter(Version.V_4_2_0)) {
+            page.writeTo(out, pageStats);
         } else {
-            rows.writeTo(out);
+            page.writeRowsTo(out);
         }
     }
 }
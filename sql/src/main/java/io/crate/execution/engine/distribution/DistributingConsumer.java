@@ -60,10 +60,11 @@ public class DistributingConsumer implements RowConsumer {
     private final int bucketIdx;
     private final TransportDistributedResultAction distributedResultAction;
     private final int pageSize;
-    private final StreamBucket[] buckets;
+    private final ColumnarPage[] buckets;
     private final List<Downstream> downstreams;
     private final boolean traceEnabled;
     private final CompletableFuture<Void> completionFuture;
+    private final PageStats pageStats = new PageStats();
 
     @VisibleForTesting
     final MultiBucketBuilder multiBucketBuilder;
@@ -90,8 +91,13 @@ public class DistributingConsumer implements RowConsumer {
         this.bucketIdx = bucketIdx;
         this.distributedResultAction = distributedResultAction;
         this.pageSize = pageSize;
-        this.buckets = new StreamBucket[downstreamNodeIds.size()];
+        this.buckets = new ColumnarPage[downstreamNodeIds.size()];
         this.completionFuture = new CompletableFuture<>();
+        if (logger.isDebugEnabled()) {
+            completionFuture.whenComplete((r, t) -> logger.debug(
+                "Sent pages jobId={} targetPhase={}/{} bucket={} stats={}",
+                jobId, targetPhaseId, inputId, bucketIdx, pageStats));
+        }
         downstreams = new ArrayList<>(downstreamNodeIds.size());
         for (String downstreamNodeId : downstreamNodeIds) {
             downstreams.add(new Downstream(downstreamNodeId));
@@ -203,7 +209,7 @@ public class DistributingConsumer implements RowConsumer {
             }
             distributedResultAction.pushResult(
                 downstream.nodeId,
-                new DistributedResultRequest(jobId, targetPhaseId, inputId, bucketIdx, buckets[i], isLast),
+                new DistributedResultRequest(jobId, targetPhaseId, inputId, bucketIdx, buckets[i], isLast, pageStats),
                 new ActionListener<>() {
                     @Override
                     public void onResponse(DistributedResultResponse response) {
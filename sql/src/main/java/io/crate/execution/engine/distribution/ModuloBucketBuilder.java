@@ -37,7 +37,7 @@ import java.util.List;
 public class ModuloBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
-    private final List<StreamBucket.Builder> bucketBuilders;
+    private final List<ColumnarPage.Builder> bucketBuilders;
     private final int distributedByColumnIdx;
     private int size = 0;
 
@@ -46,13 +46,13 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
         this.distributedByColumnIdx = distributedByColumnIdx;
         this.bucketBuilders = new ArrayList<>(numBuckets);
         for (int i = 0; i < numBuckets; i++) {
-            bucketBuilders.add(new StreamBucket.Builder(streamers, ramAccounting));
+            bucketBuilders.add(new ColumnarPage.Builder(streamers, ramAccounting));
         }
     }
 
     @Override
     public void add(Row row) {
-        StreamBucket.Builder builder = bucketBuilders.get(getBucket(row));
+        ColumnarPage.Builder builder = bucketBuilders.get(getBucket(row));
         builder.add(row);
         size++;
     }
@@ -63,10 +63,10 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
     }
 
     @Override
-    public void build(StreamBucket[] buckets) {
+    public void build(ColumnarPage[] buckets) {
         assert buckets.length == numBuckets : "length of the provided array must match numBuckets";
         for (int i = 0; i < numBuckets; i++) {
-            StreamBucket.Builder builder = bucketBuilders.get(i);
+            ColumnarPage.Builder builder = bucketBuilders.get(i);
             buckets[i] = builder.build();
             builder.reset();
         }
@@ -47,5 +47,5 @@ public interface MultiBucketBuilder extends Accountable {
      * <p>
      * N is usually specified in the constructor of a specific PageBuilder implementation.
      */
-    void build(StreamBucket[] buckets);
+    void build(ColumnarPage[] buckets);
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the pages a {@link DistributingConsumer} sends to other nodes.
+ *
+ * Pages are serialized on the transport threads, so the counters may be updated concurrently.
+ */
+final class PageStats {
+
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+
+    void add(int numRows, int numEncodedBytes, int numSentBytes) {
+        pages.increment();
+        rows.add(numRows);
+        encodedBytes.add(numEncodedBytes);
+        sentBytes.add(numSentBytes);
+    }
+
+    long pages() {
+        return pages.sum();
+    }
+
+    long rows() {
+        return rows.sum();
+    }
+
+    long encodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    long sentBytes() {
+        return sentBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PageStats{" +
+               "pages=" + pages.sum() +
+               ", rows=" + rows.sum() +
+               ", encodedBytes=" + encodedBytes.sum() +
+               ", sentBytes=" + sentBytes.sum() +
+               '}';
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import io.crate.data.Row;
+import io.crate.data.Row1;
+import io.crate.exceptions.UnhandledServerException;
+import io.crate.execution.dsl.projection.WriterProjection;
+import io.crate.metadata.ColumnIdent;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Renders each row into a single JSON line, using the same formats as the {@link FileWriterCountCollector}.
+ *
+ * Used for {@code COPY TO STDOUT} where the rows are sent to the client instead of being written to files.
+ * The rows must contain:
+ * <ul>
+ *     <li>the {@code _raw} source or the {@code _doc} followed by the values of the {@code overwriteColumns}</li>
+ *     <li>or the values of the selected columns</li>
+ * </ul>
+ */
+public final class JsonLineRenderer implements Function<Row, Row> {
+
+    private final WriterProjection.OutputFormat outputFormat;
+    @Nullable
+    private final List<String> outputNames;
+    private final List<ColumnIdent> overwriteColumns;
+
+    public JsonLineRenderer(WriterProjection.OutputFormat outputFormat,
+                            @Nullable List<String> outputNames,
+                            List<ColumnIdent> overwriteColumns) {
+        this.outputFormat = outputFormat;
+        this.outputNames = outputNames;
+        this.overwriteColumns = overwriteColumns;
+    }
+
+    @Override
+    public Row apply(Row row) {
+        return new Row1(render(row));
+    }
+
+    private String render(Row row) {
+        try {
+            if (!overwriteColumns.isEmpty()) {
+                return renderDoc(row);
+            } else if (outputFormat == WriterProjection.OutputFormat.JSON_ARRAY) {
+                XContentBuilder builder = XContentFactory.jsonBuilder().startArray();
+                for (int i = 0; i < row.numColumns(); i++) {
+                    builder.value(row.get(i));
+                }
+                return Strings.toString(builder.endArray());
+            } else if (outputNames != null) {
+                XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+                for (int i = 0; i < outputNames.size(); i++) {
+                    builder.field(outputNames.get(i), row.get(i));
+                }
+                return Strings.toString(builder.endObject());
+            } else {
+                return (String) row.get(0);
+            }
+        } catch (IOException e) {
+            throw new UnhandledServerException("Failed to write row to output", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private String renderDoc(Row row) throws IOException {
+        Map<String, Object> doc = new HashMap<>((Map<String, Object>) row.get(0));
+        Map<ColumnIdent, Object> overwrites = new HashMap<>(overwriteColumns.size());
+        for (int i = 0; i < overwriteColumns.size(); i++) {
+            overwrites.put(overwriteColumns.get(i), row.get(i + 1));
+        }
+        XContentHelper.update(doc, FileWriterCountCollector.toNestedStringObjectMap(overwrites), false);
+        return Strings.toString(XContentFactory.jsonBuilder().map(doc));
+    }
+}
@@ -23,31 +23,66 @@
 package io.crate.execution.engine.fetch;
 
 import com.carrotsearch.hppc.IntContainer;
-import com.carrotsearch.hppc.cursors.IntCursor;
 import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RowCellsAccountingWithEstimators;
+import io.crate.data.RowN;
 import io.crate.execution.engine.distribution.StreamBucket;
 import io.crate.expression.InputRow;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.expression.reference.doc.lucene.SourceLookup;
+import io.crate.types.DataType;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntConsumer;
 
+/**
+ * Reads the values of documents for the fetch phase.
+ *
+ * The documents are read ordered by their doc id, which groups them by segment, so that the expressions are
+ * positioned on a segment only once and the doc values iterators and stored fields are only moved forward.
+ * The rows are emitted in the order of the requested doc ids.
+ */
 class FetchCollector {
 
+    /**
+     * If at least this many documents of a segment are read ...
+     */
+    static final int MIN_SEQUENTIAL_DOCS = 10;
+
+    /**
+     * ... and on average at least one out of this many documents between the first and the last one is read,
+     * the stored fields are read using a reader optimized for sequential access which keeps the decompressed
+     * block of documents. Stored fields are compressed in blocks of up to 128 documents, so multiple documents
+     * are read out of every decompressed block.
+     */
+    static final int MAX_SPAN_PER_DOC = 8;
+
     private final LuceneCollectorExpression[] collectorExpressions;
     private final InputRow row;
     private final Streamer<?>[] streamers;
     private final List<LeafReaderContext> readerContexts;
     private final RamAccounting ramAccounting;
+    private final RowAccounting<Object[]> materializedRowsAccounting;
+    private final SourceLookup sourceLookup;
 
     FetchCollector(List<LuceneCollectorExpression<?>> collectorExpressions,
                    Streamer<?>[] streamers,
+                   List<? extends DataType<?>> columnTypes,
                    Engine.Searcher searcher,
                    IndexFieldDataService indexFieldDataService,
                    RamAccounting ramAccounting,
@@ -57,30 +92,144 @@ class FetchCollector {
         this.streamers = streamers;
         this.readerContexts = searcher.searcher().getIndexReader().leaves();
         this.ramAccounting = ramAccounting;
+        // Separate accounting, so that the materialized rows can be released once they're added to the bucket
+        this.materializedRowsAccounting = new RowCellsAccountingWithEstimators(
+            columnTypes,
+            new ConcurrentRamAccounting(ramAccounting::addBytes, bytes -> ramAccounting.addBytes(- bytes)),
+            RamUsageEstimator.NUM_BYTES_OBJECT_REF
+        );
         CollectorContext collectorContext = new CollectorContext(indexFieldDataService::getForField, readerId);
         for (LuceneCollectorExpression<?> collectorExpression : this.collectorExpressions) {
             collectorExpression.startCollect(collectorContext);
         }
+        this.sourceLookup = collectorContext.sourceLookup();
         this.row = new InputRow(collectorExpressions);
 
     }
 
-    private void setNextDocId(LeafReaderContext readerContext, int doc) throws IOException {
+    private void setNextReader(LeafReaderContext readerContext) throws IOException {
         for (LuceneCollectorExpression e : collectorExpressions) {
             e.setNextReader(readerContext);
+        }
+    }
+
+    private void setNextDocId(int doc) throws IOException {
+        for (LuceneCollectorExpression e : collectorExpressions) {
             e.setNextDocId(doc);
         }
     }
 
     public StreamBucket collect(IntContainer docIds) throws IOException {
         StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccounting);
-        for (IntCursor cursor : docIds) {
-            int docId = cursor.value;
-            int readerIndex = ReaderUtil.subIndex(docId, readerContexts);
-            LeafReaderContext subReaderContext = readerContexts.get(readerIndex);
-            setNextDocId(subReaderContext, docId - subReaderContext.docBase);
-            builder.add(row);
+        int[] ids = docIds.toArray();
+        long[] sortedDocIdsWithPosition = sortByDocId(ids);
+        if (sortedDocIdsWithPosition == null) {
+            collectInDocIdOrder(ids, position -> builder.add(row));
+        } else {
+            // The rows have to be materialized to emit them in the requested order.
+            // They're accounted as they're materialized until they've been added to the bucket.
+            Object[][] rows = new Object[ids.length][];
+            int[] sortedIds = new int[ids.length];
+            for (int i = 0; i < sortedDocIdsWithPosition.length; i++) {
+                sortedIds[i] = (int) (sortedDocIdsWithPosition[i] >>> 32);
+            }
+            try {
+                collectInDocIdOrder(sortedIds, i -> {
+                    Object[] cells = row.materialize();
+                    materializedRowsAccounting.accountForAndMaybeBreak(cells);
+                    rows[(int) sortedDocIdsWithPosition[i]] = cells;
+                });
+                RowN rowN = new RowN(row.numColumns());
+                for (Object[] cells : rows) {
+                    rowN.cells(cells);
+                    builder.add(rowN);
+                }
+            } finally {
+                materializedRowsAccounting.release();
+            }
         }
         return builder.build();
     }
+
+    /**
+     * @return the doc ids in the upper and their position in the lower 32 bits, sorted by doc id,
+     *         or null if the doc ids are already sorted
+     */
+    @Nullable
+    private static long[] sortByDocId(int[] docIds) {
+        boolean sorted = true;
+        for (int i = 1; i < docIds.length; i++) {
+            if (docIds[i - 1] > docIds[i]) {
+                sorted = false;
+                break;
+            }
+        }
+        if (sorted) {
+            return null;
+        }
+        long[] docIdsWithPosition = new long[docIds.length];
+        for (int i = 0; i < docIds.length; i++) {
+            docIdsWithPosition[i] = ((long) docIds[i] << 32) | i;
+        }
+        Arrays.sort(docIdsWithPosition);
+        return docIdsWithPosition;
+    }
+
+    /**
+     * @param sortedDocIds doc ids in ascending order
+     * @param onRow        called with the index of the doc id once {@link #row} points to the document
+     */
+    private void collectInDocIdOrder(int[] sortedDocIds, IntConsumer onRow) throws IOException {
+        LeafReaderContext readerContext = null;
+        int segmentEnd = 0;
+        try {
+            for (int i = 0; i < sortedDocIds.length; i++) {
+                int docId = sortedDocIds[i];
+                if (readerContext == null || docId >= segmentEnd) {
+                    readerContext = readerContexts.get(ReaderUtil.subIndex(docId, readerContexts));
+                    segmentEnd = readerContext.docBase + readerContext.reader().maxDoc();
+                    setNextReader(readerContext);
+                    sourceLookup.setStoredFieldsReader(
+                        readerContext.reader(),
+                        readsDenseDocs(sortedDocIds, i, segmentEnd)
+                            ? sequentialStoredFieldsReader(readerContext.reader())
+                            : null
+                    );
+                }
+                setNextDocId(docId - readerContext.docBase);
+                onRow.accept(i);
+            }
+        } finally {
+            if (readerContext != null) {
+                sourceLookup.setStoredFieldsReader(readerContext.reader(), null);
+            }
+        }
+    }
+
+    /**
+     * @param segmentStart index of the first doc id of the segment within {@code sortedDocIds}
+     * @param segmentEnd   exclusive upper bound of the doc ids of the segment
+     */
+    static boolean readsDenseDocs(int[] sortedDocIds, int segmentStart, int segmentEnd) {
+        int idx = segmentStart;
+        while (idx < sortedDocIds.length && sortedDocIds[idx] < segmentEnd) {
+            idx++;
+        }
+        int numDocs = idx - segmentStart;
+        if (numDocs < MIN_SEQUENTIAL_DOCS) {
+            return false;
+        }
+        long span = (long) sortedDocIds[idx - 1] - sortedDocIds[segmentStart] + 1;
+        return span <= (long) MAX_SPAN_PER_DOC * numDocs;
+    }
+
+    @Nullable
+    private static StoredFieldsReader sequentialStoredFieldsReader(LeafReader reader) {
+        try {
+            return Lucene.segmentReader(reader).getFieldsReader().getMergeInstance();
+        } catch (IllegalStateException e) {
+            // not a segment reader, e.g. in tests
+            return null;
+        }
+    }
 }
@@ -29,6 +29,7 @@ import io.crate.Streamer;
 import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
+import io.crate.common.collections.Lists2;
 import io.crate.exceptions.SQLExceptions;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.execution.engine.distribution.StreamBucket;
@@ -40,6 +41,7 @@ import io.crate.expression.reference.doc.lucene.LuceneReferenceResolver;
 import io.crate.expression.symbol.Symbols;
 import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
+import io.crate.types.DataType;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.index.IndexService;
 
@@ -47,6 +49,7 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -67,6 +70,7 @@ public class NodeFetchOperation {
     private static class TableFetchInfo {
 
         private final Streamer<?>[] streamers;
+        private final List<DataType<?>> columnTypes;
         private final Collection<Reference> refs;
         private final FetchTask fetchTask;
 
@@ -74,6 +78,7 @@ public class NodeFetchOperation {
             this.refs = refs;
             this.fetchTask = fetchTask;
             this.streamers = Symbols.streamerArray(refs);
+            this.columnTypes = Lists2.map(refs, Reference::valueType);
         }
 
         FetchCollector createCollector(int readerId, RamAccounting ramAccounting) {
@@ -91,6 +96,7 @@ public class NodeFetchOperation {
             return new FetchCollector(
                 exprs,
                 streamers,
+                columnTypes,
                 fetchTask.searcher(readerId),
                 indexService.fieldData(),
                 ramAccounting,
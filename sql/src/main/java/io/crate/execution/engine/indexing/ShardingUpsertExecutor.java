@@ -32,6 +32,7 @@ import io.crate.execution.dml.ShardResponse;
 import io.crate.execution.dml.upsert.ShardUpsertRequest;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.collect.RowShardResolver;
+import io.crate.execution.jobs.NodeBulkStats;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.execution.support.RetryListener;
 import io.crate.settings.CrateSetting;
@@ -50,6 +51,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -142,14 +144,14 @@ public class ShardingUpsertExecutor
         collectFailingItems(requests, upsertResults);
 
         if (requests.itemsByMissingIndex.isEmpty()) {
-            return execRequests(requests.itemsByShard, requests.rowSourceInfos, upsertResults);
+            return execRequests(requests, upsertResults);
         }
         createPartitionsRequestOngoing = true;
         return createPartitions(requests.itemsByMissingIndex)
             .thenCompose(resp -> {
                 grouper.reResolveShardLocations(requests);
                 createPartitionsRequestOngoing = false;
-                return execRequests(requests.itemsByShard, requests.rowSourceInfos, upsertResults);
+                return execRequests(requests, upsertResults);
             });
     }
 
@@ -170,50 +172,120 @@ public class ShardingUpsertExecutor
         }
     }
 
-    private CompletableFuture<UpsertResults> execRequests(Map<ShardLocation, ShardUpsertRequest> itemsByShard,
-                                                          List<RowSourceInfo> rowSourceInfos,
+    private CompletableFuture<UpsertResults> execRequests(ShardedRequests<ShardUpsertRequest, ShardUpsertRequest.Item> requests,
                                                           final UpsertResults upsertResults) {
+        Map<ShardLocation, ShardUpsertRequest> itemsByShard = requests.itemsByShard;
         if (itemsByShard.isEmpty()) {
             // could be that processing the source uri only results in errors, so no items per shard exists
             return CompletableFuture.completedFuture(upsertResults);
         }
-        final AtomicInteger numRequests = new AtomicInteger(itemsByShard.size());
-        final AtomicReference<Exception> interrupt = new AtomicReference<>(null);
-        final CompletableFuture<UpsertResults> resultFuture = new CompletableFuture<>();
+        long bytesPerItem = requests.usedMemoryEstimate() / Math.max(1, requests.rowSourceInfos.size());
+        List<ShardLocation> locations = new ArrayList<>(itemsByShard.size());
+        List<List<ShardUpsertRequest>> requestsPerShard = new ArrayList<>(itemsByShard.size());
+        int numShardRequests = 0;
         Iterator<Map.Entry<ShardLocation, ShardUpsertRequest>> it = itemsByShard.entrySet().iterator();
         while (it.hasNext()) {
             Map.Entry<ShardLocation, ShardUpsertRequest> entry = it.next();
-            ShardUpsertRequest request = entry.getValue();
+            ShardLocation location = entry.getKey();
             it.remove();
 
-            String nodeId = entry.getKey().nodeId;
-            nodeJobsCounter.increment(nodeId);
-            ActionListener<ShardResponse> listener =
-                new ShardResponseActionListener(
-                    nodeId,
-                    numRequests,
-                    interrupt,
-                    upsertResults,
-                    resultCollector.accumulator(),
-                    rowSourceInfos,
-                    resultFuture);
-
-            listener = new RetryListener<>(
-                scheduler,
-                l -> {
-                    if (isDebugEnabled) {
-                        LOGGER.debug("Executing retry Listener for nodeId: {} request: {}", nodeId, request);
-                    }
-                    requestExecutor.execute(request, l);
-                },
-                listener,
-                BACKOFF_POLICY
-            );
-            requestExecutor.execute(request, listener);
+            // Requests towards nodes which are slow or reject requests are split into smaller requests
+            int maxItems = nodeJobsCounter.bulkStats(location.nodeId).bulkSize(bulkSize);
+            List<ShardUpsertRequest> shardRequests = split(entry.getValue(), maxItems, location.shardId);
+            locations.add(location);
+            requestsPerShard.add(shardRequests);
+            numShardRequests += shardRequests.size();
+        }
+        final AtomicInteger numRequests = new AtomicInteger(numShardRequests);
+        final AtomicReference<Exception> interrupt = new AtomicReference<>(null);
+        final CompletableFuture<UpsertResults> resultFuture = new CompletableFuture<>();
+        for (int i = 0; i < locations.size(); i++) {
+            execShardRequests(
+                locations.get(i).nodeId,
+                requestsPerShard.get(i).iterator(),
+                bytesPerItem,
+                numRequests,
+                interrupt,
+                upsertResults,
+                requests.rowSourceInfos,
+                resultFuture);
         }
         return resultFuture;
     }
 
+    private List<ShardUpsertRequest> split(ShardUpsertRequest request, int maxItems, ShardId shardId) {
+        if (request.items().size() <= maxItems) {
+            return List.of(request);
+        }
+        List<ShardUpsertRequest> subRequests = new ArrayList<>();
+        ShardUpsertRequest subRequest = null;
+        for (ShardUpsertRequest.Item item : request.items()) {
+            if (subRequest == null || subRequest.items().size() == maxItems) {
+                subRequest = requestFactory.apply(shardId);
+                subRequests.add(subRequest);
+            }
+            subRequest.add(item.location(), item);
+        }
+        return subRequests;
+    }
+
+    /**
+     * Sends the requests of a shard one after another: The next request is sent once the response (or failure) of
+     * the previous one has been received. A shard request can contain several items with the same id,
+     * e.g. for {@code INSERT ... ON CONFLICT}, which must be applied in the order of the source rows.
+     */
+    private void execShardRequests(String nodeId,
+                                   Iterator<ShardUpsertRequest> shardRequests,
+                                   long bytesPerItem,
+                                   AtomicInteger numRequests,
+                                   AtomicReference<Exception> interrupt,
+                                   UpsertResults upsertResults,
+                                   List<RowSourceInfo> rowSourceInfos,
+                                   CompletableFuture<UpsertResults> resultFuture) {
+        ShardUpsertRequest request = shardRequests.next();
+        NodeBulkStats bulkStats = nodeJobsCounter.bulkStats(nodeId);
+        long requestBytes = bytesPerItem * request.items().size();
+        nodeJobsCounter.increment(nodeId);
+        bulkStats.onRequest(requestBytes);
+        Runnable sendNext = shardRequests.hasNext()
+            ? () -> execShardRequests(
+                nodeId,
+                shardRequests,
+                bytesPerItem,
+                numRequests,
+                interrupt,
+                upsertResults,
+                rowSourceInfos,
+                resultFuture)
+            : null;
+        ShardResponseActionListener responseListener =
+            new ShardResponseActionListener(
+                nodeId,
+                bulkStats,
+                requestBytes,
+                numRequests,
+                interrupt,
+                upsertResults,
+                resultCollector.accumulator(),
+                rowSourceInfos,
+                resultFuture,
+                sendNext);
+
+        ActionListener<ShardResponse> listener = new RetryListener<>(
+            scheduler,
+            l -> {
+                if (isDebugEnabled) {
+                    LOGGER.debug("Executing retry Listener for nodeId: {} request: {}", nodeId, request);
+                }
+                bulkStats.onRetry();
+                responseListener.restartTimer();
+                requestExecutor.execute(request, l);
+            },
+            responseListener,
+            BACKOFF_POLICY
+        );
+        requestExecutor.execute(request, listener);
+    }
 
     private CompletableFuture<AcknowledgedResponse> createPartitions(
         Map<String, List<ShardedRequests.ItemAndRoutingAndSourceInfo<ShardUpsertRequest.Item>>> itemsByMissingIndex) {
@@ -283,43 +355,68 @@ public class ShardingUpsertExecutor
 
     private class ShardResponseActionListener implements ActionListener<ShardResponse> {
         private final String operationNodeId;
+        private final NodeBulkStats bulkStats;
+        private final long requestBytes;
         private final UpsertResultCollector.Accumulator resultAccumulator;
         private final List<RowSourceInfo> rowSourceInfos;
         private final UpsertResults upsertResults;
         private final AtomicInteger numRequests;
         private final AtomicReference<Exception> interrupt;
         private final CompletableFuture<UpsertResults> upsertResultFuture;
+        @Nullable
+        private final Runnable sendNext;
+        private volatile long startNanos = System.nanoTime();
 
         ShardResponseActionListener(String operationNodeId,
+                                    NodeBulkStats bulkStats,
+                                    long requestBytes,
                                     AtomicInteger numRequests,
                                     AtomicReference<Exception> interrupt,
                                     UpsertResults upsertResults,
                                     UpsertResultCollector.Accumulator resultAccumulator,
                                     List<RowSourceInfo> rowSourceInfos,
-                                    CompletableFuture<UpsertResults> upsertResultFuture) {
+                                    CompletableFuture<UpsertResults> upsertResultFuture,
+                                    @Nullable Runnable sendNext) {
             this.operationNodeId = operationNodeId;
+            this.bulkStats = bulkStats;
+            this.requestBytes = requestBytes;
             this.numRequests = numRequests;
             this.interrupt = interrupt;
             this.upsertResults = upsertResults;
             this.resultAccumulator = resultAccumulator;
             this.rowSourceInfos = rowSourceInfos;
             this.upsertResultFuture = upsertResultFuture;
+            this.sendNext = sendNext;
+        }
+
+        void restartTimer() {
+            startNanos = System.nanoTime();
         }
 
         @Override
         public void onResponse(ShardResponse shardResponse) {
             nodeJobsCounter.decrement(operationNodeId);
+            bulkStats.onResponse(requestBytes, System.nanoTime() - startNanos);
             resultAccumulator.accept(upsertResults, shardResponse, rowSourceInfos);
             maybeSetInterrupt(shardResponse.failure());
+            maybeSendNext();
             countdown();
         }
 
         @Override
         public void onFailure(Exception e) {
             nodeJobsCounter.decrement(operationNodeId);
+            bulkStats.onFailure(requestBytes);
+            maybeSendNext();
             countdown();
         }
 
+        private void maybeSendNext() {
+            if (sendNext != null) {
+                sendNext.run();
+            }
+        }
+
         private void countdown() {
             if (numRequests.decrementAndGet() == 0) {
                 Exception interruptedException = interrupt.get();
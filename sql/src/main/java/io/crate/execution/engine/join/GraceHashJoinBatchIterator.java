@@ -0,0 +1,577 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.Streamer;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.exceptions.Exceptions;
+import io.crate.execution.engine.spill.RowSpillFile;
+import io.crate.planner.node.dql.join.JoinType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A hash join which spills both sides to disk if the left (build) side doesn't fit into memory,
+ * instead of re-scanning the right side once per block like {@link HashInnerJoinBatchIterator} does.
+ *
+ * <pre>
+ *     Build Phase:
+ *     for (leftRow in left) {
+ *         if (spilled) {
+ *             write leftRow to leftPartitions[partition(hash(leftRow))]
+ *         } else {
+ *             put leftRow in Buffer (HashJoinBuffer)
+ *             if (Buffer reached the blockSize) {
+ *                 write all rows of the Buffer to leftPartitions and clear it; spilled = true
+ *             }
+ *         }
+ *     }
+ *
+ *     Probe Phase:
+ *     for (rightRow in right) {
+ *         if (spilled) {
+ *             write rightRow to rightPartitions[partition(hash(rightRow))]
+ *         } else {
+ *             emit all rows of the Buffer matching hash(rightRow) and the joinCondition
+ *         }
+ *     }
+ *
+ *     Partition Phase (only if spilled):
+ *     for (i in partitions) {
+ *         load leftPartitions[i] into the Buffer
+ *         for (rightRow in rightPartitions[i]) {
+ *             emit all rows of the Buffer matching hash(rightRow) and the joinCondition
+ *         }
+ *     }
+ * </pre>
+ * <p>
+ * If the left side fits into a single block, no spilling happens and both sides are read once.
+ * Otherwise each side is read once from the source and once from the spill files.
+ * If a single partition of the left side exceeds the blockSize it is processed in several blocks,
+ * each of them re-reading the (local) right partition file.
+ * <p>
+ * Besides {@link JoinType#INNER} joins, the outer join types are supported:
+ * <ul>
+ * <li>{@link JoinType#LEFT} and {@link JoinType#FULL}: the matched rows of the Buffer are
+ * tracked, the unmatched ones are emitted (with the right side being null) once all right rows have been
+ * probed against the Buffer.</li>
+ * <li>{@link JoinType#RIGHT} and {@link JoinType#FULL}: a right row without any match is emitted with the left side
+ * being null. If a partition is processed in several blocks, the matched right rows of the partition are
+ * tracked by their position and the unmatched ones are emitted while probing the last block.</li>
+ * </ul>
+ * If no spill directory is available, the left side is never spilled and kept in memory completely.
+ * <p>
+ * The Buffer is a {@link HashJoinBuffer}. If it only returns exact matches as candidates
+ * (see {@link HashJoinBuffer#candidatesRequireJoinCondition()}), the joinCondition isn't evaluated.
+ * The partitions are always derived from {@code hashBuilderForLeft} and {@code hashBuilderForRight}.
+ */
+public class GraceHashJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
+
+    static final int DEFAULT_NUM_PARTITIONS = 32;
+    static final int MAX_NUM_PARTITIONS = 128;
+
+    private enum State {
+        BUILD,
+        PROBE,
+        EMIT_UNMATCHED_LEFT,
+        PARTITIONS
+    }
+
+    private final boolean emitUnmatchedLeft;
+    private final boolean emitUnmatchedRight;
+    private final Predicate<Row> joinCondition;
+    private final boolean checkJoinCondition;
+    private final ToIntFunction<Row> hashBuilderForLeft;
+    private final ToIntFunction<Row> hashBuilderForRight;
+    private final RowAccounting<Row> rowAccounting;
+    private final IntSupplier calculateBlockSize;
+    private final Streamer<?>[] leftStreamers;
+    private final Streamer<?>[] rightStreamers;
+    @Nullable
+    private final Path spillDirectory;
+    private final long expectedNumRowsForLeft;
+
+    private final HashJoinBuffer buffer;
+    private final BitSet matchedLeftRows = new BitSet();
+    private final BitSet matchedRightRowsOfPartition = new BitSet();
+
+    private State state = State.BUILD;
+    private int blockSize;
+
+    /**
+     * true while the candidates of the Buffer for {@link #rightRow} are being matched
+     */
+    private boolean matching;
+    private int nextCandidate;
+    private Row rightRow;
+    private boolean rightRowMatched;
+    private int unmatchedLeftIdx;
+
+    @Nullable
+    private RowSpillFile[] leftPartitions;
+    @Nullable
+    private RowSpillFile[] rightPartitions;
+    private int currentPartition;
+    private boolean lastBlockOfPartition;
+    private int rightPositionInPartition;
+    @Nullable
+    private RowSpillFile.Reader leftPartitionReader;
+    @Nullable
+    private RowSpillFile.Reader rightPartitionReader;
+
+    private boolean closed = false;
+    private volatile Throwable killed = null;
+
+    public GraceHashJoinBatchIterator(BatchIterator<Row> left,
+                                      BatchIterator<Row> right,
+                                      CombinedRow combiner,
+                                      JoinType joinType,
+                                      Predicate<Row> joinCondition,
+                                      HashJoinBuffer buffer,
+                                      ToIntFunction<Row> hashBuilderForLeft,
+                                      ToIntFunction<Row> hashBuilderForRight,
+                                      RowAccounting<Row> rowAccounting,
+                                      IntSupplier calculateBlockSize,
+                                      Streamer<?>[] leftStreamers,
+                                      Streamer<?>[] rightStreamers,
+                                      @Nullable Path spillDirectory,
+                                      long expectedNumRowsForLeft) {
+        super(left, right, combiner);
+        assert joinType != JoinType.CROSS && joinType != JoinType.SEMI && joinType != JoinType.ANTI
+            : "A hash join doesn't support join type " + joinType;
+        this.emitUnmatchedLeft = joinType == JoinType.LEFT || joinType == JoinType.FULL;
+        this.emitUnmatchedRight = joinType == JoinType.RIGHT || joinType == JoinType.FULL;
+        this.joinCondition = joinCondition;
+        this.buffer = buffer;
+        this.checkJoinCondition = buffer.candidatesRequireJoinCondition();
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.rowAccounting = rowAccounting;
+        this.calculateBlockSize = calculateBlockSize;
+        this.leftStreamers = leftStreamers;
+        this.rightStreamers = rightStreamers;
+        this.spillDirectory = spillDirectory;
+        this.expectedNumRowsForLeft = expectedNumRowsForLeft;
+        recreateBuffer();
+    }
+
+    @Override
+    public Row currentElement() {
+        return combiner.currentElement();
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfClosedOrKilled();
+        matching = false;
+        closePartitionReaders();
+        recreateBuffer();
+        if (state == State.PARTITIONS) {
+            // All rows of both sides are in the spill files, they can be re-read from there.
+            currentPartition = -1;
+        } else {
+            closePartitions();
+            left.moveToStart();
+            right.moveToStart();
+            activeIt = left;
+            state = State.BUILD;
+        }
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfClosedOrKilled();
+        while (true) {
+            switch (state) {
+                case BUILD:
+                    if (buildBufferOrSpillLeft() == false) {
+                        // left needs the next batch loaded
+                        return false;
+                    }
+                    if (leftPartitions != null) {
+                        finishWriting(leftPartitions);
+                        rightPartitions = createPartitions(leftPartitions.length, "join-right-", rightStreamers);
+                    }
+                    state = State.PROBE;
+                    activeIt = right;
+                    break;
+
+                case PROBE:
+                    if (rightPartitions == null) {
+                        // not spilled, either a match is found or the right side needs the next batch loaded
+                        if (matchRight()) {
+                            return true;
+                        }
+                        if (right.allLoaded() == false || emitUnmatchedLeft == false) {
+                            return false;
+                        }
+                        unmatchedLeftIdx = -1;
+                        state = State.EMIT_UNMATCHED_LEFT;
+                        break;
+                    }
+                    if (spillRight() == false) {
+                        // right needs the next batch loaded
+                        return false;
+                    }
+                    finishWriting(rightPartitions);
+                    currentPartition = -1;
+                    state = State.PARTITIONS;
+                    break;
+
+                case EMIT_UNMATCHED_LEFT:
+                    return nextUnmatchedLeft();
+
+                case PARTITIONS:
+                    return matchPartitions();
+
+                default:
+                    throw new AssertionError("Unexpected state: " + state);
+            }
+        }
+    }
+
+    /**
+     * @return true if the left side is exhausted, false if the next batch must be loaded
+     */
+    private boolean buildBufferOrSpillLeft() {
+        while (left.moveNext()) {
+            Row row = left.currentElement();
+            if (leftPartitions == null) {
+                rowAccounting.accountForAndMaybeBreak(row);
+                buffer.add(row);
+                if (buffer.size() == blockSize && spillDirectory != null) {
+                    spillBuffer();
+                }
+            } else {
+                int hash = hashBuilderForLeft.applyAsInt(row);
+                leftPartitions[partition(hash, leftPartitions.length)].add(row);
+            }
+        }
+        return left.allLoaded();
+    }
+
+    private void spillBuffer() {
+        int numPartitions = numPartitions(expectedNumRowsForLeft, blockSize);
+        leftPartitions = createPartitions(numPartitions, "join-left-", leftStreamers);
+        for (int position = 0; position < buffer.size(); position++) {
+            Row row = buffer.get(position);
+            leftPartitions[partition(hashBuilderForLeft.applyAsInt(row), numPartitions)].add(row);
+        }
+        recreateBuffer();
+    }
+
+    /**
+     * @return true if the right side is exhausted, false if the next batch must be loaded
+     */
+    private boolean spillRight() {
+        assert rightPartitions != null : "rightPartitions must be created before spilling the right side";
+        while (right.moveNext()) {
+            Row row = right.currentElement();
+            int hash = hashBuilderForRight.applyAsInt(row);
+            rightPartitions[partition(hash, rightPartitions.length)].add(row);
+        }
+        return right.allLoaded();
+    }
+
+    private boolean matchRight() {
+        // In case of multiple matches on the left side (duplicate values or hash collisions)
+        if (continueMatching()) {
+            return true;
+        }
+        while (right.moveNext()) {
+            if (probe(right.currentElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchPartitions() {
+        assert leftPartitions != null && rightPartitions != null : "partitions must exist in the PARTITIONS state";
+        while (true) {
+            if (rightPartitionReader == null) {
+                if (unmatchedLeftIdx < buffer.size() && nextUnmatchedLeft()) {
+                    return true;
+                }
+                if (loadNextBlockOfPartition() == false) {
+                    return false;
+                }
+            }
+            if (continueMatching()) {
+                return true;
+            }
+            while (rightPartitionReader.hasNext()) {
+                rightPositionInPartition++;
+                if (probe(rightPartitionReader.next())) {
+                    return true;
+                }
+            }
+            rightPartitionReader.close();
+            rightPartitionReader = null;
+            // The current block has been probed with all rows of the right partition
+            unmatchedLeftIdx = emitUnmatchedLeft ? -1 : buffer.size();
+        }
+    }
+
+    /**
+     * Fills the buffer with the next block of rows of the current left partition, or of the next partition
+     * which can produce rows, and opens a reader on the matching right partition.
+     *
+     * @return false if all partitions are processed
+     */
+    private boolean loadNextBlockOfPartition() {
+        assert leftPartitions != null && rightPartitions != null : "partitions must exist in the PARTITIONS state";
+        if (leftPartitionReader == null || leftPartitionReader.hasNext() == false) {
+            if (leftPartitionReader != null) {
+                leftPartitionReader.close();
+                leftPartitionReader = null;
+            }
+            do {
+                currentPartition++;
+                if (currentPartition >= leftPartitions.length) {
+                    recreateBuffer();
+                    return false;
+                }
+            } while (canProduceRows(leftPartitions[currentPartition], rightPartitions[currentPartition]) == false);
+            leftPartitionReader = leftPartitions[currentPartition].reader();
+            matchedRightRowsOfPartition.clear();
+        }
+        recreateBuffer();
+        while (buffer.size() < blockSize && leftPartitionReader.hasNext()) {
+            Row row = leftPartitionReader.next();
+            rowAccounting.accountForAndMaybeBreak(row);
+            buffer.add(row);
+        }
+        lastBlockOfPartition = leftPartitionReader.hasNext() == false;
+        rightPartitionReader = rightPartitions[currentPartition].reader();
+        rightPositionInPartition = -1;
+        return true;
+    }
+
+    private boolean canProduceRows(RowSpillFile leftPartition, RowSpillFile rightPartition) {
+        boolean hasLeftRows = leftPartition.numRows() > 0;
+        boolean hasRightRows = rightPartition.numRows() > 0;
+        return (hasLeftRows && hasRightRows)
+               || (hasLeftRows && emitUnmatchedLeft)
+               || (hasRightRows && emitUnmatchedRight);
+    }
+
+    private boolean probe(Row row) {
+        nextCandidate = buffer.firstCandidate(row);
+        matching = true;
+        rightRow = row;
+        rightRowMatched = false;
+        return continueMatching();
+    }
+
+    /**
+     * Continues to match the current right row with the (remaining) candidates of the Buffer.
+     * Once all of them are checked, the right row itself is emitted if it had no match and the join type requires it.
+     *
+     * @return true if a row is emitted
+     */
+    private boolean continueMatching() {
+        if (matching == false) {
+            return false;
+        }
+        if (findMatchingRows()) {
+            return true;
+        }
+        matching = false;
+        if (emitUnmatchedRight && isRightRowUnmatched()) {
+            combiner.nullLeft();
+            combiner.setRight(rightRow);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isRightRowUnmatched() {
+        if (rightRowMatched) {
+            return false;
+        }
+        if (state == State.PARTITIONS) {
+            // A right row may have matched rows of a previous block of the partition
+            return lastBlockOfPartition && matchedRightRowsOfPartition.get(rightPositionInPartition) == false;
+        }
+        return true;
+    }
+
+    private boolean findMatchingRows() {
+        combiner.setRight(rightRow);
+        while (nextCandidate != HashJoinBuffer.NO_MORE_CANDIDATES) {
+            int position = nextCandidate;
+            nextCandidate = buffer.nextCandidate(position);
+            combiner.setLeft(buffer.get(position));
+            if (checkJoinCondition == false || joinCondition.test(combiner.currentElement())) {
+                onMatch(position);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onMatch(int leftPosition) {
+        if (emitUnmatchedLeft) {
+            matchedLeftRows.set(leftPosition);
+        }
+        if (emitUnmatchedRight) {
+            rightRowMatched = true;
+            if (state == State.PARTITIONS) {
+                matchedRightRowsOfPartition.set(rightPositionInPartition);
+            }
+        }
+    }
+
+    private boolean nextUnmatchedLeft() {
+        unmatchedLeftIdx = matchedLeftRows.nextClearBit(unmatchedLeftIdx + 1);
+        if (unmatchedLeftIdx < buffer.size()) {
+            combiner.setLeft(buffer.get(unmatchedLeftIdx));
+            combiner.nullRight();
+            return true;
+        }
+        return false;
+    }
+
+    private void recreateBuffer() {
+        blockSize = calculateBlockSize.getAsInt();
+        buffer.clear(blockSize);
+        matchedLeftRows.clear();
+        unmatchedLeftIdx = 0;
+        rowAccounting.release();
+    }
+
+    /**
+     * Uses a different hash mixing than the buffers ({@link BitMixer#mixPhi(int)})
+     * so that the rows of a partition are still spread evenly across the buffer slots.
+     */
+    static int partition(int hash, int numPartitions) {
+        return Math.floorMod(BitMixer.mix32(hash), numPartitions);
+    }
+
+    /**
+     * Aims for partitions having half the size of the blockSize, so that each of them most likely fits into memory.
+     */
+    static int numPartitions(long expectedNumRowsForLeft, int blockSize) {
+        if (expectedNumRowsForLeft <= blockSize) {
+            // Statistics are unavailable or outdated as the left side turned out to be larger than expected
+            return DEFAULT_NUM_PARTITIONS;
+        }
+        long numBlocks = (expectedNumRowsForLeft + blockSize - 1) / blockSize;
+        return (int) Math.min(MAX_NUM_PARTITIONS, 2 * numBlocks);
+    }
+
+    private RowSpillFile[] createPartitions(int numPartitions, String prefix, Streamer<?>[] streamers) {
+        assert spillDirectory != null : "spillDirectory must be available to create partitions";
+        RowSpillFile[] partitions = new RowSpillFile[numPartitions];
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                partitions[i] = new RowSpillFile(spillDirectory, prefix, streamers);
+            }
+        } catch (IOException e) {
+            closePartitions(partitions);
+            throw new UncheckedIOException(e);
+        }
+        return partitions;
+    }
+
+    private static void finishWriting(RowSpillFile[] partitions) {
+        for (RowSpillFile partition : partitions) {
+            partition.finishWriting();
+        }
+    }
+
+    private void closePartitionReaders() {
+        if (leftPartitionReader != null) {
+            leftPartitionReader.close();
+            leftPartitionReader = null;
+        }
+        if (rightPartitionReader != null) {
+            rightPartitionReader.close();
+            rightPartitionReader = null;
+        }
+    }
+
+    private void closePartitions() {
+        closePartitions(leftPartitions);
+        closePartitions(rightPartitions);
+        leftPartitions = null;
+        rightPartitions = null;
+    }
+
+    private static void closePartitions(@Nullable RowSpillFile[] partitions) {
+        if (partitions == null) {
+            return;
+        }
+        for (RowSpillFile partition : partitions) {
+            if (partition != null) {
+                partition.close();
+            }
+        }
+    }
+
+    private void releaseResources() {
+        matching = false;
+        closePartitionReaders();
+        closePartitions();
+        buffer.release();
+        rowAccounting.release();
+    }
+
+    private void raiseIfClosedOrKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+        if (closed) {
+            throw new IllegalStateException("Iterator is closed");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed == false) {
+            closed = true;
+            super.close();
+            releaseResources();
+        }
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        super.kill(throwable);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.data.Row;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.Arrays;
+
+/**
+ * The build side of a hash join.
+ * <p>
+ * The rows are copied into a single flat array instead of materializing an {@code Object[]} per row.
+ * Rows which may match the same probe row are chained by their position, so that iterating over the candidates
+ * doesn't require any additional objects:
+ *
+ * <pre>
+ *     for (int pos = buffer.firstCandidate(probeRow); pos != NO_MORE_CANDIDATES; pos = buffer.nextCandidate(pos)) {
+ *         Row row = buffer.get(pos);
+ *     }
+ * </pre>
+ *
+ * How the candidates are looked up is defined by the implementations.
+ */
+abstract class HashJoinBuffer {
+
+    static final int NO_MORE_CANDIDATES = -1;
+
+    private final int numColumns;
+    private final BufferedRow bufferedRow = new BufferedRow();
+
+    private Object[] cells = new Object[0];
+    private int size = 0;
+
+    /**
+     * Position of the next row having the same key (or hash), {@link #NO_MORE_CANDIDATES} for the last one.
+     */
+    int[] next = new int[0];
+
+    HashJoinBuffer(int numColumns) {
+        this.numColumns = numColumns;
+    }
+
+    /**
+     * Copies the values of the row into the buffer.
+     *
+     * @return the position of the row within the buffer
+     */
+    final int add(Row row) {
+        assert row.numColumns() == numColumns : "row must have " + numColumns + " columns";
+        int position = size;
+        int offset = position * numColumns;
+        if (offset + numColumns > cells.length) {
+            cells = ArrayUtil.grow(cells, offset + numColumns);
+        }
+        if (position == next.length) {
+            next = ArrayUtil.grow(next, position + 1);
+        }
+        for (int i = 0; i < numColumns; i++) {
+            cells[offset + i] = row.get(i);
+        }
+        size++;
+        index(row, position);
+        return position;
+    }
+
+    /**
+     * Returns the row at the given position.
+     * The returned instance is shared, it's only valid until the next call of this method.
+     */
+    final Row get(int position) {
+        assert position >= 0 && position < size : "position must be within 0 and " + size;
+        bufferedRow.offset = position * numColumns;
+        return bufferedRow;
+    }
+
+    final int size() {
+        return size;
+    }
+
+    final int nextCandidate(int position) {
+        return next[position];
+    }
+
+    /**
+     * Removes all rows and prepares the buffer to hold about {@code expectedNumRows} rows
+     */
+    final void clear(int expectedNumRows) {
+        Arrays.fill(cells, 0, size * numColumns, null);
+        size = 0;
+        clearIndex(expectedNumRows);
+    }
+
+    /**
+     * Removes all rows and releases the memory used by the buffer
+     */
+    final void release() {
+        cells = new Object[0];
+        next = new int[0];
+        size = 0;
+        releaseIndex();
+    }
+
+    /**
+     * The number of bytes used by the buffer per row besides the values themselves.
+     * Used for the circuit breaker accounting.
+     */
+    final int extraSizePerRow() {
+        return numColumns * RamUsageEstimator.NUM_BYTES_OBJECT_REF + Integer.BYTES + indexSizePerRow();
+    }
+
+    /**
+     * @return the position of the first row which might match the probe row or {@link #NO_MORE_CANDIDATES}
+     */
+    abstract int firstCandidate(Row probeRow);
+
+    /**
+     * @return true if the candidates are only rows with the same hash and must be matched against the join condition.
+     *         false if all candidates are exact matches.
+     */
+    abstract boolean candidatesRequireJoinCondition();
+
+    /**
+     * Adds the row at the given position to the lookup structure, {@link #next} must be set for the position.
+     */
+    abstract void index(Row row, int position);
+
+    abstract void clearIndex(int expectedNumRows);
+
+    abstract void releaseIndex();
+
+    abstract int indexSizePerRow();
+
+    private class BufferedRow implements Row {
+
+        private int offset;
+
+        @Override
+        public int numColumns() {
+            return numColumns;
+        }
+
+        @Override
+        public Object get(int index) {
+            return cells[offset + index];
+        }
+    }
+}
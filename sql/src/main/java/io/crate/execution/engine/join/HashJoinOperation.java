@@ -22,7 +22,8 @@
 
 package io.crate.execution.engine.join;
 
-import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.concurrent.CompletionListenable;
 import io.crate.data.BatchIterator;
 import io.crate.data.CapturingRowConsumer;
@@ -31,11 +32,21 @@ import io.crate.data.Row;
 import io.crate.data.RowConsumer;
 import io.crate.data.join.CombinedRow;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.data.Input;
 import io.crate.expression.InputFactory;
+import io.crate.expression.RowFilter;
+import io.crate.expression.operator.EqOperator;
+import io.crate.expression.symbol.Function;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.TransactionContext;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
@@ -50,15 +61,19 @@ public class HashJoinOperation implements CompletionListenable {
     public HashJoinOperation(int numLeftCols,
                              int numRightCols,
                              RowConsumer nlResultConsumer,
-                             Predicate<Row> joinPredicate,
+                             JoinType joinType,
+                             Symbol joinCondition,
                              List<Symbol> joinLeftInputs,
                              List<Symbol> joinRightInputs,
-                             RowAccounting<Row> rowAccounting,
+                             RamAccounting ramAccounting,
                              TransactionContext txnCtx,
                              InputFactory inputFactory,
                              CircuitBreaker circuitBreaker,
                              long estimatedRowSizeForLeft,
-                             long numberOfRowsForLeft) {
+                             long numberOfRowsForLeft,
+                             Collection<DataType> leftOutputTypes,
+                             @Nullable Collection<DataType> rightOutputTypes,
+                             @Nullable Path spillDirectory) {
 
         this.resultConsumer = nlResultConsumer;
         this.leftConsumer = new CapturingRowConsumer(false, nlResultConsumer.completionFuture());
@@ -68,16 +83,33 @@ public class HashJoinOperation implements CompletionListenable {
                 if (failure == null) {
                     BatchIterator<Row> joinIterator;
                     try {
+                        ToIntFunction<Row> hashBuilderForLeft = getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs);
+                        ToIntFunction<Row> hashBuilderForRight = getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs);
+                        HashJoinBuffer buffer;
+                        if (hasSingleIntegralKey(joinCondition, joinLeftInputs, joinRightInputs)) {
+                            buffer = new LongKeyHashJoinBuffer(
+                                numLeftCols,
+                                getKeyFromSymbol(txnCtx, inputFactory, joinLeftInputs.get(0)),
+                                getKeyFromSymbol(txnCtx, inputFactory, joinRightInputs.get(0)));
+                        } else {
+                            buffer = new IntHashJoinBuffer(numLeftCols, hashBuilderForLeft, hashBuilderForRight);
+                        }
                         joinIterator = createHashJoinIterator(
                             leftConsumer.capturedBatchIterator().join(),
                             numLeftCols,
                             rightConsumer.capturedBatchIterator().join(),
                             numRightCols,
-                            joinPredicate,
-                            getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
-                            getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
-                            rowAccounting,
-                            new RamBlockSizeCalculator(Paging.PAGE_SIZE, circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft)
+                            joinType,
+                            RowFilter.create(txnCtx, inputFactory, joinCondition),
+                            buffer,
+                            hashBuilderForLeft,
+                            hashBuilderForRight,
+                            ramAccounting,
+                            new RamBlockSizeCalculator(Paging.PAGE_SIZE, circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft),
+                            numberOfRowsForLeft,
+                            leftOutputTypes,
+                            rightOutputTypes,
+                            spillDirectory
                         );
                         nlResultConsumer.accept(joinIterator, null);
                     } catch (Exception e) {
@@ -121,23 +153,85 @@ public class HashJoinOperation implements CompletionListenable {
         };
     }
 
+    /**
+     * @return true if the join condition is a single equality on integral values,
+     *         the build side can then be looked up by the values instead of their hash.
+     */
+    static boolean hasSingleIntegralKey(Symbol joinCondition, List<Symbol> joinLeftInputs, List<Symbol> joinRightInputs) {
+        // A condition like `t1.a = t2.a AND t1.a = t2.b` results in a single input per side as well
+        if (!(joinCondition instanceof Function)
+            || ((Function) joinCondition).info().ident().name().equals(EqOperator.NAME) == false) {
+            return false;
+        }
+        if (joinLeftInputs.size() != 1 || joinRightInputs.size() != 1) {
+            return false;
+        }
+        DataType<?> leftType = joinLeftInputs.get(0).valueType();
+        return leftType.equals(joinRightInputs.get(0).valueType()) && LongKeyHashJoinBuffer.supportsType(leftType);
+    }
+
+    private static java.util.function.Function<Row, Number> getKeyFromSymbol(TransactionContext txnCtx,
+                                                                           InputFactory inputFactory,
+                                                                           Symbol input) {
+        InputFactory.Context<? extends CollectExpression<Row, ?>> ctx = inputFactory.ctxForInputColumns(txnCtx, List.of(input));
+        Input<?> key = ctx.topLevelInputs().get(0);
+        var expressions = ctx.expressions();
+        return row -> {
+            for (int i = 0; i < expressions.size(); i++) {
+                expressions.get(i).setNextRow(row);
+            }
+            return (Number) key.value();
+        };
+    }
+
     private static BatchIterator<Row> createHashJoinIterator(BatchIterator<Row> left,
                                                              int leftNumCols,
                                                              BatchIterator<Row> right,
                                                              int rightNumCols,
+                                                             JoinType joinType,
                                                              Predicate<Row> joinCondition,
+                                                             HashJoinBuffer buffer,
                                                              ToIntFunction<Row> hashBuilderForLeft,
                                                              ToIntFunction<Row> hashBuilderForRight,
-                                                             RowAccounting<Row> rowAccounting,
-                                                             RamBlockSizeCalculator blockSizeCalculator) {
+                                                             RamAccounting ramAccounting,
+                                                             RamBlockSizeCalculator blockSizeCalculator,
+                                                             long numberOfRowsForLeft,
+                                                             Collection<DataType> leftOutputTypes,
+                                                             @Nullable Collection<DataType> rightOutputTypes,
+                                                             @Nullable Path spillDirectory) {
         CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
-        return new HashInnerJoinBatchIterator(
-            new RamAccountingBatchIterator<>(left, rowAccounting),
+        if (joinType == JoinType.INNER && (spillDirectory == null || rightOutputTypes == null)) {
+            // Spilling is not possible, the right side is re-scanned for every block of the left side instead
+            // 110 extra bytes per row =
+            //    96 bytes for each ArrayList +
+            //    7 bytes per key for the IntHashObjectHashMap  (should be 4 but the map pre-allocates more)
+            //    7 bytes perv value (pointer from the map to the list) (should be 4 but the map pre-allocates more)
+            var rowAccounting = new RowAccountingWithEstimators(leftOutputTypes, ramAccounting, 110);
+            return new HashInnerJoinBatchIterator(
+                new RamAccountingBatchIterator<>(left, rowAccounting),
+                right,
+                combiner,
+                joinCondition,
+                hashBuilderForLeft,
+                hashBuilderForRight,
+                blockSizeCalculator);
+        }
+        // Only nodes which support spilling plan hash joins other than INNER, so the right types must be available
+        assert rightOutputTypes != null : "rightOutputTypes must be available for join type " + joinType;
+        return new GraceHashJoinBatchIterator(
+            left,
             right,
             combiner,
+            joinType,
             joinCondition,
+            buffer,
             hashBuilderForLeft,
             hashBuilderForRight,
-            blockSizeCalculator);
+            new RowAccountingWithEstimators(leftOutputTypes, ramAccounting, buffer.extraSizePerRow()),
+            blockSizeCalculator,
+            DataTypes.getStreamers(leftOutputTypes),
+            DataTypes.getStreamers(rightOutputTypes),
+            spillDirectory,
+            numberOfRowsForLeft);
     }
 }
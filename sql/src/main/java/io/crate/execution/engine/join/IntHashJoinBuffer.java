@@ -0,0 +1,94 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import io.crate.data.Row;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link HashJoinBuffer} which looks up the candidates by the 32-bit hash of the join condition inputs.
+ * Works for any join condition, but as different keys may have the same hash, the join condition must be checked
+ * for every candidate.
+ */
+final class IntHashJoinBuffer extends HashJoinBuffer {
+
+    /**
+     * 4 bytes for the key and 4 bytes for the value, the map is resized at a load factor of 0.75
+     */
+    private static final int INDEX_SIZE_PER_ROW = 11;
+
+    private final ToIntFunction<Row> hashBuilderForLeft;
+    private final ToIntFunction<Row> hashBuilderForRight;
+
+    /**
+     * Maps the hash of the rows to the position of the last added row with that hash
+     */
+    private final IntIntHashMap heads = new IntIntHashMap(0);
+
+    IntHashJoinBuffer(int numColumns, ToIntFunction<Row> hashBuilderForLeft, ToIntFunction<Row> hashBuilderForRight) {
+        super(numColumns);
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+    }
+
+    @Override
+    int firstCandidate(Row probeRow) {
+        return heads.getOrDefault(hashBuilderForRight.applyAsInt(probeRow), NO_MORE_CANDIDATES);
+    }
+
+    @Override
+    boolean candidatesRequireJoinCondition() {
+        return true;
+    }
+
+    @Override
+    void index(Row row, int position) {
+        int hash = hashBuilderForLeft.applyAsInt(row);
+        int idx = heads.indexOf(hash);
+        if (heads.indexExists(idx)) {
+            next[position] = heads.indexGet(idx);
+            heads.indexReplace(idx, position);
+        } else {
+            next[position] = NO_MORE_CANDIDATES;
+            heads.indexInsert(idx, hash, position);
+        }
+    }
+
+    @Override
+    void clearIndex(int expectedNumRows) {
+        heads.release();
+        heads.ensureCapacity(expectedNumRows);
+    }
+
+    @Override
+    void releaseIndex() {
+        heads.release();
+    }
+
+    @Override
+    int indexSizePerRow() {
+        return INDEX_SIZE_PER_ROW;
+    }
+}
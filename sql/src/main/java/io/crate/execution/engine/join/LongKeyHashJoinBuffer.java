@@ -0,0 +1,199 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.data.Row;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * A {@link HashJoinBuffer} for join conditions of the form {@code leftKey = rightKey} where the keys are
+ * of an integral type.
+ * <p>
+ * The keys are kept in a primitive open addressing hash table (linear probing), so candidates are exact matches and
+ * the join condition doesn't have to be evaluated for them.
+ * Rows with a {@code null} key are added to the buffer but never returned as candidate as {@code null = x}
+ * is never true.
+ */
+final class LongKeyHashJoinBuffer extends HashJoinBuffer {
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 4;
+
+    /**
+     * 8 bytes for the key and 4 bytes for the position, the table is resized at a load factor of 0.75
+     */
+    private static final int INDEX_SIZE_PER_ROW = 16;
+
+    private static final int EMPTY = -1;
+
+    private final Function<Row, ? extends Number> keyForLeft;
+    private final Function<Row, ? extends Number> keyForRight;
+
+    private long[] keys;
+    /**
+     * Position of the last added row for the key in the same slot of {@link #keys}, {@link #EMPTY} for empty slots.
+     */
+    private int[] heads;
+    private int mask;
+    private int assigned;
+    private int resizeAt;
+
+    LongKeyHashJoinBuffer(int numColumns,
+                          Function<Row, ? extends Number> keyForLeft,
+                          Function<Row, ? extends Number> keyForRight) {
+        super(numColumns);
+        this.keyForLeft = keyForLeft;
+        this.keyForRight = keyForRight;
+        allocate(MIN_CAPACITY);
+    }
+
+    static boolean supportsType(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    int firstCandidate(Row probeRow) {
+        Number key = keyForRight.apply(probeRow);
+        if (key == null) {
+            return NO_MORE_CANDIDATES;
+        }
+        long value = key.longValue();
+        for (int slot = slot(value); heads[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == value) {
+                return heads[slot];
+            }
+        }
+        return NO_MORE_CANDIDATES;
+    }
+
+    @Override
+    boolean candidatesRequireJoinCondition() {
+        return false;
+    }
+
+    @Override
+    void index(Row row, int position) {
+        Number key = keyForLeft.apply(row);
+        next[position] = NO_MORE_CANDIDATES;
+        if (key == null) {
+            return;
+        }
+        long value = key.longValue();
+        int slot = slot(value);
+        while (heads[slot] != EMPTY) {
+            if (keys[slot] == value) {
+                next[position] = heads[slot];
+                heads[slot] = position;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        heads[slot] = position;
+        assigned++;
+        if (assigned >= resizeAt) {
+            rehash();
+        }
+    }
+
+    @Override
+    void clearIndex(int expectedNumRows) {
+        int capacity = capacityFor(expectedNumRows);
+        if (capacity == heads.length) {
+            Arrays.fill(heads, EMPTY);
+            assigned = 0;
+        } else {
+            allocate(capacity);
+        }
+    }
+
+    @Override
+    void releaseIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    @Override
+    int indexSizePerRow() {
+        return INDEX_SIZE_PER_ROW;
+    }
+
+    private int slot(long key) {
+        return BitMixer.mixPhi(key) & mask;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        allocate(heads.length << 1);
+        for (int i = 0; i < oldHeads.length; i++) {
+            if (oldHeads[i] != EMPTY) {
+                long key = oldKeys[i];
+                int slot = slot(key);
+                while (heads[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                heads[slot] = oldHeads[i];
+                assigned++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        assert Integer.bitCount(capacity) == 1 : "capacity must be a power of two";
+        keys = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, EMPTY);
+        mask = capacity - 1;
+        assigned = 0;
+        resizeAt = (int) Math.ceil(capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedNumRows) {
+        long required = (long) Math.ceil(Math.max(expectedNumRows, 1) / LOAD_FACTOR) + 1;
+        if (required >= 1 << 30) {
+            return 1 << 30;
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) required - 1) << 1);
+    }
+}
@@ -23,8 +23,10 @@
 package io.crate.execution.engine.pipeline;
 
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
 import io.crate.analyze.NumberOfReplicas;
 import io.crate.analyze.SymbolEvaluator;
+import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
@@ -75,6 +77,7 @@ import io.crate.execution.engine.indexing.ShardDMLExecutor;
 import io.crate.execution.engine.indexing.ShardingUpsertExecutor;
 import io.crate.execution.engine.indexing.UpsertResultContext;
 import io.crate.execution.engine.sort.OrderingByPosition;
+import io.crate.execution.engine.sort.SortedRuns;
 import io.crate.execution.engine.sort.SortingProjector;
 import io.crate.execution.engine.sort.SortingTopNProjector;
 import io.crate.execution.engine.window.WindowProjector;
@@ -105,6 +108,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
@@ -113,7 +117,9 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -156,6 +162,10 @@ public class ProjectionToProjectorVisitor
     @Nullable
     private final ShardId shardId;
     private final int numProcessors;
+    @Nullable
+    private final Path spillDirectory;
+    @Nullable
+    private final CircuitBreaker circuitBreaker;
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
                                         NodeJobsCounter nodeJobsCounter,
@@ -169,7 +179,9 @@ public class ProjectionToProjectorVisitor
                                         Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
                                         Version indexVersionCreated,
                                         BigArrays bigArrays,
-                                        @Nullable ShardId shardId) {
+                                        @Nullable ShardId shardId,
+                                        @Nullable Path spillDirectory,
+                                        @Nullable CircuitBreaker circuitBreaker) {
         this.clusterService = clusterService;
         this.nodeJobsCounter = nodeJobsCounter;
         this.functions = functions;
@@ -184,6 +196,8 @@ public class ProjectionToProjectorVisitor
         this.bigArrays = bigArrays;
         this.shardId = shardId;
         this.numProcessors = EsExecutors.numberOfProcessors(settings);
+        this.spillDirectory = spillDirectory;
+        this.circuitBreaker = circuitBreaker;
     }
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
@@ -209,6 +223,8 @@ public class ProjectionToProjectorVisitor
             staticTableDefinitionGetter,
             Version.CURRENT,
             bigArrays,
+            null,
+            null,
             null
         );
     }
@@ -246,21 +262,30 @@ public class ProjectionToProjectorVisitor
         }
 
         int rowMemoryOverhead = 32; // priority queues implementation are backed by an arrayList
+        RamAccounting sortRamAccounting = sortRamAccounting(context.ramAccounting);
         RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
             Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy())),
-            context.ramAccounting,
+            sortRamAccounting,
             rowMemoryOverhead
         );
+        Comparator<Object[]> ordering =
+            OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst());
+        Supplier<SortedRuns> sortedRunsSupplier = sortedRunsSupplier(
+            Lists2.concat(projection.outputs(), projection.orderBy()),
+            ordering,
+            sortRamAccounting
+        );
         if (projection.limit() > TopN.NO_LIMIT) {
             return new SortingTopNProjector(
                 rowAccounting,
                 inputs,
                 ctx.expressions(),
                 numOutputs,
-                OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
+                ordering,
                 projection.limit(),
                 projection.offset(),
-                UNBOUNDED_COLLECTOR_THRESHOLD
+                UNBOUNDED_COLLECTOR_THRESHOLD,
+                sortedRunsSupplier
             );
         }
         return new SortingProjector(
@@ -268,11 +293,31 @@ public class ProjectionToProjectorVisitor
             inputs,
             ctx.expressions(),
             numOutputs,
-            OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            ordering,
+            projection.offset(),
+            sortedRunsSupplier
         );
     }
 
+    /**
+     * The buffered rows of a sort account their memory separately, so that releasing them after a spill
+     * doesn't release the memory of other operators using the same {@link RamAccounting}.
+     */
+    private static RamAccounting sortRamAccounting(RamAccounting ramAccounting) {
+        return new ConcurrentRamAccounting(ramAccounting::addBytes, bytes -> ramAccounting.addBytes(- bytes));
+    }
+
+    @Nullable
+    private Supplier<SortedRuns> sortedRunsSupplier(List<Symbol> columns,
+                                                    Comparator<Object[]> ordering,
+                                                    RamAccounting ramAccounting) {
+        if (spillDirectory == null || circuitBreaker == null) {
+            return null;
+        }
+        Streamer<?>[] streamers = Symbols.streamerArray(columns);
+        return () -> new SortedRuns(spillDirectory, streamers, ordering, ramAccounting, circuitBreaker);
+    }
+
     @Override
     public Projector visitTopNDistinct(TopNDistinctProjection topNDistinct, Context context) {
         var rowAccounting = new RowAccountingWithEstimators(
@@ -311,7 +356,9 @@ public class ProjectionToProjectorVisitor
             context.ramAccounting,
             context.memoryManager,
             clusterService.state().getNodes().getMinNodeVersion(),
-            indexVersionCreated
+            indexVersionCreated,
+            spillDirectory,
+            circuitBreaker
         );
     }
 
@@ -0,0 +1,212 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import com.google.common.collect.Iterators;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.distribution.merge.KeyIterable;
+import io.crate.execution.engine.distribution.merge.SortedPagingIterator;
+import io.crate.execution.engine.spill.RowSpillFile;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sorted runs of rows which have been written to disk, because the rows to sort don't fit into memory.
+ *
+ * <p>
+ * A sort operation buffers rows in memory until {@link #shouldSpill()} returns true, sorts them and hands them
+ * over to {@link #spill(Iterator)}, which writes them as a new run into a {@link RowSpillFile} so that the memory
+ * of the rows can be released. Once all rows are consumed, {@link #merge(List)} merges the runs and the remaining
+ * in-memory rows using a {@link SortedPagingIterator}.
+ * If there are more than {@link #MAX_MERGE_WIDTH} runs, the oldest runs are first merged into bigger runs to limit
+ * the number of files which are read at the same time.
+ * </p>
+ *
+ * The files are deleted on {@link #close()}.
+ */
+public final class SortedRuns implements Closeable {
+
+    static final int MAX_MERGE_WIDTH = 64;
+
+    /**
+     * Rows are spilled if the used memory of the circuit breaker exceeds this fraction of its limit ...
+     */
+    private static final double SPILL_THRESHOLD = 0.9;
+
+    /**
+     * ... and if the buffered rows use at least this fraction of the limit,
+     * to avoid writing many small runs in favour of other memory consumers.
+     */
+    private static final double MIN_FRACTION_TO_SPILL = 0.05;
+
+    private final Path spillDirectory;
+    private final Streamer<?>[] streamers;
+    private final Comparator<Object[]> comparator;
+    private final RamAccounting ramAccounting;
+    private final CircuitBreaker circuitBreaker;
+    private final List<RowSpillFile> runs = new ArrayList<>();
+    private final List<RowSpillFile.Reader> readers = new ArrayList<>();
+
+    /**
+     * @param streamers     streamers of all cells of the rows, including the cells which are only used to sort
+     * @param ramAccounting the accounting of the buffered rows
+     */
+    public SortedRuns(Path spillDirectory,
+                      Streamer<?>[] streamers,
+                      Comparator<Object[]> comparator,
+                      RamAccounting ramAccounting,
+                      CircuitBreaker circuitBreaker) {
+        this.spillDirectory = spillDirectory;
+        this.streamers = streamers;
+        this.comparator = comparator;
+        this.ramAccounting = ramAccounting;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public boolean shouldSpill() {
+        long limit = circuitBreaker.getLimit();
+        return limit > 0
+               && ramAccounting.totalBytes() >= limit * MIN_FRACTION_TO_SPILL
+               && circuitBreaker.getUsed() >= limit * SPILL_THRESHOLD;
+    }
+
+    public boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    int numRuns() {
+        return runs.size();
+    }
+
+    /**
+     * @return the number of rows of all runs
+     */
+    public long numRows() {
+        long numRows = 0;
+        for (RowSpillFile run : runs) {
+            numRows += run.numRows();
+        }
+        return numRows;
+    }
+
+    /**
+     * Writes the rows, which must be sorted according to the comparator, as a new run.
+     * The caller is responsible to release the memory of the rows.
+     */
+    public void spill(Iterator<Object[]> sortedRows) {
+        runs.add(write(sortedRows));
+    }
+
+    private RowSpillFile write(Iterator<Object[]> sortedRows) {
+        RowSpillFile run;
+        try {
+            run = new RowSpillFile(spillDirectory, "sort-", streamers);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        RowN row = new RowN(streamers.length);
+        try {
+            while (sortedRows.hasNext()) {
+                row.cells(sortedRows.next());
+                run.add(row);
+            }
+            run.finishWriting();
+        } catch (RuntimeException e) {
+            run.close();
+            throw e;
+        }
+        return run;
+    }
+
+    /**
+     * Creates an iterator over all rows of the runs and the given in-memory rows, in the order of the comparator.
+     * Can be called repeatedly to iterate the rows again.
+     *
+     * @param sortedRows rows which haven't been spilled, sorted according to the comparator
+     */
+    public Iterator<Object[]> merge(List<Object[]> sortedRows) {
+        while (runs.size() > MAX_MERGE_WIDTH) {
+            List<RowSpillFile> oldestRuns = runs.subList(0, MAX_MERGE_WIDTH);
+            List<RowSpillFile.Reader> oldestRunsReaders = new ArrayList<>(MAX_MERGE_WIDTH);
+            RowSpillFile mergedRun;
+            try {
+                mergedRun = write(mergeIterator(oldestRuns, List.of(), oldestRunsReaders));
+            } finally {
+                for (RowSpillFile.Reader reader : oldestRunsReaders) {
+                    reader.close();
+                }
+            }
+            for (RowSpillFile run : oldestRuns) {
+                run.close();
+            }
+            oldestRuns.clear();
+            runs.add(0, mergedRun);
+        }
+        return mergeIterator(runs, sortedRows, readers);
+    }
+
+    private Iterator<Object[]> mergeIterator(List<RowSpillFile> runsToMerge,
+                                             List<Object[]> sortedRows,
+                                             List<RowSpillFile.Reader> openedReaders) {
+        List<KeyIterable<Integer, Object[]>> iterables = new ArrayList<>(runsToMerge.size() + 1);
+        for (int i = 0; i < runsToMerge.size(); i++) {
+            RowSpillFile.Reader reader = runsToMerge.get(i).reader();
+            openedReaders.add(reader);
+            Iterator<Object[]> rows = Iterators.transform(reader, Row::materialize);
+            iterables.add(new KeyIterable<>(i, () -> rows));
+        }
+        if (!sortedRows.isEmpty()) {
+            iterables.add(new KeyIterable<>(runsToMerge.size(), sortedRows));
+        }
+        SortedPagingIterator<Integer, Object[]> mergedRows = new SortedPagingIterator<>(comparator, false);
+        mergedRows.merge(iterables);
+        mergedRows.finish();
+        return mergedRows;
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (RowSpillFile.Reader reader : readers) {
+                reader.close();
+            }
+        } finally {
+            for (RowSpillFile run : runs) {
+                run.close();
+            }
+            readers.clear();
+            runs.clear();
+        }
+    }
+}
@@ -24,18 +24,26 @@ package io.crate.execution.engine.sort;
 
 import com.google.common.base.Preconditions;
 import io.crate.breaker.RowAccounting;
+import com.google.common.collect.Iterators;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Bucket;
+import io.crate.data.Buckets;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.CollectionBucket;
 import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
@@ -54,6 +62,17 @@ public class SortingProjector implements Projector {
     private final int offset;
     private final int numOutputs;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final Supplier<SortedRuns> sortedRunsSupplier;
+
+    public SortingProjector(RowAccounting<Object[]> rowAccounting,
+                            Collection<? extends Input<?>> inputs,
+                            Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                            int numOutputs,
+                            Comparator<Object[]> comparator,
+                            int offset) {
+        this(rowAccounting, inputs, collectExpressions, numOutputs, comparator, offset, null);
+    }
 
     /**
      * @param rowAccounting               sorting is a pipeline breaker so account for the used memory
@@ -62,13 +81,15 @@ public class SortingProjector implements Projector {
      * @param numOutputs         <code>inputs</code> contains this much output {@link Input}s starting form index 0
      * @param comparator         ordering that is used to compare the rows
      * @param offset             the initial offset, this number of rows are skipped
+     * @param sortedRunsSupplier if not null, rows are spilled to disk as sorted runs if memory gets short
      */
     public SortingProjector(RowAccounting<Object[]> rowAccounting,
                             Collection<? extends Input<?>> inputs,
                             Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
                             int numOutputs,
                             Comparator<Object[]> comparator,
-                            int offset) {
+                            int offset,
+                            @Nullable Supplier<SortedRuns> sortedRunsSupplier) {
         Preconditions.checkArgument(offset >= 0, "invalid offset %s", offset);
         this.rowAccounting = rowAccounting;
         this.numOutputs = numOutputs;
@@ -76,15 +97,39 @@ public class SortingProjector implements Projector {
         this.collectExpressions = collectExpressions;
         this.comparator = comparator;
         this.offset = offset;
+        this.sortedRunsSupplier = sortedRunsSupplier;
     }
 
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        Collector<Row, ?, Bucket> collector = Collectors.mapping(
-            this::getCells,
-            Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        if (sortedRunsSupplier == null) {
+            Collector<Row, ?, Bucket> collector = Collectors.mapping(
+                this::getCells,
+                Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
+            return CollectingBatchIterator.newInstance(batchIterator, collector);
+        }
+        SortedRuns sortedRuns = sortedRunsSupplier.get();
+        Collector<Row, ArrayList<Object[]>, Iterable<Row>> collector = Collector.of(
+            ArrayList::new,
+            (rows, row) -> addWithSpilling(rows, row, sortedRuns),
+            (rows1, rows2) -> {
+                throw new UnsupportedOperationException("combine not supported");
+            },
+            rows -> sortAndMerge(rows, sortedRuns)
+        );
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    batchIterator.close();
+                } finally {
+                    sortedRuns.close();
+                }
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.involvesIO()
+        );
     }
 
     @Override
@@ -93,6 +138,12 @@ public class SortingProjector implements Projector {
     }
 
     private Object[] getCells(Row row) {
+        Object[] newRow = materialize(row);
+        rowAccounting.accountForAndMaybeBreak(newRow);
+        return newRow;
+    }
+
+    private Object[] materialize(Row row) {
         for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
             collectExpression.setNextRow(row);
         }
@@ -101,10 +152,46 @@ public class SortingProjector implements Projector {
         for (Input<?> input : inputs) {
             newRow[i++] = input.value();
         }
-        rowAccounting.accountForAndMaybeBreak(newRow);
         return newRow;
     }
 
+    private void addWithSpilling(List<Object[]> rows, Row row, SortedRuns sortedRuns) {
+        Object[] newRow = materialize(row);
+        try {
+            rowAccounting.accountForAndMaybeBreak(newRow);
+        } catch (CircuitBreakingException e) {
+            // The accounting is done in blocks which can trip the breaker before the spill threshold is reached
+            if (rows.isEmpty()) {
+                throw e;
+            }
+            spill(rows, sortedRuns);
+            rowAccounting.accountForAndMaybeBreak(newRow);
+        }
+        rows.add(newRow);
+        if (sortedRuns.shouldSpill()) {
+            spill(rows, sortedRuns);
+        }
+    }
+
+    private void spill(List<Object[]> rows, SortedRuns sortedRuns) {
+        rows.sort(comparator);
+        sortedRuns.spill(rows.iterator());
+        rows.clear();
+        rowAccounting.release();
+    }
+
+    private Iterable<Row> sortAndMerge(List<Object[]> rows, SortedRuns sortedRuns) {
+        if (sortedRuns.isEmpty()) {
+            return sortAndCreateBucket(rows);
+        }
+        rows.sort(comparator);
+        return () -> {
+            Iterator<Object[]> sortedRows = sortedRuns.merge(rows);
+            Iterators.advance(sortedRows, offset);
+            return Iterators.transform(sortedRows, Buckets.arrayToSharedRow(numOutputs)::apply);
+        };
+    }
+
     private Bucket sortAndCreateBucket(List<Object[]> rows) {
         rows.sort(comparator);
         if (offset == 0) {
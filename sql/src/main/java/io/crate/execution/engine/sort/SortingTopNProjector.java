@@ -24,6 +24,7 @@ package io.crate.execution.engine.sort;
 
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Bucket;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
@@ -31,13 +32,36 @@ import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.function.Supplier;
 import java.util.stream.Collector;
 
 public class SortingTopNProjector implements Projector {
 
     private final Collector<Row, ?, Bucket> collector;
+    @Nullable
+    private final SortedRuns sortedRuns;
+
+    public SortingTopNProjector(RowAccounting<Object[]> rowAccounting,
+                                Collection<? extends Input<?>> inputs,
+                                Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                                int numOutputs,
+                                Comparator<Object[]> ordering,
+                                int limit,
+                                int offset,
+                                int unboundedCollectorThreshold) {
+        this(rowAccounting,
+            inputs,
+            collectExpressions,
+            numOutputs,
+            ordering,
+            limit,
+            offset,
+            unboundedCollectorThreshold,
+            null);
+    }
 
     /**
      * @param rowAccounting               sorting is a pipeline breaker so account for the used memory
@@ -49,6 +73,8 @@ public class SortingTopNProjector implements Projector {
      * @param offset                      the initial offset, this number of rows are skipped
      * @param unboundedCollectorThreshold if (limit + offset) is greater than this threshold an unbounded collector will
      *                                    be used, otherwise a bounded one is used.
+     * @param sortedRunsSupplier          if not null, the unbounded collector spills the rows to disk if memory gets
+     *                                    short
      */
     public SortingTopNProjector(RowAccounting<Object[]> rowAccounting,
                                 Collection<? extends Input<?>> inputs,
@@ -57,7 +83,8 @@ public class SortingTopNProjector implements Projector {
                                 Comparator<Object[]> ordering,
                                 int limit,
                                 int offset,
-                                int unboundedCollectorThreshold) {
+                                int unboundedCollectorThreshold,
+                                @Nullable Supplier<SortedRuns> sortedRunsSupplier) {
         /**
          * We'll use an unbounded queue with the initial capacity of {@link unboundedCollectorThreshold}
          * if the maximum number of rows we have to accommodate in the queue in order to maintain correctness is
@@ -67,6 +94,7 @@ public class SortingTopNProjector implements Projector {
          * will never be filled.
          */
         if ((limit + offset) > unboundedCollectorThreshold) {
+            sortedRuns = sortedRunsSupplier == null ? null : sortedRunsSupplier.get();
             collector = new UnboundedSortingTopNCollector(
                 rowAccounting,
                 inputs,
@@ -75,9 +103,11 @@ public class SortingTopNProjector implements Projector {
                 ordering,
                 unboundedCollectorThreshold,
                 limit,
-                offset
+                offset,
+                sortedRuns
             );
         } else {
+            sortedRuns = null;
             collector = new BoundedSortingTopNCollector(
                 rowAccounting,
                 inputs,
@@ -92,7 +122,21 @@ public class SortingTopNProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        if (sortedRuns == null) {
+            return CollectingBatchIterator.newInstance(batchIterator, collector);
+        }
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    batchIterator.close();
+                } finally {
+                    sortedRuns.close();
+                }
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.involvesIO()
+        );
     }
 
     @Override
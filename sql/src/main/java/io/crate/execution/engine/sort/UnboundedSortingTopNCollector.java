@@ -23,17 +23,24 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.ArrayBucket;
 import io.crate.data.Bucket;
+import io.crate.data.Buckets;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 
+import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -47,6 +54,10 @@ import java.util.stream.Collector;
  * Collector implementation which collects rows into an unbounded priorityQueue in order to sort the rows and apply a
  * limit + offset.
  * The final result is a sorted bucket with limit and offset applied.
+ * <p>
+ * If {@link SortedRuns} are given and memory gets short, the rows of the queue are written to disk as a sorted run
+ * and the queue is cleared. The final result is then merged from the runs and the rows of the queue.
+ * </p>
  */
 public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQueue<Object[]>, Bucket> {
 
@@ -58,6 +69,19 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
     private final int offset;
     private final int maxNumberOfRowsInQueue;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final SortedRuns sortedRuns;
+
+    public UnboundedSortingTopNCollector(RowAccounting<Object[]> rowAccounting,
+                                         Collection<? extends Input<?>> inputs,
+                                         Iterable<? extends CollectExpression<Row, ?>> expressions,
+                                         int numOutputs,
+                                         Comparator<Object[]> comparator,
+                                         int initialCapacity,
+                                         int limit,
+                                         int offset) {
+        this(rowAccounting, inputs, expressions, numOutputs, comparator, initialCapacity, limit, offset, null);
+    }
 
     /**
      * @param rowAccounting   sorting is a pipeline breaker so account for the used memory
@@ -68,6 +92,7 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
      * @param initialCapacity the initial capacity of the backing queue
      * @param limit           the max number of rows the result should contain
      * @param offset          the number of rows to skip (after sort)
+     * @param sortedRuns      if not null, the rows of the queue are spilled to disk if memory gets short
      */
     public UnboundedSortingTopNCollector(RowAccounting<Object[]> rowAccounting,
                                          Collection<? extends Input<?>> inputs,
@@ -76,7 +101,8 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
                                          Comparator<Object[]> comparator,
                                          int initialCapacity,
                                          int limit,
-                                         int offset) {
+                                         int offset,
+                                         @Nullable SortedRuns sortedRuns) {
         Preconditions.checkArgument(
             initialCapacity > 0, "Invalid initial capacity: value must be > 0; got: " + initialCapacity);
         Preconditions.checkArgument(limit > 0, "Invalid LIMIT: value must be > 0; got: " + limit);
@@ -90,6 +116,7 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         this.initialCapacity = initialCapacity;
         this.offset = offset;
         this.maxNumberOfRowsInQueue = limit + offset;
+        this.sortedRuns = sortedRuns;
 
         if (maxNumberOfRowsInQueue >= ArrayUtil.MAX_ARRAY_LENGTH || maxNumberOfRowsInQueue < 0) {
             // Throw exception to prevent confusing OOME in PriorityQueue
@@ -137,7 +164,11 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
             rowCells[i] = input.value();
             i++;
         }
-        rowAccounting.accountForAndMaybeBreak(rowCells);
+        if (sortedRuns == null) {
+            rowAccounting.accountForAndMaybeBreak(rowCells);
+        } else {
+            accountWithSpilling(pq, rowCells, sortedRuns);
+        }
         if (pq.size() == maxNumberOfRowsInQueue) {
             Object[] highestElementInOrder = pq.peek();
             if (highestElementInOrder == null || comparator.compare(rowCells, highestElementInOrder) < 0) {
@@ -149,7 +180,39 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         }
     }
 
+    private void accountWithSpilling(PriorityQueue<Object[]> pq, Object[] rowCells, SortedRuns sortedRuns) {
+        try {
+            rowAccounting.accountForAndMaybeBreak(rowCells);
+        } catch (CircuitBreakingException e) {
+            // The accounting is done in blocks which can trip the breaker before the spill threshold is reached
+            if (pq.isEmpty()) {
+                throw e;
+            }
+            sortedRuns.spill(drainSorted(pq).iterator());
+            rowAccounting.release();
+            rowAccounting.accountForAndMaybeBreak(rowCells);
+            return;
+        }
+        if (!pq.isEmpty() && sortedRuns.shouldSpill()) {
+            sortedRuns.spill(drainSorted(pq).iterator());
+            rowAccounting.release();
+            // The current row is added to the queue afterwards
+            rowAccounting.accountForAndMaybeBreak(rowCells);
+        }
+    }
+
+    private static List<Object[]> drainSorted(PriorityQueue<Object[]> pq) {
+        Object[][] rows = new Object[pq.size()][];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            rows[i] = pq.poll();
+        }
+        return Arrays.asList(rows);
+    }
+
     private Bucket pqToIterable(PriorityQueue<Object[]> pq) {
+        if (sortedRuns != null && !sortedRuns.isEmpty()) {
+            return mergeWithSortedRuns(drainSorted(pq), sortedRuns);
+        }
         if (offset > pq.size()) {
             return new ArrayBucket(new Object[0][0], numOutputs);
         }
@@ -161,4 +224,26 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         }
         return new ArrayBucket(rows, numOutputs);
     }
+
+    private Bucket mergeWithSortedRuns(List<Object[]> sortedRows, SortedRuns sortedRuns) {
+        long numRows = sortedRuns.numRows() + sortedRows.size();
+        int resultSize = (int) Math.max(Math.min(maxNumberOfRowsInQueue - offset, numRows - offset), 0);
+        return new Bucket() {
+
+            @Override
+            public int size() {
+                return resultSize;
+            }
+
+            @Override
+            public Iterator<Row> iterator() {
+                Iterator<Object[]> rows = sortedRuns.merge(sortedRows);
+                Iterators.advance(rows, offset);
+                return Iterators.transform(
+                    Iterators.limit(rows, resultSize),
+                    Buckets.arrayToSharedRow(numOutputs)::apply
+                );
+            }
+        };
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.env.NodeEnvironment;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file to which rows can be appended and which can be read back (repeatedly) once writing is finished.
+ * <p>
+ * Cells are serialized using the {@link Streamer} of each column, the same encoding
+ * {@link io.crate.execution.engine.distribution.StreamBucket} uses.
+ * The file is deleted on {@link #close()}.
+ */
+public final class RowSpillFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Streamer<?>[] streamers;
+
+    @Nullable
+    private OutputStreamStreamOutput out;
+    private long numRows = 0;
+
+    /**
+     * @return the directory in which operators spill their state to disk or null if the node has no data path.
+     */
+    @Nullable
+    public static Path spillDirectory(NodeEnvironment nodeEnvironment) {
+        return nodeEnvironment.hasNodeFile()
+            ? nodeEnvironment.nodeDataPaths()[0].resolve("spill")
+            : null;
+    }
+
+    public RowSpillFile(Path directory, String prefix, Streamer<?>[] streamers) throws IOException {
+        Files.createDirectories(directory);
+        this.path = Files.createTempFile(directory, prefix, ".spill");
+        this.streamers = streamers;
+        this.out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void add(Row row) {
+        assert out != null : "Cannot add rows to a RowSpillFile after finishWriting has been called";
+        assert streamers.length == row.numColumns() : "number of streamer must match row size";
+        try {
+            for (int i = 0; i < streamers.length; i++) {
+                ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        numRows++;
+    }
+
+    public long numRows() {
+        return numRows;
+    }
+
+    /**
+     * Flushes and closes the underlying output. Must be called before the rows can be read using {@link #reader()}
+     */
+    public void finishWriting() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Creates a new reader starting at the first row of the file.
+     * The returned {@link Row} instance is re-used; use {@link Row#materialize()} to retain its values.
+     */
+    public Reader reader() {
+        assert out == null : "finishWriting must be called before the rows can be read";
+        try {
+            return new Reader(
+                new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)),
+                streamers,
+                numRows
+            );
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            finishWriting();
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static final class Reader implements Iterator<Row>, Closeable {
+
+        private final StreamInput in;
+        private final Streamer<?>[] streamers;
+        private final long numRows;
+        private final Object[] cells;
+        private final RowN row;
+        private long pos = 0;
+
+        private Reader(StreamInput in, Streamer<?>[] streamers, long numRows) {
+            this.in = in;
+            this.streamers = streamers;
+            this.numRows = numRows;
+            this.cells = new Object[streamers.length];
+            this.row = new RowN(cells);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < numRows;
+        }
+
+        @Override
+        public Row next() {
+            if (pos >= numRows) {
+                throw new NoSuchElementException("RowSpillFile has no more rows");
+            }
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    cells[i] = streamers[i].readValueFrom(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos++;
+            return row;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
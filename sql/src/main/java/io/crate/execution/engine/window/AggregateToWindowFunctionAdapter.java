@@ -54,6 +54,8 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
     private int seenFrameLowerBound = -1;
     private int seenFrameUpperBound = -1;
     private Object resultForCurrentFrame;
+    @Nullable
+    private PartialStateSegmentTree segmentTree;
 
     AggregateToWindowFunctionAdapter(AggregationFunction aggregationFunction,
                                      ExpressionsInput<Row, Boolean> filter,
@@ -91,6 +93,7 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
         if (idxInPartition == 0) {
+            segmentTree = null;
             recomputeFunction(frame, expressions, args);
         } else if (isLowerBoundIncreasing(frame, seenFrameLowerBound)) {
             if (aggregationFunction.isRemovableCumulative()) {
@@ -102,6 +105,8 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                 }
                 seenFrameLowerBound = frame.lowerBound();
                 seenFrameUpperBound = frame.upperBoundExclusive();
+            } else if (aggregationFunction.supportsReduceShared()) {
+                computeFromSegmentTree(frame, expressions, args);
             } else {
                 recomputeFunction(frame, expressions, args);
             }
@@ -132,6 +137,27 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
         }
     }
 
+    private void computeFromSegmentTree(WindowFrameState frame,
+                                       List<? extends CollectExpression<Row, ?>> expressions,
+                                       Input[] args) {
+        if (segmentTree == null) {
+            segmentTree = new PartialStateSegmentTree(
+                aggregationFunction,
+                () -> aggregationFunction.newState(ramAccounting, indexVersionCreated, minNodeVersion, memoryManager),
+                frame,
+                filter,
+                ramAccounting,
+                memoryManager,
+                expressions,
+                args
+            );
+        }
+        accumulatedState = segmentTree.stateForRange(frame.lowerBound(), frame.upperBoundExclusive());
+        resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccounting, accumulatedState);
+        seenFrameLowerBound = frame.lowerBound();
+        seenFrameUpperBound = frame.upperBoundExclusive();
+    }
+
     private void recomputeFunction(WindowFrameState frame,
                                    List<? extends CollectExpression<Row, ?>> expressions,
                                    Input[] args) {
@@ -0,0 +1,167 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.data.ArrayRow;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.ExpressionsInput;
+import io.crate.memory.MemoryManager;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A segment tree over the rows of a partition which holds the partial aggregation states of ranges of rows.
+ *
+ * <p>
+ * The leaves are the states of blocks of {@link #BLOCK_SIZE} rows. The state of any frame of the partition is
+ * the reduction of at most 2 * log(n / BLOCK_SIZE) pre-aggregated states plus the rows of the partial blocks at
+ * the start and the end of the frame, instead of iterating over all rows of the frame. This allows to compute
+ * sliding frames of aggregations which are not removable cumulative (eg. max/min) in O(n log n) instead of
+ * O(n * frameSize). Using blocks instead of single rows as leaves bounds the number of states held by the tree.
+ * </p>
+ *
+ * The states of the nodes are shared between the frames, so they're only reduced into a new state using
+ * {@link AggregationFunction#reduceShared(RamAccounting, MemoryManager, Object, Object)}.
+ *
+ * <pre>
+ *  nodes:  [ _ | 0-3 | 0-1 | 2-3 | 0 | 1 | 2 | 3 ]
+ *                                  ^ leaves, one per block of rows in the partition
+ * </pre>
+ */
+final class PartialStateSegmentTree {
+
+    static final int BLOCK_SIZE = 32;
+
+    private final AggregationFunction aggregationFunction;
+    private final Supplier<Object> newState;
+    private final WindowFrameState frame;
+    private final ExpressionsInput<Row, Boolean> filter;
+    private final RamAccounting ramAccounting;
+    private final MemoryManager memoryManager;
+    private final List<? extends CollectExpression<Row, ?>> expressions;
+    private final Input[] args;
+    private final ArrayRow row = new ArrayRow();
+    private final Object[] nodes;
+    private final int partitionSize;
+    private final int numLeaves;
+    private final int[] rightNodes;
+
+    PartialStateSegmentTree(AggregationFunction aggregationFunction,
+                            Supplier<Object> newState,
+                            WindowFrameState frame,
+                            ExpressionsInput<Row, Boolean> filter,
+                            RamAccounting ramAccounting,
+                            MemoryManager memoryManager,
+                            List<? extends CollectExpression<Row, ?>> expressions,
+                            Input[] args) {
+        assert aggregationFunction.supportsReduceShared()
+            : "Aggregation must be able to reduce shared states to share them between frames";
+        this.aggregationFunction = aggregationFunction;
+        this.newState = newState;
+        this.frame = frame;
+        this.filter = filter;
+        this.ramAccounting = ramAccounting;
+        this.memoryManager = memoryManager;
+        this.expressions = expressions;
+        this.args = args;
+        this.partitionSize = frame.partitionSize();
+        this.numLeaves = Math.max(1, (partitionSize + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        this.nodes = new Object[2 * numLeaves];
+        this.rightNodes = new int[Integer.SIZE];
+        ramAccounting.addBytes(RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * nodes.length));
+
+        for (int i = 0; i < numLeaves; i++) {
+            int blockStart = i * BLOCK_SIZE;
+            int blockEnd = Math.min(blockStart + BLOCK_SIZE, partitionSize);
+            nodes[numLeaves + i] = iterate(newState.get(), blockStart, blockEnd);
+        }
+        for (int i = numLeaves - 1; i > 0; i--) {
+            nodes[i] = reduceShared(reduceShared(newState.get(), nodes[2 * i]), nodes[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns a new aggregated state of the rows in the partition from {@code lowerBound} (inclusive)
+     * to {@code upperBoundExclusive}. The rows are aggregated in the order of the partition.
+     */
+    Object stateForRange(int lowerBound, int upperBoundExclusive) {
+        int from = Math.max(lowerBound, 0);
+        int to = Math.min(upperBoundExclusive, partitionSize);
+        Object state = newState.get();
+        int firstBlock = (from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int endBlock = to / BLOCK_SIZE;
+        if (firstBlock >= endBlock) {
+            return iterate(state, from, to);
+        }
+        state = iterate(state, from, firstBlock * BLOCK_SIZE);
+
+        int numRightNodes = 0;
+        int left = firstBlock + numLeaves;
+        int right = endBlock + numLeaves;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                state = reduceShared(state, nodes[left]);
+                left++;
+            }
+            if ((right & 1) == 1) {
+                right--;
+                rightNodes[numRightNodes++] = right;
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        // The nodes of the right side are found from the end of the range towards its start
+        for (int i = numRightNodes - 1; i >= 0; i--) {
+            state = reduceShared(state, nodes[rightNodes[i]]);
+        }
+        return iterate(state, endBlock * BLOCK_SIZE, to);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object reduceShared(Object state, Object sharedState) {
+        return aggregationFunction.reduceShared(ramAccounting, memoryManager, state, sharedState);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object iterate(Object state, int fromIdx, int toIdxExclusive) {
+        for (int i = fromIdx; i < toIdxExclusive; i++) {
+            Object[] cells = frame.getRowInPartitionAtIndexOrNull(i);
+            assert cells != null : "No row at idx=" + i + " in current partition=" + frame;
+            row.cells(cells);
+            for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
+                expressions.get(j).setNextRow(row);
+            }
+            if (filter.value(row)) {
+                state = aggregationFunction.iterate(ramAccounting, memoryManager, state, args);
+            }
+        }
+        return state;
+    }
+}
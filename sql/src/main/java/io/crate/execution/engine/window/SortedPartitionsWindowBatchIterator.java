@@ -0,0 +1,207 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RowAccounting;
+import io.crate.data.ArrayRow;
+import io.crate.data.BatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.engine.collect.CollectExpression;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * BatchIterator which computes window functions over a source which is already sorted by the
+ * PARTITION BY and ORDER BY symbols of the window definition.
+ *
+ * <p>
+ * Unlike {@link WindowFunctionBatchIterator#of} this isn't a pipeline breaker: Only the rows of the current
+ * partition are buffered. Once the first row of the next partition (or the end of the source) is reached,
+ * the window functions are computed for the buffered partition, its rows are emitted and the memory
+ * accounted for them is released.
+ * </p>
+ *
+ * The rowAccounting must only be used by this iterator as it is released after each partition.
+ * A single partition is never spilled to disk, so if its rows exceed the circuit breaker limit the
+ * query fails with a {@link CircuitBreakingException}.
+ */
+final class SortedPartitionsWindowBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final RowAccounting<Row> rowAccounting;
+    private final ComputeFrameBoundary<Object[]> computeFrameStart;
+    private final ComputeFrameBoundary<Object[]> computeFrameEnd;
+    @Nullable
+    private final Comparator<Object[]> cmpPartitionBy;
+    private final int numCellsInSourceRow;
+    private final List<WindowFunction> windowFunctions;
+    private final List<? extends CollectExpression<Row, ?>> argsExpressions;
+    private final Input[][] args;
+
+    private final ArrayRow accountingRow = new ArrayRow();
+    private final ArrayRow currentRow = new ArrayRow();
+
+    private ArrayList<Object[]> partition = new ArrayList<>();
+    @Nullable
+    private Object[] firstRowOfNextPartition = null;
+    @Nullable
+    private Iterator<Object[]> computedRows = null;
+    private Row current = null;
+
+    SortedPartitionsWindowBatchIterator(BatchIterator<Row> source,
+                                        RowAccounting<Row> rowAccounting,
+                                        ComputeFrameBoundary<Object[]> computeFrameStart,
+                                        ComputeFrameBoundary<Object[]> computeFrameEnd,
+                                        @Nullable Comparator<Object[]> cmpPartitionBy,
+                                        int numCellsInSourceRow,
+                                        List<WindowFunction> windowFunctions,
+                                        List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                        Input[]... args) {
+        this.source = source;
+        this.rowAccounting = rowAccounting;
+        this.computeFrameStart = computeFrameStart;
+        this.computeFrameEnd = computeFrameEnd;
+        this.cmpPartitionBy = cmpPartitionBy;
+        this.numCellsInSourceRow = numCellsInSourceRow;
+        this.windowFunctions = windowFunctions;
+        this.argsExpressions = argsExpressions;
+        this.args = args;
+    }
+
+    @Override
+    public Row currentElement() {
+        return current;
+    }
+
+    @Override
+    public void moveToStart() {
+        resetPartition();
+        firstRowOfNextPartition = null;
+        current = null;
+        source.moveToStart();
+    }
+
+    @Override
+    public boolean moveNext() {
+        while (true) {
+            if (computedRows != null) {
+                if (computedRows.hasNext()) {
+                    currentRow.cells(computedRows.next());
+                    current = currentRow;
+                    return true;
+                }
+                resetPartition();
+                if (firstRowOfNextPartition != null) {
+                    addToPartition(firstRowOfNextPartition);
+                    firstRowOfNextPartition = null;
+                }
+            }
+            if (source.moveNext()) {
+                Object[] cells = WindowFunctionBatchIterator.materializeWithSpare(
+                    source.currentElement(), windowFunctions.size());
+                if (partition.isEmpty() || cmpPartitionBy == null || cmpPartitionBy.compare(partition.get(0), cells) == 0) {
+                    addToPartition(cells);
+                } else {
+                    firstRowOfNextPartition = cells;
+                    computePartition();
+                }
+            } else if (source.allLoaded() && !partition.isEmpty()) {
+                computePartition();
+            } else {
+                current = null;
+                return false;
+            }
+        }
+    }
+
+    private void addToPartition(Object[] cells) {
+        accountingRow.cells(cells);
+        try {
+            rowAccounting.accountForAndMaybeBreak(accountingRow);
+        } catch (CircuitBreakingException e) {
+            throw new CircuitBreakingException(
+                "A single window partition doesn't fit into memory after buffering " + partition.size() +
+                " rows. Partitions are not spilled to disk, consider a more selective PARTITION BY clause. " +
+                e.getMessage(),
+                e.getBytesWanted(),
+                e.getByteLimit()
+            );
+        }
+        partition.add(cells);
+    }
+
+    private void computePartition() {
+        computedRows = WindowFunctionBatchIterator.computeWindowFunctions(
+            partition,
+            computeFrameStart,
+            computeFrameEnd,
+            null,
+            numCellsInSourceRow,
+            windowFunctions,
+            argsExpressions,
+            args
+        ).iterator();
+    }
+
+    private void resetPartition() {
+        computedRows = null;
+        // Not re-using the list to not retain the capacity of a large partition once its memory got released
+        partition = new ArrayList<>();
+        rowAccounting.release();
+    }
+
+    @Override
+    public void close() {
+        rowAccounting.release();
+        source.close();
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        return source.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return source.allLoaded();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        source.kill(throwable);
+    }
+
+    @Override
+    public boolean involvesIO() {
+        return source.involvesIO();
+    }
+}
@@ -61,6 +61,13 @@ public final class WindowFrameState {
         return upperBoundExclusive - lowerBound;
     }
 
+    /**
+     * Returns the number of rows that are part of the current partition.
+     */
+    public int partitionSize() {
+        return partitionEnd - partitionStart;
+    }
+
     /**
      * Return the row at the given index in the frame or null if the index is out of bounds.
      */
@@ -59,6 +59,8 @@ import static io.crate.common.collections.Lists2.findFirstNonPeer;
  *
  * Doing the ORDER BY within the BatchIterator (instead of demanding the source to be pre-sorted) allows us to operate
  * on a in-memory list with RandomAccess instead of using the BatchIterator interface for the source.
+ * If the source is already sorted, {@link SortedPartitionsWindowBatchIterator} is used instead, which only
+ * buffers the rows of one partition at a time.
  * </p>
  *
  * <pre>
@@ -116,7 +118,7 @@ public final class WindowFunctionBatchIterator {
         );
     }
 
-    private static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
+    static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
         Object[] cells = new Object[row.numColumns() + numWindowFunctions];
         for (int i = 0; i < row.numColumns(); i++) {
             cells[i] = row.get(i);
@@ -157,14 +159,14 @@ public final class WindowFunctionBatchIterator {
         }
     }
 
-    private static Iterable<Object[]> computeWindowFunctions(List<Object[]> sortedRows,
-                                                             ComputeFrameBoundary<Object[]> computeFrameStart,
-                                                             ComputeFrameBoundary<Object[]> computeFrameEnd,
-                                                             @Nullable Comparator<Object[]> cmpPartitionBy,
-                                                             int numCellsInSourceRow,
-                                                             List<WindowFunction> windowFunctions,
-                                                             List<? extends CollectExpression<Row, ?>> argsExpressions,
-                                                             Input[]... args) {
+    static Iterable<Object[]> computeWindowFunctions(List<Object[]> sortedRows,
+                                                     ComputeFrameBoundary<Object[]> computeFrameStart,
+                                                     ComputeFrameBoundary<Object[]> computeFrameEnd,
+                                                     @Nullable Comparator<Object[]> cmpPartitionBy,
+                                                     int numCellsInSourceRow,
+                                                     List<WindowFunction> windowFunctions,
+                                                     List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                                     Input[]... args) {
         return () -> new Iterator<>() {
 
             private boolean isTraceEnabled = LOGGER.isTraceEnabled();
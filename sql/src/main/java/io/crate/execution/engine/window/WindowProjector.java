@@ -24,6 +24,7 @@ package io.crate.execution.engine.window;
 
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
+import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.data.Input;
@@ -120,7 +121,12 @@ public class WindowProjector {
             () -> inputFactory.ctxForInputColumns(txnCtx);
         int arrayListElementOverHead = 32;
         RowAccountingWithEstimators accounting = new RowAccountingWithEstimators(
-            Symbols.typeView(projection.standalone()), ramAccounting, arrayListElementOverHead);
+            Symbols.typeView(projection.standalone()),
+            // The sorted source variant releases the accounted rows after each partition
+            projection.sourceIsSorted()
+                ? new ConcurrentRamAccounting(ramAccounting::addBytes, bytes -> ramAccounting.addBytes(-bytes))
+                : ramAccounting,
+            arrayListElementOverHead);
         Comparator<Object[]> cmpPartitionBy = partitions.isEmpty()
             ? null
             : createComparator(createInputFactoryContext, new OrderBy(windowDefinition.partitions()));
@@ -140,6 +146,19 @@ public class WindowProjector {
             windowDefinition,
             cmpOrderBy
         );
+        if (projection.sourceIsSorted()) {
+            return sourceRows -> new SortedPartitionsWindowBatchIterator(
+                sourceRows,
+                accounting,
+                computeFrameStart,
+                computeFrameEnd,
+                cmpPartitionBy,
+                numCellsInSourceRow,
+                windowFunctions,
+                windowFuncArgsExpressions,
+                windowFuncArgsInputs
+            );
+        }
         return sourceRows -> WindowFunctionBatchIterator.of(
             sourceRows,
             accounting,
@@ -80,6 +80,7 @@ import io.crate.execution.engine.join.NestedLoopOperation;
 import io.crate.execution.engine.pipeline.ProjectingRowConsumer;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
 import io.crate.execution.engine.pipeline.ProjectorFactory;
+import io.crate.execution.engine.spill.RowSpillFile;
 import io.crate.expression.InputFactory;
 import io.crate.expression.RowFilter;
 import io.crate.expression.eval.EvaluatingNormalizer;
@@ -97,6 +98,7 @@ import io.crate.planner.operators.PKAndVersion;
 import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.collect.Tuple;
@@ -105,12 +107,16 @@ import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
@@ -144,6 +150,8 @@ public class JobSetup {
     private final Executor searchTp;
     private final String nodeName;
     private final Schemas schemas;
+    @Nullable
+    private final Path spillDirectory;
 
     @Inject
     public JobSetup(Settings settings,
@@ -161,8 +169,19 @@ public class JobSetup {
                     PageCacheRecycler pageCacheRecycler,
                     SystemCollectSource systemCollectSource,
                     ShardCollectSource shardCollectSource,
-                    MemoryManagerFactory memoryManagerFactory) {
+                    MemoryManagerFactory memoryManagerFactory,
+                    NodeEnvironment nodeEnvironment) {
         this.nodeName = Node.NODE_NAME_SETTING.get(settings);
+        // Nodes without a data path cannot spill operator state to disk
+        this.spillDirectory = RowSpillFile.spillDirectory(nodeEnvironment);
+        if (spillDirectory != null) {
+            // Remove left-overs of jobs which were running when the node stopped
+            try {
+                IOUtils.rm(spillDirectory);
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't remove spill directory " + spillDirectory, e);
+            }
+        }
         this.schemas = schemas;
         this.collectOperation = collectOperation;
         this.clusterService = clusterService;
@@ -187,7 +206,11 @@ public class JobSetup {
             normalizer,
             systemCollectSource::getRowUpdater,
             systemCollectSource::tableDefinition,
-            bigArrays
+            Version.CURRENT,
+            bigArrays,
+            null,
+            spillDirectory,
+            breaker()
         );
     }
 
@@ -949,25 +972,23 @@ public class JobSetup {
                 memoryManager,
                 projectorFactory
             );
-            Predicate<Row> joinCondition = RowFilter.create(context.transactionContext, inputFactory, phase.joinCondition());
-
             HashJoinOperation joinOperation = new HashJoinOperation(
                 phase.numLeftOutputs(),
                 phase.numRightOutputs(),
                 firstConsumer,
-                joinCondition,
+                phase.joinType(),
+                phase.joinCondition(),
                 phase.leftJoinConditionInputs(),
                 phase.rightJoinConditionInputs(),
-                // 110 extra bytes per row =
-                //    96 bytes for each ArrayList +
-                //    7 bytes per key for the IntHashObjectHashMap  (should be 4 but the map pre-allocates more)
-                //    7 bytes perv value (pointer from the map to the list) (should be 4 but the map pre-allocates more)
-                new RowAccountingWithEstimators(phase.leftOutputTypes(), ramAccounting, 110),
+                ramAccounting,
                 context.transactionContext,
                 inputFactory,
                 breaker(),
                 phase.estimatedRowSizeForLeft(),
-                phase.numberOfRowsForLeft());
+                phase.numberOfRowsForLeft(),
+                phase.leftOutputTypes(),
+                phase.rightOutputTypes(),
+                spillDirectory);
             DistResultRXTask left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
                 context,
@@ -0,0 +1,152 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.jobs;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the bulk requests issued from the current node towards a target node.
+ *
+ * Besides the metrics it adapts the size of the bulk requests sent to the target node, similar to a congestion window:
+ * The size shrinks multiplicatively if the node rejects requests or responds a lot slower than usual
+ * and grows additively otherwise, up to the bulk size requested by the operation.
+ */
+public final class NodeBulkStats {
+
+    static final double MIN_BULK_SIZE_FACTOR = 1d / 64;
+    static final int MIN_BULK_SIZE = 10;
+
+    private static final double BULK_SIZE_INCREASE = 0.05;
+    private static final double SLOW_RESPONSE_DECREASE = 0.75;
+    private static final double REJECTION_DECREASE = 0.5;
+    private static final double SLOW_RESPONSE_LATENCY_RATIO = 2.0;
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    @Nullable
+    private final String nodeId;
+    private final AtomicLong inFlightRequests = new AtomicLong(0);
+    private final AtomicLong inFlightBytes = new AtomicLong(0);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    // guarded by this
+    private double bulkSizeFactor = 1.0;
+    // guarded by this
+    private double latencyMillis = 0.0;
+
+    NodeBulkStats(@Nullable String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return the number of items a single request towards the node should contain at most
+     */
+    public int bulkSize(int maxBulkSize) {
+        double factor;
+        synchronized (this) {
+            factor = bulkSizeFactor;
+        }
+        return Math.max(Math.min(MIN_BULK_SIZE, maxBulkSize), (int) (maxBulkSize * factor));
+    }
+
+    public void onRequest(long bytes) {
+        requests.increment();
+        inFlightRequests.incrementAndGet();
+        inFlightBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Called if a request is retried because the node rejected it, usually because its queue is full.
+     */
+    public synchronized void onRetry() {
+        retries.increment();
+        bulkSizeFactor = Math.max(MIN_BULK_SIZE_FACTOR, bulkSizeFactor * REJECTION_DECREASE);
+    }
+
+    public void onResponse(long bytes, long tookNanos) {
+        onCompletion(bytes);
+        double tookMillis = tookNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        synchronized (this) {
+            if (latencyMillis > 0.0 && tookMillis > latencyMillis * SLOW_RESPONSE_LATENCY_RATIO) {
+                bulkSizeFactor = Math.max(MIN_BULK_SIZE_FACTOR, bulkSizeFactor * SLOW_RESPONSE_DECREASE);
+            } else {
+                bulkSizeFactor = Math.min(1.0, bulkSizeFactor + BULK_SIZE_INCREASE);
+            }
+            if (latencyMillis == 0.0) {
+                latencyMillis = tookMillis;
+            } else {
+                latencyMillis += LATENCY_SMOOTHING * (tookMillis - latencyMillis);
+            }
+        }
+    }
+
+    public void onFailure(long bytes) {
+        failures.increment();
+        onCompletion(bytes);
+    }
+
+    private void onCompletion(long bytes) {
+        inFlightRequests.decrementAndGet();
+        inFlightBytes.addAndGet(-bytes);
+    }
+
+    @Nullable
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public long inFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    public long inFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long retries() {
+        return retries.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public synchronized double bulkSizeFactor() {
+        return bulkSizeFactor;
+    }
+
+    /**
+     * @return the exponentially weighted moving average of the response times of the node
+     */
+    public synchronized double latencyMillis() {
+        return latencyMillis;
+    }
+}
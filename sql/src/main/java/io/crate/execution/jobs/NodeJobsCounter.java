@@ -22,9 +22,16 @@
 
 package io.crate.execution.jobs;
 
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
@@ -35,7 +42,7 @@ import java.util.function.BiFunction;
  * Note: one job can span multiple nodes.
  */
 @Singleton
-public class NodeJobsCounter {
+public class NodeJobsCounter implements ClusterStateListener {
 
     /**
      * Represents the maximum number of concurrent operations that can be issued towards a node.
@@ -45,6 +52,8 @@ public class NodeJobsCounter {
     private long unknownNodeCount = 0L;
     // Using single element long[] to avoid autoboxing
     private final Map<String, long[]> operationsCountPerNode = new ConcurrentHashMap<>();
+    private final Map<String, NodeBulkStats> bulkStatsPerNode = new ConcurrentHashMap<>();
+    private final NodeBulkStats unknownNodeBulkStats = new NodeBulkStats(null);
 
     private static final BiFunction<String, long[], long[]> INCREMENT_COUNTER_FOR_NODE = (node, count) -> {
         if (count == null) {
@@ -66,6 +75,13 @@ public class NodeJobsCounter {
         return count;
     };
 
+    public NodeJobsCounter() {
+    }
+
+    @Inject
+    public NodeJobsCounter(ClusterService clusterService) {
+        clusterService.addListener(this);
+    }
 
     public void increment(@Nullable String nodeId) {
         if (nodeId == null) {
@@ -93,4 +109,33 @@ public class NodeJobsCounter {
         }
         return count;
     }
+
+    /**
+     * @return the statistics of the bulk requests issued towards the given node
+     */
+    public NodeBulkStats bulkStats(@Nullable String nodeId) {
+        if (nodeId == null) {
+            return unknownNodeBulkStats;
+        }
+        return bulkStatsPerNode.computeIfAbsent(nodeId, NodeBulkStats::new);
+    }
+
+    public Collection<NodeBulkStats> bulkStats() {
+        ArrayList<NodeBulkStats> stats = new ArrayList<>(bulkStatsPerNode.values());
+        if (unknownNodeBulkStats.requests() > 0) {
+            stats.add(unknownNodeBulkStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Removes the bulk statistics of nodes which left the cluster.
+     * This checks all entries instead of only the removed nodes of the event, so that entries which were
+     * re-created by requests still in flight towards a removed node are dropped with the next cluster state.
+     */
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        DiscoveryNodes nodes = event.state().nodes();
+        bulkStatsPerNode.keySet().removeIf(nodeId -> !nodes.nodeExists(nodeId));
+    }
 }
@@ -63,6 +63,10 @@ public class BaseImplementationSymbolVisitor<C> extends SymbolVisitor<C, Input<?
             for (Symbol argument : function.arguments()) {
                 argumentInputs[i++] = argument.accept(this, context);
             }
+            Input<?> compiled = ExpressionCompiler.compile(scalarImpl.info(), argumentInputs);
+            if (compiled != null) {
+                return compiled;
+            }
             return new FunctionExpression<>(txnCtx, scalarImpl, argumentInputs);
         } else {
             throw new UnsupportedFeatureException(
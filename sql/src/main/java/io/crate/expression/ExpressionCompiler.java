@@ -0,0 +1,577 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression;
+
+import io.crate.data.Input;
+import io.crate.expression.operator.AndOperator;
+import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
+import io.crate.expression.operator.OrOperator;
+import io.crate.expression.predicate.NotPredicate;
+import io.crate.expression.scalar.arithmetic.ArithmeticFunctions;
+import io.crate.expression.symbol.Literal;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Compiles boolean operators, comparisons and arithmetic on numeric types into specialized {@link Input}s.
+ *
+ * <p>
+ * The generic {@link FunctionExpression} boxes every intermediate value and evaluates all arguments.
+ * The compiled inputs pass values between each other as primitives, with an explicit null flag,
+ * and `AND` / `OR` skip the evaluation of the second argument if the first one decides the result.
+ * Values are only boxed by the top-level input, or if a compiled input is used as an argument of a function
+ * which isn't compiled.
+ * </p>
+ *
+ * <p>
+ * The semantics of the compiled inputs are the same as those of the scalar implementations:
+ * <ul>
+ *     <li>three valued logic for AND, OR and NOT</li>
+ *     <li>comparisons behave like {@link Comparable#compareTo(Object)} of the boxed values, null if any value
+ *     is null</li>
+ *     <li>integer and long arithmetic fails with an IllegalArgumentException on overflow</li>
+ * </ul>
+ * </p>
+ */
+final class ExpressionCompiler {
+
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int NULL = 2;
+
+    private static final int EQ = 0;
+    private static final int GT = 1;
+    private static final int GTE = 2;
+    private static final int LT = 3;
+    private static final int LTE = 4;
+
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * @return a compiled input for the function or null if the function can't be compiled.
+     *         In that case it should be evaluated using a {@link FunctionExpression}
+     */
+    @Nullable
+    static Input<?> compile(FunctionInfo info, Input<?>[] args) {
+        FunctionIdent ident = info.ident();
+        if (ident.fqnName().schema() != null) {
+            // user defined function
+            return null;
+        }
+        List<DataType> argumentTypes = ident.argumentTypes();
+        switch (ident.name()) {
+            case AndOperator.NAME:
+                return new And(booleanNode(args[0]), booleanNode(args[1]));
+
+            case OrOperator.NAME:
+                return new Or(booleanNode(args[0]), booleanNode(args[1]));
+
+            case NotPredicate.NAME:
+                return new Not(booleanNode(args[0]));
+
+            case EqOperator.NAME:
+                return compileComparison(EQ, argumentTypes, args);
+
+            case GtOperator.NAME:
+                return compileComparison(GT, argumentTypes, args);
+
+            case GteOperator.NAME:
+                return compileComparison(GTE, argumentTypes, args);
+
+            case LtOperator.NAME:
+                return compileComparison(LT, argumentTypes, args);
+
+            case LteOperator.NAME:
+                return compileComparison(LTE, argumentTypes, args);
+
+            case ArithmeticFunctions.Names.ADD:
+                return compileArithmetic(ADD, info.returnType(), argumentTypes, args);
+
+            case ArithmeticFunctions.Names.SUBTRACT:
+                return compileArithmetic(SUBTRACT, info.returnType(), argumentTypes, args);
+
+            case ArithmeticFunctions.Names.MULTIPLY:
+                return compileArithmetic(MULTIPLY, info.returnType(), argumentTypes, args);
+
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static Input<?> compileComparison(int op, List<DataType> argumentTypes, Input<?>[] args) {
+        if (argumentTypes.size() != 2 || !argumentTypes.get(0).equals(argumentTypes.get(1))) {
+            return null;
+        }
+        switch (argumentTypes.get(0).id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return new LongComparison(op, longNode(args[0], null), longNode(args[1], null));
+
+            case FloatType.ID:
+            case DoubleType.ID:
+                return new DoubleComparison(op, doubleNode(args[0], null), doubleNode(args[1], null));
+
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private static Input<?> compileArithmetic(int op,
+                                              DataType<?> returnType,
+                                              List<DataType> argumentTypes,
+                                              Input<?>[] args) {
+        if (argumentTypes.size() != 2 || !argumentTypes.get(0).equals(argumentTypes.get(1))) {
+            return null;
+        }
+        switch (returnType.id()) {
+            case IntegerType.ID:
+                return new LongArithmetic(
+                    op, true, longNode(args[0], returnType), longNode(args[1], returnType));
+
+            case LongType.ID:
+                return new LongArithmetic(
+                    op, false, longNode(args[0], returnType), longNode(args[1], returnType));
+
+            case DoubleType.ID:
+                return new DoubleArithmetic(op, doubleNode(args[0], returnType), doubleNode(args[1], returnType));
+
+            default:
+                return null;
+        }
+    }
+
+    private static boolean matches(int op, int cmpResult) {
+        switch (op) {
+            case EQ:
+                return cmpResult == 0;
+            case GT:
+                return cmpResult > 0;
+            case GTE:
+                return cmpResult >= 0;
+            case LT:
+                return cmpResult < 0;
+            case LTE:
+                return cmpResult <= 0;
+            default:
+                throw new AssertionError("Unknown comparison: " + op);
+        }
+    }
+
+    private static BooleanNode booleanNode(Input<?> input) {
+        if (input instanceof BooleanNode) {
+            return (BooleanNode) input;
+        }
+        return new BooleanInput(input);
+    }
+
+    /**
+     * @param conversionType type used to convert the values of inputs which aren't compiled, if not null
+     */
+    private static LongNode longNode(Input<?> input, @Nullable DataType<?> conversionType) {
+        if (input instanceof LongNode) {
+            return (LongNode) input;
+        }
+        if (input instanceof Literal) {
+            Object value = conversionType == null ? input.value() : conversionType.value(input.value());
+            return new LongConstant((Number) value);
+        }
+        return new LongInput(input, conversionType);
+    }
+
+    /**
+     * @param conversionType type used to convert the values of inputs which aren't compiled, if not null
+     */
+    private static DoubleNode doubleNode(Input<?> input, @Nullable DataType<?> conversionType) {
+        if (input instanceof DoubleNode) {
+            return (DoubleNode) input;
+        }
+        if (input instanceof Literal) {
+            Object value = conversionType == null ? input.value() : conversionType.value(input.value());
+            return new DoubleConstant((Number) value);
+        }
+        return new DoubleInput(input, conversionType);
+    }
+
+    /**
+     * Input for boolean values which evaluates to {@link #TRUE}, {@link #FALSE} or {@link #NULL}.
+     */
+    private abstract static class BooleanNode implements Input<Boolean> {
+
+        abstract int evaluate();
+
+        @Override
+        public Boolean value() {
+            switch (evaluate()) {
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Input for integer or long values. {@link #evaluate()} returns false for null,
+     * otherwise the value is available in {@link #result}.
+     */
+    private abstract static class LongNode implements Input<Object> {
+
+        final boolean isInteger;
+        long result;
+
+        LongNode(boolean isInteger) {
+            this.isInteger = isInteger;
+        }
+
+        abstract boolean evaluate();
+
+        @Override
+        public Object value() {
+            if (evaluate()) {
+                return isInteger ? (Object) (int) result : (Object) result;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Input for double values. {@link #evaluate()} returns false for null,
+     * otherwise the value is available in {@link #result}.
+     */
+    private abstract static class DoubleNode implements Input<Double> {
+
+        double result;
+
+        abstract boolean evaluate();
+
+        @Override
+        public Double value() {
+            return evaluate() ? result : null;
+        }
+    }
+
+    private static final class BooleanInput extends BooleanNode {
+
+        private final Input<?> input;
+
+        BooleanInput(Input<?> input) {
+            this.input = input;
+        }
+
+        @Override
+        int evaluate() {
+            Boolean value = (Boolean) input.value();
+            if (value == null) {
+                return NULL;
+            }
+            return value ? TRUE : FALSE;
+        }
+    }
+
+    private static final class LongInput extends LongNode {
+
+        private final Input<?> input;
+        @Nullable
+        private final DataType<?> conversionType;
+
+        LongInput(Input<?> input, @Nullable DataType<?> conversionType) {
+            super(conversionType != null && conversionType.id() == IntegerType.ID);
+            this.input = input;
+            this.conversionType = conversionType;
+        }
+
+        @Override
+        boolean evaluate() {
+            Object value = conversionType == null ? input.value() : conversionType.value(input.value());
+            if (value == null) {
+                return false;
+            }
+            result = ((Number) value).longValue();
+            return true;
+        }
+    }
+
+    private static final class LongConstant extends LongNode {
+
+        private final boolean isNull;
+
+        LongConstant(@Nullable Number value) {
+            super(value instanceof Integer);
+            this.isNull = value == null;
+            this.result = isNull ? 0L : value.longValue();
+        }
+
+        @Override
+        boolean evaluate() {
+            return !isNull;
+        }
+    }
+
+    private static final class DoubleInput extends DoubleNode {
+
+        private final Input<?> input;
+        @Nullable
+        private final DataType<?> conversionType;
+
+        DoubleInput(Input<?> input, @Nullable DataType<?> conversionType) {
+            this.input = input;
+            this.conversionType = conversionType;
+        }
+
+        @Override
+        boolean evaluate() {
+            Object value = conversionType == null ? input.value() : conversionType.value(input.value());
+            if (value == null) {
+                return false;
+            }
+            result = ((Number) value).doubleValue();
+            return true;
+        }
+    }
+
+    private static final class DoubleConstant extends DoubleNode {
+
+        private final boolean isNull;
+
+        DoubleConstant(@Nullable Number value) {
+            this.isNull = value == null;
+            this.result = isNull ? 0.0 : value.doubleValue();
+        }
+
+        @Override
+        boolean evaluate() {
+            return !isNull;
+        }
+    }
+
+    private static final class And extends BooleanNode {
+
+        private final BooleanNode left;
+        private final BooleanNode right;
+
+        And(BooleanNode left, BooleanNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate() {
+            int leftResult = left.evaluate();
+            if (leftResult == FALSE) {
+                return FALSE;
+            }
+            int rightResult = right.evaluate();
+            if (rightResult == FALSE) {
+                return FALSE;
+            }
+            return leftResult == NULL || rightResult == NULL ? NULL : TRUE;
+        }
+    }
+
+    private static final class Or extends BooleanNode {
+
+        private final BooleanNode left;
+        private final BooleanNode right;
+
+        Or(BooleanNode left, BooleanNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate() {
+            int leftResult = left.evaluate();
+            if (leftResult == TRUE) {
+                return TRUE;
+            }
+            int rightResult = right.evaluate();
+            if (rightResult == TRUE) {
+                return TRUE;
+            }
+            return leftResult == NULL || rightResult == NULL ? NULL : FALSE;
+        }
+    }
+
+    private static final class Not extends BooleanNode {
+
+        private final BooleanNode arg;
+
+        Not(BooleanNode arg) {
+            this.arg = arg;
+        }
+
+        @Override
+        int evaluate() {
+            int result = arg.evaluate();
+            if (result == NULL) {
+                return NULL;
+            }
+            return result == TRUE ? FALSE : TRUE;
+        }
+    }
+
+    private static final class LongComparison extends BooleanNode {
+
+        private final int op;
+        private final LongNode left;
+        private final LongNode right;
+
+        LongComparison(int op, LongNode left, LongNode right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate() {
+            if (!left.evaluate() || !right.evaluate()) {
+                return NULL;
+            }
+            return matches(op, Long.compare(left.result, right.result)) ? TRUE : FALSE;
+        }
+    }
+
+    private static final class DoubleComparison extends BooleanNode {
+
+        private final int op;
+        private final DoubleNode left;
+        private final DoubleNode right;
+
+        DoubleComparison(int op, DoubleNode left, DoubleNode right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int evaluate() {
+            if (!left.evaluate() || !right.evaluate()) {
+                return NULL;
+            }
+            return matches(op, Double.compare(left.result, right.result)) ? TRUE : FALSE;
+        }
+    }
+
+    private static final class LongArithmetic extends LongNode {
+
+        private final int op;
+        private final LongNode left;
+        private final LongNode right;
+
+        LongArithmetic(int op, boolean isInteger, LongNode left, LongNode right) {
+            super(isInteger);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean evaluate() {
+            if (!left.evaluate() || !right.evaluate()) {
+                return false;
+            }
+            long a = left.result;
+            long b = right.result;
+            try {
+                switch (op) {
+                    case ADD:
+                        result = isInteger ? Math.addExact((int) a, (int) b) : Math.addExact(a, b);
+                        break;
+                    case SUBTRACT:
+                        result = isInteger ? Math.subtractExact((int) a, (int) b) : Math.subtractExact(a, b);
+                        break;
+                    case MULTIPLY:
+                        result = isInteger ? Math.multiplyExact((int) a, (int) b) : Math.multiplyExact(a, b);
+                        break;
+                    default:
+                        throw new AssertionError("Unknown arithmetic operation: " + op);
+                }
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    private static final class DoubleArithmetic extends DoubleNode {
+
+        private final int op;
+        private final DoubleNode left;
+        private final DoubleNode right;
+
+        DoubleArithmetic(int op, DoubleNode left, DoubleNode right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean evaluate() {
+            if (!left.evaluate() || !right.evaluate()) {
+                return false;
+            }
+            switch (op) {
+                case ADD:
+                    result = left.result + right.result;
+                    break;
+                case SUBTRACT:
+                    result = left.result - right.result;
+                    break;
+                case MULTIPLY:
+                    result = left.result * right.result;
+                    break;
+                default:
+                    throw new AssertionError("Unknown arithmetic operation: " + op);
+            }
+            return true;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Scalar;
 import io.crate.types.DataTypes;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -87,9 +88,42 @@ public class LikeOperator extends Operator<String> {
         private final FunctionInfo info;
         private final Pattern pattern;
 
+        /**
+         * Set if the pattern is case sensitive and has no wildcards except a trailing `%`,
+         * in which case a match is a simple prefix or equality check.
+         */
+        @Nullable
+        private final String literalPrefix;
+        private final boolean isPrefix;
+
         CompiledLike(FunctionInfo info, String pattern, int patternMatchingFlags) {
             this.info = info;
             this.pattern = LikeOperators.makePattern(pattern, patternMatchingFlags);
+            this.isPrefix = pattern.endsWith("%");
+            String literal = isPrefix ? pattern.substring(0, pattern.length() - 1) : pattern;
+            if ((patternMatchingFlags & Pattern.CASE_INSENSITIVE) == 0 && isLiteral(literal)) {
+                this.literalPrefix = literal;
+            } else {
+                this.literalPrefix = null;
+            }
+        }
+
+        private static boolean isLiteral(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                switch (c) {
+                    case '%':
+                    case '_':
+                    case LikeOperators.DEFAULT_ESCAPE:
+                    // not escaped by LikeOperators.patternToRegex
+                    case '?':
+                    case '{':
+                    case '}':
+                        return false;
+                    default:
+                }
+            }
+            return true;
         }
 
         @Override
@@ -104,6 +138,9 @@ public class LikeOperator extends Operator<String> {
             if (value == null) {
                 return null;
             }
+            if (literalPrefix != null) {
+                return isPrefix ? value.startsWith(literalPrefix) : value.equals(literalPrefix);
+            }
             return pattern.matcher(value).matches();
         }
     }
@@ -25,13 +25,17 @@ package io.crate.expression.reference;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.XContentFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Map;
 import java.util.function.Supplier;
 
 public final class Doc {
 
-    private final Map<String, Object> source;
+    @Nullable
+    private final Supplier<Map<String, Object>> sourceSupplier;
+    @Nullable
+    private Map<String, Object> source;
     private final Supplier<String> raw;
     private final int docId;
     private final String index;
@@ -48,16 +52,43 @@ public final class Doc {
                long primaryTerm,
                Map<String, Object> source,
                Supplier<String> raw) {
+        this(docId, index, id, version, seqNo, primaryTerm, (Supplier<Map<String, Object>>) null, raw);
+        this.source = source;
+    }
+
+    private Doc(int docId,
+                String index,
+                String id,
+                long version,
+                long seqNo,
+                long primaryTerm,
+                @Nullable Supplier<Map<String, Object>> sourceSupplier,
+                Supplier<String> raw) {
         this.docId = docId;
         this.index = index;
         this.id = id;
         this.version = version;
-        this.source = source;
+        this.sourceSupplier = sourceSupplier;
         this.raw = raw;
         this.seqNo = seqNo;
         this.primaryTerm = primaryTerm;
     }
 
+    /**
+     * Creates a Doc which parses the source only once it is accessed.
+     * Useful if only the raw source might be required, e.g. to patch it.
+     */
+    public static Doc withLazySource(int docId,
+                                     String index,
+                                     String id,
+                                     long version,
+                                     long seqNo,
+                                     long primaryTerm,
+                                     Supplier<Map<String, Object>> source,
+                                     Supplier<String> raw) {
+        return new Doc(docId, index, id, version, seqNo, primaryTerm, source, raw);
+    }
+
     public int docId() {
         return docId;
     }
@@ -82,7 +113,17 @@ public final class Doc {
         return raw.get();
     }
 
+    /**
+     * @return true if the document has a source. Unlike {@link #getSource()} this doesn't parse a lazy source.
+     */
+    public boolean hasSource() {
+        return source != null || sourceSupplier != null;
+    }
+
     public Map<String, Object> getSource() {
+        if (source == null && sourceSupplier != null) {
+            source = sourceSupplier.get();
+        }
         return source;
     }
 
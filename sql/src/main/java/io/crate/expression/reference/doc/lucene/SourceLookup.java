@@ -23,12 +23,14 @@
 package io.crate.expression.reference.doc.lucene;
 
 
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,14 +40,33 @@ import java.util.RandomAccess;
 public final class SourceLookup {
 
     private final SourceFieldVisitor fieldsVisitor = new SourceFieldVisitor();
+    private final SourceParser sourceParser = new SourceParser();
     private LeafReader reader;
     private int doc;
     private Map<String, Object> source;
+    private Map<String, Object> partialSource;
     private boolean docVisited = false;
+    @Nullable
+    private LeafReader storedFieldsSegment;
+    @Nullable
+    private StoredFieldsReader storedFieldsReader;
 
     SourceLookup() {
     }
 
+    /**
+     * Reads the source of documents of the given segment using the given stored fields reader instead of
+     * {@link LeafReader#document(int, org.apache.lucene.index.StoredFieldVisitor)}.
+     * This allows to use a reader which is optimized to read documents in order, see
+     * {@link StoredFieldsReader#getMergeInstance()}.
+     *
+     * @param storedFieldsReader a reader of the stored fields of the segment or null to use the segment reader
+     */
+    public void setStoredFieldsReader(LeafReader segment, @Nullable StoredFieldsReader storedFieldsReader) {
+        this.storedFieldsSegment = storedFieldsReader == null ? null : segment;
+        this.storedFieldsReader = storedFieldsReader;
+    }
+
     public void setSegmentAndDocument(LeafReaderContext context, int doc) {
         if (this.doc == doc && this.reader == context.reader()) {
             // Don't invalidate source
@@ -54,11 +75,29 @@ public final class SourceLookup {
         fieldsVisitor.reset();
         this.docVisited = false;
         this.source = null;
+        this.partialSource = null;
         this.reader = context.reader();
         this.doc = doc;
     }
 
+    /**
+     * Registers a path which will be looked up using {@link #get(List)}.
+     * As long as {@link #sourceAsMap()} isn't used, only the values of the registered paths are parsed from the source.
+     * An empty path registers the full source.
+     */
+    public void registerPath(List<String> path) {
+        sourceParser.register(path);
+        partialSource = null;
+    }
+
     public Object get(List<String> path) {
+        if (source == null && sourceParser.canParse(path)) {
+            if (partialSource == null) {
+                ensureDocVisited();
+                partialSource = sourceParser.parse(fieldsVisitor.source());
+            }
+            return extractValue(partialSource, path, 0);
+        }
         ensureSourceParsed();
         return extractValue(source, path, 0);
     }
@@ -89,7 +128,11 @@ public final class SourceLookup {
             return;
         }
         try {
-            reader.document(doc, fieldsVisitor);
+            if (storedFieldsReader != null && storedFieldsSegment == reader) {
+                storedFieldsReader.visitDocument(doc, fieldsVisitor);
+            } else {
+                reader.document(doc, fieldsVisitor);
+            }
             docVisited = true;
         } catch (IOException e) {
             throw new RuntimeException(e);
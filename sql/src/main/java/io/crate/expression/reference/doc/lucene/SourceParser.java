@@ -0,0 +1,190 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.reference.doc.lucene;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the values of registered paths out of the source of a document.
+ *
+ * <p>
+ * Instead of converting the whole source into a Map, the subtrees of the source which are not part of any
+ * registered path are skipped by the parser. The result is a Map which only contains the registered paths
+ * and can be used with {@link SourceLookup#extractValue(Map, List, int)}.
+ * </p>
+ *
+ * <pre>
+ * registered paths: [a, b.c]
+ * source:           {"a": [1, 2], "b": {"c": 1, "d": {...}}, "e": {...}}
+ * parsed:           {"a": [1, 2], "b": {"c": 1}}
+ * </pre>
+ */
+final class SourceParser {
+
+    /**
+     * Marks a column whose value is parsed completely
+     */
+    private static final Object ALL = new Object();
+
+    private final Map<String, Object> requiredColumns = new HashMap<>();
+    private boolean requiresFullSource = false;
+
+    /**
+     * Registers a path which must be included in the result of {@link #parse(BytesReference)}.
+     * An empty path requires the full source.
+     */
+    @SuppressWarnings("unchecked")
+    void register(List<String> path) {
+        if (path.isEmpty()) {
+            requiresFullSource = true;
+            return;
+        }
+        Map<String, Object> columns = requiredColumns;
+        for (int i = 0; i < path.size(); i++) {
+            String name = path.get(i);
+            if (i + 1 == path.size()) {
+                columns.put(name, ALL);
+                return;
+            }
+            Object child = columns.get(name);
+            if (child == ALL) {
+                return;
+            }
+            if (child == null) {
+                child = new HashMap<String, Object>();
+                columns.put(name, child);
+            }
+            columns = (Map<String, Object>) child;
+        }
+    }
+
+    /**
+     * @return true if the value of the path is fully included in the result of {@link #parse(BytesReference)}
+     *         and the full source isn't required anyway.
+     */
+    @SuppressWarnings("unchecked")
+    boolean canParse(List<String> path) {
+        if (requiresFullSource) {
+            return false;
+        }
+        Map<String, Object> columns = requiredColumns;
+        for (int i = 0; i < path.size(); i++) {
+            Object child = columns.get(path.get(i));
+            if (child == ALL) {
+                return true;
+            }
+            if (child == null) {
+                return false;
+            }
+            columns = (Map<String, Object>) child;
+        }
+        return false;
+    }
+
+    Map<String, Object> parse(BytesReference source) {
+        try (XContentParser parser = XContentHelper.createParser(
+            NamedXContentRegistry.EMPTY,
+            DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+            source,
+            XContentType.JSON)) {
+
+            XContentParser.Token token = parser.nextToken();
+            if (token != XContentParser.Token.START_OBJECT) {
+                return new HashMap<>();
+            }
+            return parseObject(parser, requiredColumns);
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("Failed to parse content to map", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parseObject(XContentParser parser,
+                                                   Map<String, Object> requiredColumns) throws IOException {
+        HashMap<String, Object> values = new HashMap<>();
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+            String name = parser.currentName();
+            token = parser.nextToken();
+            Object required = requiredColumns.get(name);
+            if (required == null) {
+                parser.skipChildren();
+            } else if (required == ALL) {
+                values.put(name, parseValue(parser, token));
+            } else {
+                values.put(name, parseRequiredChildren(parser, token, (Map<String, Object>) required));
+            }
+        }
+        assert token == XContentParser.Token.END_OBJECT : "Expected END_OBJECT but got " + token;
+        return values;
+    }
+
+    private static Object parseRequiredChildren(XContentParser parser,
+                                                XContentParser.Token token,
+                                                Map<String, Object> requiredColumns) throws IOException {
+        if (token == XContentParser.Token.START_OBJECT) {
+            return parseObject(parser, requiredColumns);
+        } else if (token == XContentParser.Token.START_ARRAY) {
+            ArrayList<Object> values = new ArrayList<>();
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                values.add(parseRequiredChildren(parser, token, requiredColumns));
+            }
+            return values;
+        }
+        return parseValue(parser, token);
+    }
+
+    /**
+     * Reads the value of the current token the same way as {@link XContentParser#map()} does.
+     */
+    private static Object parseValue(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case START_OBJECT:
+                return parser.map();
+            case START_ARRAY:
+                return parser.list();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            default:
+                return null;
+        }
+    }
+}
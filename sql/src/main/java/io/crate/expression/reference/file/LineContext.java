@@ -78,6 +78,15 @@ public class LineContext {
         this.parsedSource = null;
     }
 
+    /**
+     * Sets the raw source together with the already parsed source, e.g. if it has been parsed by another thread.
+     * If {@code parsedSource} is null the raw source is parsed on access.
+     */
+    public void rawSource(byte[] bytes, @Nullable Map<String, Object> parsedSource) {
+        this.rawSource = bytes;
+        this.parsedSource = parsedSource;
+    }
+
     /**
      * Sets the current URI to the context. This is expected to happen when starting to process a new URI.
      * Any existing URI processing failure must have been consumed already as it will be overwritten/reset.
@@ -25,6 +25,8 @@ package io.crate.memory;
 import io.crate.breaker.RamAccounting;
 import io.crate.settings.CrateSetting;
 import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.settings.ClusterSettings;
@@ -79,6 +81,32 @@ public final class MemoryManagerFactory implements Function<RamAccounting, Memor
         DataTypes.STRING
     );
 
+    /**
+     * Number of arenas of the pool used for off-heap slabs.
+     * Slabs are large and allocated rarely, so a few arenas are enough to avoid contention.
+     */
+    private static final int OFF_HEAP_POOL_ARENAS = 2;
+
+    /**
+     * Slabs used by {@link OffHeapMemoryManager} instances are pooled per node and re-used across queries.
+     *
+     * Slabs are accounted while a MemoryManager uses them, but the memory which the pool retains after the
+     * MemoryManager is closed is not visible to the circuit breakers. To bound it, the pool has only
+     * {@link #OFF_HEAP_POOL_ARENAS} arenas and no thread-local caches: Each arena keeps about one chunk of 16MB
+     * around for new slabs and frees the other chunks once they're unused.
+     */
+    private final ByteBufAllocator offHeapAllocator = new PooledByteBufAllocator(
+        true,
+        0,
+        OFF_HEAP_POOL_ARENAS,
+        PooledByteBufAllocator.defaultPageSize(),
+        PooledByteBufAllocator.defaultMaxOrder(),
+        0,
+        0,
+        0,
+        false
+    );
+
     private volatile MemoryType currentMemoryType = MemoryType.ON_HEAP;
 
     @Inject
@@ -97,7 +125,7 @@ public final class MemoryManagerFactory implements Function<RamAccounting, Memor
             case ON_HEAP:
                 return new OnHeapMemoryManager(ramAccounting::addBytes);
             case OFF_HEAP:
-                return new OffHeapMemoryManager();
+                return new OffHeapMemoryManager(offHeapAllocator, ramAccounting::addBytes);
             default:
                 throw new AssertionError("MemoryType is supposed to have only 2 cases");
         }
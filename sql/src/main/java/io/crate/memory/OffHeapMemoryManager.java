@@ -23,22 +23,65 @@
 package io.crate.memory;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 
 import java.util.ArrayList;
+import java.util.function.IntConsumer;
 
+/**
+ * A MemoryManager that allocates buffers off-heap, in slabs.
+ *
+ * Small buffers are slices of a slab of {@link #SLAB_SIZE} bytes. Buffers larger than a quarter of a slab get
+ * their own buffer. The slabs and large buffers are taken from a (pooled) allocator shared by the node, so that
+ * they can be re-used once the MemoryManager is closed.
+ *
+ * The size of every slab and large buffer is accounted via an injected `IntConsumer` when it is allocated.
+ * Like in {@link OnHeapMemoryManager}, the IntConsumer is responsible to de-account the bytes eventually.
+ *
+ * The buffers returned by {@link #allocate(int)} are zero-filled, have a fixed capacity and are all released on
+ * {@link #close()}.
+ */
 public final class OffHeapMemoryManager implements MemoryManager {
 
+    static final int SLAB_SIZE = 1024 * 1024;
+    private static final int MAX_SLICE_SIZE = SLAB_SIZE / 4;
+    private static final int ALIGNMENT = 8;
+
+    private final ByteBufAllocator allocator;
+    private final IntConsumer accountBytes;
     private final ArrayList<ByteBuf> allocatedBuffers = new ArrayList<>();
 
-    public OffHeapMemoryManager() {
+    private ByteBuf currentSlab;
+    private int slabOffset;
+
+    /**
+     * @param allocator used to allocate the slabs and large buffers
+     * @param accountBytes A consumer that will be called with the number of bytes of each slab or large buffer
+     *                     before it is allocated.
+     */
+    public OffHeapMemoryManager(ByteBufAllocator allocator, IntConsumer accountBytes) {
+        this.allocator = allocator;
+        this.accountBytes = accountBytes;
     }
 
     @Override
     public ByteBuf allocate(int capacity) {
-        ByteBuf byteBuf = Unpooled.directBuffer(capacity);
-        allocatedBuffers.add(byteBuf);
-        return byteBuf;
+        if (capacity > MAX_SLICE_SIZE) {
+            accountBytes.accept(capacity);
+            ByteBuf byteBuf = allocator.directBuffer(capacity, capacity);
+            allocatedBuffers.add(byteBuf);
+            return byteBuf.setZero(0, capacity);
+        }
+        int alignedCapacity = (capacity + ALIGNMENT - 1) & -ALIGNMENT;
+        if (currentSlab == null || slabOffset + alignedCapacity > SLAB_SIZE) {
+            accountBytes.accept(SLAB_SIZE);
+            currentSlab = allocator.directBuffer(SLAB_SIZE, SLAB_SIZE);
+            allocatedBuffers.add(currentSlab);
+            slabOffset = 0;
+        }
+        ByteBuf slice = currentSlab.slice(slabOffset, capacity).setZero(0, capacity).clear();
+        slabOffset += alignedCapacity;
+        return slice;
     }
 
     @Override
@@ -47,5 +90,6 @@ public final class OffHeapMemoryManager implements MemoryManager {
             buffer.release();
         }
         allocatedBuffers.clear();
+        currentSlab = null;
     }
 }
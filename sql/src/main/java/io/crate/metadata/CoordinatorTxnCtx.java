@@ -59,6 +59,14 @@ public final class CoordinatorTxnCtx implements TransactionContext {
         return currentTimeMillis;
     }
 
+    /**
+     * @return true if {@link #currentTimeMillis()} has been called, so that anything derived from this context
+     *         might depend on the point in time it was created at.
+     */
+    public boolean isBoundToCurrentTime() {
+        return currentTimeMillis != null;
+    }
+
     @Override
     public SessionSettings sessionSettings() {
         return new SessionSettings(sessionContext.user().name(),
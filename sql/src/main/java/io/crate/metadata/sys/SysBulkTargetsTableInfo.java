@@ -0,0 +1,91 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.metadata.sys;
+
+import io.crate.action.sql.SessionContext;
+import io.crate.analyze.WhereClause;
+import io.crate.execution.jobs.NodeBulkStats;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.RelationName;
+import io.crate.metadata.Routing;
+import io.crate.metadata.RoutingProvider;
+import io.crate.metadata.RowGranularity;
+import io.crate.metadata.expressions.RowCollectExpressionFactory;
+import io.crate.metadata.table.ColumnRegistrar;
+import io.crate.metadata.table.StaticTableInfo;
+import io.crate.types.ObjectType;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static io.crate.execution.engine.collect.NestableCollectExpression.forFunction;
+import static io.crate.types.DataTypes.DOUBLE;
+import static io.crate.types.DataTypes.LONG;
+import static io.crate.types.DataTypes.STRING;
+
+public class SysBulkTargetsTableInfo extends StaticTableInfo<NodeBulkStats> {
+
+    public static final RelationName NAME = new RelationName(SysSchemaInfo.NAME, "bulk_targets");
+
+    private static ColumnRegistrar<NodeBulkStats> columnRegistrar(Supplier<DiscoveryNode> localNode) {
+        return new ColumnRegistrar<NodeBulkStats>(NAME, RowGranularity.DOC)
+            .register("node", ObjectType.builder()
+                .setInnerType("id", STRING)
+                .setInnerType("name", STRING)
+                .build(), () -> forFunction(ignored -> Map.of(
+                    "id", localNode.get().getId(),
+                    "name", localNode.get().getName()
+                )
+            ))
+            .register("node", "id", STRING, () -> forFunction(ignored -> localNode.get().getId()))
+            .register("node", "name", STRING, () -> forFunction(ignored -> localNode.get().getName()))
+            .register("target_node_id", STRING, () -> forFunction(NodeBulkStats::nodeId))
+            .register("in_flight_requests", LONG, () -> forFunction(NodeBulkStats::inFlightRequests))
+            .register("in_flight_bytes", LONG, () -> forFunction(NodeBulkStats::inFlightBytes))
+            .register("requests", LONG, () -> forFunction(NodeBulkStats::requests))
+            .register("retries", LONG, () -> forFunction(NodeBulkStats::retries))
+            .register("failures", LONG, () -> forFunction(NodeBulkStats::failures))
+            .register("bulk_size_factor", DOUBLE, () -> forFunction(NodeBulkStats::bulkSizeFactor))
+            .register("latency_ms", DOUBLE, () -> forFunction(NodeBulkStats::latencyMillis));
+    }
+
+    SysBulkTargetsTableInfo(Supplier<DiscoveryNode> localNode) {
+        super(NAME, columnRegistrar(localNode));
+    }
+
+    static Map<ColumnIdent, RowCollectExpressionFactory<NodeBulkStats>> expressions(Supplier<DiscoveryNode> localNode) {
+        return columnRegistrar(localNode).expressions();
+    }
+
+    @Override
+    public Routing getRouting(ClusterState state, RoutingProvider routingProvider, WhereClause whereClause, RoutingProvider.ShardSelection shardSelection, SessionContext sessionContext) {
+        return Routing.forTableOnAllNodes(NAME, state.getNodes());
+    }
+
+    @Override
+    public RowGranularity rowGranularity() {
+        return RowGranularity.DOC;
+    }
+}
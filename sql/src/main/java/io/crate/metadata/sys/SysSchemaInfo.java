@@ -63,6 +63,8 @@ public class SysSchemaInfo implements SchemaInfo {
         tableInfos.put(SysHealth.IDENT.name(), SysHealth.create());
         tableInfos.put(SysMetricsTableInfo.NAME.name(), new SysMetricsTableInfo(localNode));
         tableInfos.put(SysSegmentsTableInfo.IDENT.name(), new SysSegmentsTableInfo(clusterService::localNode));
+        tableInfos.put(SysStatementCacheTableInfo.NAME.name(), new SysStatementCacheTableInfo(localNode));
+        tableInfos.put(SysBulkTargetsTableInfo.NAME.name(), new SysBulkTargetsTableInfo(localNode));
         tableInfos.put(SysMetricsTableInfo.NAME.name(), new SysMetricsTableInfo(clusterService::localNode));
     }
 
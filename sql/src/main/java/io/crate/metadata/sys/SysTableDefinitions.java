@@ -22,9 +22,11 @@
 
 package io.crate.metadata.sys;
 
+import io.crate.action.sql.StatementCache;
 import io.crate.analyze.user.Privilege;
 import io.crate.execution.engine.collect.files.SummitsIterable;
 import io.crate.execution.engine.collect.stats.JobsLogs;
+import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.expression.reference.StaticTableDefinition;
 import io.crate.expression.reference.sys.check.SysCheck;
 import io.crate.expression.reference.sys.check.SysChecker;
@@ -41,6 +43,7 @@ import org.elasticsearch.repositories.RepositoriesService;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -61,7 +64,9 @@ public class SysTableDefinitions {
                                SysSnapshots sysSnapshots,
                                SysAllocations sysAllocations,
                                ShardSegments shardSegmentInfos,
-                               TableHealthService tableHealthService) {
+                               TableHealthService tableHealthService,
+                               StatementCache statementCache,
+                               NodeJobsCounter nodeJobsCounter) {
         Supplier<DiscoveryNode> localNode = clusterService::localNode;
         SysClusterTableInfo sysClusterTableInfo = (SysClusterTableInfo) sysSchemaInfo.getTableInfo(SysClusterTableInfo.IDENT.name());
         assert sysClusterTableInfo != null : "sys.cluster table must exist in sys schema";
@@ -135,6 +140,14 @@ public class SysTableDefinitions {
             () -> completedFuture(shardSegmentInfos),
             SysSegmentsTableInfo.expressions(clusterService::localNode),
             true));
+        tableDefinitions.put(SysStatementCacheTableInfo.NAME, new StaticTableDefinition<>(
+            () -> completedFuture(List.of(statementCache)),
+            SysStatementCacheTableInfo.expressions(localNode),
+            false));
+        tableDefinitions.put(SysBulkTargetsTableInfo.NAME, new StaticTableDefinition<>(
+            () -> completedFuture(nodeJobsCounter.bulkStats()),
+            SysBulkTargetsTableInfo.expressions(localNode),
+            false));
     }
 
     public StaticTableDefinition<?> get(RelationName relationName) {
@@ -232,8 +232,11 @@ public final class PlanPrinter {
 
         @Override
         public ImmutableMap.Builder<String, Object> visitCollect(Collect plan, Void context) {
-            return createMap(plan, createSubMap()
-                .put("collectPhase", phaseMap(plan.collectPhase())));
+            ImmutableMap.Builder<String, Object> subMap = createSubMap();
+            if (plan.estimatedNumRows() >= 0) {
+                subMap.put("estimatedRows", plan.estimatedNumRows());
+            }
+            return createMap(plan, subMap.put("collectPhase", phaseMap(plan.collectPhase())));
         }
 
         @Override
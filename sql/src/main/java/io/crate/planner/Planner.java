@@ -532,5 +532,9 @@ public class Planner extends AnalyzedStatementVisitor<PlannerContext, Plan> {
     public Functions functions() {
         return functions;
     }
+
+    public TableStats tableStats() {
+        return tableStats;
+    }
 }
 
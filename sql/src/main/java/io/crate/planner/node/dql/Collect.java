@@ -50,6 +50,8 @@ public class Collect implements ExecutionPlan, ResultDescription {
 
     private final int maxRowsPerNode;
 
+    private final long estimatedNumRows;
+
     @Nullable
     private PositionalOrderBy orderBy;
 
@@ -68,18 +70,37 @@ public class Collect implements ExecutionPlan, ResultDescription {
                    int numOutputs,
                    int maxRowsPerNode,
                    @Nullable PositionalOrderBy orderBy) {
+        this(collectPhase, unfinishedLimit, unfinishedOffset, numOutputs, maxRowsPerNode, orderBy, -1L);
+    }
+
+    /**
+     * @param estimatedNumRows the number of rows the planner expects to be collected (before any projections)
+     *                         or -1 if unknown. Only used for informational purposes (EXPLAIN).
+     */
+    public Collect(CollectPhase collectPhase,
+                   int unfinishedLimit,
+                   int unfinishedOffset,
+                   int numOutputs,
+                   int maxRowsPerNode,
+                   @Nullable PositionalOrderBy orderBy,
+                   long estimatedNumRows) {
         this.collectPhase = collectPhase;
         this.unfinishedLimit = unfinishedLimit;
         this.unfinishedOffset = unfinishedOffset;
         this.numOutputs = numOutputs;
         this.maxRowsPerNode = maxRowsPerNode;
         this.orderBy = orderBy;
+        this.estimatedNumRows = estimatedNumRows;
     }
 
     public CollectPhase collectPhase() {
         return collectPhase;
     }
 
+    public long estimatedNumRows() {
+        return estimatedNumRows;
+    }
+
     @Override
     public <C, R> R accept(ExecutionPlanVisitor<C, R> visitor, C context) {
         return visitor.visitCollect(this, context);
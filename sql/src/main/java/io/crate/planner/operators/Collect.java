@@ -153,7 +153,8 @@ public class Collect implements LogicalPlan {
             0,
             outputs.size(),
             limitAndOffset,
-            positionalOrderBy
+            positionalOrderBy,
+            numExpectedRows
         );
     }
 
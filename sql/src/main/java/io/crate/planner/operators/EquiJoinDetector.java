@@ -25,10 +25,10 @@ package io.crate.planner.operators;
 import io.crate.expression.operator.AndOperator;
 import io.crate.expression.operator.EqOperator;
 import io.crate.expression.operator.OrOperator;
+import io.crate.expression.symbol.DefaultTraversalSymbolVisitor;
 import io.crate.expression.symbol.Function;
 import io.crate.expression.symbol.ScopedSymbol;
 import io.crate.expression.symbol.Symbol;
-import io.crate.expression.symbol.SymbolVisitor;
 import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
 import io.crate.planner.node.dql.join.JoinType;
@@ -41,85 +41,78 @@ import java.util.Set;
  * <p>
  * Using hash join is possible under following assumptions:
  * <ul>
- * <li>it's a {@link JoinType#INNER} join type</li>
- * <li>the join condition contains no {@link OrOperator}</li>
- * <li>the join condition contains at least one {@link EqOperator}</li>
- * <li>at least one argument of the {@link EqOperator} must NOT contain fields to multiple tables</li>
+ * <li>it's an {@link JoinType#INNER}, {@link JoinType#LEFT}, {@link JoinType#RIGHT} or {@link JoinType#FULL} join.
+ * {@link JoinType#CROSS}, {@link JoinType#SEMI} and {@link JoinType#ANTI} joins are always executed as nested loop</li>
+ * <li>at least one conjunct of the join condition is a hash key condition, see {@link #isHashKeyCondition(Symbol)}.
+ * A top-level {@link OrOperator} therefore prevents a hash join</li>
  * </ul>
+ * All other conjuncts, e.g. {@code t1.x > t2.y} or {@code t2.b = 1}, aren't used to build the hashes,
+ * they are evaluated as part of the join condition on the rows with matching hashes.
  */
 public class EquiJoinDetector {
 
-    private static final Visitor VISITOR = new Visitor();
+    private static final RelationsCollector RELATIONS_COLLECTOR = new RelationsCollector();
 
     public static boolean isHashJoinPossible(JoinType joinType, Symbol joinCondition) {
-        if (joinType != JoinType.INNER) {
-            return false;
+        switch (joinType) {
+            case INNER:
+            case LEFT:
+            case RIGHT:
+            case FULL:
+                return isEquiJoin(joinCondition);
+
+            default:
+                return false;
         }
-        return isEquiJoin(joinCondition);
     }
 
     private static boolean isEquiJoin(Symbol joinCondition) {
-        assert joinCondition != null : "join condition must not be null on inner joins";
-        Context context = new Context();
-        joinCondition.accept(VISITOR, context);
-        return context.isHashJoinPossible;
+        assert joinCondition != null : "join condition must not be null on non-cross joins";
+        for (Symbol conjunct : AndOperator.split(joinCondition)) {
+            if (isHashKeyCondition(conjunct)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private static class Context {
-        boolean isHashJoinPossible = false;
-        boolean insideEqOperator = false;
-        Set<RelationName> usedRelationsInsideEqOperatorArgument = new HashSet<>();
+    /**
+     * @return true if the symbol is an {@link EqOperator} of which each argument contains fields of exactly one
+     *         relation, and the two arguments refer to different relations. E.g. {@code t1.a = t2.a} or
+     *         {@code t1.x + t1.i = t2.b}, but not {@code t2.b = 1} or {@code t2.b = t2.c}.
+     */
+    static boolean isHashKeyCondition(Symbol conjunct) {
+        if (!(conjunct instanceof Function)) {
+            return false;
+        }
+        Function function = (Function) conjunct;
+        if (!function.info().ident().name().equals(EqOperator.NAME) || function.arguments().size() != 2) {
+            return false;
+        }
+        Set<RelationName> leftRelations = relations(function.arguments().get(0));
+        Set<RelationName> rightRelations = relations(function.arguments().get(1));
+        return leftRelations.size() == 1
+               && rightRelations.size() == 1
+               && !leftRelations.equals(rightRelations);
     }
 
-    private static class Visitor extends SymbolVisitor<Context, Void> {
+    private static Set<RelationName> relations(Symbol symbol) {
+        Set<RelationName> relations = new HashSet<>();
+        symbol.accept(RELATIONS_COLLECTOR, relations);
+        return relations;
+    }
 
-        @Override
-        public Void visitFunction(Function function, Context context) {
-            String functionName = function.info().ident().name();
-            switch (functionName) {
-                case AndOperator.NAME:
-                    for (Symbol arg : function.arguments()) {
-                        arg.accept(this, context);
-                    }
-                    break;
-                case EqOperator.NAME:
-                    context.isHashJoinPossible = true;
-                    context.insideEqOperator = true;
-                    for (Symbol arg : function.arguments()) {
-                        arg.accept(this, context);
-                        if (context.usedRelationsInsideEqOperatorArgument.size() != 1) {
-                            context.isHashJoinPossible = false;
-                        }
-                        context.usedRelationsInsideEqOperatorArgument = new HashSet<>();
-                    }
-                    break;
-                default:
-                    if (context.insideEqOperator) {
-                        for (Symbol arg : function.arguments()) {
-                            arg.accept(this, context);
-                        }
-                    } else {
-                        context.isHashJoinPossible = false;
-                        return null;
-                    }
-                    break;
-            }
-            return null;
-        }
+    private static class RelationsCollector extends DefaultTraversalSymbolVisitor<Set<RelationName>, Void> {
 
         @Override
-        public Void visitField(ScopedSymbol field, Context context) {
-            if (context.insideEqOperator) {
-                context.usedRelationsInsideEqOperatorArgument.add(field.relation());
-            }
+        public Void visitField(ScopedSymbol field, Set<RelationName> relations) {
+            relations.add(field.relation());
             return null;
         }
 
         @Override
-        public Void visitReference(Reference ref, Context context) {
-            if (context.insideEqOperator) {
-                context.usedRelationsInsideEqOperatorArgument.add(ref.ident().tableIdent());
-            }
+        public Void visitReference(Reference ref, Set<RelationName> relations) {
+            relations.add(ref.ident().tableIdent());
             return null;
         }
     }
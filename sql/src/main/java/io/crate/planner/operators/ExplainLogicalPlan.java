@@ -119,9 +119,13 @@ public class ExplainLogicalPlan {
 
         @Override
         public ImmutableMap.Builder<String, Object> visitCollect(Collect logicalPlan, Context context) {
-            return createMap(logicalPlan, createSubMap()
+            ImmutableMap.Builder<String, Object> subMap = createSubMap()
                 .put("toCollect", Lists2.joinOn(", ", logicalPlan.outputs(), Symbol::toString))
-                .put("where", logicalPlan.where.queryOrFallback().toString()));
+                .put("where", logicalPlan.where.queryOrFallback().toString());
+            if (logicalPlan.numExpectedRows() >= 0) {
+                subMap.put("estimatedRows", logicalPlan.numExpectedRows());
+            }
+            return createMap(logicalPlan, subMap);
         }
 
         @Override
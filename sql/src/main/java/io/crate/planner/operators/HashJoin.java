@@ -46,6 +46,7 @@ import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.join.Join;
 import io.crate.planner.node.dql.join.JoinType;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.collect.Tuple;
 
 import javax.annotation.Nullable;
@@ -61,32 +62,66 @@ import static io.crate.planner.operators.LogicalPlanner.NO_LIMIT;
 
 public class HashJoin implements LogicalPlan {
 
+    private final JoinType joinType;
     private final Symbol joinCondition;
     @VisibleForTesting
     final AnalyzedRelation concreteRelation;
     private final List<Symbol> outputs;
     final LogicalPlan rhs;
     final LogicalPlan lhs;
+    private final double joinSelectivity;
+    private final boolean rewriteFilterOnOuterJoinToInnerJoinDone;
 
+    /**
+     * @param joinSelectivity the estimated fraction of the cross product of lhs and rhs which matches the
+     *                        joinCondition, see {@link io.crate.planner.selectivity.SelectivityFunctions#estimateJoinSelectivity}
+     */
     public HashJoin(LogicalPlan lhs,
                     LogicalPlan rhs,
+                    JoinType joinType,
                     Symbol joinCondition,
-                    AnalyzedRelation concreteRelation) {
+                    AnalyzedRelation concreteRelation,
+                    double joinSelectivity) {
+        this(lhs, rhs, joinType, joinCondition, concreteRelation, joinSelectivity, false);
+    }
+
+    public HashJoin(LogicalPlan lhs,
+                    LogicalPlan rhs,
+                    JoinType joinType,
+                    Symbol joinCondition,
+                    AnalyzedRelation concreteRelation,
+                    double joinSelectivity,
+                    boolean rewriteFilterOnOuterJoinToInnerJoinDone) {
         this.outputs = Lists2.concat(lhs.outputs(), rhs.outputs());
         this.lhs = lhs;
         this.rhs = rhs;
+        this.joinType = joinType;
         this.concreteRelation = concreteRelation;
         this.joinCondition = joinCondition;
+        this.joinSelectivity = joinSelectivity;
+        this.rewriteFilterOnOuterJoinToInnerJoinDone = rewriteFilterOnOuterJoinToInnerJoinDone;
     }
 
     public JoinType joinType() {
-        return JoinType.INNER;
+        return joinType;
+    }
+
+    public AnalyzedRelation concreteRelation() {
+        return concreteRelation;
+    }
+
+    public boolean isRewriteFilterOnOuterJoinToInnerJoinDone() {
+        return rewriteFilterOnOuterJoinToInnerJoinDone;
     }
 
     public Symbol joinCondition() {
         return joinCondition;
     }
 
+    public double joinSelectivity() {
+        return joinSelectivity;
+    }
+
     public LogicalPlan lhs() {
         return lhs;
     }
@@ -121,14 +156,16 @@ public class HashJoin implements LogicalPlan {
 
         LogicalPlan leftLogicalPlan = lhs;
         LogicalPlan rightLogicalPlan = rhs;
+        JoinType joinType = this.joinType;
 
         boolean tablesSwitched = false;
-        // We move smaller table to the right side since benchmarking
-        // revealed that this improves performance in most cases.
-        if (lhs.numExpectedRows() < rhs.numExpectedRows()) {
+        // The left side is the build side which is kept in memory (or spilled to disk if it doesn't fit),
+        // so the smaller table is moved to the left side.
+        if (lhs.numExpectedRows() > rhs.numExpectedRows() && joinType.supportsInversion()) {
             tablesSwitched = true;
             leftLogicalPlan = rhs;
             rightLogicalPlan = lhs;
+            joinType = joinType.invert();
 
             ExecutionPlan tmp = leftExecutionPlan;
             leftExecutionPlan = rightExecutionPlan;
@@ -154,16 +191,21 @@ public class HashJoin implements LogicalPlan {
         boolean isDistributed = leftResultDesc.hasRemainingLimitOrOffset() == false
                                 && rightResultDesc.hasRemainingLimitOrOffset() == false;
 
+        // Nodes < 4.2.0 can only execute INNER hash joins, so any other join type must run on the handler node
+        boolean mustRunOnHandler = joinType != JoinType.INNER
+            && plannerContext.clusterState().getNodes().getMinNodeVersion().before(Version.V_4_2_0);
+
         if (joinExecutionNodes.size() == 1
             && joinExecutionNodes.equals(rightResultDesc.nodeIds())
-            && !rightResultDesc.hasRemainingLimitOrOffset()) {
+            && !rightResultDesc.hasRemainingLimitOrOffset()
+            && !mustRunOnHandler) {
             // If the left and the right plan are executed on the same single node the mergePhase
             // should be omitted. This is the case if the left and right table have only one shards which
             // are on the same node
             leftExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
             rightExecutionPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
         } else {
-            if (isDistributed) {
+            if (isDistributed && !mustRunOnHandler) {
                 // Run the join distributed by modulo distribution algorithm
                 leftOutputs = setModuloDistribution(hashSymbols.v1(), leftLogicalPlan.outputs(), leftExecutionPlan);
                 rightOutputs = setModuloDistribution(hashSymbols.v2(), rightLogicalPlan.outputs(), rightExecutionPlan);
@@ -189,10 +231,12 @@ public class HashJoin implements LogicalPlan {
             leftOutputs.size(),
             rightOutputs.size(),
             joinExecutionNodes,
+            joinType,
             InputColumns.create(joinCondition, joinOutputs),
             InputColumns.create(hashSymbols.v1(), new InputColumns.SourceSymbols(leftOutputs)),
             InputColumns.create(hashSymbols.v2(), new InputColumns.SourceSymbols(rightOutputs)),
             Symbols.typeView(leftOutputs),
+            Symbols.typeView(rightOutputs),
             leftLogicalPlan.estimatedRowSize(),
             leftLogicalPlan.numExpectedRows());
         return new Join(
@@ -227,8 +271,11 @@ public class HashJoin implements LogicalPlan {
         return new HashJoin(
             sources.get(0),
             sources.get(1),
+            joinType,
             joinCondition,
-            concreteRelation
+            concreteRelation,
+            joinSelectivity,
+            rewriteFilterOnOuterJoinToInnerJoinDone
         );
     }
 
@@ -251,8 +298,24 @@ public class HashJoin implements LogicalPlan {
 
     @Override
     public long numExpectedRows() {
-        // We don't have any cardinality estimates, so just take the bigger table
-        return Math.max(lhs.numExpectedRows(), rhs.numExpectedRows());
+        long lhsRows = lhs.numExpectedRows();
+        long rhsRows = rhs.numExpectedRows();
+        if (lhsRows < 0 || rhsRows < 0) {
+            // Without an estimate of both sides the join cardinality is unknown, so just take the bigger table
+            return Math.max(lhsRows, rhsRows);
+        }
+        long numRows = (long) (lhsRows * (double) rhsRows * joinSelectivity);
+        // Outer joins return each row of their outer side(s) at least once
+        switch (joinType) {
+            case LEFT:
+                return Math.max(numRows, lhsRows);
+            case RIGHT:
+                return Math.max(numRows, rhsRows);
+            case FULL:
+                return Math.max(numRows, Math.max(lhsRows, rhsRows));
+            default:
+                return numRows;
+        }
     }
 
     @Override
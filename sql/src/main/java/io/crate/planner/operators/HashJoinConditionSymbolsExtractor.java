@@ -56,8 +56,8 @@ import java.util.Map;
  * <p>
  * as t2.c is compared to the same symbol as t2.b and only EQ operators are processed.
  *
- * It is expected that each expression argument of a EQ operator only contains symbols of one relation.
- * This can be ensured by using the {@link EquiJoinDetector} upfront.
+ * Only EQ conditions whose arguments refer to exactly one, but different, relations are processed,
+ * see {@link EquiJoinDetector#isHashKeyCondition(Symbol)}.
  */
 public final class HashJoinConditionSymbolsExtractor {
 
@@ -88,6 +88,10 @@ public final class HashJoinConditionSymbolsExtractor {
                 case AndOperator.NAME:
                     return super.visitFunction(function, context);
                 case EqOperator.NAME:
+                    if (!EquiJoinDetector.isHashKeyCondition(function)) {
+                        // e.g. `t2.b = 1`, this is evaluated as part of the join condition only
+                        return null;
+                    }
                     context.insideEqOperator = true;
                     int duplicatePos = 0;
                     for (Symbol arg : function.arguments()) {
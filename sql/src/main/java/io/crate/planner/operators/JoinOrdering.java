@@ -26,11 +26,15 @@ import com.carrotsearch.hppc.ObjectIntHashMap;
 import com.google.common.annotations.VisibleForTesting;
 import io.crate.metadata.RelationName;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -39,6 +43,12 @@ import java.util.Set;
  */
 final class JoinOrdering {
 
+    /**
+     * Up to this number of relations all join orders are considered, beyond the order is built greedily.
+     */
+    @VisibleForTesting
+    static final int MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH = 10;
+
     private JoinOrdering() {
     }
 
@@ -86,6 +96,193 @@ final class JoinOrdering {
         return bestOrder;
     }
 
+    /**
+     * Returns the order of relations which results in a (left-deep) join tree with the lowest estimated cost.
+     * <p>
+     * The cost of a join tree is the sum of the estimated number of rows of all intermediate results,
+     * plus the number of rows of the smaller input of each join, which is the side being buffered (build side).
+     * The number of rows of a join of two relations is estimated as:
+     * <pre>
+     *     numRows(lhs) * numRows(rhs) * selectivity(joinCondition)
+     * </pre>
+     * Relations with join conditions are only cross joined if there is no other way to join them.
+     * <p>
+     * With up to {@link #MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH} relations, the best order is found using dynamic
+     * programming over all subsets of relations. Beyond that, the tree is built greedily by starting with the
+     * cheapest join pair and adding the relation resulting in the cheapest join with the already joined ones.
+     *
+     * @param relations               all relations, e.g. [t1, t2, t3]
+     * @param numRowsByRelation       the estimated number of rows of each relation
+     * @param selectivityByRelations  the estimated selectivity of the join condition between two relations
+     *                                e.g. {{t1, t2}: 0.01, {t2, t3}: 0.5}
+     */
+    static List<RelationName> orderByCost(List<RelationName> relations,
+                                          Map<RelationName, Long> numRowsByRelation,
+                                          Map<? extends Set<RelationName>, Double> selectivityByRelations) {
+        int numRelations = relations.size();
+        if (numRelations >= Integer.SIZE) {
+            // Sets of relations are represented as int bitmask
+            return relations;
+        }
+        double[] numRows = new double[numRelations];
+        double[][] selectivity = new double[numRelations][numRelations];
+        int[] connected = new int[numRelations];
+        for (int i = 0; i < numRelations; i++) {
+            numRows[i] = Math.max(1, numRowsByRelation.get(relations.get(i)));
+            Arrays.fill(selectivity[i], 1.0);
+        }
+        for (var entry : selectivityByRelations.entrySet()) {
+            Iterator<RelationName> it = entry.getKey().iterator();
+            int a = relations.indexOf(it.next());
+            int b = relations.indexOf(it.next());
+            selectivity[a][b] = entry.getValue();
+            selectivity[b][a] = entry.getValue();
+            connected[a] |= 1 << b;
+            connected[b] |= 1 << a;
+        }
+        int[] order;
+        if (numRelations <= MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH) {
+            order = bestOrder(numRows, selectivity, connected, false);
+            if (order == null) {
+                // The relations cannot be joined without cross joining relations which have join conditions
+                order = bestOrder(numRows, selectivity, connected, true);
+            }
+        } else {
+            order = greedyOrder(numRows, selectivity, connected);
+        }
+        ArrayList<RelationName> orderedRelations = new ArrayList<>(numRelations);
+        for (int idx : order) {
+            orderedRelations.add(relations.get(idx));
+        }
+        return orderedRelations;
+    }
+
+    /**
+     * Dynamic programming over all subsets (as bitmask) of the relations:
+     * <pre>
+     *     cost({r}) = 0
+     *     cost(S) = min(r in S) cost(S - r) + numRows(S) + min(numRows(S - r), numRows(r))
+     * </pre>
+     *
+     * @param allowCrossJoins if false, r and S - r must be connected by a join condition,
+     *                        unless r doesn't have any join condition at all.
+     * @return the order or null if there is none without cross joins and {@code allowCrossJoins} is false
+     */
+    @Nullable
+    private static int[] bestOrder(double[] numRows, double[][] selectivity, int[] connected, boolean allowCrossJoins) {
+        int numRelations = numRows.length;
+        int numSets = 1 << numRelations;
+        double[] numRowsOfSet = new double[numSets];
+        double[] costOfSet = new double[numSets];
+        int[] lastRelationOfSet = new int[numSets];
+        for (int set = 1; set < numSets; set++) {
+            int first = Integer.numberOfTrailingZeros(set);
+            int rest = set & ~(1 << first);
+            if (rest == 0) {
+                numRowsOfSet[set] = numRows[first];
+                costOfSet[set] = 0;
+                lastRelationOfSet[set] = first;
+                continue;
+            }
+            numRowsOfSet[set] = numRowsOfSet[rest] * numRows[first] * selectivityBetween(selectivity, first, rest);
+            costOfSet[set] = Double.POSITIVE_INFINITY;
+            // Iterate backwards, so that on equal costs the relations stay in their original order
+            for (int r = numRelations - 1; r >= 0; r--) {
+                int withoutR = set & ~(1 << r);
+                if ((set & (1 << r)) == 0) {
+                    continue;
+                }
+                boolean isCrossJoin = (connected[r] & withoutR) == 0;
+                if (isCrossJoin && allowCrossJoins == false && connected[r] != 0 && hasJoinConditions(withoutR, connected)) {
+                    continue;
+                }
+                double cost = costOfSet[withoutR]
+                              + numRowsOfSet[set]
+                              + Math.min(numRowsOfSet[withoutR], numRows[r]);
+                if (cost < costOfSet[set]) {
+                    costOfSet[set] = cost;
+                    lastRelationOfSet[set] = r;
+                }
+            }
+        }
+        if (costOfSet[numSets - 1] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        int[] order = new int[numRelations];
+        int set = numSets - 1;
+        for (int i = numRelations - 1; i >= 0; i--) {
+            order[i] = lastRelationOfSet[set];
+            set &= ~(1 << order[i]);
+        }
+        return order;
+    }
+
+    private static int[] greedyOrder(double[] numRows, double[][] selectivity, int[] connected) {
+        int numRelations = numRows.length;
+        int[] order = new int[numRelations];
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int a = 0; a < numRelations; a++) {
+            for (int b = a + 1; b < numRelations; b++) {
+                double cost = numRows[a] * numRows[b] * selectivity[a][b] + Math.min(numRows[a], numRows[b]);
+                boolean isCrossJoin = (connected[a] & (1 << b)) == 0;
+                if (isCrossJoin == false && cost < bestCost) {
+                    bestCost = cost;
+                    order[0] = a;
+                    order[1] = b;
+                }
+            }
+        }
+        if (bestCost == Double.POSITIVE_INFINITY) {
+            order[0] = 0;
+            order[1] = 1;
+        }
+        int set = (1 << order[0]) | (1 << order[1]);
+        double numRowsOfSet = numRows[order[0]] * numRows[order[1]] * selectivity[order[0]][order[1]];
+        for (int i = 2; i < numRelations; i++) {
+            int next = -1;
+            double nextNumRows = 0;
+            bestCost = Double.POSITIVE_INFINITY;
+            boolean nextIsConnected = false;
+            for (int r = 0; r < numRelations; r++) {
+                if ((set & (1 << r)) != 0) {
+                    continue;
+                }
+                boolean isConnected = (connected[r] & set) != 0;
+                double joinedNumRows = numRowsOfSet * numRows[r] * selectivityBetween(selectivity, r, set);
+                double cost = joinedNumRows + Math.min(numRowsOfSet, numRows[r]);
+                if ((isConnected && nextIsConnected == false) || (isConnected == nextIsConnected && cost < bestCost)) {
+                    next = r;
+                    nextNumRows = joinedNumRows;
+                    bestCost = cost;
+                    nextIsConnected = isConnected;
+                }
+            }
+            order[i] = next;
+            set |= 1 << next;
+            numRowsOfSet = nextNumRows;
+        }
+        return order;
+    }
+
+    private static boolean hasJoinConditions(int set, int[] connected) {
+        for (int r = 0; r < connected.length; r++) {
+            if ((set & (1 << r)) != 0 && connected[r] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double selectivityBetween(double[][] selectivity, int relation, int set) {
+        double result = 1.0;
+        for (int other = 0; other < selectivity.length; other++) {
+            if ((set & (1 << other)) != 0) {
+                result *= selectivity[relation][other];
+            }
+        }
+        return result;
+    }
+
     private static ObjectIntHashMap<RelationName> getOccurrencesInJoinConditions(
         int numberOfRelations,
         Set<? extends Set<RelationName>> explicitJoinedRelations,
@@ -30,12 +30,16 @@ import io.crate.execution.engine.join.JoinOperations;
 import io.crate.expression.operator.AndOperator;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.RelationName;
+import io.crate.planner.consumer.RelationNameCollector;
 import io.crate.planner.node.dql.join.JoinType;
+import io.crate.planner.selectivity.SelectivityFunctions;
+import io.crate.statistics.TableStats;
 import org.elasticsearch.common.util.set.Sets;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -56,6 +60,10 @@ import static io.crate.planner.operators.EquiJoinDetector.isHashJoinPossible;
  * We currently support the {@link NestedLoopJoin} and {@link HashJoin} operators (the hash join operator is
  * enabled by the {@link io.crate.metadata.settings.session.SessionSettingRegistry#HASH_JOIN_KEY} setting and its
  * application is mandated by {@link EquiJoinDetector}).
+ * <p>
+ * The order in which the relations are joined is chosen by {@link JoinOrdering#orderByCost} based on the
+ * {@link TableStats} if all joins are inner joins and the number of rows of all relations can be estimated.
+ * Otherwise the relations are ordered by their join conditions.
  */
 public class JoinPlanBuilder {
 
@@ -63,7 +71,8 @@ public class JoinPlanBuilder {
                                      Symbol whereClause,
                                      List<JoinPair> joinPairs,
                                      Function<AnalyzedRelation, LogicalPlan> plan,
-                                     boolean hashJoinEnabled) {
+                                     boolean hashJoinEnabled,
+                                     TableStats tableStats) {
         if (from.size() == 1) {
             return Filter.create(plan.apply(from.get(0)), whereClause);
         }
@@ -72,10 +81,17 @@ public class JoinPlanBuilder {
             JoinOperations.buildRelationsToJoinPairsMap(
                 JoinOperations.convertImplicitJoinConditionsToJoinPairs(joinPairs, queryParts));
 
-        Collection<RelationName> orderedRelationNames = JoinOrdering.getOrderedRelationNames(
+        // The plans of all relations are needed upfront as their estimated number of rows is used for the ordering
+        Map<RelationName, LogicalPlan> plans = new HashMap<>();
+        for (AnalyzedRelation relation : from) {
+            plans.put(relation.relationName(), plan.apply(relation));
+        }
+        Collection<RelationName> orderedRelationNames = getOrderedRelationNames(
             Lists2.map(from, AnalyzedRelation::relationName),
-            joinPairsByRelations.keySet(),
-            queryParts.keySet()
+            plans,
+            joinPairsByRelations,
+            queryParts,
+            tableStats
         );
 
         Iterator<RelationName> it = orderedRelationNames.iterator();
@@ -101,8 +117,8 @@ public class JoinPlanBuilder {
             .collect(Collectors.toMap(AnalyzedRelation::relationName, rel -> rel));
         AnalyzedRelation lhs = sources.get(lhsName);
         AnalyzedRelation rhs = sources.get(rhsName);
-        LogicalPlan lhsPlan = plan.apply(lhs);
-        LogicalPlan rhsPlan = plan.apply(rhs);
+        LogicalPlan lhsPlan = plans.get(lhsName);
+        LogicalPlan rhsPlan = plans.get(rhsName);
         Symbol query = removeParts(queryParts, lhsName, rhsName);
         LogicalPlan joinPlan = createJoinPlan(
             lhsPlan,
@@ -112,21 +128,23 @@ public class JoinPlanBuilder {
             lhs,
             rhs,
             query,
-            hashJoinEnabled
+            hashJoinEnabled,
+            tableStats
         );
 
         joinPlan = Filter.create(joinPlan, query);
         while (it.hasNext()) {
             AnalyzedRelation nextRel = sources.get(it.next());
             joinPlan = joinWithNext(
-                plan,
+                plans,
                 joinPlan,
                 nextRel,
                 joinNames,
                 joinPairsByRelations,
                 queryParts,
                 lhs,
-                hashJoinEnabled
+                hashJoinEnabled,
+                tableStats
             );
             joinNames.add(nextRel.relationName());
         }
@@ -139,6 +157,59 @@ public class JoinPlanBuilder {
         return joinPlan;
     }
 
+    private static Collection<RelationName> getOrderedRelationNames(List<RelationName> relationNames,
+                                                                    Map<RelationName, LogicalPlan> plans,
+                                                                    Map<Set<RelationName>, JoinPair> joinPairsByRelations,
+                                                                    Map<Set<RelationName>, Symbol> queryParts,
+                                                                    TableStats tableStats) {
+        if (relationNames.size() > 2 && canReorderByCost(joinPairsByRelations)) {
+            Map<RelationName, Long> numRowsByRelation = new HashMap<>();
+            for (RelationName relationName : relationNames) {
+                long numRows = plans.get(relationName).numExpectedRows();
+                if (numRows < 0) {
+                    numRowsByRelation = null;
+                    break;
+                }
+                // Filters on a single relation are pushed down beneath the join later on
+                Symbol query = queryParts.get(Set.of(relationName));
+                if (query != null) {
+                    numRows = (long) (numRows * SelectivityFunctions.estimateSelectivity(
+                        tableStats.getStats(relationName), query, null));
+                }
+                numRowsByRelation.put(relationName, numRows);
+            }
+            if (numRowsByRelation != null) {
+                Map<Set<RelationName>, Double> selectivityByRelations = new HashMap<>();
+                for (var entry : joinPairsByRelations.entrySet()) {
+                    selectivityByRelations.put(
+                        entry.getKey(),
+                        SelectivityFunctions.estimateJoinSelectivity(tableStats, entry.getValue().condition()));
+                }
+                return JoinOrdering.orderByCost(relationNames, numRowsByRelation, selectivityByRelations);
+            }
+        }
+        return JoinOrdering.getOrderedRelationNames(
+            relationNames,
+            joinPairsByRelations.keySet(),
+            queryParts.keySet()
+        );
+    }
+
+    /**
+     * Relations can be re-ordered freely if all joins are inner joins and the join conditions only refer to the
+     * relations of their join pair.
+     */
+    private static boolean canReorderByCost(Map<Set<RelationName>, JoinPair> joinPairsByRelations) {
+        for (var entry : joinPairsByRelations.entrySet()) {
+            JoinPair joinPair = entry.getValue();
+            if (joinPair.joinType() != JoinType.INNER
+                || entry.getKey().containsAll(RelationNameCollector.collect(joinPair.condition())) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static LogicalPlan createJoinPlan(LogicalPlan lhsPlan,
                                               LogicalPlan rhsPlan,
                                               JoinType joinType,
@@ -146,13 +217,16 @@ public class JoinPlanBuilder {
                                               AnalyzedRelation lhs,
                                               AnalyzedRelation rhs,
                                               Symbol query,
-                                              boolean hashJoinEnabled) {
+                                              boolean hashJoinEnabled,
+                                              TableStats tableStats) {
         if (hashJoinEnabled && isHashJoinPossible(joinType, joinCondition)) {
             return new HashJoin(
                 lhsPlan,
                 rhsPlan,
+                joinType,
                 joinCondition,
-                rhs);
+                rhs,
+                SelectivityFunctions.estimateJoinSelectivity(tableStats, joinCondition));
         } else {
             return new NestedLoopJoin(
                 lhsPlan,
@@ -175,14 +249,15 @@ public class JoinPlanBuilder {
         return pair.joinType().invert();
     }
 
-    private static LogicalPlan joinWithNext(Function<AnalyzedRelation, LogicalPlan> plan,
+    private static LogicalPlan joinWithNext(Map<RelationName, LogicalPlan> plans,
                                             LogicalPlan source,
                                             AnalyzedRelation nextRel,
                                             Set<RelationName> joinNames,
                                             Map<Set<RelationName>, JoinPair> joinPairs,
                                             Map<Set<RelationName>, Symbol> queryParts,
                                             AnalyzedRelation leftRelation,
-                                            boolean hashJoinEnabled) {
+                                            boolean hashJoinEnabled,
+                                            TableStats tableStats) {
         RelationName nextName = nextRel.relationName();
 
         JoinPair joinPair = removeMatch(joinPairs, joinNames, nextName);
@@ -196,7 +271,7 @@ public class JoinPlanBuilder {
             condition = joinPair.condition();
         }
 
-        LogicalPlan nextPlan = plan.apply(nextRel);
+        LogicalPlan nextPlan = plans.get(nextName);
         Symbol query = AndOperator.join(
             Stream.of(
                 removeMatch(queryParts, joinNames, nextName),
@@ -212,7 +287,8 @@ public class JoinPlanBuilder {
                 leftRelation,
                 nextRel,
                 query,
-                hashJoinEnabled),
+                hashJoinEnabled,
+                tableStats),
             query
         );
     }
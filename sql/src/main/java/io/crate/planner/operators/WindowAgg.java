@@ -39,7 +39,9 @@ import io.crate.expression.symbol.WindowFunctionContext;
 import io.crate.planner.ExecutionPlan;
 import io.crate.planner.Merge;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.PositionalOrderBy;
 import io.crate.planner.ResultDescription;
+import io.crate.planner.consumer.OrderByPositionVisitor;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.distribution.DistributionType;
 
@@ -139,24 +141,32 @@ public class WindowAgg extends ForwardingLogicalPlan {
                 inputs,
                 filterInput));
         }
-        List<Projection> projections = new ArrayList<>();
-        WindowAggProjection windowAggProjection = new WindowAggProjection(
-            windowDefinition.map(binder.andThen(s -> InputColumns.create(s, sourceSymbols))),
-            windowFunctionContexts,
-            InputColumns.create(this.standalone, sourceSymbols)
-        );
-        projections.add(windowAggProjection);
+        // If the source can provide the rows sorted by the partitions and order by symbols,
+        // the window functions can be computed one partition at a time without buffering all rows.
+        // Without PARTITION BY and ORDER BY there is nothing to sort by, so the source plan stays unchanged.
+        OrderBy partitionThenOrderBy = requiresSortedSource(windowDefinition)
+            ? createOrderByInclPartitionBy(windowDefinition)
+            : null;
         ExecutionPlan sourcePlan = source.build(
             plannerContext,
             projectionBuilder,
             TopN.NO_LIMIT,
             TopN.NO_OFFSET,
-            null,
+            partitionThenOrderBy,
             pageSizeHint,
             params,
             subQueryResults
         );
         ResultDescription resultDescription = sourcePlan.resultDescription();
+        boolean sourceIsSorted = isSortedBy(resultDescription.orderBy(), partitionThenOrderBy, source.outputs());
+        List<Projection> projections = new ArrayList<>();
+        WindowAggProjection windowAggProjection = new WindowAggProjection(
+            windowDefinition.map(binder.andThen(s -> InputColumns.create(s, sourceSymbols))),
+            windowFunctionContexts,
+            InputColumns.create(this.standalone, sourceSymbols),
+            sourceIsSorted
+        );
+        projections.add(windowAggProjection);
         boolean executesOnHandler = executesOnHandler(plannerContext.handlerNode(), resultDescription.nodeIds());
         boolean nonDistExecution = windowDefinition.partitions().isEmpty()
                                    || resultDescription.hasRemainingLimitOrOffset()
@@ -181,7 +191,7 @@ public class WindowAgg extends ForwardingLogicalPlan {
                 resultDescription.streamOutputs(),
                 projections,
                 DistributionInfo.DEFAULT_BROADCAST,
-                null
+                sourceIsSorted ? resultDescription.orderBy() : null
             );
             return new Merge(
                 sourcePlan,
@@ -196,6 +206,24 @@ public class WindowAgg extends ForwardingLogicalPlan {
         return sourcePlan;
     }
 
+    private static boolean requiresSortedSource(WindowDefinition windowDefinition) {
+        return !windowDefinition.partitions().isEmpty() || windowDefinition.orderBy() != null;
+    }
+
+    private static boolean isSortedBy(@Nullable PositionalOrderBy actualOrder,
+                                      @Nullable OrderBy expectedOrder,
+                                      List<Symbol> sourceOutputs) {
+        if (actualOrder == null || expectedOrder == null) {
+            return false;
+        }
+        int[] positions = OrderByPositionVisitor.orderByPositionsOrNull(expectedOrder.orderBySymbols(), sourceOutputs);
+        if (positions == null) {
+            return false;
+        }
+        return actualOrder.equals(
+            new PositionalOrderBy(positions, expectedOrder.reverseFlags(), expectedOrder.nullsFirst()));
+    }
+
     @Nullable
     static OrderBy createOrderByInclPartitionBy(WindowDefinition windowDefinition) {
         var orderBy = windowDefinition.orderBy();
@@ -35,6 +35,7 @@ import io.crate.metadata.RelationName;
 import io.crate.metadata.TransactionContext;
 import io.crate.planner.node.dql.join.JoinType;
 import io.crate.planner.operators.Filter;
+import io.crate.planner.operators.HashJoin;
 import io.crate.planner.operators.LogicalPlan;
 import io.crate.planner.operators.NestedLoopJoin;
 import io.crate.planner.optimizer.Rule;
@@ -98,19 +99,21 @@ import static io.crate.planner.optimizer.rule.FilterOnJoinsUtil.getNewSource;
  * WHERE
  *      t2.x = 10           # null = 10 -> null -> no match
  * </pre>
+ *
+ * The same applies to a {@link HashJoin} instead of a NestedLoop.
  */
 public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
 
-    private final Capture<NestedLoopJoin> nlCapture;
+    private final Capture<LogicalPlan> joinCapture;
     private final Pattern<Filter> pattern;
     private final EvaluatingNormalizer normalizer;
 
     public RewriteFilterOnOuterJoinToInnerJoin(Functions functions) {
         this.normalizer = EvaluatingNormalizer.functionOnlyNormalizer(functions);
-        this.nlCapture = new Capture<>();
+        this.joinCapture = new Capture<>();
         this.pattern = typeOf(Filter.class)
-                .with(source(), typeOf(NestedLoopJoin.class).capturedAs(nlCapture)
-                    .with(nl -> nl.joinType().isOuter() && !nl.isRewriteFilterOnOuterJoinToInnerJoinDone())
+                .with(source(), typeOf(LogicalPlan.class).capturedAs(joinCapture)
+                    .with(RewriteFilterOnOuterJoinToInnerJoin::isOuterJoinToRewrite)
                 );
     }
 
@@ -124,14 +127,15 @@ public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
                              Captures captures,
                              TableStats tableStats,
                              TransactionContext txnCtx) {
-        NestedLoopJoin nl = captures.get(nlCapture);
+        LogicalPlan join = captures.get(joinCapture);
+        JoinType joinType = joinType(join);
         Symbol query = filter.query();
         Map<Set<RelationName>, Symbol> splitQueries = QuerySplitter.split(query);
         if (splitQueries.size() == 1 && splitQueries.keySet().iterator().next().size() > 1) {
             return null;
         }
-        LogicalPlan lhs = nl.sources().get(0);
-        LogicalPlan rhs = nl.sources().get(1);
+        LogicalPlan lhs = join.sources().get(0);
+        LogicalPlan rhs = join.sources().get(1);
         Set<RelationName> leftName = lhs.getRelationNames();
         Set<RelationName> rightName = rhs.getRelationNames();
 
@@ -141,7 +145,7 @@ public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
         final LogicalPlan newLhs;
         final LogicalPlan newRhs;
         final boolean newJoinIsInnerJoin;
-        switch (nl.joinType()) {
+        switch (joinType) {
             case LEFT:
                 /* LEFT OUTER JOIN -> NULL rows are generated for the RHS if the join-condition doesn't match
                  *
@@ -245,23 +249,62 @@ public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
                 break;
             default:
                 throw new UnsupportedOperationException(
-                    "The Rule to rewrite filter+outer-joins to inner joins must not be run on joins of type=" + nl.joinType());
+                    "The Rule to rewrite filter+outer-joins to inner joins must not be run on joins of type=" + joinType);
         }
         if (newLhs == lhs && newRhs == rhs) {
             return null;
         }
-        NestedLoopJoin newJoin = new NestedLoopJoin(
+        LogicalPlan newJoin = createRewrittenJoin(join, newLhs, newRhs, newJoinIsInnerJoin ? JoinType.INNER : joinType);
+        assert newJoin.outputs().equals(join.outputs()) : "Outputs after rewrite must be the same as before";
+        return splitQueries.isEmpty() ? newJoin : new Filter(newJoin, AndOperator.join(splitQueries.values()));
+    }
+
+    private static boolean isOuterJoinToRewrite(LogicalPlan plan) {
+        if (plan instanceof NestedLoopJoin) {
+            NestedLoopJoin nl = (NestedLoopJoin) plan;
+            return nl.joinType().isOuter() && !nl.isRewriteFilterOnOuterJoinToInnerJoinDone();
+        }
+        if (plan instanceof HashJoin) {
+            HashJoin hashJoin = (HashJoin) plan;
+            return hashJoin.joinType().isOuter() && !hashJoin.isRewriteFilterOnOuterJoinToInnerJoinDone();
+        }
+        return false;
+    }
+
+    private static JoinType joinType(LogicalPlan join) {
+        if (join instanceof NestedLoopJoin) {
+            return ((NestedLoopJoin) join).joinType();
+        }
+        return ((HashJoin) join).joinType();
+    }
+
+    private static LogicalPlan createRewrittenJoin(LogicalPlan join,
+                                                   LogicalPlan newLhs,
+                                                   LogicalPlan newRhs,
+                                                   JoinType newJoinType) {
+        if (join instanceof NestedLoopJoin) {
+            NestedLoopJoin nl = (NestedLoopJoin) join;
+            return new NestedLoopJoin(
+                newLhs,
+                newRhs,
+                newJoinType,
+                nl.joinCondition(),
+                nl.isFiltered(),
+                nl.topMostLeftRelation(),
+                nl.orderByWasPushedDown(),
+                true
+            );
+        }
+        HashJoin hashJoin = (HashJoin) join;
+        return new HashJoin(
             newLhs,
             newRhs,
-            newJoinIsInnerJoin ? JoinType.INNER : nl.joinType(),
-            nl.joinCondition(),
-            nl.isFiltered(),
-            nl.topMostLeftRelation(),
-            nl.orderByWasPushedDown(),
+            newJoinType,
+            hashJoin.joinCondition(),
+            hashJoin.concreteRelation(),
+            hashJoin.joinSelectivity(),
             true
         );
-        assert newJoin.outputs().equals(nl.outputs()) : "Outputs after rewrite must be the same as before";
-        return splitQueries.isEmpty() ? newJoin : new Filter(newJoin, AndOperator.join(splitQueries.values()));
     }
 
     private boolean couldMatchOnNull(@Nullable Symbol query) {
@@ -25,7 +25,12 @@ package io.crate.planner.selectivity;
 import io.crate.data.Row;
 import io.crate.expression.operator.AndOperator;
 import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
 import io.crate.expression.operator.OrOperator;
+import io.crate.expression.operator.any.AnyOperators;
 import io.crate.expression.predicate.IsNullPredicate;
 import io.crate.expression.predicate.NotPredicate;
 import io.crate.expression.symbol.Function;
@@ -36,12 +41,18 @@ import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.SymbolVisitor;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.Reference;
+import io.crate.metadata.RelationName;
+import io.crate.planner.consumer.RelationNameCollector;
 import io.crate.statistics.ColumnStats;
 import io.crate.statistics.Stats;
+import io.crate.statistics.MostCommonValues;
+import io.crate.statistics.TableStats;
+import io.crate.types.DataType;
 
 import javax.annotation.Nullable;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Used to estimate the number of rows returned after applying a given query.
@@ -58,9 +69,45 @@ public class SelectivityFunctions {
      */
     private static final double MAGIC_SEL = 0.333;
 
+    /**
+     * Marker for values which are not known at planning time, e.g. `x = ?` without parameters
+     */
+    private static final Object UNKNOWN_VALUE = new Object();
+
     public static long estimateNumRows(Stats stats, Symbol query, @Nullable Row params) {
+        if (stats.numDocs() == -1) {
+            // No statistics available, the number of rows is unknown
+            return -1;
+        }
+        return (long) (stats.numDocs() * estimateSelectivity(stats, query, params));
+    }
+
+    /**
+     * Estimates the fraction of rows of a relation which match the query
+     */
+    public static double estimateSelectivity(Stats stats, Symbol query, @Nullable Row params) {
         var estimator = new SelectivityEstimator(stats, params);
-        return (long) (stats.numDocs() * query.accept(estimator, null));
+        return query.accept(estimator, null);
+    }
+
+    /**
+     * Estimates the fraction of rows of the cross product of the joined relations which match the join condition.
+     */
+    public static double estimateJoinSelectivity(TableStats tableStats, Symbol joinCondition) {
+        double selectivity = 1.0;
+        for (Symbol part : AndOperator.split(joinCondition)) {
+            Set<RelationName> relations = RelationNameCollector.collect(part);
+            if (relations.size() == 1) {
+                var estimator = new SelectivityEstimator(tableStats.getStats(relations.iterator().next()), null);
+                selectivity *= part.accept(estimator, null);
+            } else if (part instanceof Function && ((Function) part).info().ident().name().equals(EqOperator.NAME)) {
+                List<Symbol> arguments = ((Function) part).arguments();
+                selectivity *= eqJoinSelectivity(arguments.get(0), arguments.get(1), tableStats);
+            } else {
+                selectivity *= MAGIC_SEL;
+            }
+        }
+        return selectivity;
     }
 
     static class SelectivityEstimator extends SymbolVisitor<Void, Double> {
@@ -123,7 +170,19 @@ public class SelectivityFunctions {
                     return isNullSelectivity(arguments.get(0), stats);
                 }
 
+                case GtOperator.NAME:
+                case GteOperator.NAME:
+                case LtOperator.NAME:
+                case LteOperator.NAME: {
+                    List<Symbol> arguments = function.arguments();
+                    return rangeSelectivity(function.info().ident().name(), arguments.get(0), arguments.get(1), stats, params);
+                }
+
                 default:
+                    if (function.info().ident().name().equals(AnyOperators.Names.EQ)) {
+                        List<Symbol> arguments = function.arguments();
+                        return anyEqSelectivity(arguments.get(0), arguments.get(1), stats, params);
+                    }
                     return MAGIC_SEL;
             }
         }
@@ -151,28 +210,251 @@ public class SelectivityFunctions {
         if (columnStats == null) {
             return DEFAULT_EQ_SEL;
         }
-        if (rightArg instanceof ParameterSymbol && params != null) {
-            var value = params.get(((ParameterSymbol) rightArg).index());
-            return eqSelectivityFromValueAndStats(value, columnStats);
+        Object value = getValue(rightArg, params);
+        if (value == UNKNOWN_VALUE) {
+            return 1.0 / columnStats.approxDistinct();
+        }
+        return eqSelectivityFromValueAndStats(value, columnStats);
+    }
+
+    /**
+     * Estimates the selectivity of `x = ANY([v1, v2, ...])` as the sum of the selectivity of `x = v1`, `x = v2`, ...
+     */
+    private static double anyEqSelectivity(Symbol leftArg, Symbol rightArg, Stats stats, @Nullable Row params) {
+        ColumnIdent column = getColumn(leftArg);
+        Object values = getValue(rightArg, params);
+        if (!(values instanceof Collection)) {
+            return MAGIC_SEL;
+        }
+        var columnStats = column == null ? null : stats.statsByColumn().get(column);
+        double selectivity = 0.0;
+        for (Object value : (Collection<?>) values) {
+            selectivity += columnStats == null ? DEFAULT_EQ_SEL : eqSelectivityFromValueAndStats(value, columnStats);
+        }
+        return Math.min(selectivity, 1.0);
+    }
+
+    /**
+     * Estimates the selectivity of `x < value`, `x <= value`, `x > value` or `x >= value`
+     * like PostgreSQL does (See `src/backend/utils/adt/selfuncs.c` `scalarineqsel`):
+     *
+     * The frequencies of the most common values matching the condition are summed up.
+     * The fraction of the remaining (not null, not most common) values is estimated using the histogram.
+     */
+    private static double rangeSelectivity(String operator,
+                                           Symbol leftArg,
+                                           Symbol rightArg,
+                                           Stats stats,
+                                           @Nullable Row params) {
+        ColumnIdent column = getColumn(leftArg);
+        Symbol valueArg = rightArg;
+        if (column == null) {
+            // `value < x` is the same as `x > value`
+            column = getColumn(rightArg);
+            valueArg = leftArg;
+            operator = commute(operator);
+        }
+        if (column == null) {
+            return MAGIC_SEL;
+        }
+        var columnStats = stats.statsByColumn().get(column);
+        if (columnStats == null) {
+            return MAGIC_SEL;
+        }
+        Object value = getValue(valueArg, params);
+        if (value == UNKNOWN_VALUE) {
+            return MAGIC_SEL;
+        }
+        if (value == null) {
+            // x < null -> is always false
+            return 0.0;
+        }
+        return rangeSelectivityFromValueAndStats(operator, value, columnStats);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> double rangeSelectivityFromValueAndStats(String operator, Object value, ColumnStats<T> columnStats) {
+        DataType<T> type = columnStats.type();
+        T typedValue;
+        try {
+            typedValue = type.value(value);
+        } catch (ClassCastException | IllegalArgumentException e) {
+            return MAGIC_SEL;
+        }
+        boolean lessThan = operator.equals(LtOperator.NAME) || operator.equals(LteOperator.NAME);
+        boolean inclusive = operator.equals(LteOperator.NAME) || operator.equals(GteOperator.NAME);
+
+        MostCommonValues mcv = columnStats.mostCommonValues();
+        Object[] mcvValues = mcv.values();
+        double[] mcvFrequencies = mcv.frequencies();
+        double mcvSelectivity = 0.0;
+        double sumMcvFrequencies = 0.0;
+        for (int i = 0; i < mcvValues.length; i++) {
+            int cmp = type.compareValueTo((T) mcvValues[i], typedValue);
+            if ((cmp == 0 && inclusive) || (cmp < 0 && lessThan) || (cmp > 0 && !lessThan)) {
+                mcvSelectivity += mcvFrequencies[i];
+            }
+            sumMcvFrequencies += mcvFrequencies[i];
+        }
+
+        double histogramSelectivity = fractionOfHistogramBelow(typedValue, columnStats.histogram(), type);
+        if (histogramSelectivity < 0) {
+            // No histogram available, assume half of the values match
+            histogramSelectivity = 0.5;
+        } else if (!lessThan) {
+            histogramSelectivity = 1.0 - histogramSelectivity;
+        }
+        double selectivity = (1.0 - columnStats.nullFraction() - sumMcvFrequencies) * histogramSelectivity
+                             + mcvSelectivity;
+        return Math.max(0.0, Math.min(selectivity, 1.0));
+    }
+
+    /**
+     * @param histogram equi-depth histogram; Each bucket contains the same number of values.
+     * @return the fraction of the histogram values which are below the given value or -1 if there is no histogram.
+     *         Numeric values are linearly interpolated within a bucket.
+     */
+    private static <T> double fractionOfHistogramBelow(T value, List<T> histogram, DataType<T> type) {
+        int numBounds = histogram.size();
+        if (numBounds < 2) {
+            return -1;
+        }
+        if (type.compareValueTo(value, histogram.get(0)) <= 0) {
+            return 0.0;
+        }
+        if (type.compareValueTo(value, histogram.get(numBounds - 1)) >= 0) {
+            return 1.0;
+        }
+        // Find the bucket: histogram[low] < value <= histogram[high]
+        int low = 0;
+        int high = numBounds - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (type.compareValueTo(histogram.get(mid), value) < 0) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double fractionOfBucket = 0.5;
+        T lowerBound = histogram.get(low);
+        T upperBound = histogram.get(high);
+        if (value instanceof Number && lowerBound instanceof Number && upperBound instanceof Number) {
+            double lower = ((Number) lowerBound).doubleValue();
+            double upper = ((Number) upperBound).doubleValue();
+            if (upper > lower) {
+                fractionOfBucket = (((Number) value).doubleValue() - lower) / (upper - lower);
+            }
+        }
+        return (low + fractionOfBucket) / (numBounds - 1);
+    }
+
+    private static String commute(String operator) {
+        switch (operator) {
+            case GtOperator.NAME:
+                return LtOperator.NAME;
+            case GteOperator.NAME:
+                return LteOperator.NAME;
+            case LtOperator.NAME:
+                return GtOperator.NAME;
+            case LteOperator.NAME:
+                return GteOperator.NAME;
+            default:
+                return operator;
+        }
+    }
+
+    private static Object getValue(Symbol symbol, @Nullable Row params) {
+        if (symbol instanceof ParameterSymbol && params != null) {
+            return params.get(((ParameterSymbol) symbol).index());
         }
-        if (rightArg instanceof Literal) {
-            return eqSelectivityFromValueAndStats(((Literal) rightArg).value(), columnStats);
+        if (symbol instanceof Literal) {
+            return ((Literal<?>) symbol).value();
         }
-        return 1.0 / columnStats.approxDistinct();
+        return UNKNOWN_VALUE;
     }
 
-    private static double eqSelectivityFromValueAndStats(Object value, ColumnStats columnStats) {
+    /**
+     * Estimates the selectivity of `a.x = b.y` like PostgreSQL does if no most common values are available
+     * (See `src/backend/utils/adt/selfuncs.c` `eqjoinsel_inner`):
+     *
+     * <pre>
+     *     (1 - nullFraction(a.x)) * (1 - nullFraction(b.y)) / max(distinct(a.x), distinct(b.y))
+     * </pre>
+     *
+     * Columns without statistics are assumed to be unique.
+     */
+    private static double eqJoinSelectivity(Symbol leftArg, Symbol rightArg, TableStats tableStats) {
+        double leftDistinct = -1;
+        double rightDistinct = -1;
+        double notNullFraction = 1.0;
+        ColumnIdent leftColumn = getColumn(leftArg);
+        if (leftColumn != null) {
+            Stats stats = tableStats.getStats(getRelation(leftArg));
+            ColumnStats<?> columnStats = stats.statsByColumn().get(leftColumn);
+            leftDistinct = columnStats == null ? stats.numDocs() : columnStats.approxDistinct();
+            notNullFraction *= columnStats == null ? 1.0 : 1.0 - columnStats.nullFraction();
+        }
+        ColumnIdent rightColumn = getColumn(rightArg);
+        if (rightColumn != null) {
+            Stats stats = tableStats.getStats(getRelation(rightArg));
+            ColumnStats<?> columnStats = stats.statsByColumn().get(rightColumn);
+            rightDistinct = columnStats == null ? stats.numDocs() : columnStats.approxDistinct();
+            notNullFraction *= columnStats == null ? 1.0 : 1.0 - columnStats.nullFraction();
+        }
+        double distinct = Math.max(leftDistinct, rightDistinct);
+        if (distinct <= 0) {
+            return DEFAULT_EQ_SEL;
+        }
+        return notNullFraction / distinct;
+    }
+
+    /**
+     * Uses the frequency of the value if it is one of the most common values.
+     * Otherwise the remaining (not null, not most common) values are assumed to be evenly distributed
+     * (See `src/backend/utils/adt/selfuncs.c` `var_eq_const` in PostgreSQL)
+     */
+    private static <T> double eqSelectivityFromValueAndStats(Object value, ColumnStats<T> columnStats) {
         if (value == null) {
             // x = null -> is always false
             return 0.0;
         }
-        var mcv = columnStats.mostCommonValues();
-        int idx = Arrays.asList(mcv.values()).indexOf(value);
-        if (idx < 0) {
+        DataType<T> type = columnStats.type();
+        T typedValue;
+        try {
+            typedValue = type.value(value);
+        } catch (ClassCastException | IllegalArgumentException e) {
             return 1.0 / columnStats.approxDistinct();
-        } else {
-            return mcv.frequencies()[idx];
         }
+        MostCommonValues mcv = columnStats.mostCommonValues();
+        Object[] mcvValues = mcv.values();
+        double[] mcvFrequencies = mcv.frequencies();
+        double sumMcvFrequencies = 0.0;
+        double minMcvFrequency = 1.0;
+        for (int i = 0; i < mcvValues.length; i++) {
+            if (typedValue.equals(mcvValues[i])) {
+                return mcvFrequencies[i];
+            }
+            sumMcvFrequencies += mcvFrequencies[i];
+            minMcvFrequency = Math.min(minMcvFrequency, mcvFrequencies[i]);
+        }
+        double selectivity = 1.0 - sumMcvFrequencies - columnStats.nullFraction();
+        double otherDistinct = columnStats.approxDistinct() - mcvValues.length;
+        if (otherDistinct > 1) {
+            selectivity /= otherDistinct;
+        }
+        // A value which is not a most common value shouldn't be more common than the least common of them
+        if (mcvValues.length > 0 && selectivity > minMcvFrequency) {
+            selectivity = minMcvFrequency;
+        }
+        return Math.max(0.0, Math.min(selectivity, 1.0));
+    }
+
+    private static RelationName getRelation(Symbol column) {
+        if (column instanceof Reference) {
+            return ((Reference) column).ident().tableIdent();
+        }
+        return ((ScopedSymbol) column).relation();
     }
 
     @Nullable
@@ -42,6 +42,7 @@ import io.crate.execution.dsl.projection.SourceIndexWriterProjection;
 import io.crate.execution.dsl.projection.SourceIndexWriterReturnSummaryProjection;
 import io.crate.execution.dsl.projection.builder.InputColumns;
 import io.crate.execution.engine.NodeOperationTreeGenerator;
+import io.crate.execution.engine.collect.files.StdinFileInputFactory;
 import io.crate.execution.engine.pipeline.TopN;
 import io.crate.expression.reference.file.SourceLineNumberExpression;
 import io.crate.expression.reference.file.SourceUriExpression;
@@ -158,7 +159,7 @@ public final class CopyFromPlan implements Plan {
         // TODO make FileUriCollectPhase ctor accept an uri of the List<String>
         // instead of the Symbol type, such as the uri can be evaluated and converted
         // to the required type already at this stage, but not later on in FileCollectSource.
-        var boundedURI = validateAndConvertToLiteral(eval.apply(copyFrom.uri()));
+        var boundedURI = copyFrom.isFromStdin() ? null : validateAndConvertToLiteral(eval.apply(copyFrom.uri()));
 
         return new BoundCopyFrom(
             copyFrom.tableInfo(),
@@ -289,14 +290,25 @@ public final class CopyFromPlan implements Plan {
             rewriteToCollectToUsePartitionValues(table.partitionedByColumns(), partitionValues, toCollect);
         }
 
+        Symbol uri;
+        Collection<String> executionNodes;
+        if (copyFrom.isFromStdin()) {
+            // The client streams the data to the handler, so it can only be read there
+            uri = Literal.of(StdinFileInputFactory.uri(context.jobId()));
+            executionNodes = List.of(context.handlerNode());
+        } else {
+            uri = boundedCopyFrom.uri();
+            executionNodes = getExecutionNodes(
+                allNodes,
+                boundedCopyFrom.settings().getAsInt("num_readers", allNodes.getSize()),
+                boundedCopyFrom.nodePredicate());
+        }
         FileUriCollectPhase collectPhase = new FileUriCollectPhase(
             context.jobId(),
             context.nextExecutionPhaseId(),
             "copyFrom",
-            getExecutionNodes(allNodes, boundedCopyFrom
-                .settings()
-                .getAsInt("num_readers", allNodes.getSize()), boundedCopyFrom.nodePredicate()),
-            boundedCopyFrom.uri(),
+            executionNodes,
+            uri,
             toCollect,
             Collections.emptyList(),
             boundedCopyFrom.settings().get("compression", null),
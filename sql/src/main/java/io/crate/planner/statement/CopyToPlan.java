@@ -30,6 +30,8 @@ import io.crate.analyze.SymbolEvaluator;
 import io.crate.analyze.WhereClause;
 import io.crate.analyze.relations.DocTableRelation;
 import io.crate.common.collections.Lists2;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Row;
 import io.crate.data.RowConsumer;
 import io.crate.exceptions.PartitionUnknownException;
@@ -39,6 +41,8 @@ import io.crate.execution.dsl.projection.MergeCountProjection;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
 import io.crate.execution.engine.NodeOperationTreeGenerator;
+import io.crate.execution.engine.export.JsonLineRenderer;
+import io.crate.execution.engine.pipeline.TopN;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.format.Style;
@@ -63,12 +67,14 @@ import io.crate.statistics.TableStats;
 import io.crate.types.DataTypes;
 import org.elasticsearch.common.settings.Settings;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static io.crate.analyze.CopyStatementSettings.COMPRESSION_SETTING;
@@ -103,14 +109,41 @@ public final class CopyToPlan implements Plan {
                               RowConsumer consumer,
                               Row params,
                               SubQueryResults subQueryResults) {
-        ExecutionPlan executionPlan = planCopyToExecution(
-            copyTo,
-            plannerContext,
-            tableStats,
-            executor.projectionBuilder(),
-            params,
-            subQueryResults
-        );
+        ExecutionPlan executionPlan;
+        if (copyTo.isToStdout()) {
+            var boundedCopyTo = bind(
+                copyTo,
+                plannerContext.transactionContext(),
+                plannerContext.functions(),
+                params,
+                subQueryResults);
+            List<Map.Entry<ColumnIdent, Symbol>> overwrites = new ArrayList<>(boundedCopyTo.overwrites().entrySet());
+            executionPlan = planCopyToStdoutExecution(
+                boundedCopyTo,
+                overwrites,
+                plannerContext,
+                tableStats,
+                executor.projectionBuilder(),
+                params
+            );
+            consumer = new JsonLineRowConsumer(
+                consumer,
+                new JsonLineRenderer(
+                    outputFormat(boundedCopyTo),
+                    boundedCopyTo.outputNames(),
+                    Lists2.map(overwrites, Map.Entry::getKey)
+                )
+            );
+        } else {
+            executionPlan = planCopyToExecution(
+                copyTo,
+                plannerContext,
+                tableStats,
+                executor.projectionBuilder(),
+                params,
+                subQueryResults
+            );
+        }
 
         NodeOperationTree nodeOpTree = NodeOperationTreeGenerator
             .fromPlan(executionPlan, executor.localNodeId());
@@ -133,19 +166,13 @@ public final class CopyToPlan implements Plan {
             params,
             subQueryResults);
 
-        WriterProjection.OutputFormat outputFormat = boundedCopyTo.outputFormat();
-        if (outputFormat == null) {
-            outputFormat = boundedCopyTo.columnsDefined() ?
-                WriterProjection.OutputFormat.JSON_ARRAY : WriterProjection.OutputFormat.JSON_OBJECT;
-        }
-
         WriterProjection projection = ProjectionBuilder.writerProjection(
             boundedCopyTo.outputs(),
             boundedCopyTo.uri(),
             boundedCopyTo.compressionType(),
             boundedCopyTo.overwrites(),
             boundedCopyTo.outputNames(),
-            outputFormat);
+            outputFormat(boundedCopyTo));
 
         LogicalPlan collect = Collect.create(
             new DocTableRelation(boundedCopyTo.table()),
@@ -168,6 +195,48 @@ public final class CopyToPlan implements Plan {
             List.of(MergeCountProjection.INSTANCE));
     }
 
+    /**
+     * Creates a plan which collects the rows to the handler instead of writing them to files on the nodes.
+     * The values of the overwrites are collected after the outputs, so that they can be merged into the documents
+     * once the rows are rendered.
+     */
+    private static ExecutionPlan planCopyToStdoutExecution(BoundCopyTo boundedCopyTo,
+                                                           List<Map.Entry<ColumnIdent, Symbol>> overwrites,
+                                                           PlannerContext context,
+                                                           TableStats tableStats,
+                                                           ProjectionBuilder projectionBuilder,
+                                                           Row params) {
+        if (boundedCopyTo.compressionType() != null) {
+            throw new UnsupportedFeatureException("Compression is not supported for COPY TO STDOUT");
+        }
+        List<Symbol> outputs = new ArrayList<>(boundedCopyTo.outputs());
+        for (Map.Entry<ColumnIdent, Symbol> overwrite : overwrites) {
+            outputs.add(overwrite.getValue());
+        }
+        LogicalPlan collect = Collect.create(
+            new DocTableRelation(boundedCopyTo.table()),
+            outputs,
+            boundedCopyTo.whereClause(),
+            Set.of(),
+            tableStats,
+            context.params()
+        );
+        ExecutionPlan executionPlan = collect.build(
+            context,
+            projectionBuilder,
+            TopN.NO_LIMIT, TopN.NO_OFFSET, null, null, params, SubQueryResults.EMPTY);
+        return Merge.ensureOnHandler(executionPlan, context);
+    }
+
+    private static WriterProjection.OutputFormat outputFormat(BoundCopyTo boundedCopyTo) {
+        WriterProjection.OutputFormat outputFormat = boundedCopyTo.outputFormat();
+        if (outputFormat == null) {
+            outputFormat = boundedCopyTo.columnsDefined() ?
+                WriterProjection.OutputFormat.JSON_ARRAY : WriterProjection.OutputFormat.JSON_OBJECT;
+        }
+        return outputFormat;
+    }
+
     @VisibleForTesting
     public static BoundCopyTo bind(AnalyzedCopyTo copyTo,
                                    CoordinatorTxnCtx txnCtx,
@@ -239,7 +308,7 @@ public final class CopyToPlan implements Plan {
             outputs,
             table,
             whereClause,
-            Literal.of(DataTypes.STRING.value(eval.apply(copyTo.uri()))),
+            copyTo.isToStdout() ? null : Literal.of(DataTypes.STRING.value(eval.apply(copyTo.uri()))),
             compressionType,
             outputFormat,
             outputNames,
@@ -260,4 +329,32 @@ public final class CopyToPlan implements Plan {
         }
         return List.of(partitionName.asIndexName());
     }
+
+    /**
+     * Renders the rows of a {@code COPY TO STDOUT} into JSON lines before they're passed on to the consumer.
+     */
+    private static final class JsonLineRowConsumer implements RowConsumer {
+
+        private final RowConsumer consumer;
+        private final JsonLineRenderer renderer;
+
+        JsonLineRowConsumer(RowConsumer consumer, JsonLineRenderer renderer) {
+            this.consumer = consumer;
+            this.renderer = renderer;
+        }
+
+        @Override
+        public void accept(BatchIterator<Row> iterator, @Nullable Throwable failure) {
+            if (failure == null) {
+                consumer.accept(BatchIterators.map(iterator, renderer), null);
+            } else {
+                consumer.accept(iterator, failure);
+            }
+        }
+
+        @Override
+        public CompletableFuture<?> completionFuture() {
+            return consumer.completionFuture();
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.data.Row;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * ResultReceiver for {@code COPY TO STDOUT}.
+ *
+ * Each row contains one line of the output which is sent as a {@code CopyData} message.
+ * The execution is expected to suspend itself every {@link #BATCH_SIZE} rows, it is resumed once the rows have been
+ * written to the client. This way, a slow client slows down the execution instead of the rows piling up in memory.
+ */
+class CopyOutReceiver extends BaseResultReceiver {
+
+    static final int BATCH_SIZE = 1000;
+
+    private static final byte NEW_LINE = (byte) '\n';
+
+    private final String query;
+    private final Channel channel;
+    private final Function<Throwable, Exception> wrapError;
+    private final Runnable resume;
+
+    private ChannelFuture lastWrite;
+    private long rowCount = 0;
+
+    CopyOutReceiver(String query, Channel channel, Function<Throwable, Exception> wrapError, Runnable resume) {
+        this.query = query;
+        this.channel = channel;
+        this.wrapError = wrapError;
+        this.resume = resume;
+        Messages.sendCopyOutResponse(channel);
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        byte[] line = ((String) row.get(0)).getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[line.length + 1];
+        System.arraycopy(line, 0, data, 0, line.length);
+        data[line.length] = NEW_LINE;
+        lastWrite = Messages.sendCopyData(channel, data);
+        rowCount++;
+    }
+
+    @Override
+    public void batchFinished() {
+        channel.flush();
+        if (lastWrite == null) {
+            resume.run();
+        } else {
+            lastWrite.addListener(f -> {
+                // If the write failed the connection is gone;
+                // closing the session will then release the suspended execution
+                if (f.isSuccess()) {
+                    resume.run();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (interrupted) {
+            super.allFinished(true);
+        } else {
+            Messages.sendCopyDone(channel);
+            Messages.sendCommandComplete(channel, query, rowCount).addListener(f -> super.allFinished(false));
+        }
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable throwable) {
+        final Exception e = wrapError.apply(throwable);
+        Messages.sendErrorResponse(channel, e).addListener(f -> super.fail(e));
+    }
+}
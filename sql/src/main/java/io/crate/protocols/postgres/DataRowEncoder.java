@@ -0,0 +1,163 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.data.Row;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.types.DataType;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Encodes the rows of a result set as DataRow messages.
+ *
+ * The {@link PGType}s and format codes are resolved once per result set instead of once per cell.
+ * Rows are appended to a single pooled buffer which is written to the channel once it exceeds
+ * {@link #WRITE_THRESHOLD_BYTES}, so that a single write carries many rows.
+ *
+ * Users must call {@link #writePending()} before sending any other message to retain the message order.
+ */
+final class DataRowEncoder {
+
+    static final int WRITE_THRESHOLD_BYTES = 64 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    private final Channel channel;
+    private final PGType[] pgTypes;
+    private final FormatCodes.FormatCode[] formatCodes;
+
+    @Nullable
+    private ByteBuf buffer;
+
+    DataRowEncoder(Channel channel,
+                   List<? extends DataType> columnTypes,
+                   @Nullable FormatCodes.FormatCode[] formatCodes) {
+        this.channel = channel;
+        this.pgTypes = resolvePGTypes(columnTypes);
+        this.formatCodes = resolveFormatCodes(formatCodes, columnTypes.size());
+    }
+
+    static PGType[] resolvePGTypes(List<? extends DataType> columnTypes) {
+        PGType[] pgTypes = new PGType[columnTypes.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = PGTypes.get(columnTypes.get(i));
+        }
+        return pgTypes;
+    }
+
+    static FormatCodes.FormatCode[] resolveFormatCodes(@Nullable FormatCodes.FormatCode[] formatCodes, int numColumns) {
+        FormatCodes.FormatCode[] resolved = new FormatCodes.FormatCode[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            resolved[i] = FormatCodes.getFormatCode(formatCodes, i);
+        }
+        return resolved;
+    }
+
+    /**
+     * Appends the row to the pending buffer and writes (without flushing) the buffer to the channel
+     * once it exceeds the threshold.
+     * If encoding the row fails, the partially encoded row is discarded, rows encoded before stay pending.
+     */
+    void writeRow(Row row) {
+        if (buffer == null) {
+            buffer = channel.alloc().buffer(INITIAL_BUFFER_SIZE);
+        }
+        int rowStart = buffer.writerIndex();
+        try {
+            writeDataRow(buffer, row, pgTypes, formatCodes);
+        } catch (Throwable t) {
+            buffer.writerIndex(rowStart);
+            throw t;
+        }
+        if (buffer.readableBytes() >= WRITE_THRESHOLD_BYTES) {
+            writePending();
+        }
+    }
+
+    /**
+     * Writes the pending rows to the channel, without flushing it.
+     */
+    void writePending() {
+        ByteBuf pending = buffer;
+        if (pending == null) {
+            return;
+        }
+        buffer = null;
+        if (pending.isReadable()) {
+            channel.write(pending);
+        } else {
+            pending.release();
+        }
+    }
+
+    /**
+     * Writes the pending rows and flushes the channel.
+     */
+    void flush() {
+        writePending();
+        channel.flush();
+    }
+
+    /**
+     * Appends a DataRow message (see {@link Messages#sendDataRow}) at the current writerIndex of the buffer.
+     */
+    static void writeDataRow(ByteBuf buffer,
+                             Row row,
+                             PGType[] pgTypes,
+                             FormatCodes.FormatCode[] formatCodes) {
+        assert pgTypes.length == row.numColumns()
+            : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + pgTypes.length;
+
+        int messageStart = buffer.writerIndex();
+        buffer.writeByte('D');
+        buffer.writeInt(0); // will be set at the end
+        buffer.writeShort(pgTypes.length);
+
+        for (int i = 0; i < pgTypes.length; i++) {
+            Object value = row.get(i);
+            if (value == null) {
+                buffer.writeInt(-1);
+            } else {
+                PGType pgType = pgTypes[i];
+                FormatCodes.FormatCode formatCode = formatCodes[i];
+                switch (formatCode) {
+                    case TEXT:
+                        pgType.writeAsText(buffer, value);
+                        break;
+                    case BINARY:
+                        pgType.writeAsBinary(buffer, value);
+                        break;
+
+                    default:
+                        throw new AssertionError("Unrecognized formatCode: " + formatCode);
+                }
+            }
+        }
+        // the length excludes the message type byte
+        buffer.setInt(messageStart + 1, buffer.writerIndex() - messageStart - 1);
+    }
+}
@@ -288,47 +288,15 @@ public class Messages {
      * The value of the column, in the format indicated by the associated format code. n is the above length.
      */
     static void sendDataRow(Channel channel, Row row, List<? extends DataType> columnTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
-        int length = 4 + 2;
-        assert columnTypes.size() == row.numColumns()
-            : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + columnTypes;
-
+        PGType[] pgTypes = DataRowEncoder.resolvePGTypes(columnTypes);
+        FormatCodes.FormatCode[] resolvedFormatCodes = DataRowEncoder.resolveFormatCodes(formatCodes, pgTypes.length);
         ByteBuf buffer = channel.alloc().buffer();
-        buffer.writeByte('D');
-        buffer.writeInt(0); // will be set at the end
-        buffer.writeShort(row.numColumns());
-
-        for (int i = 0; i < row.numColumns(); i++) {
-            DataType dataType = columnTypes.get(i);
-            PGType pgType;
-            Object value;
-            try {
-                pgType = PGTypes.get(dataType);
-                value = row.get(i);
-            } catch (Exception e) {
-                buffer.release();
-                throw e;
-            }
-            if (value == null) {
-                buffer.writeInt(-1);
-                length += 4;
-            } else {
-                FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
-                switch (formatCode) {
-                    case TEXT:
-                        length += pgType.writeAsText(buffer, value);
-                        break;
-                    case BINARY:
-                        length += pgType.writeAsBinary(buffer, value);
-                        break;
-
-                    default:
-                        buffer.release();
-                        throw new AssertionError("Unrecognized formatCode: " + formatCode);
-                }
-            }
+        try {
+            DataRowEncoder.writeDataRow(buffer, row, pgTypes, resolvedFormatCodes);
+        } catch (Throwable t) {
+            buffer.release();
+            throw t;
         }
-
-        buffer.setInt(1, length);
         channel.write(buffer);
     }
 
@@ -473,6 +441,61 @@ public class Messages {
         sendShortMsg(channel, 's', "sentPortalSuspended");
     }
 
+    /**
+     * CopyInResponse
+     * | 'G' | int32 len | int8 format | int16 numCols |
+     *
+     * The data is exchanged as lines of text which are parsed by the configured input format,
+     * so the format is always text (0) and no columns are described.
+     */
+    static void sendCopyInResponse(Channel channel) {
+        sendCopyResponse(channel, 'G', "sentCopyInResponse");
+    }
+
+    /**
+     * CopyOutResponse
+     * | 'H' | int32 len | int8 format | int16 numCols |
+     *
+     * See {@link #sendCopyInResponse(Channel)}
+     */
+    static void sendCopyOutResponse(Channel channel) {
+        sendCopyResponse(channel, 'H', "sentCopyOutResponse");
+    }
+
+    private static void sendCopyResponse(Channel channel, char msgType, final String traceLogMsg) {
+        ByteBuf buffer = channel.alloc().buffer(8);
+        buffer.writeByte(msgType);
+        buffer.writeInt(7);
+        buffer.writeByte(0);
+        buffer.writeShort(0);
+        ChannelFuture channelFuture = channel.writeAndFlush(buffer);
+        if (LOGGER.isTraceEnabled()) {
+            channelFuture.addListener((ChannelFutureListener) future -> LOGGER.trace(traceLogMsg));
+        }
+    }
+
+    /**
+     * CopyData
+     * | 'd' | int32 len | byteN data |
+     *
+     * The message is only written, it's up to the caller to flush the channel.
+     */
+    static ChannelFuture sendCopyData(Channel channel, byte[] data) {
+        ByteBuf buffer = channel.alloc().buffer(5 + data.length);
+        buffer.writeByte('d');
+        buffer.writeInt(4 + data.length);
+        buffer.writeBytes(data);
+        return channel.write(buffer);
+    }
+
+    /**
+     * CopyDone
+     * | 'c' | int32 len |
+     */
+    static void sendCopyDone(Channel channel) {
+        sendShortMsg(channel, 'c', "sentCopyDone");
+    }
+
     /**
      * CloseComplete
      * | '3' | int32 len |
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.netty.channel.ChannelConfig;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Stream of the data sent by a client with {@code CopyData} messages during a {@code COPY FROM STDIN}.
+ *
+ * The messages are added by the network thread and consumed by the thread reading the stream.
+ * To apply backpressure, reading from the connection is paused while more than {@link #HIGH_WATERMARK} bytes are
+ * buffered and resumed once the reader consumed the buffer below {@link #LOW_WATERMARK} bytes.
+ */
+final class PgCopyInStream extends InputStream {
+
+    static final int HIGH_WATERMARK = 4 * 1024 * 1024;
+    static final int LOW_WATERMARK = 1024 * 1024;
+
+    private final ChannelConfig channelConfig;
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+
+    @Nullable
+    private byte[] currentChunk;
+    private int currentPos;
+    private long bufferedBytes;
+    private boolean done;
+    private boolean closed;
+    private boolean readingPaused;
+    @Nullable
+    private String failure;
+
+    PgCopyInStream(ChannelConfig channelConfig) {
+        this.channelConfig = channelConfig;
+    }
+
+    /**
+     * Adds the payload of a {@code CopyData} message. Data is dropped if the stream has already been closed.
+     */
+    synchronized void add(byte[] data) {
+        if (closed || done || data.length == 0) {
+            return;
+        }
+        chunks.add(data);
+        bufferedBytes += data.length;
+        if (!readingPaused && bufferedBytes >= HIGH_WATERMARK) {
+            readingPaused = true;
+            channelConfig.setAutoRead(false);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Called on {@code CopyDone}; the reader will see the end of the stream once it consumed all buffered data.
+     */
+    synchronized void finish() {
+        done = true;
+        notifyAll();
+    }
+
+    /**
+     * Called on {@code CopyFail} or if the connection is closed during the copy.
+     * The reader fails with the given message on its next read.
+     */
+    synchronized void fail(String message) {
+        failure = message;
+        done = true;
+        chunks.clear();
+        currentChunk = null;
+        resumeReading();
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (currentChunk == null) {
+            if (failure != null) {
+                throw new IllegalStateException("COPY from stdin failed: " + failure);
+            }
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            currentChunk = chunks.poll();
+            currentPos = 0;
+            if (currentChunk == null) {
+                if (done) {
+                    return -1;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for data of the client");
+                }
+            }
+        }
+        int numBytes = Math.min(len, currentChunk.length - currentPos);
+        System.arraycopy(currentChunk, currentPos, b, off, numBytes);
+        currentPos += numBytes;
+        if (currentPos == currentChunk.length) {
+            currentChunk = null;
+        }
+        bufferedBytes -= numBytes;
+        if (readingPaused && bufferedBytes <= LOW_WATERMARK) {
+            resumeReading();
+        }
+        return numBytes;
+    }
+
+    @Override
+    public synchronized int available() {
+        return currentChunk == null ? 0 : currentChunk.length - currentPos;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        chunks.clear();
+        currentChunk = null;
+        resumeReading();
+        notifyAll();
+    }
+
+    private void resumeReading() {
+        if (readingPaused) {
+            readingPaused = false;
+            channelConfig.setAutoRead(true);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import io.crate.action.sql.RowConsumerToResultReceiver;
 import io.crate.analyze.AnalyzedStatement;
 
 import javax.annotation.Nullable;
+import java.io.InputStream;
 import java.util.List;
 
 public final class Portal {
@@ -41,6 +42,10 @@ public final class Portal {
 
     private RowConsumerToResultReceiver consumer;
 
+    @Nullable
+    private InputStream copyInStream;
+    private boolean copyToStdout = false;
+
     public Portal(String portalName,
                   PreparedStmt preparedStmt,
                   List<Object> params,
@@ -83,6 +88,29 @@ public final class Portal {
         return consumer;
     }
 
+    /**
+     * Sets the stream on which the client sends the data of a {@code COPY FROM STDIN}
+     */
+    public void setCopyInStream(InputStream copyInStream) {
+        this.copyInStream = copyInStream;
+    }
+
+    @Nullable
+    public InputStream copyInStream() {
+        return copyInStream;
+    }
+
+    /**
+     * Marks that the rows of a {@code COPY TO STDOUT} are sent to the client using {@code CopyData} messages
+     */
+    public void setCopyToStdout() {
+        this.copyToStdout = true;
+    }
+
+    public boolean isCopyToStdout() {
+        return copyToStdout;
+    }
+
     public void closeActiveConsumer() {
         if (consumer != null) {
             consumer.closeAndFinishIfSuspended();
@@ -129,6 +129,41 @@ import static io.crate.protocols.postgres.PostgresWireProtocol.State.STARTUP_HEA
  *          |     ReadyForQuery                |
  *          |<---------------------------------|
  *
+ * COPY FROM STDIN / COPY TO STDOUT (only supported using the Simple Query flow):
+ *
+ *          +                                  +
+ *          |   Q (COPY t FROM STDIN)          |
+ *          |--------------------------------->|
+ *          |                                  |
+ *          |     CopyInResponse               |
+ *          |<---------------------------------|
+ *          |                                  |
+ *          |   CopyData                       |
+ *          |--------------------------------->|
+ *          |   CopyDone | CopyFail            |
+ *          |--------------------------------->|
+ *          |                                  |
+ *          |     CommandComplete              |
+ *          |     or ErrorResponse             |
+ *          |<---------------------------------|
+ *          |     ReadyForQuery                |
+ *          |<---------------------------------|
+ *
+ *          +                                  +
+ *          |   Q (COPY t TO STDOUT)           |
+ *          |--------------------------------->|
+ *          |                                  |
+ *          |     CopyOutResponse              |
+ *          |<---------------------------------|
+ *          |     CopyData                     |
+ *          |<---------------------------------|
+ *          |     CopyDone                     |
+ *          |<---------------------------------|
+ *          |     CommandComplete              |
+ *          |<---------------------------------|
+ *          |     ReadyForQuery                |
+ *          |<---------------------------------|
+ *
  * Extended Query
  *
  *          +                                  +
@@ -198,6 +233,8 @@ public class PostgresWireProtocol {
     private int msgLength;
     private byte msgType;
     private Session session;
+    @Nullable
+    private PgCopyInStream copyInStream;
     private boolean ignoreTillSync = false;
     private AuthenticationContext authContext;
     private Properties properties;
@@ -365,6 +402,15 @@ public class PostgresWireProtocol {
                 case 'C':
                     handleClose(buffer, channel);
                     return;
+                case 'd':
+                    handleCopyData(buffer);
+                    return;
+                case 'c':
+                    handleCopyDone();
+                    return;
+                case 'f':
+                    handleCopyFail(buffer);
+                    return;
                 case 'X': // Terminate (called when jdbc connection is closed)
                     closeSession();
                     channel.close();
@@ -376,6 +422,10 @@ public class PostgresWireProtocol {
         }
 
         private void closeSession() {
+            if (copyInStream != null) {
+                copyInStream.fail("connection closed");
+                copyInStream = null;
+            }
             if (session != null) {
                 session.close();
                 session = null;
@@ -676,6 +726,44 @@ public class PostgresWireProtocol {
         Messages.sendCloseComplete(channel);
     }
 
+    /**
+     * CopyData
+     * | 'd' | int32 len | byteN data |
+     *
+     * Data of a COPY FROM STDIN.
+     * Messages which arrive after the copy ended (e.g. because it failed) are ignored.
+     */
+    private void handleCopyData(ByteBuf buffer) {
+        if (copyInStream == null) {
+            buffer.skipBytes(msgLength);
+            return;
+        }
+        byte[] data = new byte[msgLength];
+        buffer.readBytes(data);
+        copyInStream.add(data);
+    }
+
+    /**
+     * CopyDone
+     * | 'c' | int32 len |
+     */
+    private void handleCopyDone() {
+        if (copyInStream != null) {
+            copyInStream.finish();
+        }
+    }
+
+    /**
+     * CopyFail
+     * | 'f' | int32 len | string message |
+     */
+    private void handleCopyFail(ByteBuf buffer) {
+        String message = readCString(buffer);
+        if (copyInStream != null) {
+            copyInStream.fail(message);
+        }
+    }
+
     @VisibleForTesting
     void handleSimpleQuery(ByteBuf buffer, final Channel channel) {
         String queryString = readCString(buffer);
@@ -708,7 +796,16 @@ public class PostgresWireProtocol {
 
             Function<Throwable, Exception> wrapError = SQLExceptions.forWireTransmission(
                 getAccessControl.apply(session.sessionContext()));
-            if (fields == null) {
+            if (session.isCopyFromStdin("")) {
+                return handleCopyFromStdin(query, channel, wrapError);
+            }
+            if (session.isCopyToStdout("")) {
+                session.setCopyToStdout("");
+                Session currentSession = session;
+                CopyOutReceiver copyOutReceiver = new CopyOutReceiver(
+                    query, channel, wrapError, () -> currentSession.resume(""));
+                session.execute("", CopyOutReceiver.BATCH_SIZE, copyOutReceiver);
+            } else if (fields == null) {
                 RowCountReceiver rowCountReceiver = new RowCountReceiver(query, channel, wrapError);
                 session.execute("", 0, rowCountReceiver);
             } else {
@@ -731,6 +828,28 @@ public class PostgresWireProtocol {
     }
 
 
+    /**
+     * Executes a COPY FROM STDIN. The CopyInResponse tells the client to start sending the data
+     * which is then passed on to the execution via the {@link PgCopyInStream}.
+     */
+    private CompletableFuture<?> handleCopyFromStdin(String query,
+                                                     Channel channel,
+                                                     Function<Throwable, Exception> wrapError) {
+        PgCopyInStream copyIn = new PgCopyInStream(channel.config());
+        session.setCopyInStream("", copyIn);
+        copyInStream = copyIn;
+        Messages.sendCopyInResponse(channel);
+        session.execute("", 0, new RowCountReceiver(query, channel, wrapError));
+        return session.sync().whenComplete((result, t) -> {
+            copyIn.close();
+            channel.eventLoop().execute(() -> {
+                if (copyInStream == copyIn) {
+                    copyInStream = null;
+                }
+            });
+        });
+    }
+
     /**
      * FrameDecoder that makes sure that a full message is in the buffer before delegating work to the MessageHandler
      */
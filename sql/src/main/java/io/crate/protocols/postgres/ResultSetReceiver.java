@@ -37,10 +37,7 @@ class ResultSetReceiver extends BaseResultReceiver {
     private final String query;
     private final Channel channel;
     private final Function<Throwable, Exception> wrapError;
-    private final List<? extends DataType> columnTypes;
-
-    @Nullable
-    private final FormatCodes.FormatCode[] formatCodes;
+    private final DataRowEncoder dataRowEncoder;
 
     private long rowCount = 0;
 
@@ -52,27 +49,28 @@ class ResultSetReceiver extends BaseResultReceiver {
         this.query = query;
         this.channel = channel;
         this.wrapError = wrapError;
-        this.columnTypes = columnTypes;
-        this.formatCodes = formatCodes;
+        this.dataRowEncoder = new DataRowEncoder(channel, columnTypes, formatCodes);
     }
 
     @Override
     public void setNextRow(Row row) {
         rowCount++;
-        Messages.sendDataRow(channel, row, columnTypes, formatCodes);
+        dataRowEncoder.writeRow(row);
         if (rowCount % 1000 == 0) {
-            channel.flush();
+            dataRowEncoder.flush();
         }
     }
 
     @Override
     public void batchFinished() {
+        dataRowEncoder.writePending();
         Messages.sendPortalSuspended(channel);
         Messages.sendReadyForQuery(channel);
     }
 
     @Override
     public void allFinished(boolean interrupted) {
+        dataRowEncoder.writePending();
         if (interrupted) {
             super.allFinished(true);
         } else {
@@ -83,6 +81,7 @@ class ResultSetReceiver extends BaseResultReceiver {
     @Override
     public void fail(@Nonnull Throwable throwable) {
         final Exception e = wrapError.apply(throwable);
+        dataRowEncoder.writePending();
         Messages.sendErrorResponse(channel, e).addListener(f -> super.fail(e));
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import javax.annotation.Nullable;
+import java.io.OutputStream;
+
+/**
+ * OutputStream collecting the content of a streamed response into pooled buffers,
+ * which are handed over to the channel as one chunk per batch.
+ */
+final class ChunkOutputStream extends OutputStream {
+
+    private final ByteBufAllocator allocator;
+
+    @Nullable
+    private ByteBuf buffer;
+
+    ChunkOutputStream(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * @return the buffer of the current chunk, which can be written to directly
+     */
+    ByteBuf buffer() {
+        if (buffer == null) {
+            buffer = allocator.buffer();
+        }
+        return buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer().writeByte(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer().writeBytes(b, off, len);
+    }
+
+    /**
+     * @return the content written since the last call, or null if nothing has been written.
+     *         The ownership of the buffer is transferred to the caller.
+     */
+    @Nullable
+    ByteBuf takeChunk() {
+        ByteBuf chunk = buffer;
+        buffer = null;
+        if (chunk != null && !chunk.isReadable()) {
+            chunk.release();
+            return null;
+        }
+        return chunk;
+    }
+
+    void release() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        // XContentBuilders close the stream, but the buffer is released or taken over by the channel
+    }
+}
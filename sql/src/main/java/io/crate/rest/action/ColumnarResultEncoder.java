@@ -0,0 +1,275 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.SQLActionException;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.Symbols;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.IpType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import java.io.IOException;
+import java.util.List;
+
+import static io.crate.exceptions.Exceptions.userFriendlyMessageInclNested;
+
+/**
+ * Encodes a result in a compact, column oriented binary format.
+ *
+ * Instead of encoding every value as JSON, the rows of a batch are encoded column-wise, similar to the record
+ * batches of Apache Arrow. All numbers are little-endian:
+ *
+ * <pre>
+ *  Result  := Schema Batch* (End | Error)
+ *
+ *  Schema  := 'S' | int16 numColumns | Field*
+ *  Field   := int32 length | utf8 name | int32 dataTypeId | int8 encoding
+ *
+ *  Batch   := 'B' | int32 numRows | Column*
+ *  Column  := validity | values
+ *      validity: ceil(numRows / 8) bytes, bit (i % 8) of byte (i / 8) is set if the value of row i is not null
+ *      values depending on the encoding of the column:
+ *          BOOL:               ceil(numRows / 8) bytes, bit i is set if the value of row i is true
+ *          INT8 .. FLOAT64:    numRows values of the fixed width, null values are 0
+ *          UTF8, JSON:         (numRows + 1) int32 offsets, followed by offsets[numRows] bytes of data
+ *                              The value of row i is stored between offsets[i] and offsets[i + 1].
+ *
+ *  End     := 'E' | int64 rowCount | float64 duration in ms
+ *  Error   := 'X' | int32 errorCode | int32 length | utf8 message
+ * </pre>
+ *
+ * Types without a native encoding (objects, arrays, geo types, ...) are encoded as JSON.
+ */
+final class ColumnarResultEncoder implements RestStreamingResultSetReceiver.Encoder {
+
+    static final String MEDIA_TYPE = "application/vnd.crate.columnar";
+
+    static final byte BOOL = 0;
+    static final byte INT8 = 1;
+    static final byte INT16 = 2;
+    static final byte INT32 = 3;
+    static final byte INT64 = 4;
+    static final byte FLOAT32 = 5;
+    static final byte FLOAT64 = 6;
+    static final byte UTF8 = 7;
+    static final byte JSON = 8;
+
+    private final ChunkOutputStream out;
+    private final Column[] columns;
+    private int numRows = 0;
+
+    ColumnarResultEncoder(ChunkOutputStream out, List<Symbol> outputFields) {
+        this.out = out;
+        this.columns = new Column[outputFields.size()];
+        ByteBuf buffer = out.buffer();
+        buffer.writeByte('S');
+        buffer.writeShortLE(outputFields.size());
+        for (int i = 0; i < columns.length; i++) {
+            Symbol field = outputFields.get(i);
+            int typeId = field.valueType().id();
+            byte encoding = encoding(typeId);
+            columns[i] = new Column(encoding);
+
+            String name = Symbols.pathFromSymbol(field).sqlFqn();
+            int lengthIndex = buffer.writerIndex();
+            buffer.writeIntLE(0);
+            int length = ByteBufUtil.writeUtf8(buffer, name);
+            buffer.setIntLE(lengthIndex, length);
+            buffer.writeIntLE(typeId);
+            buffer.writeByte(encoding);
+        }
+    }
+
+    static byte encoding(int typeId) {
+        switch (typeId) {
+            case BooleanType.ID:
+                return BOOL;
+            case ByteType.ID:
+                return INT8;
+            case ShortType.ID:
+                return INT16;
+            case IntegerType.ID:
+                return INT32;
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return INT64;
+            case FloatType.ID:
+                return FLOAT32;
+            case DoubleType.ID:
+                return FLOAT64;
+            case StringType.ID:
+            case IpType.ID:
+                return UTF8;
+            default:
+                return JSON;
+        }
+    }
+
+    @Override
+    public void addRow(Row row) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(numRows, row.get(i));
+        }
+        numRows++;
+    }
+
+    @Override
+    public void finishBatch() {
+        if (numRows == 0) {
+            return;
+        }
+        ByteBuf buffer = out.buffer();
+        buffer.writeByte('B');
+        buffer.writeIntLE(numRows);
+        for (Column column : columns) {
+            column.writeTo(buffer);
+        }
+        numRows = 0;
+    }
+
+    @Override
+    public void finish(long rowCount, long startTimeNs) {
+        ByteBuf buffer = out.buffer();
+        buffer.writeByte('E');
+        buffer.writeLongLE(rowCount);
+        buffer.writeDoubleLE((System.nanoTime() - startTimeNs) / 1_000_000.0);
+    }
+
+    @Override
+    public boolean writeError(SQLActionException error, boolean includeErrorTrace) {
+        ByteBuf buffer = out.buffer();
+        buffer.writeByte('X');
+        buffer.writeIntLE(error.errorCode());
+        int lengthIndex = buffer.writerIndex();
+        buffer.writeIntLE(0);
+        int length = ByteBufUtil.writeUtf8(buffer, userFriendlyMessageInclNested(error));
+        buffer.setIntLE(lengthIndex, length);
+        return true;
+    }
+
+    /**
+     * The buffers of a column are re-used for all batches.
+     */
+    private static final class Column {
+
+        private final byte encoding;
+        private final ByteBuf validity = Unpooled.buffer();
+        private final ByteBuf values = Unpooled.buffer();
+        private final ByteBuf offsets;
+
+        Column(byte encoding) {
+            this.encoding = encoding;
+            if (encoding == UTF8 || encoding == JSON) {
+                offsets = Unpooled.buffer();
+                offsets.writeIntLE(0);
+            } else {
+                offsets = null;
+            }
+        }
+
+        void add(int rowIdx, Object value) throws IOException {
+            boolean notNull = value != null;
+            setBit(validity, rowIdx, notNull);
+            switch (encoding) {
+                case BOOL:
+                    setBit(values, rowIdx, notNull && (Boolean) value);
+                    break;
+                case INT8:
+                    values.writeByte(notNull ? ((Number) value).byteValue() : 0);
+                    break;
+                case INT16:
+                    values.writeShortLE(notNull ? ((Number) value).shortValue() : 0);
+                    break;
+                case INT32:
+                    values.writeIntLE(notNull ? ((Number) value).intValue() : 0);
+                    break;
+                case INT64:
+                    values.writeLongLE(notNull ? ((Number) value).longValue() : 0L);
+                    break;
+                case FLOAT32:
+                    values.writeFloatLE(notNull ? ((Number) value).floatValue() : 0f);
+                    break;
+                case FLOAT64:
+                    values.writeDoubleLE(notNull ? ((Number) value).doubleValue() : 0d);
+                    break;
+                case UTF8:
+                    if (notNull) {
+                        ByteBufUtil.writeUtf8(values, (String) value);
+                    }
+                    offsets.writeIntLE(values.writerIndex());
+                    break;
+                case JSON:
+                    if (notNull) {
+                        try (XContentBuilder builder = new XContentBuilder(
+                            JsonXContent.jsonXContent, new ByteBufOutputStream(values))) {
+                            builder.value(value);
+                        }
+                    }
+                    offsets.writeIntLE(values.writerIndex());
+                    break;
+
+                default:
+                    throw new AssertionError("Unrecognized encoding: " + encoding);
+            }
+        }
+
+        void writeTo(ByteBuf buffer) {
+            buffer.writeBytes(validity);
+            validity.clear();
+            if (offsets != null) {
+                buffer.writeBytes(offsets);
+                offsets.clear();
+                offsets.writeIntLE(0);
+            }
+            buffer.writeBytes(values);
+            values.clear();
+        }
+
+        private static void setBit(ByteBuf bitmap, int idx, boolean value) {
+            int bit = idx % 8;
+            if (bit == 0) {
+                bitmap.writeByte(0);
+            }
+            if (value) {
+                int byteIdx = bitmap.writerIndex() - 1;
+                bitmap.setByte(byteIdx, bitmap.getByte(byteIdx) | (1 << bit));
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.ResultReceiver;
+import io.crate.action.sql.SQLActionException;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Symbol;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.http.netty4.cors.Netty4CorsConfig;
+import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static io.crate.protocols.http.Headers.isCloseConnection;
+
+/**
+ * ResultReceiver which streams the rows to the client using a chunked HTTP response instead of
+ * accumulating the whole result in memory.
+ *
+ * The execution is expected to suspend itself every {@link #BATCH_SIZE} rows. The rows of a batch are sent as one
+ * chunk and the execution is resumed once the channel is writable again, so a slow client slows down the
+ * execution instead of the rows piling up in memory.
+ *
+ * As the status and headers are sent together with the first chunk, failures which happen afterwards can't be
+ * reported with an error response:
+ * Formats which can represent errors send them as last part of the response,
+ * in the {@link Format#JSON} format the connection is closed without terminating the chunked response.
+ *
+ * The completion future is completed with {@code null} once the response has been sent or if the execution fails
+ * after the response has been started. If it fails before, the future is completed exceptionally and the caller is
+ * responsible to send the error response.
+ */
+class RestStreamingResultSetReceiver implements ResultReceiver<XContentBuilder> {
+
+    static final int BATCH_SIZE = 1000;
+
+    enum Format {
+
+        /**
+         * The same document as the non-streaming response, but the rowcount and duration are sent after the rows.
+         */
+        JSON("application/json; charset=UTF-8") {
+            @Override
+            Encoder newEncoder(ChunkOutputStream out, List<Symbol> outputFields, boolean includeTypes) throws IOException {
+                return new JsonEncoder(out, outputFields, includeTypes);
+            }
+        },
+
+        /**
+         * A line with the column names (and types), one line per row as JSON array and a last line with the
+         * rowcount and duration.
+         */
+        NDJSON("application/x-ndjson") {
+            @Override
+            Encoder newEncoder(ChunkOutputStream out, List<Symbol> outputFields, boolean includeTypes) throws IOException {
+                return new NdJsonEncoder(out, outputFields, includeTypes);
+            }
+        },
+
+        /**
+         * A binary format which encodes the rows of each batch column-wise, see {@link ColumnarResultEncoder}.
+         */
+        COLUMNAR(ColumnarResultEncoder.MEDIA_TYPE) {
+            @Override
+            Encoder newEncoder(ChunkOutputStream out, List<Symbol> outputFields, boolean includeTypes) {
+                return new ColumnarResultEncoder(out, outputFields);
+            }
+        };
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        String mediaType() {
+            return mediaType;
+        }
+
+        abstract Encoder newEncoder(ChunkOutputStream out,
+                                    List<Symbol> outputFields,
+                                    boolean includeTypes) throws IOException;
+    }
+
+    /**
+     * Encodes the result into the {@link ChunkOutputStream} of the response.
+     * The header must be written on creation.
+     */
+    interface Encoder {
+
+        void addRow(Row row) throws IOException;
+
+        /**
+         * Called before the content written so far is sent as chunk.
+         */
+        void finishBatch() throws IOException;
+
+        void finish(long rowCount, long startTimeNs) throws IOException;
+
+        /**
+         * @return false if the format can't represent errors
+         */
+        boolean writeError(SQLActionException error, boolean includeErrorTrace) throws IOException;
+    }
+
+    private final Channel channel;
+    private final FullHttpRequest request;
+    private final Netty4CorsConfig corsConfig;
+    private final Format format;
+    private final long startTimeNs;
+    private final Function<Throwable, SQLActionException> wrapError;
+    private final boolean includeErrorTrace;
+    private final Runnable resume;
+    private final ChunkOutputStream out;
+    private final Encoder encoder;
+    private final CompletableFuture<XContentBuilder> result = new CompletableFuture<>();
+    private final AtomicReference<Runnable> pendingResume = new AtomicReference<>();
+
+    private boolean responseStarted = false;
+    private long rowCount;
+
+    RestStreamingResultSetReceiver(Channel channel,
+                                   FullHttpRequest request,
+                                   Netty4CorsConfig corsConfig,
+                                   Format format,
+                                   List<Symbol> outputFields,
+                                   long startTimeNs,
+                                   boolean includeTypesOnResponse,
+                                   Function<Throwable, SQLActionException> wrapError,
+                                   boolean includeErrorTrace,
+                                   Runnable resume) throws IOException {
+        this.channel = channel;
+        this.request = request;
+        this.corsConfig = corsConfig;
+        this.format = format;
+        this.startTimeNs = startTimeNs;
+        this.wrapError = wrapError;
+        this.includeErrorTrace = includeErrorTrace;
+        this.resume = resume;
+        this.out = new ChunkOutputStream(channel.alloc());
+        this.encoder = format.newEncoder(out, outputFields, includeTypesOnResponse);
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            encoder.addRow(row);
+            rowCount++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void batchFinished() {
+        try {
+            encoder.finishBatch();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        ChannelFuture lastWrite = writeChunk();
+        channel.flush();
+        lastWrite.addListener(f -> {
+            // If the write failed the connection is gone;
+            // closing the session will then release the suspended execution
+            if (f.isSuccess()) {
+                pendingResume.set(resume);
+                if (channel.isWritable()) {
+                    resumeIfPending();
+                }
+            }
+        });
+    }
+
+    /**
+     * Must be called if the writability of the channel changes to resume a suspended execution.
+     */
+    void channelWritabilityChanged() {
+        if (channel.isWritable()) {
+            resumeIfPending();
+        }
+    }
+
+    private void resumeIfPending() {
+        Runnable resumeAction = pendingResume.getAndSet(null);
+        if (resumeAction != null) {
+            resumeAction.run();
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (result.isDone()) {
+            return;
+        }
+        if (interrupted) {
+            out.release();
+            channel.close();
+            result.complete(null);
+            return;
+        }
+        try {
+            encoder.finishBatch();
+            encoder.finish(rowCount, startTimeNs);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        writeChunk();
+        finishResponse();
+        result.complete(null);
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        if (result.isDone()) {
+            return;
+        }
+        out.release();
+        if (!responseStarted) {
+            result.completeExceptionally(t);
+            return;
+        }
+        boolean errorWritten;
+        try {
+            errorWritten = encoder.writeError(wrapError.apply(t), includeErrorTrace);
+        } catch (IOException e) {
+            out.release();
+            errorWritten = false;
+        }
+        if (errorWritten) {
+            writeChunk();
+            finishResponse();
+        } else {
+            channel.close();
+        }
+        result.complete(null);
+    }
+
+    @Override
+    public CompletableFuture<XContentBuilder> completionFuture() {
+        return result;
+    }
+
+    private ChannelFuture writeChunk() {
+        if (!responseStarted) {
+            startResponse();
+        }
+        ByteBuf chunk = out.takeChunk();
+        if (chunk == null) {
+            return channel.newSucceededFuture();
+        }
+        return channel.write(new DefaultHttpContent(chunk));
+    }
+
+    private void startResponse() {
+        responseStarted = true;
+        HttpVersion httpVersion = request.protocolVersion();
+        HttpResponse resp = new DefaultHttpResponse(httpVersion, HttpResponseStatus.OK);
+        resp.headers().add(HttpHeaderNames.CONTENT_TYPE, format.mediaType());
+        // HTTP/1.0 doesn't support chunked responses, the end of the response is signaled by closing the connection
+        if (httpVersion.equals(HttpVersion.HTTP_1_1)) {
+            HttpUtil.setTransferEncodingChunked(resp, true);
+        }
+        Netty4CorsHandler.setCorsResponseHeaders(request, resp, corsConfig);
+        channel.write(resp);
+    }
+
+    private void finishResponse() {
+        ChannelFuture lastWrite = channel.writeAndFlush(new DefaultLastHttpContent());
+        if (isCloseConnection(request) || !request.protocolVersion().equals(HttpVersion.HTTP_1_1)) {
+            lastWrite.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private static final class JsonEncoder implements Encoder {
+
+        private final ResultToXContentBuilder builder;
+        private final int numColumns;
+
+        JsonEncoder(ChunkOutputStream out, List<Symbol> outputFields, boolean includeTypes) throws IOException {
+            this.numColumns = outputFields.size();
+            this.builder = ResultToXContentBuilder.builder(new XContentBuilder(JsonXContent.jsonXContent, out));
+            builder.cols(outputFields);
+            if (includeTypes) {
+                builder.colTypes(outputFields);
+            }
+            builder.startRows();
+        }
+
+        @Override
+        public void addRow(Row row) throws IOException {
+            builder.addRow(row, numColumns);
+        }
+
+        @Override
+        public void finishBatch() throws IOException {
+            builder.flush();
+        }
+
+        @Override
+        public void finish(long rowCount, long startTimeNs) throws IOException {
+            builder
+                .finishRows()
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build()
+                .close();
+        }
+
+        @Override
+        public boolean writeError(SQLActionException error, boolean includeErrorTrace) {
+            return false;
+        }
+    }
+
+    private static final class NdJsonEncoder implements Encoder {
+
+        private static final byte NEW_LINE = (byte) '\n';
+
+        private final ChunkOutputStream out;
+        private final int numColumns;
+
+        NdJsonEncoder(ChunkOutputStream out, List<Symbol> outputFields, boolean includeTypes) throws IOException {
+            this.out = out;
+            this.numColumns = outputFields.size();
+            ResultToXContentBuilder header = ResultToXContentBuilder.builder(newLine());
+            header.cols(outputFields);
+            if (includeTypes) {
+                header.colTypes(outputFields);
+            }
+            header.build().close();
+        }
+
+        private XContentBuilder newLine() throws IOException {
+            return new XContentBuilder(JsonXContent.jsonXContent, out).lfAtEnd();
+        }
+
+        @Override
+        public void addRow(Row row) throws IOException {
+            try (XContentBuilder line = newLine()) {
+                line.startArray();
+                for (int i = 0; i < numColumns; i++) {
+                    line.value(row.get(i));
+                }
+                line.endArray();
+            }
+        }
+
+        @Override
+        public void finishBatch() {
+        }
+
+        @Override
+        public void finish(long rowCount, long startTimeNs) throws IOException {
+            ResultToXContentBuilder.builder(newLine())
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build()
+                .close();
+        }
+
+        @Override
+        public boolean writeError(SQLActionException error, boolean includeErrorTrace) throws IOException {
+            try (XContentBuilder errorBuilder = HTTPErrorFormatter.convert(error, includeErrorTrace)) {
+                BytesReference.bytes(errorBuilder).writeTo(out);
+                out.write(NEW_LINE);
+            }
+            return true;
+        }
+    }
+}
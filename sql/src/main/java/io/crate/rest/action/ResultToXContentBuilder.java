@@ -144,6 +144,14 @@ class ResultToXContentBuilder {
         return this;
     }
 
+    /**
+     * Flushes the content written so far to the output stream of the builder.
+     */
+    ResultToXContentBuilder flush() throws IOException {
+        builder.flush();
+        return this;
+    }
+
     XContentBuilder build() throws IOException {
         builder.endObject();
         return builder;
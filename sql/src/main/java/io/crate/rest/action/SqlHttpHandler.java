@@ -96,6 +96,9 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
 
     private Session session;
 
+    @Nullable
+    private volatile RestStreamingResultSetReceiver activeStream;
+
     SqlHttpHandler(Settings settings,
                    SQLOperations sqlOperations,
                    Function<String, CircuitBreaker> circuitBreakerProvider,
@@ -116,11 +119,14 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         if (request.uri().startsWith("/_sql")) {
             Session session = ensureSession(request);
             Map<String, List<String>> parameters = new QueryStringDecoder(request.uri()).parameters();
-            ByteBuf content = request.content();
-            handleSQLRequest(session, content, paramContainFlag(parameters, "types"))
+            handleSQLRequest(session, ctx, request, parameters)
                 .whenComplete((result, t) -> {
+                    activeStream = null;
                     try {
-                        sendResponse(session, ctx, request, parameters, result, t);
+                        if (t != null || result != null) {
+                            sendResponse(session, ctx, request, parameters, result, t);
+                        }
+                        // otherwise the response has already been streamed
                     } catch (Throwable ex) {
                         LOGGER.error("Error sending response", ex);
                         throw ex;
@@ -133,6 +139,38 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         }
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        RestStreamingResultSetReceiver stream = activeStream;
+        if (stream != null) {
+            stream.channelWritabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    /**
+     * @return the format in which the result should be streamed or null if it should be sent as a whole.
+     *         Results are streamed as newline delimited JSON or in the columnar format if requested via the
+     *         Accept header, or as JSON if the "stream" flag is set.
+     */
+    @Nullable
+    private static RestStreamingResultSetReceiver.Format streamFormat(FullHttpRequest request,
+                                                                      Map<String, List<String>> parameters) {
+        String accept = request.headers().get(HttpHeaderNames.ACCEPT);
+        if (accept != null) {
+            if (accept.contains(RestStreamingResultSetReceiver.Format.COLUMNAR.mediaType())) {
+                return RestStreamingResultSetReceiver.Format.COLUMNAR;
+            }
+            if (accept.contains(RestStreamingResultSetReceiver.Format.NDJSON.mediaType())) {
+                return RestStreamingResultSetReceiver.Format.NDJSON;
+            }
+        }
+        if (paramContainFlag(parameters, "stream")) {
+            return RestStreamingResultSetReceiver.Format.JSON;
+        }
+        return null;
+    }
+
     /**
      * @return true if the parameters contains a flag entry (e.g. "/_sql?flag" or "/_sql?flag=true")
      */
@@ -189,10 +227,13 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         ctx.writeAndFlush(resp, promise);
     }
 
-    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session, ByteBuf content, boolean includeTypes) {
+    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session,
+                                                                ChannelHandlerContext ctx,
+                                                                FullHttpRequest request,
+                                                                Map<String, List<String>> parameters) {
         SQLRequestParseContext parseContext;
         try {
-            parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(content));
+            parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(request.content()));
         } catch (Throwable t) {
             return CompletableFuture.failedFuture(t);
         }
@@ -204,7 +245,7 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         }
         try {
             if (args != null || bulkArgs == null) {
-                return executeSimpleRequest(session, parseContext.stmt(), args, includeTypes);
+                return executeSimpleRequest(session, ctx, request, parameters, parseContext.stmt(), args);
             } else {
                 return executeBulkRequest(session, parseContext.stmt(), bulkArgs);
             }
@@ -241,17 +282,38 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
     }
 
     private CompletableFuture<XContentBuilder> executeSimpleRequest(Session session,
+                                                                    ChannelHandlerContext ctx,
+                                                                    FullHttpRequest request,
+                                                                    Map<String, List<String>> parameters,
                                                                     String stmt,
-                                                                    List<Object> args,
-                                                                    boolean includeTypes) throws IOException {
+                                                                    List<Object> args) throws IOException {
         long startTimeInNs = System.nanoTime();
+        boolean includeTypes = paramContainFlag(parameters, "types");
         session.parse(UNNAMED, stmt, emptyList());
         session.bind(UNNAMED, UNNAMED, args == null ? emptyList() : args, null);
         DescribeResult description = session.describe('P', UNNAMED);
         List<Symbol> resultFields = description.getFields();
+        RestStreamingResultSetReceiver.Format streamFormat = streamFormat(request, parameters);
         ResultReceiver<XContentBuilder> resultReceiver;
+        int maxRows = 0;
         if (resultFields == null) {
             resultReceiver = new RestRowCountReceiver(JsonXContent.contentBuilder(), startTimeInNs, includeTypes);
+        } else if (streamFormat != null) {
+            RestStreamingResultSetReceiver stream = new RestStreamingResultSetReceiver(
+                ctx.channel(),
+                request,
+                corsConfig,
+                streamFormat,
+                resultFields,
+                startTimeInNs,
+                includeTypes,
+                t -> SQLExceptions.forWireTransmission(getAccessControl.apply(session.sessionContext()), t),
+                paramContainFlag(parameters, "error_trace"),
+                () -> session.resume(UNNAMED)
+            );
+            activeStream = stream;
+            resultReceiver = stream;
+            maxRows = RestStreamingResultSetReceiver.BATCH_SIZE;
         } else {
             CircuitBreaker breaker = circuitBreakerProvider.apply(CrateCircuitBreakerService.QUERY);
             RamAccounting ramAccounting = new BlockBasedRamAccounting(
@@ -269,7 +331,7 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             );
             resultReceiver.completionFuture().whenComplete((result, error) -> ramAccounting.close());
         }
-        session.execute(UNNAMED, 0, resultReceiver);
+        session.execute(UNNAMED, maxRows, resultReceiver);
         return session.sync()
             .thenCompose(ignored -> resultReceiver.completionFuture());
     }
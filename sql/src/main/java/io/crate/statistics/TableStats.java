@@ -27,6 +27,7 @@ import io.crate.metadata.RelationName;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Holds table statistics that are updated periodically by {@link TableStatsService}.
@@ -34,9 +35,19 @@ import java.util.Set;
 public class TableStats {
 
     private volatile Map<RelationName, Stats> tableStats = new HashMap<>();
+    private final AtomicLong version = new AtomicLong(0);
 
     public void updateTableStats(Map<RelationName, Stats> tableStats) {
         this.tableStats = tableStats;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns a number which changes with every update of the statistics.
+     * Can be used to detect if something derived from the statistics, like a plan, is outdated.
+     */
+    public long version() {
+        return version.get();
     }
 
     /**
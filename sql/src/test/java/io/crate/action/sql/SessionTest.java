@@ -37,8 +37,10 @@ import io.crate.planner.DependencyCarrier;
 import io.crate.planner.Plan;
 import io.crate.planner.Planner;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.operators.LogicalPlan;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.sql.parser.SqlParser;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataType;
@@ -52,6 +54,7 @@ import org.mockito.ArgumentMatchers;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -62,6 +65,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SessionTest extends CrateDummyClusterServiceUnitTest {
@@ -129,7 +134,8 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("S_1", "Select 1 + ? + ?;", Collections.emptyList());
         assertThat(session.getParamType("S_1", 0), is(DataTypes.UNDEFINED));
@@ -291,7 +297,8 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("S_1", "select name from sys.cluster;", Collections.emptyList());
         session.bind("Portal", "S_1", Collections.emptyList(), null);
@@ -326,7 +333,8 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("S_1", "select * from sys.cluster;", Collections.emptyList());
         session.bind("Portal", "S_1", Collections.emptyList(), null);
@@ -353,7 +361,8 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("test_prep_stmt", "select * from sys.cluster;", Collections.emptyList());
         session.bind("Portal", "test_prep_stmt", Collections.emptyList(), null);
@@ -379,7 +388,8 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("S_1", "SELECT 1", List.of());
         session.bind("P_1", "S_1", List.of(), null);
@@ -399,6 +409,7 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             .build();
         DependencyCarrier executor = mock(DependencyCarrier.class, Answers.RETURNS_MOCKS);
         Planner planner = mock(Planner.class);
+        when(planner.currentClusterState()).thenReturn(clusterService.state());
         when(planner.plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class)))
             .thenReturn(new Plan() {
                             @Override
@@ -425,7 +436,8 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("S_1", "INSERT INTO t1 (x) VALUES (1)", List.of());
         session.bind("P_1", "S_1", List.of(), null);
@@ -437,4 +449,77 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         session.sync().get(5, TimeUnit.SECONDS);
         assertThat(jobsLogs.metrics().iterator().next().totalCount(), is(1L));
     }
+
+    @Test
+    public void test_analyzed_statements_are_shared_between_sessions_through_the_statement_cache() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        DependencyCarrier executor = mock(DependencyCarrier.class);
+        StatementCache statementCache = new StatementCache(10);
+        List<Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Session session = new Session(
+                sqlExecutor.analyzer,
+                sqlExecutor.planner,
+                new JobsLogs(() -> false),
+                false,
+                executor,
+                AccessControl.DISABLED,
+                SessionContext.systemSessionContext(),
+                statementCache);
+            session.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+            sessions.add(session);
+        }
+        assertThat(statementCache.missCount(), is(1L));
+        assertThat(statementCache.hitCount(), is(1L));
+        assertThat(statementCache.size(), is(1L));
+        assertThat(
+            sessions.get(0).preparedStatements.get("S_1").analyzedStatement(),
+            Matchers.sameInstance(sessions.get(1).preparedStatements.get("S_1").analyzedStatement()));
+
+        sessions.get(0).parse("S_2", "select current_timestamp from sys.cluster", List.of());
+        assertThat(statementCache.size(), is(1L));
+    }
+
+    @Test
+    public void test_logical_plans_are_cached_with_the_analyzed_statement_until_table_stats_change() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        DependencyCarrier executor = mock(DependencyCarrier.class, Answers.RETURNS_MOCKS);
+        TableStats tableStats = new TableStats();
+        LogicalPlan logicalPlan = mock(LogicalPlan.class);
+        when(logicalPlan.type()).thenReturn(Plan.StatementType.SELECT);
+        Planner planner = mock(Planner.class);
+        when(planner.currentClusterState()).thenReturn(clusterService.state());
+        when(planner.tableStats()).thenReturn(tableStats);
+        when(planner.plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class)))
+            .thenReturn(logicalPlan);
+        StatementCache statementCache = new StatementCache(10);
+        for (int i = 0; i < 2; i++) {
+            Session session = new Session(
+                sqlExecutor.analyzer,
+                planner,
+                new JobsLogs(() -> false),
+                false,
+                executor,
+                AccessControl.DISABLED,
+                SessionContext.systemSessionContext(),
+                statementCache);
+            session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+        }
+        verify(planner, times(1)).plan(
+            ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+
+        tableStats.updateTableStats(Map.of());
+        Session session = new Session(
+            sqlExecutor.analyzer,
+            planner,
+            new JobsLogs(() -> false),
+            false,
+            executor,
+            AccessControl.DISABLED,
+            SessionContext.systemSessionContext(),
+            statementCache);
+        session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+        verify(planner, times(2)).plan(
+            ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+    }
 }
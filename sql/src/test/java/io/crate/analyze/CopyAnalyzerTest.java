@@ -55,6 +55,7 @@ import static io.crate.testing.SymbolMatchers.isLiteral;
 import static io.crate.testing.SymbolMatchers.isReference;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.IsEqual.equalTo;
 
 public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
@@ -170,6 +171,29 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.JSON));
     }
 
+    @Test
+    public void testCopyFromStdin() {
+        BoundCopyFrom analysis = analyze("COPY users FROM STDIN WITH (format='csv')");
+        assertThat(analysis.tableInfo().ident(), is(USER_TABLE_IDENT));
+        assertThat(analysis.uri(), nullValue());
+        assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.CSV));
+    }
+
+    @Test
+    public void testCopyFromStdinWithReturnSummaryIsNotSupported() {
+        expectedException.expect(UnsupportedOperationException.class);
+        expectedException.expectMessage("Using COPY FROM STDIN with RETURN SUMMARY is not supported");
+        analyze("COPY users FROM STDIN RETURN SUMMARY");
+    }
+
+    @Test
+    public void testCopyToStdout() {
+        BoundCopyTo analysis = analyze("COPY users (id, name) TO STDOUT");
+        assertThat(analysis.table().ident(), is(USER_TABLE_IDENT));
+        assertThat(analysis.uri(), nullValue());
+        assertThat(analysis.columnsDefined(), is(true));
+    }
+
     @Test
     public void testCopyToFile() throws Exception {
         expectedException.expect(UnsupportedOperationException.class);
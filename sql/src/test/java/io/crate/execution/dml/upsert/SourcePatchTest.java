@@ -0,0 +1,107 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.dml.upsert;
+
+import io.crate.metadata.ColumnIdent;
+import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+
+public class SourcePatchTest extends CrateUnitTest {
+
+    private static Map<String, Object> toMap(BytesReference source) {
+        return XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+    }
+
+    @Test
+    public void test_replaces_top_level_value_and_keeps_other_fields() throws Exception {
+        SourcePatch patch = new SourcePatch();
+        assertThat(patch.put(new ColumnIdent("x"), 10), is(true));
+
+        BytesReference source = patch.applyTo("{\"x\": 1, \"y\": [1, 2], \"o\": {\"a\": \"foo\"}}");
+        assertThat(
+            toMap(source),
+            is(Map.of("x", 10, "y", List.of(1, 2), "o", Map.of("a", "foo"))));
+    }
+
+    @Test
+    public void test_replaces_object_value_with_scalar() throws Exception {
+        SourcePatch patch = new SourcePatch();
+        patch.put(new ColumnIdent("o"), Map.of("b", 2));
+
+        BytesReference source = patch.applyTo("{\"o\": {\"a\": {\"b\": 1}}}");
+        assertThat(toMap(source), is(Map.of("o", Map.of("b", 2))));
+    }
+
+    @Test
+    public void test_sets_nested_value_and_appends_missing_columns() throws Exception {
+        SourcePatch patch = new SourcePatch();
+        patch.put(new ColumnIdent("o", List.of("a")), 2);
+        patch.put(new ColumnIdent("o", List.of("c", "d")), "bar");
+        patch.put(new ColumnIdent("z"), null);
+
+        BytesReference source = patch.applyTo("{\"o\": {\"a\": 1, \"b\": true}}");
+        HashMap<String, Object> expected = new HashMap<>();
+        expected.put("o", Map.of("a", 2, "b", true, "c", Map.of("d", "bar")));
+        expected.put("z", null);
+        assertThat(toMap(source), is(expected));
+    }
+
+    @Test
+    public void test_setting_child_of_null_object_creates_the_object() throws Exception {
+        SourcePatch patch = new SourcePatch();
+        patch.put(new ColumnIdent("o", List.of("x")), 10);
+
+        BytesReference source = patch.applyTo("{\"o\": null}");
+        assertThat(toMap(source), is(Map.of("o", Map.of("x", 10))));
+    }
+
+    @Test
+    public void test_setting_child_of_non_object_value_fails() throws Exception {
+        SourcePatch patch = new SourcePatch();
+        patch.put(new ColumnIdent("o", List.of("x")), 10);
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Cannot set a child of \"o\" because it isn't an object");
+        patch.applyTo("{\"o\": 1}");
+    }
+
+    @Test
+    public void test_put_rejects_column_and_its_child() throws Exception {
+        SourcePatch patch = new SourcePatch();
+        assertThat(patch.put(new ColumnIdent("o", List.of("x")), 10), is(true));
+        assertThat(patch.put(new ColumnIdent("o"), Map.of()), is(false));
+
+        patch = new SourcePatch();
+        assertThat(patch.put(new ColumnIdent("o"), Map.of()), is(true));
+        assertThat(patch.put(new ColumnIdent("o", List.of("x")), 10), is(false));
+    }
+}
@@ -37,6 +37,8 @@ import io.crate.testing.SQLExecutor;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -282,4 +284,90 @@ public class UpdateSourceGenTest extends CrateDummyClusterServiceUnitTest {
         );
         assertThat(updatedSource, is(Map.of("obj", Map.of("x", 10))));
     }
+
+    @Test
+    public void test_patch_source_writes_assigned_values_into_raw_source() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (x int, y text, obj object as (a int, b int))")
+            .build();
+        AnalyzedUpdateStatement update = e.analyze("update t set x = 10, obj['b'] = 20");
+        Assignments assignments = Assignments.convert(update.assignmentByTargetCol());
+        DocTableInfo table = (DocTableInfo) update.table().tableInfo();
+        UpdateSourceGen updateSourceGen = new UpdateSourceGen(
+            e.functions(),
+            txnCtx,
+            table,
+            assignments.targetNames()
+        );
+        assertThat(updateSourceGen.canPatch(assignments.sources()), is(true));
+        BytesReference source = updateSourceGen.patchSource(
+            Doc.withLazySource(
+                1,
+                table.concreteIndices()[0],
+                "1",
+                1,
+                1,
+                1,
+                () -> {
+                    throw new AssertionError("Source must not be parsed");
+                },
+                () -> "{\"x\": 1, \"y\": \"foo\", \"obj\": {\"a\": 2}}"
+            ),
+            assignments.sources(),
+            new Object[0]
+        );
+        assertThat(
+            XContentHelper.convertToMap(source, false, XContentType.JSON).v2(),
+            is(Map.of("x", 10, "y", "foo", "obj", Map.of("a", 2, "b", 20))));
+    }
+
+    @Test
+    public void test_assignments_referring_to_existing_values_cannot_be_patched() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (x int)")
+            .build();
+        AnalyzedUpdateStatement update = e.analyze("update t set x = x + 1");
+        Assignments assignments = Assignments.convert(update.assignmentByTargetCol());
+        DocTableInfo table = (DocTableInfo) update.table().tableInfo();
+        UpdateSourceGen updateSourceGen = new UpdateSourceGen(
+            e.functions(),
+            txnCtx,
+            table,
+            assignments.targetNames()
+        );
+        assertThat(updateSourceGen.canPatch(assignments.sources()), is(false));
+    }
+
+    @Test
+    public void test_patch_source_validates_not_null_constraint_of_child_column() throws Exception {
+        SQLExecutor e = SQLExecutor.builder(clusterService)
+            .addTable("create table t (obj object as (a int not null))")
+            .build();
+        AnalyzedUpdateStatement update = e.analyze("update t set obj = {b = 1}");
+        Assignments assignments = Assignments.convert(update.assignmentByTargetCol());
+        DocTableInfo table = (DocTableInfo) update.table().tableInfo();
+        UpdateSourceGen updateSourceGen = new UpdateSourceGen(
+            e.functions(),
+            txnCtx,
+            table,
+            assignments.targetNames()
+        );
+
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("\"obj['a']\" must not be null");
+        updateSourceGen.patchSource(
+            new Doc(
+                1,
+                table.concreteIndices()[0],
+                "1",
+                1,
+                1,
+                1,
+                Map.of("obj", Map.of("a", 1)),
+                () -> "{\"obj\": {\"a\": 1}}"
+            ),
+            assignments.sources(),
+            new Object[0]
+        );
+    }
 }
@@ -97,6 +97,33 @@ public class WindowAggProjectionSerialisationTest {
         assertThat(actualWindowAggProjection, is(expectedWindowAggProjection));
     }
 
+    @Test
+    public void test_window_agg_projection_serialization_with_sorted_source() throws IOException {
+        WindowDefinition partitionByOneWindowDef =
+            new WindowDefinition(singletonList(Literal.of(1L)), null, null);
+        WindowFunction windowFunction = new WindowFunction(
+            getSumFunction().info(), singletonList(Literal.of(2L)), null, partitionByOneWindowDef);
+
+        ArrayList<WindowFunctionContext> windowFunctionContexts = new ArrayList<>(1);
+        windowFunctionContexts.add(new WindowFunctionContext(
+            windowFunction,
+            singletonList(Literal.of(2L)),
+            Literal.BOOLEAN_TRUE));
+        var expectedWindowAggProjection = new WindowAggProjection(
+            partitionByOneWindowDef,
+            windowFunctionContexts,
+            List.of(Literal.of(42L)),
+            true);
+
+        var output = new BytesStreamOutput();
+        expectedWindowAggProjection.writeTo(output);
+
+        var actualWindowAggProjection = new WindowAggProjection(output.bytes().streamInput());
+
+        assertThat(actualWindowAggProjection.sourceIsSorted(), is(true));
+        assertThat(actualWindowAggProjection, is(expectedWindowAggProjection));
+    }
+
     @Test
     public void test_window_agg_projection_serialization_with_filter_before_4_1_0()
         throws IOException {
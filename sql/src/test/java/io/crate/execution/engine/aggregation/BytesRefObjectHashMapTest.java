@@ -0,0 +1,152 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.memory.OffHeapMemoryManager;
+import io.crate.memory.OnHeapMemoryManager;
+import io.crate.test.integration.CrateUnitTest;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BytesRefObjectHashMapTest extends CrateUnitTest {
+
+    private static BytesRefObjectHashMap<Integer> newMap() {
+        return new BytesRefObjectHashMap<>(new BytesRefObjectHashMap.KeyPages(new OnHeapMemoryManager(bytes -> {})));
+    }
+
+    @Test
+    public void testKeysAreCopiedOnPutSoThatTheKeyInstanceCanBeReused() {
+        BytesRefObjectHashMap<Integer> map = newMap();
+        BytesRefBuilder scratch = new BytesRefBuilder();
+        scratch.copyChars("foo");
+        map.put(scratch.get(), 1);
+        scratch.copyChars("bar");
+        map.put(scratch.get(), 2);
+
+        assertThat(map.size(), is(2));
+        assertThat(map.get(new BytesRef("foo")), is(1));
+        assertThat(map.get(new BytesRef("bar")), is(2));
+        assertThat(map.get(new BytesRef("baz")), nullValue());
+    }
+
+    @Test
+    public void testPutReplacesValueOfExistingKey() {
+        BytesRefObjectHashMap<Integer> map = newMap();
+        assertThat(map.put(new BytesRef("foo"), 1), nullValue());
+        assertThat(map.put(new BytesRef("foo"), 2), is(1));
+        assertThat(map.size(), is(1));
+        assertThat(map.get(new BytesRef("foo")), is(2));
+    }
+
+    @Test
+    public void testMapBehavesLikeHashMapWhenGrowing() {
+        BytesRefObjectHashMap<Integer> map = newMap();
+        Map<BytesRef, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            BytesRef key = new BytesRef(randomAlphaOfLengthBetween(0, 10));
+            int value = randomInt();
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertThat(map.size(), is(expected.size()));
+        for (var entry : expected.entrySet()) {
+            assertThat(map.get(entry.getKey()), is(entry.getValue()));
+        }
+        Map<BytesRef, Integer> entries = new HashMap<>();
+        for (var entry : map.entrySet()) {
+            entries.put(BytesRef.deepCopyOf(entry.getKey()), entry.getValue());
+        }
+        assertThat(entries, is(expected));
+    }
+
+    @Test
+    public void testMapIsEmptyAfterClear() {
+        BytesRefObjectHashMap<Integer> map = newMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(new BytesRef(Integer.toString(i)), i);
+        }
+        map.clear();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.get(new BytesRef("10")), nullValue());
+        assertThat(map.entrySet().iterator().hasNext(), is(false));
+
+        map.put(new BytesRef("10"), 20);
+        assertThat(map.get(new BytesRef("10")), is(20));
+    }
+
+    @Test
+    public void testKeysAreStoredInOffHeapPages() {
+        var allocator = UnpooledByteBufAllocator.DEFAULT;
+        try (OffHeapMemoryManager memoryManager = new OffHeapMemoryManager(allocator, bytes -> {})) {
+            BytesRefObjectHashMap<Integer> map = new BytesRefObjectHashMap<>(
+                new BytesRefObjectHashMap.KeyPages(memoryManager));
+            Map<BytesRef, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 5000; i++) {
+                BytesRef key = new BytesRef(randomAlphaOfLengthBetween(0, 20));
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            BytesRef largeKey = new BytesRef(randomAlphaOfLength(BytesRefObjectHashMap.PAGE_SIZE + 1));
+            map.put(largeKey, -1);
+            expected.put(largeKey, -1);
+
+            Map<BytesRef, Integer> entries = new HashMap<>();
+            for (var entry : map.entrySet()) {
+                assertThat(map.get(entry.getKey()), is(entry.getValue()));
+                entries.put(BytesRef.deepCopyOf(entry.getKey()), entry.getValue());
+            }
+            assertThat(entries, is(expected));
+        }
+    }
+
+    @Test
+    public void testPagesOfAClosedMapAreReusedByTheNextMap() {
+        AtomicLong allocatedBytes = new AtomicLong();
+        BytesRefObjectHashMap.KeyPages keyPages = new BytesRefObjectHashMap.KeyPages(
+            new OnHeapMemoryManager(allocatedBytes::addAndGet));
+        BytesRefObjectHashMap<Integer> map = new BytesRefObjectHashMap<>(keyPages);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(new BytesRef(Integer.toString(i)), i);
+        }
+        long bytesOfFirstMap = allocatedBytes.get();
+        assertThat(bytesOfFirstMap > BytesRefObjectHashMap.PAGE_SIZE, is(true));
+        map.close();
+
+        map = new BytesRefObjectHashMap<>(keyPages);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(new BytesRef(Integer.toString(i)), i);
+        }
+        assertThat(allocatedBytes.get(), is(bytesOfFirstMap));
+        assertThat(map.get(new BytesRef("9999")), is(9999));
+    }
+}
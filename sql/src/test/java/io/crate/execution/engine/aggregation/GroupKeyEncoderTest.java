@@ -0,0 +1,119 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.data.Input;
+import io.crate.data.RowN;
+import io.crate.expression.symbol.Literal;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class GroupKeyEncoderTest extends CrateUnitTest {
+
+    private static final List<DataType> TYPES = List.of(
+        DataTypes.BOOLEAN,
+        DataTypes.BYTE,
+        DataTypes.SHORT,
+        DataTypes.INTEGER,
+        DataTypes.LONG,
+        DataTypes.TIMESTAMPZ,
+        DataTypes.FLOAT,
+        DataTypes.DOUBLE,
+        DataTypes.STRING,
+        DataTypes.IP
+    );
+
+    private static List<Input<?>> inputs(Object... values) {
+        List<Input<?>> inputs = new ArrayList<>(values.length);
+        for (Object value : values) {
+            inputs.add(() -> value);
+        }
+        return inputs;
+    }
+
+    @Test
+    public void testEncodedKeyCanBeDecoded() {
+        GroupKeyEncoder encoder = new GroupKeyEncoder(TYPES);
+        Object[] values = new Object[] {
+            true, (byte) -3, (short) 300, -42, Long.MIN_VALUE, 1574690400000L, 1.5f, -0.25d, "Grüße 🐿", "127.0.0.1"
+        };
+        BytesRef key = encoder.encode(inputs(values));
+
+        Object[] cells = new Object[TYPES.size()];
+        encoder.decode(key, cells);
+        assertThat(cells, arrayContaining(values));
+    }
+
+    @Test
+    public void testNullValuesCanBeDecoded() {
+        GroupKeyEncoder encoder = new GroupKeyEncoder(List.of(DataTypes.STRING, DataTypes.LONG, DataTypes.STRING));
+        BytesRef key = encoder.encode(inputs(null, 10L, null));
+
+        Object[] cells = new Object[] { "x", "y", "z" };
+        encoder.decode(key, cells);
+        assertThat(cells, arrayContaining(null, 10L, null));
+    }
+
+    @Test
+    public void testEqualKeysFromInputsAndRowsHaveEqualBytes() {
+        GroupKeyEncoder encoder = new GroupKeyEncoder(List.of(DataTypes.STRING, DataTypes.INTEGER));
+        BytesRef fromInputs = BytesRef.deepCopyOf(encoder.encode(inputs("foo", 1)));
+        BytesRef fromRow = encoder.encode(new RowN("foo", 1, "additional columns are ignored"));
+        assertThat(fromRow, is(fromInputs));
+    }
+
+    @Test
+    public void testStringBoundariesArePartOfTheKey() {
+        GroupKeyEncoder encoder = new GroupKeyEncoder(List.of(DataTypes.STRING, DataTypes.STRING));
+        BytesRef key = BytesRef.deepCopyOf(encoder.encode(inputs("ab", "c")));
+        assertThat(encoder.encode(inputs("a", "bc")), not(is(key)));
+        assertThat(encoder.encode(inputs("abc", null)), not(is(key)));
+    }
+
+    @Test
+    public void testUnsupportedTypesAreDetected() {
+        assertThat(GroupKeyEncoder.supports(TYPES), is(true));
+        assertThat(GroupKeyEncoder.supports(List.of(DataTypes.LONG, DataTypes.GEO_POINT)), is(false));
+        assertThat(GroupKeyEncoder.supports(List.of(DataTypes.GEO_SHAPE)), is(false));
+    }
+
+    @Test
+    public void testLiteralInputsCanBeEncoded() {
+        GroupKeyEncoder encoder = new GroupKeyEncoder(List.of(DataTypes.LONG, DataTypes.STRING));
+        BytesRef key = encoder.encode(List.of(Literal.of(1L), Literal.of("a")));
+        Object[] cells = new Object[2];
+        encoder.decode(key, cells);
+        assertThat(cells, arrayContaining(1L, "a"));
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.Row1;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Literal;
+import io.crate.memory.OnHeapMemoryManager;
+import io.crate.metadata.FunctionIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+
+public class GroupingCollectorTest extends CrateUnitTest {
+
+    private static final int NUM_KEYS = 10_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AggregationFunction sumAgg;
+    private CircuitBreaker breaker;
+    private RamAccounting ramAccounting;
+
+    @Before
+    public void setUpFunctionsAndBreaker() {
+        sumAgg = (AggregationFunction) getFunctions().getQualified(
+            new FunctionIdent(SumAggregation.NAME, List.of(DataTypes.LONG)));
+        breaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(64, ByteSizeUnit.KB),
+            1.0,
+            LogManager.getLogger(GroupingCollectorTest.class)
+        );
+        ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("test", breaker);
+    }
+
+    private List<Row> rows() {
+        // every key appears twice, spread over the input so that spilled and in-memory states must be merged
+        List<Row> rows = new ArrayList<>(NUM_KEYS * 2);
+        for (long i = 0; i < NUM_KEYS * 2; i++) {
+            rows.add(new Row1(i % NUM_KEYS));
+        }
+        return rows;
+    }
+
+    private GroupingCollector<Object> createSumCollector(@Nullable Path spillDirectory, AggregateMode mode) {
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        return GroupingCollector.singleKey(
+            new CollectExpression[] { keyInput },
+            mode,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { keyInput } },
+            new Input[] { Literal.BOOLEAN_TRUE },
+            ramAccounting,
+            new OnHeapMemoryManager(bytes -> {}),
+            Version.CURRENT,
+            keyInput,
+            DataTypes.LONG,
+            Version.CURRENT,
+            spillDirectory,
+            breaker
+        );
+    }
+
+    private static Map<Object, Object> collect(GroupingCollector<?> collector, List<Row> rows) {
+        Map<Object, Object> sumByKey = new HashMap<>();
+        for (Row row : rows.stream().collect(collector)) {
+            assertThat("keys must be unique", sumByKey.put(row.get(0), row.get(1)), is((Object) null));
+        }
+        return sumByKey;
+    }
+
+    @Test
+    public void testGroupsAreSpilledAndMergedIfBreakerIsAboutToTrip() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        Map<Object, Object> sumByKey;
+        try (GroupingCollector<Object> collector = createSumCollector(spillDirectory.toPath(), AggregateMode.ITER_FINAL)) {
+            sumByKey = collect(collector, rows());
+            assertThat(spillDirectory.listFiles(), arrayWithSize(GroupingCollector.NUM_PARTITIONS));
+        }
+        assertThat(spillDirectory.listFiles(), arrayWithSize(0));
+        assertThat(sumByKey.size(), is(NUM_KEYS));
+        for (long i = 0; i < NUM_KEYS; i++) {
+            assertThat(sumByKey.get(i), is(i * 2));
+        }
+        ramAccounting.release();
+        assertThat(breaker.getUsed(), is(0L));
+    }
+
+    @Test
+    public void testPartialStatesAreSpilledAndReducedInPartialFinalMode() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        List<Row> partialRows = new ArrayList<>(NUM_KEYS * 2);
+        for (long i = 0; i < NUM_KEYS * 2; i++) {
+            partialRows.add(new RowN(i % NUM_KEYS, 1L));
+        }
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        InputCollectExpression stateInput = new InputCollectExpression(1);
+        Map<Object, Object> sumByKey;
+        try (GroupingCollector<Object> collector = GroupingCollector.singleKey(
+            new CollectExpression[] { keyInput, stateInput },
+            AggregateMode.PARTIAL_FINAL,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { stateInput } },
+            new Input[] { Literal.BOOLEAN_TRUE },
+            ramAccounting,
+            new OnHeapMemoryManager(bytes -> {}),
+            Version.CURRENT,
+            keyInput,
+            DataTypes.LONG,
+            Version.CURRENT,
+            spillDirectory.toPath(),
+            breaker)) {
+            sumByKey = collect(collector, partialRows);
+        }
+        assertThat(spillDirectory.listFiles(), arrayWithSize(0));
+        assertThat(sumByKey.size(), is(NUM_KEYS));
+        for (long i = 0; i < NUM_KEYS; i++) {
+            assertThat(sumByKey.get(i), is(2L));
+        }
+    }
+
+    @Test
+    public void testGroupsWithEncodedKeysAreSpilledAndMerged() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        List<Row> rows = new ArrayList<>(NUM_KEYS * 2);
+        for (long i = 0; i < NUM_KEYS * 2; i++) {
+            long x = i % NUM_KEYS;
+            rows.add(new RowN(x, x % 3 == 0 ? null : "s" + x, 1L));
+        }
+        InputCollectExpression longKey = new InputCollectExpression(0);
+        InputCollectExpression stringKey = new InputCollectExpression(1);
+        InputCollectExpression value = new InputCollectExpression(2);
+        Map<List<Object>, Object> sumByKeys = new HashMap<>();
+        try (GroupingCollector<BytesRef> collector = GroupingCollector.encodedKeys(
+            new CollectExpression[] { longKey, stringKey, value },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { value } },
+            new Input[] { Literal.BOOLEAN_TRUE },
+            ramAccounting,
+            new OnHeapMemoryManager(bytes -> {}),
+            Version.CURRENT,
+            List.of(longKey, stringKey),
+            List.of(DataTypes.LONG, DataTypes.STRING),
+            Version.CURRENT,
+            spillDirectory.toPath(),
+            breaker)) {
+            for (Row row : rows.stream().collect(collector)) {
+                sumByKeys.put(Arrays.asList(row.get(0), row.get(1)), row.get(2));
+            }
+            assertThat(spillDirectory.listFiles(), arrayWithSize(GroupingCollector.NUM_PARTITIONS));
+        }
+        assertThat(spillDirectory.listFiles(), arrayWithSize(0));
+        assertThat(sumByKeys.size(), is(NUM_KEYS));
+        for (long i = 0; i < NUM_KEYS; i++) {
+            assertThat(sumByKeys.get(Arrays.asList(i, i % 3 == 0 ? null : "s" + i)), is(2L));
+        }
+    }
+
+    @Test
+    public void testGroupsAreKeptInMemoryWithoutSpillDirectory() throws Exception {
+        breaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(10, ByteSizeUnit.MB),
+            1.0,
+            LogManager.getLogger(GroupingCollectorTest.class)
+        );
+        ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("test", breaker);
+        try (GroupingCollector<Object> collector = createSumCollector(null, AggregateMode.ITER_FINAL)) {
+            Map<Object, Object> sumByKey = collect(collector, rows());
+            assertThat(sumByKey.size(), is(NUM_KEYS));
+            assertThat(sumByKey.get(42L), is(84L));
+        }
+    }
+}
@@ -42,6 +42,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -53,6 +55,8 @@ import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -60,6 +64,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static io.crate.testing.TestingHelpers.getFunctions;
@@ -179,6 +184,63 @@ public class GroupByOptimizedIteratorTest extends CrateDummyClusterServiceUnitTe
         assertThat(expectedException, instanceOf(IllegalStateException.class));
     }
 
+    @Test
+    public void test_optimized_iterator_groups_by_ordinals_of_many_keys() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        List<Object[]> expectedResult = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String x = "x_" + i;
+            for (int j = 0; j < 4; j++) {
+                String y = j == 3 ? null : "y_" + j;
+                for (int k = 0; k <= i; k++) {
+                    Document doc = new Document();
+                    doc.add(new SortedSetDocValuesField("x", new BytesRef(x)));
+                    if (y != null) {
+                        doc.add(new SortedSetDocValuesField("y", new BytesRef(y)));
+                    }
+                    iw.addDocument(doc);
+                }
+                expectedResult.add(new Object[] { x, y, (long) i + 1 });
+            }
+            // creates a segment per x value, so states of the same keys must be merged across segments
+            iw.commit();
+        }
+        Document doc = new Document();
+        doc.add(new SortedSetDocValuesField("x", new BytesRef("x_0")));
+        doc.add(new SortedSetDocValuesField("y", new BytesRef("y_0")));
+        iw.addDocument(doc);
+        iw.commit();
+        expectedResult.set(0, new Object[] { "x_0", "y_0", 2L });
+
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<Function<LeafReaderContext, SortedSetDocValues>> ordinalsFunctions = new ArrayList<>();
+        for (String column : List.of("x", "y")) {
+            ordinalsFunctions.add(leaf -> {
+                try {
+                    return DocValues.getSortedSet(leaf.reader(), column);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        BatchIteratorTester tester = new BatchIteratorTester(() -> GroupByOptimizedIterator.getIteratorForManyKeys(
+            indexSearcher,
+            ordinalsFunctions,
+            List.of("x", "y"),
+            aggregationContexts,
+            Collections.emptyList(),
+            Collections.singletonList(inExpr),
+            RamAccounting.NO_ACCOUNTING,
+            new OnHeapMemoryManager(usedBytes -> {}),
+            Version.CURRENT,
+            new InputRow(Collections.singletonList(inExpr)),
+            new MatchAllDocsQuery(),
+            new CollectorContext(mappedFieldType -> null),
+            AggregateMode.ITER_FINAL
+        ));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
     private Throwable stopOnInterrupting(Consumer<BatchIterator<Row>> interruptingConsumer) throws Exception {
         CountDownLatch waitForLoadNextBatch = new CountDownLatch(1);
         CountDownLatch pauseOnDocumentCollecting = new CountDownLatch(1);
@@ -33,6 +33,7 @@ import io.crate.metadata.Functions;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
+import org.elasticsearch.common.settings.Settings;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -60,7 +61,7 @@ public class MapSideDataCollectOperationTest extends CrateDummyClusterServiceUni
     @Test
     public void testFileUriCollect() throws Exception {
         Functions functions = getFunctions();
-        FileCollectSource fileCollectSource = new FileCollectSource(functions, clusterService, Collections.emptyMap());
+        FileCollectSource fileCollectSource = new FileCollectSource(Settings.EMPTY, functions, clusterService, THREAD_POOL, Collections.emptyMap());
 
         File tmpFile = temporaryFolder.newFile("fileUriCollectOperation.json");
         try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
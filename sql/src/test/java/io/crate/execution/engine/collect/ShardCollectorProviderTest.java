@@ -25,6 +25,7 @@ package io.crate.execution.engine.collect;
 import com.google.common.collect.Lists;
 import io.crate.execution.engine.collect.sources.ShardCollectSource;
 import io.crate.integrationtests.SQLTransportIntegrationTest;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.ShardId;
 import org.junit.Test;
 
@@ -32,10 +33,20 @@ import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Map;
 
+import static io.crate.testing.TestingHelpers.printedTable;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 
 public class ShardCollectorProviderTest extends SQLTransportIntegrationTest {
 
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            .put(LuceneShardCollectorProvider.MIN_DOCS_PER_SLICE_SETTING.getKey(), 1)
+            .build();
+    }
+
     public void assertNoShardEntriesLeftInShardCollectSource() throws Exception {
         final Field shards = ShardCollectSource.class.getDeclaredField("shards");
         shards.setAccessible(true);
@@ -82,4 +93,34 @@ public class ShardCollectorProviderTest extends SQLTransportIntegrationTest {
         // shouldn't throw an exception:
         execute(plan).getResult();
     }
+
+    @Test
+    public void test_sliced_shard_collect_under_partial_aggregation_returns_the_result_of_all_slices() throws Exception {
+        execute("create table t (x int, g int) clustered into 1 shards with (number_of_replicas = 0)");
+        ensureGreen();
+        // Each refresh creates a new segment, the slices of a shard consist of whole segments
+        for (int segment = 0; segment < 4; segment++) {
+            Object[][] bulkArgs = new Object[100][];
+            for (int i = 0; i < bulkArgs.length; i++) {
+                bulkArgs[i] = new Object[] { segment * bulkArgs.length + i, i % 7 };
+            }
+            execute("insert into t (x, g) values (?, ?)", bulkArgs);
+            refresh();
+        }
+        execute("select count(*) from sys.segments where table_name = 't' and primary = true");
+        assertThat((long) response.rows()[0][0], greaterThan(1L));
+
+        // Every shard with more than one segment is sliced, see nodeSettings
+        execute("select g, count(*), sum(x), min(x), max(x) from t group by g order by g");
+        assertThat(printedTable(response.rows()), is(
+            "0| 60| 11940| 0| 398\n" +
+            "1| 60| 12000| 1| 399\n" +
+            "2| 56| 11060| 2| 393\n" +
+            "3| 56| 11116| 3| 394\n" +
+            "4| 56| 11172| 4| 395\n" +
+            "5| 56| 11228| 5| 396\n" +
+            "6| 56| 11284| 6| 397\n"));
+        execute("select count(*), sum(x), min(x), max(x) from t");
+        assertThat(printedTable(response.rows()), is("400| 79800| 0| 399\n"));
+    }
 }
@@ -22,6 +22,8 @@
 
 package io.crate.execution.engine.collect.collectors;
 
+import io.crate.data.BatchIterators;
+import io.crate.data.Row;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LongColumnReference;
 import io.crate.test.integration.CrateUnitTest;
@@ -32,6 +34,7 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -40,7 +43,12 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 
 public class LuceneBatchIteratorTest extends CrateUnitTest {
 
@@ -80,4 +88,46 @@ public class LuceneBatchIteratorTest extends CrateUnitTest {
         );
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
+
+    @Test
+    public void test_slices_of_leaves_return_all_rows() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        List<Object[]> expected = new ArrayList<>();
+        for (long i = 0; i < 30; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            expected.add(new Object[] { i });
+            if (i % 5 == 4) {
+                // create a new segment
+                iw.commit();
+            }
+        }
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        assertThat(leaves.size(), is(6));
+
+        List<List<LeafReaderContext>> slices = LuceneBatchIterator.slices(leaves, 4, 5);
+        assertThat(slices.size(), is(4));
+        assertThat(LuceneBatchIterator.slices(leaves, 4, 10).size(), is(3));
+        assertThat(LuceneBatchIterator.slices(leaves, 4, 100).size(), is(1));
+
+        List<Object[]> result = new ArrayList<>();
+        for (List<LeafReaderContext> slice : slices) {
+            LongColumnReference columnReference = new LongColumnReference("x");
+            LuceneBatchIterator it = new LuceneBatchIterator(
+                searcher,
+                slice,
+                new MatchAllDocsQuery(),
+                null,
+                false,
+                new CollectorContext(mappedFieldType -> null),
+                List.of(columnReference),
+                List.of(columnReference)
+            );
+            result.addAll(BatchIterators.collect(it, Collectors.mapping(Row::materialize, Collectors.toList())).get());
+        }
+        result.sort(Comparator.comparingLong(row -> (long) row[0]));
+        assertThat(result, contains(expected.toArray()));
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import com.google.common.collect.ImmutableMap;
+import io.crate.data.BatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.expression.InputFactory;
+import io.crate.expression.reference.file.FileLineReferenceResolver;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.Functions;
+import io.crate.metadata.Reference;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.types.DataTypes;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.JSON;
+import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+public class FileSplitReadingIteratorTest extends CrateUnitTest {
+
+    private static final Map<String, FileInputFactory> FILE_INPUT_FACTORIES =
+        ImmutableMap.of(LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory());
+
+    private InputFactory inputFactory;
+
+    @Before
+    public void prepare() {
+        Functions functions = new Functions(
+            ImmutableMap.of(),
+            ImmutableMap.of()
+        );
+        inputFactory = new InputFactory(functions);
+    }
+
+    @Test
+    public void testEveryLineIsReadExactlyOnceAcrossSplits() throws Exception {
+        String content = "{\"id\": 1}\n" +
+                         "{\"id\": 22, \"name\": \"Arthur\"}\r\n" +
+                         "\n" +
+                         "{\"id\": 333}\n" +
+                         "{\"id\": 4444, \"name\": \"Trillian\"}";
+        String fileUri = writeFile(".json", content);
+
+        // split boundaries at every possible position within and between lines
+        for (int splitSize = 1; splitSize <= content.length() + 1; splitSize++) {
+            List<FileSplit> splits = FileSplit.create(
+                Collections.singletonList(fileUri), FILE_INPUT_FACTORIES, false, 1, 0, splitSize);
+            List<Object[]> expectedResult = Arrays.asList(
+                new Object[]{"{\"id\": 1}"},
+                new Object[]{"{\"id\": 22, \"name\": \"Arthur\"}"},
+                new Object[]{"{\"id\": 333}"},
+                new Object[]{"{\"id\": 4444, \"name\": \"Trillian\"}"});
+            if (splits == null) {
+                assertThat(splitSize >= content.length(), is(true));
+                continue;
+            }
+            BatchIteratorTester tester = new BatchIteratorTester(() -> createBatchIterator(splits, JSON));
+            tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        }
+    }
+
+    @Test
+    public void testCsvHeaderIsUsedForAllSplits() throws Exception {
+        String fileUri = writeFile(".csv", "name,id,age\nArthur,4,38\nTrillian,5,33\n");
+        List<FileSplit> splits = FileSplit.create(
+            Collections.singletonList(fileUri), FILE_INPUT_FACTORIES, false, 1, 0, 16);
+        assertThat(splits.size(), is(3));
+
+        List<Object[]> expectedResult = Arrays.asList(
+            new Object[]{"{\"name\":\"Arthur\",\"id\":\"4\",\"age\":\"38\"}"},
+            new Object[]{"{\"name\":\"Trillian\",\"id\":\"5\",\"age\":\"33\"}"});
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createBatchIterator(splits, JSON));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testSplitsOnSharedStorageAreDistributedAcrossReaders() throws Exception {
+        String fileUri = writeFile(".json", "{\"id\": 1}\n{\"id\": 2}\n{\"id\": 3}\n{\"id\": 4}\n{\"id\": 5}\n");
+        int numReaders = 3;
+        Set<Long> starts = new HashSet<>();
+        int numSplits = 0;
+        for (int reader = 0; reader < numReaders; reader++) {
+            List<FileSplit> splits = FileSplit.create(
+                Collections.singletonList(fileUri), FILE_INPUT_FACTORIES, true, numReaders, reader, 10);
+            for (FileSplit split : splits) {
+                starts.add(split.start());
+                numSplits++;
+            }
+        }
+        assertThat(numSplits, is(5));
+        assertThat(starts.size(), is(5));
+    }
+
+    @Test
+    public void testNoSplitsIfFileIsSmallerThanSplitSize() throws Exception {
+        String fileUri = writeFile(".json", "{\"id\": 1}\n");
+        assertThat(
+            FileSplit.create(Collections.singletonList(fileUri), FILE_INPUT_FACTORIES, false, 1, 0, 1024),
+            nullValue());
+    }
+
+    @Test
+    public void testCreateFailsIfFileDoesNotExist() throws Exception {
+        Path dir = createTempDir();
+        String fileUri = dir.toUri().toString() + "does-not-exist.json";
+        expectThrows(
+            NoSuchFileException.class,
+            () -> FileSplit.create(Collections.singletonList(fileUri), FILE_INPUT_FACTORIES, false, 1, 0, 1));
+    }
+
+    @Test
+    public void testCreateFailsIfGlobDoesNotMatchAnyFile() throws Exception {
+        Path dir = createTempDir();
+        String fileUri = dir.toUri().toString() + "*.json";
+        IOException e = expectThrows(
+            IOException.class,
+            () -> FileSplit.create(Collections.singletonList(fileUri), FILE_INPUT_FACTORIES, false, 1, 0, 1));
+        assertThat(e.getMessage(), startsWith("Cannot find any URI matching: "));
+    }
+
+    private String writeFile(String suffix, String content) throws Exception {
+        Path path = createTempFile("tempfile", suffix);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path.toUri().toString();
+    }
+
+    private BatchIterator<Row> createBatchIterator(List<FileSplit> splits, FileUriCollectPhase.InputFormat format) {
+        Reference raw = createReference("_raw", DataTypes.STRING);
+        InputFactory.Context<LineCollectorExpression<?>> ctx =
+            inputFactory.ctxForRefs(CoordinatorTxnCtx.systemTransactionContext(), FileLineReferenceResolver::getImplementation);
+        List<Input<?>> inputs = Collections.singletonList(ctx.add(raw));
+        return FileSplitReadingIterator.newInstance(new ArrayList<>(splits), inputs, ctx.expressions(), format);
+    }
+}
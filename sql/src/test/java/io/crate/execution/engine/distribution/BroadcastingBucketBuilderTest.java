@@ -39,7 +39,7 @@ public class BroadcastingBucketBuilderTest {
         final BroadcastingBucketBuilder builder = new BroadcastingBucketBuilder(new Streamer[]{DataTypes.INTEGER.streamer()}, 3, RamAccounting.NO_ACCOUNTING);
         builder.add(new Row1(10));
 
-        StreamBucket[] buckets = new StreamBucket[3];
+        ColumnarPage[] buckets = new ColumnarPage[3];
         builder.build(buckets);
 
         final Bucket rows = buckets[0];
@@ -0,0 +1,220 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Bucket;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ColumnarPageTest extends CrateUnitTest {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[]{
+        DataTypes.LONG.streamer(),
+        DataTypes.INTEGER.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.DOUBLE.streamer()
+    };
+
+    private static ColumnarPage buildPage(List<Object[]> rows) {
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING);
+        for (Object[] row : rows) {
+            builder.add(new RowN(row));
+        }
+        return builder.build();
+    }
+
+    private static List<Object[]> materialize(Bucket bucket) {
+        List<Object[]> result = new ArrayList<>();
+        for (Row row : bucket) {
+            result.add(row.materialize());
+        }
+        return result;
+    }
+
+    private static List<Object[]> roundTrip(List<Object[]> rows, PageStats stats) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        buildPage(rows).writeTo(out, stats);
+
+        ColumnarPage page = new ColumnarPage(out.bytes().streamInput());
+        assertThat(page.size(), is(rows.size()));
+        page.streamers(STREAMERS);
+        return materialize(page);
+    }
+
+    private static void assertRoundTrip(List<Object[]> rows, PageStats stats) throws Exception {
+        List<Object[]> result = roundTrip(rows, stats);
+        assertThat(result.size(), is(rows.size()));
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(Arrays.toString(result.get(i)), is(Arrays.toString(rows.get(i))));
+        }
+    }
+
+    @Test
+    public void test_empty_page() throws Exception {
+        PageStats stats = new PageStats();
+        assertRoundTrip(List.of(), stats);
+        assertThat(stats.pages(), is(0L));
+    }
+
+    @Test
+    public void test_single_row_uses_plain_values() throws Exception {
+        assertRoundTrip(List.<Object[]>of(new Object[]{1L, 2, "foo", null, 1.5}), new PageStats());
+    }
+
+    @Test
+    public void test_columns_with_runs_dictionaries_and_deltas() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Object[]{
+                1000L + i,                               // delta encoded
+                i % 7 == 0 ? null : i * 3,               // delta encoded with nulls
+                "run-" + (i / 100),                      // run length encoded
+                i % 3 == 0 ? null : "value-" + (i % 5),  // dictionary encoded
+                i * 0.5                                  // plain
+            });
+        }
+        PageStats stats = new PageStats();
+        assertRoundTrip(rows, stats);
+        assertThat(stats.pages(), is(1L));
+        assertThat(stats.rows(), is(1000L));
+    }
+
+    @Test
+    public void test_columns_with_only_null_values() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Object[]{null, null, null, null, null});
+        }
+        assertRoundTrip(rows, new PageStats());
+    }
+
+    @Test
+    public void test_large_pages_are_compressed() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new Object[]{
+                (long) i * i,
+                i,
+                "some repeated text " + i,
+                "other repeated text " + (i * 31),
+                (double) i
+            });
+        }
+        PageStats stats = new PageStats();
+        assertRoundTrip(rows, stats);
+        assertThat(stats.sentBytes(), lessThan(stats.encodedBytes()));
+    }
+
+    @Test
+    public void test_built_page_returns_the_added_rows_without_encoding_them() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Object[]{(long) i, i % 2, "a", null, i * 0.5});
+        }
+        ColumnarPage page = buildPage(rows);
+        assertThat(page.size(), is(100));
+        List<Object[]> result = materialize(page);
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(Arrays.toString(result.get(i)), is(Arrays.toString(rows.get(i))));
+        }
+    }
+
+    @Test
+    public void test_received_page_can_be_iterated_more_than_once() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(new Object[]{(long) i, i % 3 == 0 ? null : i, "run-" + (i / 50), "value-" + (i % 4), null});
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        buildPage(rows).writeTo(out, null);
+        ColumnarPage page = new ColumnarPage(out.bytes().streamInput());
+        page.streamers(STREAMERS);
+
+        List<Object[]> firstPass = materialize(page);
+        List<Object[]> secondPass = materialize(page);
+        assertThat(firstPass.size(), is(rows.size()));
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(Arrays.toString(firstPass.get(i)), is(Arrays.toString(rows.get(i))));
+            assertThat(Arrays.toString(secondPass.get(i)), is(Arrays.toString(rows.get(i))));
+        }
+    }
+
+    @Test
+    public void test_rows_can_be_written_in_the_stream_bucket_format() throws Exception {
+        List<Object[]> rows = List.of(
+            new Object[]{1L, 2, "foo", null, 1.5},
+            new Object[]{3L, null, "bar", "baz", 2.5}
+        );
+        BytesStreamOutput out = new BytesStreamOutput();
+        buildPage(rows).writeRowsTo(out);
+
+        StreamBucket bucket = new StreamBucket(out.bytes().streamInput(), STREAMERS);
+        List<Object[]> result = materialize(bucket);
+        assertThat(result.size(), is(2));
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(Arrays.toString(result.get(i)), is(Arrays.toString(rows.get(i))));
+        }
+    }
+
+    @Test
+    public void test_builder_releases_the_bytes_of_pages_which_have_been_handed_off() {
+        RamAccounting ramAccounting = new ConcurrentRamAccounting(bytes -> { }, bytes -> { });
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(STREAMERS, ramAccounting);
+        Object[] row = new Object[]{1L, 2, "foo", null, 1.5};
+
+        builder.add(new RowN(row));
+        builder.add(new RowN(row));
+        long pageBytes = builder.ramBytesUsed();
+        assertThat(pageBytes, greaterThan(0L));
+        builder.build();
+        builder.reset();
+        assertThat(builder.ramBytesUsed(), is(0L));
+        // the page built last might still be sent
+        assertThat(ramAccounting.totalBytes(), is(pageBytes));
+
+        for (int page = 0; page < 3; page++) {
+            builder.add(new RowN(row));
+            builder.add(new RowN(row));
+            assertThat(ramAccounting.totalBytes(), is(2 * pageBytes));
+            builder.build();
+            builder.reset();
+            assertThat(ramAccounting.totalBytes(), is(pageBytes));
+        }
+    }
+}
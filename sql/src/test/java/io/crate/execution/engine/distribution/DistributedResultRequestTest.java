@@ -27,6 +27,7 @@ import io.crate.breaker.RamAccounting;
 import io.crate.data.RowN;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -47,7 +48,7 @@ public class DistributedResultRequestTest extends CrateUnitTest {
         Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING.streamer()};
 
         UUID uuid = UUID.randomUUID();
-        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, RamAccounting.NO_ACCOUNTING);
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(streamers, RamAccounting.NO_ACCOUNTING);
         builder.add(new RowN(new Object[] {"ab"}));
         builder.add(new RowN(new Object[] {null}));
         builder.add(new RowN(new Object[] {"cd"}));
@@ -65,6 +66,25 @@ public class DistributedResultRequestTest extends CrateUnitTest {
         assertThat(r2.readRows(streamers), contains(isRow("ab"), isNullRow(), isRow("cd")));
     }
 
+    @Test
+    public void test_streaming_to_node_without_columnar_pages() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.INTEGER.streamer(), DataTypes.STRING.streamer()};
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(streamers, RamAccounting.NO_ACCOUNTING);
+        builder.add(new RowN(new Object[] {1, "ab"}));
+        builder.add(new RowN(new Object[] {2, null}));
+        DistributedResultRequest r1 =
+            new DistributedResultRequest(UUID.randomUUID(), 1, (byte) 0, 1, builder.build(), true);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(Version.V_4_1_0);
+        r1.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(Version.V_4_1_0);
+        DistributedResultRequest r2 = new DistributedResultRequest(in);
+
+        assertThat(r2.readRows(streamers), contains(isRow(1, "ab"), isRow(2, null)));
+    }
+
     @Test
     public void testStreamingOfFailure() throws Exception {
         UUID uuid = UUID.randomUUID();
@@ -45,7 +45,7 @@ public class ModuloBucketBuilderTest extends CrateUnitTest {
         builder.add(new Row1(3));
         builder.add(new Row1(4));
 
-        StreamBucket[] buckets = new StreamBucket[2];
+        ColumnarPage[] buckets = new ColumnarPage[2];
         builder.build(buckets);
 
         final Bucket rowsD1 = buckets[0];
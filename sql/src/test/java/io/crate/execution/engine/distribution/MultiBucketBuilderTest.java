@@ -47,7 +47,7 @@ public class MultiBucketBuilderTest {
 
     @Test
     public void testBucketIsEmptyAfterSecondBuildBucket() throws Exception {
-        StreamBucket[] buckets = new StreamBucket[1];
+        ColumnarPage[] buckets = new ColumnarPage[1];
         for (MultiBucketBuilder builder : builders) {
             builder.add(new Row1(42));
 
@@ -61,7 +61,7 @@ public class MultiBucketBuilderTest {
 
     @Test
     public void testSizeIsResetOnBuildBuckets() throws Exception {
-        StreamBucket[] buckets = new StreamBucket[1];
+        ColumnarPage[] buckets = new ColumnarPage[1];
 
         for (MultiBucketBuilder builder : builders) {
             builder.add(new Row1(42));
@@ -73,7 +73,7 @@ public class TransportDistributedResultActionTest extends CrateDummyClusterServi
             BackoffPolicy.exponentialBackoff(TimeValue.ZERO, 0)
         );
 
-        StreamBucket.Builder builder = new StreamBucket.Builder(
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(
             new Streamer[0], RamAccounting.NO_ACCOUNTING);
         try {
             transportDistributedResultAction.nodeOperation(
@@ -0,0 +1,64 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import io.crate.data.RowN;
+import io.crate.execution.dsl.projection.WriterProjection;
+import io.crate.metadata.ColumnIdent;
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+
+public class JsonLineRendererTest extends CrateUnitTest {
+
+    @Test
+    public void testRawSourceIsRenderedAsIs() {
+        JsonLineRenderer renderer = new JsonLineRenderer(WriterProjection.OutputFormat.JSON_OBJECT, null, List.of());
+        assertThat(renderer.apply(new RowN("{\"x\":1}")).get(0), is("{\"x\":1}"));
+    }
+
+    @Test
+    public void testColumnsAreRenderedAsArray() {
+        JsonLineRenderer renderer = new JsonLineRenderer(
+            WriterProjection.OutputFormat.JSON_ARRAY, List.of("x", "y"), List.of());
+        assertThat(renderer.apply(new RowN(1, "foo")).get(0), is("[1,\"foo\"]"));
+    }
+
+    @Test
+    public void testColumnsAreRenderedAsObject() {
+        JsonLineRenderer renderer = new JsonLineRenderer(
+            WriterProjection.OutputFormat.JSON_OBJECT, List.of("x", "y"), List.of());
+        assertThat(renderer.apply(new RowN(1, "foo")).get(0), is("{\"x\":1,\"y\":\"foo\"}"));
+    }
+
+    @Test
+    public void testOverwritesAreMergedIntoTheDocument() {
+        JsonLineRenderer renderer = new JsonLineRenderer(
+            WriterProjection.OutputFormat.JSON_OBJECT, null, List.of(new ColumnIdent("p")));
+        assertThat(renderer.apply(new RowN(Map.of("x", 1), "a")).get(0), is("{\"p\":\"a\",\"x\":1}"));
+    }
+}
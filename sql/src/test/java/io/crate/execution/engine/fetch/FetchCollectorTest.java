@@ -0,0 +1,215 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.fetch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Bucket;
+import io.crate.data.Row;
+import io.crate.expression.reference.doc.lucene.LongColumnReference;
+import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.expression.reference.doc.lucene.RawCollectorExpression;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class FetchCollectorTest extends CrateUnitTest {
+
+    private static final int NUM_SEGMENTS = 3;
+    private static final int DOCS_PER_SEGMENT = 50;
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Before
+    public void setUpIndex() throws Exception {
+        directory = new ByteBuffersDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            long x = 0;
+            for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+                for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                    Document doc = new Document();
+                    doc.add(new SortedNumericDocValuesField("x", x));
+                    doc.add(new StoredField("_source", new BytesRef("{\"x\":" + x + "}")));
+                    writer.addDocument(doc);
+                    x++;
+                }
+                writer.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        assertThat(reader.leaves().size(), is(NUM_SEGMENTS));
+    }
+
+    @After
+    public void closeIndex() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    private Bucket fetch(IntArrayList docIds) throws Exception {
+        return fetch(docIds, RamAccounting.NO_ACCOUNTING);
+    }
+
+    private Bucket fetch(IntArrayList docIds, RamAccounting ramAccounting) throws Exception {
+        List<LuceneCollectorExpression<?>> expressions = List.of(
+            new LongColumnReference("x"),
+            new RawCollectorExpression()
+        );
+        FetchCollector collector = new FetchCollector(
+            expressions,
+            new Streamer[] { DataTypes.LONG.streamer(), DataTypes.STRING.streamer() },
+            List.of(DataTypes.LONG, DataTypes.STRING),
+            new Engine.Searcher("test", new IndexSearcher(reader), () -> {}),
+            mock(IndexFieldDataService.class),
+            ramAccounting,
+            0
+        );
+        return collector.collect(docIds);
+    }
+
+    /**
+     * Fetches the docs and returns the peak of the accounted memory
+     */
+    private long fetchAndGetPeakMemory(IntArrayList docIds, AtomicLong usedBytes) throws Exception {
+        AtomicLong peakBytes = new AtomicLong();
+        RamAccounting ramAccounting = new ConcurrentRamAccounting(
+            bytes -> peakBytes.accumulateAndGet(usedBytes.addAndGet(bytes), Math::max),
+            bytes -> usedBytes.addAndGet(- bytes)
+        );
+        assertRowsMatchDocIds(fetch(docIds, ramAccounting), docIds);
+        return peakBytes.get();
+    }
+
+    private static void assertRowsMatchDocIds(Bucket rows, IntArrayList docIds) {
+        assertThat(rows.size(), is(docIds.size()));
+        int i = 0;
+        for (Row row : rows) {
+            long x = docIds.get(i);
+            assertThat(row.get(0), is(x));
+            assertThat(row.get(1), is("{\"x\":" + x + "}"));
+            i++;
+        }
+    }
+
+    @Test
+    public void testRowsAreReturnedInRequestedOrderAcrossSegments() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < NUM_SEGMENTS * DOCS_PER_SEGMENT; i += 3) {
+            ids.add(i);
+        }
+        Collections.shuffle(ids, random());
+        IntArrayList docIds = new IntArrayList();
+        ids.forEach(docIds::add);
+
+        assertRowsMatchDocIds(fetch(docIds), docIds);
+    }
+
+    @Test
+    public void testConsecutiveDocsInRequestedOrder() throws Exception {
+        IntArrayList docIds = new IntArrayList();
+        for (int i = 0; i < NUM_SEGMENTS * DOCS_PER_SEGMENT; i++) {
+            docIds.add(i);
+        }
+        assertRowsMatchDocIds(fetch(docIds), docIds);
+    }
+
+    @Test
+    public void testConsecutiveDocsInReverseOrder() throws Exception {
+        IntArrayList docIds = new IntArrayList();
+        for (int i = NUM_SEGMENTS * DOCS_PER_SEGMENT - 1; i >= 0; i--) {
+            docIds.add(i);
+        }
+        assertRowsMatchDocIds(fetch(docIds), docIds);
+    }
+
+    @Test
+    public void testMaterializedRowsAreAccountedUntilTheyAreAddedToTheBucket() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < NUM_SEGMENTS * DOCS_PER_SEGMENT; i++) {
+            ids.add(i);
+        }
+        IntArrayList sortedDocIds = new IntArrayList();
+        ids.forEach(sortedDocIds::add);
+        Collections.shuffle(ids, random());
+        IntArrayList shuffledDocIds = new IntArrayList();
+        ids.forEach(shuffledDocIds::add);
+
+        AtomicLong usedBytesSorted = new AtomicLong();
+        long peakSorted = fetchAndGetPeakMemory(sortedDocIds, usedBytesSorted);
+        AtomicLong usedBytesShuffled = new AtomicLong();
+        long peakShuffled = fetchAndGetPeakMemory(shuffledDocIds, usedBytesShuffled);
+
+        // Docs which are not in doc id order are materialized before they're added to the bucket
+        assertThat(peakShuffled, greaterThan(peakSorted));
+        // Once they're in the bucket only the bucket is accounted
+        assertThat(usedBytesShuffled.get(), is(usedBytesSorted.get()));
+    }
+
+    @Test
+    public void testSequentialReaderIsOnlyUsedForDenseDocs() throws Exception {
+        int[] consecutive = new int[FetchCollector.MIN_SEQUENTIAL_DOCS];
+        int[] dense = new int[FetchCollector.MIN_SEQUENTIAL_DOCS];
+        int[] sparse = new int[FetchCollector.MIN_SEQUENTIAL_DOCS];
+        for (int i = 0; i < FetchCollector.MIN_SEQUENTIAL_DOCS; i++) {
+            consecutive[i] = i;
+            dense[i] = i * FetchCollector.MAX_SPAN_PER_DOC;
+            sparse[i] = i * (FetchCollector.MAX_SPAN_PER_DOC + 1) + FetchCollector.MAX_SPAN_PER_DOC;
+        }
+        assertThat(FetchCollector.readsDenseDocs(consecutive, 0, Integer.MAX_VALUE), is(true));
+        assertThat(FetchCollector.readsDenseDocs(dense, 0, Integer.MAX_VALUE), is(true));
+        assertThat(FetchCollector.readsDenseDocs(sparse, 0, Integer.MAX_VALUE), is(false));
+
+        // only the docs of the segment are considered
+        assertThat(FetchCollector.readsDenseDocs(dense, 1, Integer.MAX_VALUE), is(false));
+        assertThat(FetchCollector.readsDenseDocs(dense, 0, dense[dense.length - 1]), is(false));
+    }
+}
@@ -22,10 +22,13 @@
 
 package io.crate.execution.engine.indexing;
 
+import io.crate.common.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.execution.dml.ShardResponse;
+import io.crate.execution.dml.upsert.ShardUpsertRequest;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.collect.InputCollectExpression;
 import io.crate.execution.jobs.NodeJobsCounter;
@@ -39,16 +42,19 @@ import io.crate.metadata.RelationName;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.Schemas;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.SQLExecutor;
 import io.crate.testing.TestingHelpers;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.admin.indices.create.TransportCreatePartitionsAction;
+import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.settings.Settings;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -56,6 +62,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.crate.data.SentinelRow.SENTINEL;
 import static org.hamcrest.Matchers.is;
@@ -135,4 +142,83 @@ public class IndexWriterProjectorUnitTest extends CrateDummyClusterServiceUnitTe
         // It must never bubble up as other rows might already have been written.
         assertThat(result.get(0)[0], is(0L));
     }
+
+    @Test
+    public void test_split_shard_requests_are_sent_one_after_another_in_row_order() throws Throwable {
+        SQLExecutor.builder(clusterService)
+            .addTable("create table bulk_import (id int primary key) clustered into 1 shards")
+            .build();
+        // A rejection halves the bulk size, so the shard request is split into 2 requests.
+        // The shard may not be started yet in the test cluster state, its node is unknown (null) then.
+        NodeJobsCounter nodeJobsCounter = new NodeJobsCounter();
+        nodeJobsCounter.bulkStats(null).onRetry();
+        for (DiscoveryNode node : clusterService.state().nodes()) {
+            nodeJobsCounter.bulkStats(node.getId()).onRetry();
+        }
+
+        AtomicInteger inFlightRequests = new AtomicInteger(0);
+        AtomicInteger maxInFlightRequests = new AtomicInteger(0);
+        List<List<String>> sentIds = Collections.synchronizedList(new ArrayList<>());
+        BulkRequestExecutor<ShardUpsertRequest> requestExecutor = (request, listener) -> {
+            maxInFlightRequests.accumulateAndGet(inFlightRequests.incrementAndGet(), Math::max);
+            sentIds.add(Lists2.map(request.items(), ShardUpsertRequest.Item::id));
+            ShardResponse response = new ShardResponse();
+            for (ShardUpsertRequest.Item item : request.items()) {
+                response.add(item.location());
+            }
+            scheduler.schedule(() -> {
+                inFlightRequests.decrementAndGet();
+                listener.onResponse(response);
+            }, 10, TimeUnit.MILLISECONDS);
+        };
+
+        InputCollectExpression sourceInput = new InputCollectExpression(0);
+        List<CollectExpression<Row, ?>> collectExpressions = Collections.<CollectExpression<Row, ?>>singletonList(sourceInput);
+        IndexWriterProjector indexWriter = new IndexWriterProjector(
+            clusterService,
+            nodeJobsCounter,
+            scheduler,
+            executor,
+            CoordinatorTxnCtx.systemTransactionContext(),
+            TestingHelpers.getFunctions(),
+            Settings.EMPTY,
+            1,
+            0,
+            mock(TransportCreatePartitionsAction.class),
+            requestExecutor,
+            IndexNameResolver.forTable(BULK_IMPORT_IDENT),
+            RAW_SOURCE_REFERENCE,
+            Collections.singletonList(ID_IDENT),
+            Collections.<Symbol>singletonList(new InputColumn(1)),
+            null,
+            null,
+            sourceInput,
+            collectExpressions,
+            20,
+            null,
+            null,
+            false,
+            true,
+            UUID.randomUUID(),
+            UpsertResultContext.forRowCount());
+
+        // The same ids are contained in both halves of the shard request
+        List<Row> rows = new ArrayList<>();
+        List<String> expectedIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int id = i % 5;
+            rows.add(new RowN(new Object[]{"{\"id\": " + id + "}", id}));
+            expectedIds.add(String.valueOf(id));
+        }
+        BatchIterator<Row> batchIterator = indexWriter.apply(InMemoryBatchIterator.of(rows, SENTINEL, true));
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(batchIterator, null);
+
+        assertThat(consumer.getResult().get(0)[0], is(20L));
+        assertThat(sentIds.size(), is(2));
+        assertThat(maxInFlightRequests.get(), is(1));
+        List<String> ids = new ArrayList<>();
+        sentIds.forEach(ids::addAll);
+        assertThat(ids, is(expectedIds));
+    }
 }
@@ -0,0 +1,259 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.randomizedtesting.RandomizedRunner;
+import com.carrotsearch.randomizedtesting.annotations.Name;
+import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
+import com.carrotsearch.randomizedtesting.annotations.ThreadLeakScope;
+import io.crate.Streamer;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataTypes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RandomizedRunner.class)
+@ThreadLeakScope(ThreadLeakScope.Scope.NONE)
+public class GraceHashJoinBatchIteratorTest {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[] { DataTypes.INTEGER.streamer() };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Integer> leftValues;
+    private final List<Integer> rightValues;
+    private final boolean batchedSource;
+    private final JoinType joinType;
+    private final List<Object[]> expectedResult;
+
+    private static Predicate<Row> getCol0EqCol1JoinCondition() {
+        return row -> row.get(0) != null && row.get(0).equals(row.get(1));
+    }
+
+    private static ToIntFunction<Row> getHash() {
+        return row -> Objects.hash(row.get(0));
+    }
+
+    private static ToIntFunction<Row> getHashWithCollisions() {
+        return row -> Objects.hashCode(row.get(0)) % 3;
+    }
+
+    public GraceHashJoinBatchIteratorTest(@SuppressWarnings("unused") @Name("dataSetName") String testName,
+                                          @Name("dataForLeft") List<Integer> leftValues,
+                                          @Name("dataForRight") List<Integer> rightValues,
+                                          @Name("batchedSource") boolean batchedSource,
+                                          @Name("joinType") JoinType joinType) {
+        this.leftValues = leftValues;
+        this.rightValues = rightValues;
+        this.batchedSource = batchedSource;
+        this.joinType = joinType;
+        this.expectedResult = expectedResult(joinType, leftValues, rightValues);
+    }
+
+    @ParametersFactory
+    public static Iterable<Object[]> testParameters() {
+        List<Integer> uniqueLeft = Arrays.asList(0, 1, 2, 3, 4);
+        List<Integer> uniqueRight = Arrays.asList(2, 3, 4, 5);
+        List<Integer> duplicatesLeft = Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4);
+        List<Integer> duplicatesRight = Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6);
+        List<Integer> nullsLeft = Arrays.asList(null, 1, 2, null, 7);
+        List<Integer> nullsRight = Arrays.asList(null, 2, 3, null);
+
+        List<Object[]> parameters = new ArrayList<>();
+        for (JoinType joinType : List.of(JoinType.INNER, JoinType.LEFT, JoinType.RIGHT, JoinType.FULL)) {
+            parameters.add($("UniqueValues-plain", uniqueLeft, uniqueRight, false, joinType));
+            parameters.add($("UniqueValues-batchedSource", uniqueLeft, uniqueRight, true, joinType));
+            parameters.add($("DuplicateValues-plain", duplicatesLeft, duplicatesRight, false, joinType));
+            parameters.add($("DuplicateValues-batchedSource", duplicatesLeft, duplicatesRight, true, joinType));
+            parameters.add($("NullValues-plain", nullsLeft, nullsRight, false, joinType));
+        }
+        return parameters;
+    }
+
+    /**
+     * Nested loop implementation of the join to compute the expected result
+     */
+    private static List<Object[]> expectedResult(JoinType joinType, List<Integer> left, List<Integer> right) {
+        List<Object[]> result = new ArrayList<>();
+        BitSet matchedRight = new BitSet();
+        for (Integer leftValue : left) {
+            boolean matched = false;
+            for (int i = 0; i < right.size(); i++) {
+                Integer rightValue = right.get(i);
+                if (leftValue != null && leftValue.equals(rightValue)) {
+                    matched = true;
+                    matchedRight.set(i);
+                    result.add(new Object[] { leftValue, rightValue });
+                }
+            }
+            if (!matched && (joinType == JoinType.LEFT || joinType == JoinType.FULL)) {
+                result.add(new Object[] { leftValue, null });
+            }
+        }
+        if (joinType == JoinType.RIGHT || joinType == JoinType.FULL) {
+            for (int i = matchedRight.nextClearBit(0); i < right.size(); i = matchedRight.nextClearBit(i + 1)) {
+                result.add(new Object[] { null, right.get(i) });
+            }
+        }
+        return result;
+    }
+
+    private BatchIterator<Row> source(List<Integer> values) {
+        BatchIterator<Row> source = TestingBatchIterators.ofValues(values);
+        if (batchedSource) {
+            return new BatchSimulatingIterator<>(source, 2, (values.size() + 1) / 2, null);
+        }
+        return source;
+    }
+
+    private BatchIterator<Row> createIterator(ToIntFunction<Row> hash, int blockSize, @Nullable Path spillDirectory) {
+        return createIterator(new IntHashJoinBuffer(1, hash, hash), hash, blockSize, spillDirectory);
+    }
+
+    private BatchIterator<Row> createIteratorWithLongKeyBuffer(int blockSize, @Nullable Path spillDirectory) {
+        // The join condition isn't evaluated for exact matches
+        HashJoinBuffer buffer = new LongKeyHashJoinBuffer(1, row -> (Integer) row.get(0), row -> (Integer) row.get(0));
+        return createIterator(buffer, getHash(), blockSize, spillDirectory);
+    }
+
+    private BatchIterator<Row> createIterator(HashJoinBuffer buffer,
+                                              ToIntFunction<Row> hash,
+                                              int blockSize,
+                                              @Nullable Path spillDirectory) {
+        return new GraceHashJoinBatchIterator(
+            source(leftValues),
+            source(rightValues),
+            new CombinedRow(1, 1),
+            joinType,
+            getCol0EqCol1JoinCondition(),
+            buffer,
+            hash,
+            hash,
+            mock(RowAccounting.class),
+            () -> blockSize,
+            STREAMERS,
+            STREAMERS,
+            spillDirectory,
+            -1
+        );
+    }
+
+    @Test
+    public void testGraceHashJoinWithoutSpilling() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(getHash(), 20, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testGraceHashJoinSpillsIfLeftExceedsBlockSize() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(getHash(), 2, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testGraceHashJoinWithPartitionsExceedingBlockSize() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(getHash(), 1, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testGraceHashJoinWithHashCollisions() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> createIterator(getHashWithCollisions(), 2, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testGraceHashJoinKeepsLeftInMemoryWithoutSpillDirectory() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(getHash(), 1, null));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testGraceHashJoinWithLongKeyBuffer() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIteratorWithLongKeyBuffer(20, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testGraceHashJoinWithLongKeyBufferSpillsIfLeftExceedsBlockSize() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIteratorWithLongKeyBuffer(2, spillDirectory));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testSpillFilesAreRemovedOnClose() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        BatchIterator<Row> it = createIterator(getHash(), 2, spillDirectory.toPath());
+        List<Object[]> result = BatchIterators.collect(it, Collectors.mapping(Row::materialize, Collectors.toList()))
+            .get(10, TimeUnit.SECONDS);
+        it.close();
+
+        assertThat(result, containsInAnyOrder(expectedResult.toArray()));
+        assertThat(spillDirectory.list(), arrayWithSize(0));
+    }
+
+    @Test
+    public void testNumPartitionsIsDerivedFromExpectedNumberOfRows() {
+        assertThat(GraceHashJoinBatchIterator.numPartitions(-1, 100), is(GraceHashJoinBatchIterator.DEFAULT_NUM_PARTITIONS));
+        assertThat(GraceHashJoinBatchIterator.numPartitions(1000, 100), is(20));
+        assertThat(GraceHashJoinBatchIterator.numPartitions(1_000_000, 100), is(GraceHashJoinBatchIterator.MAX_NUM_PARTITIONS));
+    }
+}
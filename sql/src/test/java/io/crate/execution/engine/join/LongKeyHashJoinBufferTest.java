@@ -0,0 +1,104 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.DataTypes;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class LongKeyHashJoinBufferTest {
+
+    private final LongKeyHashJoinBuffer buffer = new LongKeyHashJoinBuffer(
+        2,
+        row -> (Long) row.get(0),
+        row -> (Long) row.get(0)
+    );
+
+    private List<Object> candidates(Long key) {
+        List<Object> values = new ArrayList<>();
+        Row probeRow = new RowN(key);
+        for (int pos = buffer.firstCandidate(probeRow);
+             pos != HashJoinBuffer.NO_MORE_CANDIDATES;
+             pos = buffer.nextCandidate(pos)) {
+            values.add(buffer.get(pos).get(1));
+        }
+        return values;
+    }
+
+    @Test
+    public void testCandidatesAreExactMatchesOfTheKey() {
+        buffer.clear(2);
+        for (long i = 0; i < 1000; i++) {
+            buffer.add(new RowN(i % 100, "v" + i));
+        }
+        assertThat(buffer.size(), is(1000));
+        assertThat(candidates(42L), containsInAnyOrder(
+            "v42", "v142", "v242", "v342", "v442", "v542", "v642", "v742", "v842", "v942"));
+        assertThat(candidates(100L), empty());
+        assertThat(buffer.candidatesRequireJoinCondition(), is(false));
+    }
+
+    @Test
+    public void testRowsWithNullKeyAreBufferedButNeverMatched() {
+        buffer.clear(10);
+        buffer.add(new RowN(null, "a"));
+        buffer.add(new RowN(1L, "b"));
+
+        assertThat(buffer.size(), is(2));
+        assertThat(buffer.get(0).get(1), is("a"));
+        assertThat(candidates(null), empty());
+        assertThat(candidates(1L), contains("b"));
+    }
+
+    @Test
+    public void testClearRemovesAllRows() {
+        buffer.clear(10);
+        buffer.add(new RowN(1L, "a"));
+        buffer.clear(10);
+
+        assertThat(buffer.size(), is(0));
+        assertThat(candidates(1L), empty());
+
+        buffer.add(new RowN(1L, "b"));
+        assertThat(candidates(1L), contains("b"));
+    }
+
+    @Test
+    public void testSupportedTypesAreIntegralTypes() {
+        assertThat(LongKeyHashJoinBuffer.supportsType(DataTypes.INTEGER), is(true));
+        assertThat(LongKeyHashJoinBuffer.supportsType(DataTypes.LONG), is(true));
+        assertThat(LongKeyHashJoinBuffer.supportsType(DataTypes.TIMESTAMPZ), is(true));
+        assertThat(LongKeyHashJoinBuffer.supportsType(DataTypes.DOUBLE), is(false));
+        assertThat(LongKeyHashJoinBuffer.supportsType(DataTypes.STRING), is(false));
+    }
+}
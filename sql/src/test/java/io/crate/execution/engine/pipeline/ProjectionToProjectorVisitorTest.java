@@ -23,6 +23,7 @@
 package io.crate.execution.engine.pipeline;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.Bucket;
@@ -64,7 +65,12 @@ import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.junit.Before;
 import org.junit.Test;
@@ -82,6 +88,7 @@ import static io.crate.data.SentinelRow.SENTINEL;
 import static io.crate.testing.TestingHelpers.getFunctions;
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.Mockito.mock;
@@ -165,6 +172,58 @@ public class ProjectionToProjectorVisitorTest extends CrateDummyClusterServiceUn
         assertThat(projector, instanceOf(SortingProjector.class));
     }
 
+    @Test
+    public void test_sort_which_spills_only_releases_its_own_memory() throws Exception {
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(64, ByteSizeUnit.KB),
+            1.0,
+            LogManager.getLogger(ProjectionToProjectorVisitorTest.class)
+        );
+        ProjectionToProjectorVisitor spillingVisitor = new ProjectionToProjectorVisitor(
+            clusterService,
+            new NodeJobsCounter(),
+            functions,
+            THREAD_POOL,
+            Settings.EMPTY,
+            mock(TransportActionProvider.class, Answers.RETURNS_DEEP_STUBS),
+            new InputFactory(functions),
+            EvaluatingNormalizer.functionOnlyNormalizer(functions),
+            t -> null,
+            t -> null,
+            Version.CURRENT,
+            BigArrays.NON_RECYCLING_INSTANCE,
+            null,
+            createTempDir(),
+            circuitBreaker
+        );
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("test", circuitBreaker);
+        // memory used by another operator of the same phase
+        long otherOperatorBytes = 8 * 1024;
+        ramAccounting.addBytes(otherOperatorBytes);
+
+        InputColumn input = new InputColumn(0, DataTypes.INTEGER);
+        OrderedTopNProjection projection = new OrderedTopNProjection(TopN.NO_LIMIT, TopN.NO_OFFSET,
+            List.of(input),
+            List.of(input),
+            new boolean[]{true},
+            new boolean[]{false}
+        );
+        Projector projector = spillingVisitor.create(
+            projection, txnCtx, ramAccounting, memoryManager, UUID.randomUUID());
+        assertThat(projector, instanceOf(SortingProjector.class));
+
+        // 20_000 rows don't fit into 64KB, the sort has to spill
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 20_000)), null);
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(20_000));
+        assertThat(result.get(0), is(new Object[]{19_999}));
+        assertThat(result.get(19_999), is(new Object[]{0}));
+
+        assertThat(ramAccounting.totalBytes(), greaterThanOrEqualTo(otherOperatorBytes));
+        assertThat(circuitBreaker.getUsed(), greaterThanOrEqualTo(otherOperatorBytes));
+    }
+
     @Test
     public void testAggregationProjector() throws Exception {
         AggregationProjection projection = new AggregationProjection(Arrays.asList(
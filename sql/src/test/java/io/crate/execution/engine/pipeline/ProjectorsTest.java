@@ -82,7 +82,9 @@ public class ProjectorsTest extends CrateDummyClusterServiceUnitTest {
             t -> null,
             Version.CURRENT,
             BigArrays.NON_RECYCLING_INSTANCE,
-            new ShardId("dummy", UUID.randomUUID().toString(), 0)
+            new ShardId("dummy", UUID.randomUUID().toString(), 0),
+            null,
+            null
         );
     }
 
@@ -0,0 +1,110 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+
+public class SortedRunsTest extends CrateUnitTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Comparator<Object[]> ORDERING = OrderingByPosition.arrayOrdering(0, false, false);
+
+    private SortedRuns createSortedRuns(File spillDirectory) {
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(64, ByteSizeUnit.KB),
+            1.0,
+            LogManager.getLogger(SortedRunsTest.class)
+        );
+        return new SortedRuns(
+            spillDirectory.toPath(),
+            new Streamer[] { DataTypes.LONG.streamer() },
+            ORDERING,
+            ConcurrentRamAccounting.forCircuitBreaker("test", circuitBreaker),
+            circuitBreaker
+        );
+    }
+
+    @Test
+    public void testRunsAreMergedWithInMemoryRows() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        try (SortedRuns sortedRuns = createSortedRuns(spillDirectory)) {
+            sortedRuns.spill(List.<Object[]>of(new Object[] { 1L }, new Object[] { 4L }, new Object[] { 7L }).iterator());
+            sortedRuns.spill(List.<Object[]>of(new Object[] { 2L }, new Object[] { 5L }).iterator());
+            assertThat(sortedRuns.numRows(), is(5L));
+
+            List<Object[]> inMemory = List.of(new Object[] { 3L }, new Object[] { 6L });
+            assertThat(toList(sortedRuns.merge(inMemory)), is(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L)));
+            // the rows can be merged again, e.g. if the consumer moves to the start
+            assertThat(toList(sortedRuns.merge(inMemory)), is(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L)));
+        }
+        assertThat(spillDirectory.listFiles(), arrayWithSize(0));
+    }
+
+    @Test
+    public void testRunsAreMergedInMultiplePassesIfThereAreTooManyRuns() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        int numRuns = SortedRuns.MAX_MERGE_WIDTH * 2 + 3;
+        try (SortedRuns sortedRuns = createSortedRuns(spillDirectory)) {
+            for (long i = 0; i < numRuns; i++) {
+                sortedRuns.spill(List.<Object[]>of(new Object[] { i }, new Object[] { i + numRuns }).iterator());
+            }
+            List<Long> rows = toList(sortedRuns.merge(List.of()));
+
+            assertThat(sortedRuns.numRuns() <= SortedRuns.MAX_MERGE_WIDTH, is(true));
+            assertThat(rows.size(), is(numRuns * 2));
+            for (int i = 0; i < rows.size(); i++) {
+                assertThat(rows.get(i), is((long) i));
+            }
+        }
+        assertThat(spillDirectory.listFiles(), arrayWithSize(0));
+    }
+
+    private static List<Long> toList(Iterator<Object[]> rows) {
+        List<Long> values = new ArrayList<>();
+        while (rows.hasNext()) {
+            values.add((Long) rows.next()[0]);
+        }
+        return values;
+    }
+}
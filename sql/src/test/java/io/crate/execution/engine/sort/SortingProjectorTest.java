@@ -23,7 +23,9 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.Streamer;
 import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.data.BatchIterator;
@@ -42,8 +44,11 @@ import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.util.List;
 
 import static io.crate.testing.TestingHelpers.isRow;
@@ -51,6 +56,9 @@ import static org.hamcrest.core.Is.is;
 
 public class SortingProjectorTest extends CrateUnitTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private TestingRowConsumer consumer = new TestingRowConsumer();
 
     private SortingProjector createProjector(RowAccounting<Object[]> rowAccounting, int numOutputs, int offset) {
@@ -124,4 +132,44 @@ public class SortingProjectorTest extends CrateUnitTest {
         expectedException.expect(CircuitBreakingException.class);
         consumer.getResult();
     }
+
+    @Test
+    public void testRowsAreSpilledAndMergedIfBreakerIsAboutToTrip() throws Exception {
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(64, ByteSizeUnit.KB),
+            1.0,
+            LogManager.getLogger(SortingProjectorTest.class)
+        );
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("testContext", circuitBreaker);
+        RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
+            List.of(DataTypes.INTEGER, DataTypes.BOOLEAN), ramAccounting, 32);
+        File spillDirectory = temporaryFolder.newFolder();
+        Streamer<?>[] streamers = new Streamer[] { DataTypes.INTEGER.streamer(), DataTypes.BOOLEAN.streamer() };
+        InputCollectExpression input = new InputCollectExpression(0);
+        SortingProjector projector = new SortingProjector(
+            rowAccounting,
+            ImmutableList.of(input, Literal.of(true)),
+            ImmutableList.<CollectExpression<Row, ?>>of(input),
+            1,
+            OrderingByPosition.arrayOrdering(0, true, false),
+            10,
+            () -> new SortedRuns(
+                spillDirectory.toPath(),
+                streamers,
+                OrderingByPosition.arrayOrdering(0, true, false),
+                ramAccounting,
+                circuitBreaker
+            )
+        );
+
+        // 20_000 rows don't fit into 64KB
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 20_000)), null);
+        List<Object[]> result = consumer.getResult();
+
+        assertThat(result.size(), is(19_990));
+        for (int i = 0; i < result.size(); i++) {
+            assertThat(result.get(i)[0], is(19_989 - i));
+        }
+        assertThat(spillDirectory.listFiles().length, is(0));
+    }
 }
@@ -23,7 +23,9 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.Streamer;
 import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.data.Bucket;
@@ -43,8 +45,11 @@ import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.util.Comparator;
 import java.util.List;
 
@@ -59,6 +64,9 @@ public class SortingTopNProjectorTest extends CrateUnitTest {
     private static final List<CollectExpression<Row, ?>> COLLECT_EXPRESSIONS = ImmutableList.<CollectExpression<Row, ?>>of(INPUT);
     private static final Comparator<Object[]> FIRST_CELL_ORDERING = OrderingByPosition.arrayOrdering(0, false, false);
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private TestingRowConsumer consumer = new TestingRowConsumer();
 
     private Projector getProjector(RowAccounting<Object[]> rowAccounting, int numOutputs, int limit, int offset, Comparator<Object[]> ordering) {
@@ -191,4 +199,40 @@ public class SortingTopNProjectorTest extends CrateUnitTest {
         int i = Integer.MAX_VALUE / 2 + 1;
         getProjector(2, i, i);
     }
+
+    @Test
+    public void testUnboundedCollectorSpillsRowsIfBreakerIsAboutToTrip() throws Exception {
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(64, ByteSizeUnit.KB),
+            1.0,
+            LogManager.getLogger(SortingTopNProjectorTest.class)
+        );
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("testContext", circuitBreaker);
+        RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
+            List.of(DataTypes.INTEGER, DataTypes.BOOLEAN), ramAccounting, 32);
+        File spillDirectory = temporaryFolder.newFolder();
+        Streamer<?>[] streamers = new Streamer[] { DataTypes.INTEGER.streamer(), DataTypes.BOOLEAN.streamer() };
+        Comparator<Object[]> descending = OrderingByPosition.arrayOrdering(0, true, false);
+        Projector projector = new SortingTopNProjector(
+            rowAccounting,
+            INPUT_LITERAL_LIST,
+            COLLECT_EXPRESSIONS,
+            1,
+            descending,
+            500,
+            10,
+            1,
+            () -> new SortedRuns(spillDirectory.toPath(), streamers, descending, ramAccounting, circuitBreaker)
+        );
+
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 20_000)), null);
+        Bucket rows = consumer.getBucket();
+
+        assertThat(rows.size(), is(500));
+        int expected = 19_989;
+        for (Row row : rows) {
+            assertThat(row, isRow(expected--));
+        }
+        assertThat(spillDirectory.listFiles().length, is(0));
+    }
 }
@@ -333,4 +333,40 @@ public class AggregationWindowFunctionsTest extends AbstractWindowFunctionTest {
             rows
         );
     }
+
+    @Test
+    public void test_max_over_sliding_rows_offset_preceding_frames() throws Throwable {
+        Object[] expected = new Object[]{3, 3, 4, 4, 5, 9, 9, 9};
+        assertEvaluate(
+            "max(x) over (order by d rows between 2 preceding and current row)",
+            contains(expected),
+            List.of(new ColumnIdent("x"), new ColumnIdent("d")),
+            $(3, 1.0),
+            $(1, 2.0),
+            $(4, 3.0),
+            $(1, 4.0),
+            $(5, 5.0),
+            $(9, 6.0),
+            $(2, 7.0),
+            $(6, 8.0)
+        );
+    }
+
+    @Test
+    public void test_min_over_sliding_rows_offset_following_frames() throws Throwable {
+        Object[] expected = new Object[]{1, 1, 1, 1, 2, 2, 2, 6};
+        assertEvaluate(
+            "min(x) over (order by d rows between current row and 2 following)",
+            contains(expected),
+            List.of(new ColumnIdent("x"), new ColumnIdent("d")),
+            $(3, 1.0),
+            $(1, 2.0),
+            $(4, 3.0),
+            $(1, 4.0),
+            $(5, 5.0),
+            $(9, 6.0),
+            $(2, 7.0),
+            $(6, 8.0)
+        );
+    }
 }
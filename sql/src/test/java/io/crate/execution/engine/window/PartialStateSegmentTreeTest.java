@@ -0,0 +1,188 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.impl.ArrayAgg;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.ExpressionsInput;
+import io.crate.expression.symbol.Literal;
+import io.crate.memory.MemoryManager;
+import io.crate.memory.OnHeapMemoryManager;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.Functions;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.is;
+
+public class PartialStateSegmentTreeTest extends CrateUnitTest {
+
+    private static final int NUM_ROWS = 4 * PartialStateSegmentTree.BLOCK_SIZE + 5;
+
+    private final Functions functions = getFunctions();
+    private final MemoryManager memoryManager = new OnHeapMemoryManager(bytes -> {});
+    private final InputCollectExpression input = new InputCollectExpression(0);
+    private final ExpressionsInput<Row, Boolean> allRows = new ExpressionsInput<>(Literal.BOOLEAN_TRUE, List.of());
+
+    private static WindowFrameState partition(List<Object[]> rows) {
+        WindowFrameState frame = new WindowFrameState(0, rows.size(), rows);
+        frame.updateBounds(0, rows.size(), 0, rows.size());
+        return frame;
+    }
+
+    private static List<Object[]> rows(IntFunction<Object> valueAt) {
+        List<Object[]> rows = new ArrayList<>(NUM_ROWS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(new Object[]{valueAt.apply(i)});
+        }
+        return rows;
+    }
+
+    private PartialStateSegmentTree tree(AggregationFunction<Object, ?> function,
+                                         List<Object[]> rows,
+                                         ExpressionsInput<Row, Boolean> filter,
+                                         Input<?>... args) {
+        return new PartialStateSegmentTree(
+            function,
+            () -> newState(function),
+            partition(rows),
+            filter,
+            RamAccounting.NO_ACCOUNTING,
+            memoryManager,
+            List.of(input),
+            args
+        );
+    }
+
+    private Object newState(AggregationFunction<Object, ?> function) {
+        return function.newState(RamAccounting.NO_ACCOUNTING, Version.CURRENT, Version.CURRENT, memoryManager);
+    }
+
+    /**
+     * Aggregates the rows of the range one by one, like a window function without a segment tree does
+     */
+    private Object iterate(AggregationFunction<Object, ?> function,
+                           List<Object[]> rows,
+                           int from,
+                           int to,
+                           Input<?>... args) {
+        Object state = newState(function);
+        for (int i = from; i < to; i++) {
+            input.setNextRow(new RowN(rows.get(i)));
+            state = function.iterate(RamAccounting.NO_ACCOUNTING, memoryManager, state, args);
+        }
+        return state;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_array_agg_of_every_range_contains_the_rows_in_order() {
+        List<Object[]> rows = rows(i -> i);
+        AggregationFunction<Object, ?> arrayAgg = (AggregationFunction) new ArrayAgg(DataTypes.INTEGER);
+        PartialStateSegmentTree tree = tree(arrayAgg, rows, allRows, input);
+
+        for (int from = 0; from <= NUM_ROWS; from++) {
+            for (int to = from; to <= NUM_ROWS; to++) {
+                List<Object> expected = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    expected.add(i);
+                }
+                assertThat((List<Object>) tree.stateForRange(from, to), is(expected));
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_rows_which_do_not_match_the_filter_are_not_aggregated() {
+        List<Object[]> rows = rows(i -> i);
+        AggregationFunction<Object, ?> arrayAgg = (AggregationFunction) new ArrayAgg(DataTypes.INTEGER);
+        ExpressionsInput<Row, Boolean> evenRows = new ExpressionsInput<>(
+            () -> (Integer) input.value() % 2 == 0, List.of(input));
+        PartialStateSegmentTree tree = tree(arrayAgg, rows, evenRows, input);
+
+        for (int from = 0; from <= NUM_ROWS; from++) {
+            for (int to = from; to <= NUM_ROWS; to++) {
+                List<Object> expected = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    if (i % 2 == 0) {
+                        expected.add(i);
+                    }
+                }
+                assertThat((List<Object>) tree.stateForRange(from, to), is(expected));
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_max_of_every_range_matches_the_aggregation_of_the_rows() {
+        List<Object[]> rows = rows(i -> (i * 37) % 101);
+        AggregationFunction<Object, ?> max = (AggregationFunction<Object, ?>) functions.getQualified(
+            new FunctionIdent("max", List.of(DataTypes.INTEGER)));
+        PartialStateSegmentTree tree = tree(max, rows, allRows, input);
+
+        for (int from = 0; from <= NUM_ROWS; from++) {
+            for (int to = from; to <= NUM_ROWS; to++) {
+                Object expected = max.terminatePartial(
+                    RamAccounting.NO_ACCOUNTING, iterate(max, rows, from, to, input));
+                Object actual = max.terminatePartial(RamAccounting.NO_ACCOUNTING, tree.stateForRange(from, to));
+                assertThat(actual, is(expected));
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_percentile_of_sliding_ranges_matches_the_aggregation_of_the_rows() {
+        List<Object[]> rows = rows(i -> (double) ((i * 37) % 101));
+        AggregationFunction<Object, ?> percentile = (AggregationFunction<Object, ?>) functions.getQualified(
+            new FunctionIdent("percentile", List.of(DataTypes.DOUBLE, DataTypes.DOUBLE)));
+        Input<Double> fraction = Literal.of(0.5);
+        PartialStateSegmentTree tree = tree(percentile, rows, allRows, input, fraction);
+
+        // The digests of up to 40 values hold every value as a centroid and are exact,
+        // regardless of whether they're built out of the rows or out of other digests
+        int maxFrameSize = 40;
+        for (int from = 0; from <= NUM_ROWS; from++) {
+            for (int to = from; to <= Math.min(from + maxFrameSize, NUM_ROWS); to++) {
+                Object expected = percentile.terminatePartial(
+                    RamAccounting.NO_ACCOUNTING, iterate(percentile, rows, from, to, input, fraction));
+                Object actual = percentile.terminatePartial(RamAccounting.NO_ACCOUNTING, tree.stateForRange(from, to));
+                assertThat(actual, is(expected));
+            }
+        }
+    }
+}
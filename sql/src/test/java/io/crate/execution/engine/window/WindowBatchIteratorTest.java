@@ -41,7 +41,13 @@ import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -59,6 +65,8 @@ import static org.elasticsearch.common.collect.Tuple.tuple;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
 
 public class WindowBatchIteratorTest {
 
@@ -355,6 +363,95 @@ public class WindowBatchIteratorTest {
         assertThat(ramAccounting.totalBytes(), is(480L));
     }
 
+    @Test
+    public void testSortedPartitionsWindowBatchIteratorWithBatchSimulatingSource() throws Exception {
+        // partition by IC0 / 3 over a source sorted by IC0
+        Comparator<Object[]> cmpPartitionBy = Comparator.comparingInt(row -> (int) row[0] / 3);
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new SortedPartitionsWindowBatchIterator(
+                new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 10), 4, 2, null),
+                new IgnoreRowAccounting(),
+                getComputeFrameStart(null, FrameBound.Type.UNBOUNDED_PRECEDING),
+                getComputeFrameEnd(null, FrameBound.Type.CURRENT_ROW),
+                cmpPartitionBy,
+                1,
+                Collections.singletonList(rowNumberWindowFunction()),
+                Collections.emptyList(),
+                new Input[0])
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(List.of(
+            $(0, 1), $(1, 2), $(2, 3),
+            $(3, 1), $(4, 2), $(5, 3),
+            $(6, 1), $(7, 2), $(8, 3),
+            $(9, 1)
+        ));
+    }
+
+    @Test
+    public void testSortedPartitionsWindowBatchIteratorReleasesMemoryAfterEachPartition() {
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("test", new NoopCircuitBreaker("dummy"));
+        long[] maxUsedBytes = new long[1];
+        RowAccountingWithEstimators rowAccounting = new RowAccountingWithEstimators(
+            List.of(DataTypes.INTEGER),
+            new ConcurrentRamAccounting(
+                bytes -> {
+                    ramAccounting.addBytes(bytes);
+                    maxUsedBytes[0] = Math.max(maxUsedBytes[0], ramAccounting.totalBytes());
+                },
+                bytes -> ramAccounting.addBytes(-bytes)
+            ),
+            32
+        );
+        BatchIterator<Row> iterator = new SortedPartitionsWindowBatchIterator(
+            TestingBatchIterators.range(0, 10),
+            rowAccounting,
+            (partitionStart, partitionEnd, currentIndex, sortedRows) -> 0,
+            (partitionStart, partitionEnd, currentIndex, sortedRows) -> currentIndex,
+            Comparator.comparingInt(row -> (int) row[0] / 2),
+            1,
+            List.of(rowNumberWindowFunction()),
+            List.of(),
+            new Input[][]{new Input[0]}
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+        // at most one partition of 2 integers of 48 bytes each is accounted at any time
+        assertThat(maxUsedBytes[0], is(96L));
+        assertThat(ramAccounting.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void testSortedPartitionsWindowBatchIteratorFailsWithClearErrorIfPartitionExceedsBreaker() throws Exception {
+        CircuitBreaker circuitBreaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(200, ByteSizeUnit.BYTES),
+            1.0,
+            LogManager.getLogger(WindowBatchIteratorTest.class)
+        );
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("test", circuitBreaker);
+        BatchIterator<Row> iterator = new SortedPartitionsWindowBatchIterator(
+            TestingBatchIterators.range(0, 10),
+            new RowAccountingWithEstimators(List.of(DataTypes.INTEGER), ramAccounting, 32),
+            (partitionStart, partitionEnd, currentIndex, sortedRows) -> 0,
+            (partitionStart, partitionEnd, currentIndex, sortedRows) -> currentIndex,
+            null,
+            1,
+            List.of(rowNumberWindowFunction()),
+            List.of(),
+            new Input[][]{new Input[0]}
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        try {
+            consumer.accept(iterator, null);
+            consumer.getResult();
+            fail("Expected a CircuitBreakingException");
+        } catch (CircuitBreakingException e) {
+            // 48 bytes per row, the 5th row of the single partition exceeds the limit of 200 bytes
+            assertThat(
+                e.getMessage(),
+                startsWith("A single window partition doesn't fit into memory after buffering 4 rows"));
+        }
+    }
+
     @Test
     public void testWindowBatchIteratorWithOrderedWindowOverNullValues() throws Exception {
         var rows = Arrays.asList(
@@ -0,0 +1,85 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.jobs;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+
+public class NodeBulkStatsTest extends CrateUnitTest {
+
+    @Test
+    public void test_tracks_in_flight_requests_and_bytes() {
+        NodeBulkStats stats = new NodeBulkStats("node1");
+        stats.onRequest(100);
+        stats.onRequest(50);
+        assertThat(stats.inFlightRequests(), is(2L));
+        assertThat(stats.inFlightBytes(), is(150L));
+
+        stats.onResponse(100, TimeUnit.MILLISECONDS.toNanos(10));
+        stats.onFailure(50);
+        assertThat(stats.inFlightRequests(), is(0L));
+        assertThat(stats.inFlightBytes(), is(0L));
+        assertThat(stats.requests(), is(2L));
+        assertThat(stats.failures(), is(1L));
+        assertThat(stats.latencyMillis(), closeTo(10.0, 0.001));
+    }
+
+    @Test
+    public void test_rejections_shrink_the_bulk_size_down_to_the_minimum() {
+        NodeBulkStats stats = new NodeBulkStats("node1");
+        assertThat(stats.bulkSize(1000), is(1000));
+
+        stats.onRetry();
+        assertThat(stats.retries(), is(1L));
+        assertThat(stats.bulkSize(1000), is(500));
+
+        for (int i = 0; i < 20; i++) {
+            stats.onRetry();
+        }
+        assertThat(stats.bulkSizeFactor(), is(NodeBulkStats.MIN_BULK_SIZE_FACTOR));
+        assertThat(stats.bulkSize(100_000), is((int) (100_000 * NodeBulkStats.MIN_BULK_SIZE_FACTOR)));
+        assertThat(stats.bulkSize(100), is(NodeBulkStats.MIN_BULK_SIZE));
+        assertThat(stats.bulkSize(5), is(5));
+    }
+
+    @Test
+    public void test_slow_responses_shrink_and_fast_responses_grow_the_bulk_size() {
+        NodeBulkStats stats = new NodeBulkStats("node1");
+        stats.onRequest(0);
+        stats.onResponse(0, TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(stats.bulkSizeFactor(), is(1.0));
+
+        stats.onRequest(0);
+        stats.onResponse(0, TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(stats.bulkSizeFactor(), closeTo(0.75, 0.001));
+
+        stats.onRequest(0);
+        stats.onResponse(0, TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(stats.bulkSizeFactor(), closeTo(0.8, 0.001));
+    }
+}
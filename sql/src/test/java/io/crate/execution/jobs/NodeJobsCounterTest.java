@@ -23,9 +23,18 @@
 package io.crate.execution.jobs;
 
 import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Map;
+import java.util.Set;
+
 import static org.hamcrest.core.Is.is;
 
 public class NodeJobsCounterTest extends CrateUnitTest {
@@ -74,4 +83,37 @@ public class NodeJobsCounterTest extends CrateUnitTest {
             fail("Did not expect unregistering a job for a null node to fail but got: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testBulkStatsAreListedPerNode() {
+        nodeJobsCounter.bulkStats("node1").onRequest(10);
+        assertThat(nodeJobsCounter.bulkStats("node1").inFlightBytes(), is(10L));
+        assertThat(nodeJobsCounter.bulkStats().size(), is(1));
+
+        nodeJobsCounter.bulkStats(null).onRequest(10);
+        assertThat(nodeJobsCounter.bulkStats().size(), is(2));
+    }
+
+    @Test
+    public void testBulkStatsOfRemovedNodesAreRemoved() {
+        DiscoveryNode node1 = newNode("node1");
+        DiscoveryNode node2 = newNode("node2");
+        ClusterState previousState = ClusterState.builder(ClusterName.DEFAULT)
+            .nodes(DiscoveryNodes.builder().add(node1).add(node2))
+            .build();
+        ClusterState newState = ClusterState.builder(previousState)
+            .nodes(DiscoveryNodes.builder().add(node1))
+            .build();
+        nodeJobsCounter.bulkStats("node1").onRequest(10);
+        nodeJobsCounter.bulkStats("node2").onRequest(10);
+
+        nodeJobsCounter.clusterChanged(new ClusterChangedEvent("node2 left", newState, previousState));
+
+        assertThat(nodeJobsCounter.bulkStats().size(), is(1));
+        assertThat(nodeJobsCounter.bulkStats().iterator().next().nodeId(), is("node1"));
+    }
+
+    private static DiscoveryNode newNode(String nodeId) {
+        return new DiscoveryNode(nodeId, buildNewFakeTransportAddress(), Map.of(), Set.of(), Version.CURRENT);
+    }
 }
@@ -0,0 +1,148 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression;
+
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.analyze.relations.DocTableRelation;
+import io.crate.data.Input;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RelationName;
+import io.crate.metadata.Scalar;
+import io.crate.metadata.TransactionContext;
+import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.SqlExpressions;
+import io.crate.testing.T3;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class ExpressionCompilerTest extends CrateDummyClusterServiceUnitTest {
+
+    private static final List<Object[]> ROWS = Arrays.asList(
+        new Object[]{"foo", 1, 2},
+        new Object[]{"bar", -10, 10},
+        new Object[]{null, 0, null},
+        new Object[]{"fo", null, 0},
+        new Object[]{"f", Integer.MAX_VALUE, 1},
+        new Object[]{null, null, null}
+    );
+
+    private final TransactionContext txnCtx = CoordinatorTxnCtx.systemTransactionContext();
+    private final Map<String, Object> row = new HashMap<>();
+    private SqlExpressions expressions;
+    private InputFactory inputFactory;
+
+    @Before
+    public void prepare() throws Exception {
+        Map<RelationName, AnalyzedRelation> sources = T3.sources(List.of(T3.T1), clusterService);
+        DocTableRelation tr1 = (DocTableRelation) sources.get(T3.T1);
+        expressions = new SqlExpressions(sources, tr1);
+        inputFactory = new InputFactory(expressions.functions());
+    }
+
+    private Input<?> interpreted(Symbol symbol) {
+        if (symbol instanceof Function) {
+            Function function = (Function) symbol;
+            Scalar<?, ?> scalar = (Scalar<?, ?>) expressions.functions().getQualified(function.info().ident());
+            Input[] args = new Input[function.arguments().size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = interpreted(function.arguments().get(i));
+            }
+            return new FunctionExpression<>(txnCtx, scalar.compile(function.arguments()), args);
+        }
+        if (symbol instanceof Reference) {
+            String column = ((Reference) symbol).column().name();
+            return () -> row.get(column);
+        }
+        return (Literal<?>) symbol;
+    }
+
+    private void assertCompiledMatchesInterpreted(String expression) {
+        Symbol symbol = expressions.normalize(expressions.asSymbol(expression));
+        InputFactory.Context<Input<?>> ctx = inputFactory.ctxForRefs(
+            txnCtx, ref -> () -> row.get(ref.column().name()));
+        Input<?> compiled = ctx.add(symbol);
+        assertThat(compiled, not(instanceOf(FunctionExpression.class)));
+        Input<?> interpreted = interpreted(symbol);
+
+        for (Object[] values : ROWS) {
+            row.put("a", values[0]);
+            row.put("x", values[1]);
+            row.put("i", values[2]);
+            Object expected;
+            try {
+                expected = interpreted.value();
+            } catch (IllegalArgumentException e) {
+                try {
+                    compiled.value();
+                    fail(expression + " with " + Arrays.toString(values) + " must fail with: " + e.getMessage());
+                } catch (IllegalArgumentException compiledFailure) {
+                    assertThat(compiledFailure.getMessage(), is(e.getMessage()));
+                }
+                continue;
+            }
+            assertThat(expression + " with " + Arrays.toString(values), compiled.value(), is(expected));
+        }
+    }
+
+    @Test
+    public void test_comparisons() {
+        assertCompiledMatchesInterpreted("x > i");
+        assertCompiledMatchesInterpreted("x >= 1");
+        assertCompiledMatchesInterpreted("x < i");
+        assertCompiledMatchesInterpreted("x <= 0");
+        assertCompiledMatchesInterpreted("x = i");
+        assertCompiledMatchesInterpreted("x::double > 0.5");
+        assertCompiledMatchesInterpreted("x::bigint = 1");
+    }
+
+    @Test
+    public void test_arithmetic() {
+        assertCompiledMatchesInterpreted("x + i");
+        assertCompiledMatchesInterpreted("x - i * 2");
+        assertCompiledMatchesInterpreted("x * 2 + i");
+        assertCompiledMatchesInterpreted("x::bigint * 3000000000");
+        assertCompiledMatchesInterpreted("x::double * 1.5 - i::double");
+    }
+
+    @Test
+    public void test_boolean_operators() {
+        assertCompiledMatchesInterpreted("x > 0 and i > 1");
+        assertCompiledMatchesInterpreted("x > 0 or i > 1");
+        assertCompiledMatchesInterpreted("not (x > 0)");
+        assertCompiledMatchesInterpreted("x * 2 + i > 100 and a like 'f%'");
+        assertCompiledMatchesInterpreted("a like 'f%' or x = i");
+    }
+}
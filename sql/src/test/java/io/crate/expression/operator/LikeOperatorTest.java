@@ -21,11 +21,20 @@
 package io.crate.expression.operator;
 
 import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.Symbol;
 import io.crate.expression.scalar.AbstractScalarFunctionsTest;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.Scalar;
+import io.crate.metadata.TransactionContext;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.regex.Pattern;
+
 import static io.crate.expression.operator.LikeOperators.DEFAULT_ESCAPE;
 import static io.crate.testing.SymbolMatchers.isLiteral;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 public class LikeOperatorTest extends AbstractScalarFunctionsTest {
 
@@ -172,4 +181,56 @@ public class LikeOperatorTest extends AbstractScalarFunctionsTest {
         assertEvaluate("'foobarbaz' ilike name", null, Literal.NULL);
         assertEvaluate("name ilike 'foobarbaz'", null, Literal.NULL);
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompiledLikeWithLiteralPatternMatchesLikeTheRegex() {
+        List<String> patterns = List.of(
+            "",
+            "%",
+            "foo",
+            "foo%",
+            "fo.%",
+            "foo\\%",
+            "foo\\%bar",
+            "foo\n%",
+            "a?",
+            "a?%",
+            "a{2}",
+            "a{2}%",
+            "}%"
+        );
+        List<String> values = List.of(
+            "",
+            "a",
+            "aa",
+            "a?",
+            "a{2}",
+            "}",
+            "}x",
+            "fo",
+            "foo",
+            "foobar",
+            "fo.x",
+            "foox",
+            "foo%",
+            "foo%bar",
+            "foo\\",
+            "foo\nbar",
+            "\nfoo"
+        );
+        TransactionContext txnCtx = CoordinatorTxnCtx.systemTransactionContext();
+        for (int flags : new int[] { Pattern.DOTALL, Pattern.DOTALL | Pattern.CASE_INSENSITIVE }) {
+            Scalar like = (Scalar) LikeOperator.of(LikeOperators.OP_LIKE, LikeOperators::matches, flags);
+            for (String pattern : patterns) {
+                Scalar compiled = like.compile(List.<Symbol>of(Literal.of("dummy"), Literal.of(pattern)));
+                for (String value : values) {
+                    Object actual = compiled.evaluate(txnCtx, Literal.of(value), Literal.of(pattern));
+                    Object expected = LikeOperators.matches(value, pattern, flags);
+                    assertThat("'" + value + "' like '" + pattern + "'", actual, is(expected));
+                }
+                assertThat(compiled.evaluate(txnCtx, Literal.NULL, Literal.of(pattern)), nullValue());
+            }
+        }
+    }
 }
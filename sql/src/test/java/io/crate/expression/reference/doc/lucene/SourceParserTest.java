@@ -0,0 +1,78 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.reference.doc.lucene;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SourceParserTest {
+
+    @Test
+    public void test_only_registered_paths_are_parsed() {
+        SourceParser sourceParser = new SourceParser();
+        sourceParser.register(List.of("a"));
+        sourceParser.register(List.of("b", "c"));
+
+        Map<String, Object> result = sourceParser.parse(new BytesArray(
+            "{\"a\": [1, 2], \"b\": {\"c\": {\"x\": 1}, \"d\": {\"y\": 2}}, \"e\": {\"z\": [3]}}"));
+
+        assertThat(result, is(Map.of(
+            "a", List.of(1, 2),
+            "b", Map.of("c", Map.of("x", 1))
+        )));
+    }
+
+    @Test
+    public void test_registered_children_are_parsed_from_arrays_of_objects() {
+        SourceParser sourceParser = new SourceParser();
+        sourceParser.register(List.of("o", "x"));
+
+        Map<String, Object> result = sourceParser.parse(new BytesArray(
+            "{\"o\": [{\"x\": 1, \"y\": 2}, {\"x\": 3}, null]}"));
+
+        assertThat(SourceLookup.extractValue(result, List.of("o", "x"), 0), is(Arrays.asList(1, 3, null)));
+    }
+
+    @Test
+    public void test_can_parse_paths_covered_by_registered_paths() {
+        SourceParser sourceParser = new SourceParser();
+        sourceParser.register(List.of("a", "b"));
+        sourceParser.register(List.of("c"));
+
+        assertThat(sourceParser.canParse(List.of("a", "b")), is(true));
+        assertThat(sourceParser.canParse(List.of("a", "b", "c")), is(true));
+        assertThat(sourceParser.canParse(List.of("c", "d")), is(true));
+        assertThat(sourceParser.canParse(List.of("a")), is(false));
+        assertThat(sourceParser.canParse(List.of("d")), is(false));
+
+        sourceParser.register(List.of());
+        assertThat(sourceParser.canParse(List.of("c")), is(false));
+    }
+}
@@ -91,6 +91,28 @@ public class OuterJoinIntegrationTest extends SQLTransportIntegrationTest {
                                                      "Commander| Trillian| Entresol\n"));
     }
 
+    @Test
+    public void testLeftOuterJoinWithSingleRelationEqConditionInJoinCondition() {
+        execute("select persons.name, offices.name from" +
+                " employees as persons left join offices on offices.size = 70 and office_id = offices.id" +
+                " order by persons.id");
+        assertThat(printedTable(response.rows()), is("Trillian| Entresol\n" +
+                                                     "Ford Perfect| NULL\n" +
+                                                     "Douglas Adams| NULL\n"));
+    }
+
+    @Test
+    public void testFullOuterJoinWithSingleRelationEqConditionInJoinCondition() {
+        execute("select offices.name, persons.name from" +
+                " offices full join employees as persons on offices.size = 70 and office_id = offices.id" +
+                " order by offices.id, persons.id");
+        assertThat(printedTable(response.rows()), is("Hobbit House| NULL\n" +
+                                                     "Entresol| Trillian\n" +
+                                                     "Chief Office| NULL\n" +
+                                                     "NULL| Ford Perfect\n" +
+                                                     "NULL| Douglas Adams\n"));
+    }
+
     @Test
     public void testRightOuterJoin() {
         execute("select offices.name, persons.name from" +
@@ -25,7 +25,9 @@ package io.crate.integrationtests;
 import io.crate.action.sql.SQLOperations;
 import io.crate.execution.engine.collect.stats.JobsLogService;
 import io.crate.protocols.postgres.PostgresNetty;
+import io.crate.shade.org.postgresql.PGConnection;
 import io.crate.shade.org.postgresql.PGProperty;
+import io.crate.shade.org.postgresql.copy.CopyManager;
 import io.crate.shade.org.postgresql.geometric.PGpoint;
 import io.crate.shade.org.postgresql.jdbc.PreferQueryMode;
 import io.crate.shade.org.postgresql.util.PGobject;
@@ -39,6 +41,9 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Array;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
@@ -864,6 +869,38 @@ public class PostgresITest extends SQLTransportIntegrationTest {
         }
     }
 
+    @Test
+    public void test_copy_from_stdin_and_to_stdout_using_the_copy_manager() throws Exception {
+        // large enough to exceed the buffer of the copy-in stream and the batch size of the copy-out
+        int numRows = 20_000;
+        String padding = "x".repeat(250);
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < numRows; i++) {
+            lines.append("{\"id\": ").append(i).append(", \"name\": \"").append(padding).append("\"}\n");
+        }
+        byte[] data = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+        try (Connection conn = DriverManager.getConnection(url(RW), properties)) {
+            conn.createStatement().executeUpdate(
+                "create table t (id int, name text) clustered into 2 shards with (number_of_replicas = 0)");
+            ensureGreen();
+
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            long inserted = copyManager.copyIn("copy t from stdin", new ByteArrayInputStream(data));
+            assertThat(inserted, is((long) numRows));
+            conn.createStatement().executeUpdate("refresh table t");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long exported = copyManager.copyOut("copy t to stdout", out);
+            assertThat(exported, is((long) numRows));
+            String[] exportedLines = out.toString(StandardCharsets.UTF_8).split("\n");
+            assertThat(exportedLines.length, is(numRows));
+            for (String line : exportedLines) {
+                assertThat(line, Matchers.containsString(padding));
+            }
+        }
+    }
+
     @Test
     @UseJdbc(0) // Simulate explicit call by a user through HTTP iface
     public void test_proper_termination_of_deallocate_through_http_call() throws Exception {
@@ -29,6 +29,8 @@ import org.apache.http.util.EntityUtils;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import static io.crate.testing.TestingHelpers.printedTable;
 import static org.hamcrest.Matchers.containsString;
@@ -115,4 +117,42 @@ public class RestSQLActionIntegrationTest extends SQLHttpIntegrationTest {
         String bodyAsString = EntityUtils.toString(resp.getEntity());
         assertThat(bodyAsString, containsString("5 days"));
     }
+
+    @Test
+    public void test_result_is_streamed_as_ndjson_if_requested_via_accept_header() throws Exception {
+        Header[] headers = new Header[]{
+            new BasicHeader("Accept", "application/x-ndjson")
+        };
+        var resp = post("{\"stmt\": \"select col1 from generate_series(1, 2500) order by 1\"}", headers);
+        assertThat(resp.getStatusLine().getStatusCode(), is(200));
+        assertThat(resp.getEntity().getContentType().getValue(), is("application/x-ndjson"));
+        String[] lines = EntityUtils.toString(resp.getEntity()).split("\n");
+        assertThat(lines.length, is(2502));
+        assertThat(lines[0], is("{\"cols\":[\"col1\"]}"));
+        assertThat(lines[1], is("[1]"));
+        assertThat(lines[2500], is("[2500]"));
+        assertThat(lines[2501], startsWith("{\"rowcount\":2500,\"duration\":"));
+    }
+
+    @Test
+    public void test_result_is_encoded_column_wise_if_requested_via_accept_header() throws Exception {
+        Header[] headers = new Header[]{
+            new BasicHeader("Accept", "application/vnd.crate.columnar")
+        };
+        var resp = post("{\"stmt\": \"select col1 from generate_series(1, 10)\"}", headers);
+        assertThat(resp.getStatusLine().getStatusCode(), is(200));
+        assertThat(resp.getEntity().getContentType().getValue(), is("application/vnd.crate.columnar"));
+        byte[] body = EntityUtils.toByteArray(resp.getEntity());
+        ByteBuffer buffer = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat((char) buffer.get(), is('S'));
+        assertThat(buffer.getShort(), is((short) 1));
+        int nameLength = buffer.getInt();
+        buffer.position(buffer.position() + nameLength + 4 + 1);
+        assertThat((char) buffer.get(), is('B'));
+        assertThat(buffer.getInt(), is(10));
+        // validity bitmap of 2 bytes and 10 integers
+        buffer.position(buffer.position() + 2 + 40);
+        assertThat((char) buffer.get(), is('E'));
+        assertThat(buffer.getLong(), is(10L));
+    }
 }
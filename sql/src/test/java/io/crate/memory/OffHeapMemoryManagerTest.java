@@ -23,8 +23,12 @@
 package io.crate.memory;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -32,10 +36,37 @@ public class OffHeapMemoryManagerTest {
 
     @Test
     public void test_allocated_buffers_are_released_on_close() {
-        var memoryManager = new OffHeapMemoryManager();
+        var memoryManager = new OffHeapMemoryManager(UnpooledByteBufAllocator.DEFAULT, bytes -> {});
         ByteBuf buf1 = memoryManager.allocate(20);
         buf1.retain();
         memoryManager.close();
         assertThat("ref count must reach 0 now", buf1.release(), is(true));
     }
+
+    @Test
+    public void test_small_buffers_are_slices_of_accounted_slabs() {
+        List<Integer> accountedBytes = new ArrayList<>();
+        var memoryManager = new OffHeapMemoryManager(UnpooledByteBufAllocator.DEFAULT, accountedBytes::add);
+        int numBuffers = OffHeapMemoryManager.SLAB_SIZE / 1000 + 1;
+        for (int i = 0; i < numBuffers; i++) {
+            ByteBuf buf = memoryManager.allocate(1000);
+            assertThat(buf.capacity(), is(1000));
+            assertThat(buf.writerIndex(), is(0));
+            assertThat(buf.getLong(992), is(0L));
+            buf.setLong(992, Long.MAX_VALUE);
+        }
+        assertThat(accountedBytes, is(List.of(OffHeapMemoryManager.SLAB_SIZE, OffHeapMemoryManager.SLAB_SIZE)));
+        memoryManager.close();
+    }
+
+    @Test
+    public void test_large_buffers_are_accounted_with_their_size() {
+        List<Integer> accountedBytes = new ArrayList<>();
+        var memoryManager = new OffHeapMemoryManager(UnpooledByteBufAllocator.DEFAULT, accountedBytes::add);
+        ByteBuf buf = memoryManager.allocate(OffHeapMemoryManager.SLAB_SIZE);
+        assertThat(buf.capacity(), is(OffHeapMemoryManager.SLAB_SIZE));
+        assertThat(accountedBytes, is(List.of(OffHeapMemoryManager.SLAB_SIZE)));
+        memoryManager.close();
+        assertThat(buf.refCnt(), is(0));
+    }
 }
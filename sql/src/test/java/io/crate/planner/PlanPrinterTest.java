@@ -22,8 +22,11 @@
 
 package io.crate.planner;
 
+import io.crate.statistics.Stats;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
+import io.crate.testing.T3;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,10 +39,12 @@ import static org.hamcrest.Matchers.is;
 public class PlanPrinterTest extends CrateDummyClusterServiceUnitTest {
 
     private SQLExecutor e;
+    private TableStats tableStats;
 
     @Before
     public void setUpExecutor() throws IOException {
-        e = SQLExecutor.builder(clusterService).enableDefaultTables().build();
+        tableStats = new TableStats();
+        e = SQLExecutor.builder(clusterService).enableDefaultTables().setTableStats(tableStats).build();
     }
 
     private Map<String, Object> printPlan(String stmt) {
@@ -65,6 +70,17 @@ public class PlanPrinterTest extends CrateDummyClusterServiceUnitTest {
                     "routing={n1={t1=[0, 1, 2, 3]}}, where=true}}}}"));
     }
 
+    @Test
+    public void testCollectContainsEstimatedRowsIfStatsAreAvailable() {
+        tableStats.updateTableStats(Map.of(T3.T1, new Stats(100, 16, Map.of())));
+
+        Map<String, Object> map = printPlan("select x from t1");
+        assertThat(map.toString(), containsString("{Collect={type=executionPlan, estimatedRows=100, collectPhase="));
+
+        map = printPlan("select x from t1 where x = 10");
+        assertThat(map.toString(), containsString("{Collect={type=executionPlan, estimatedRows=0, collectPhase="));
+    }
+
     @Test
     public void testNestedLoopJoin() {
         Map<String, Object> map = printPlan("select t1.x, t2.y " +
@@ -535,7 +535,8 @@ public class SelectPlannerTest extends CrateDummyClusterServiceUnitTest {
                                     "  and u2.name = u1.name");
         Join innerNl = (Join) outerNl.left();
 
-        assertThat(innerNl.joinPhase().joinCondition(), isSQL("((INPUT(0) = INPUT(2)) AND (INPUT(1) = INPUT(3)))"));
+        // u1 is filtered and therefore estimated to be smaller, so it's joined first
+        assertThat(innerNl.joinPhase().joinCondition(), isSQL("((INPUT(2) = INPUT(0)) AND (INPUT(3) = INPUT(1)))"));
         assertThat(innerNl.joinPhase().projections().size(), is(1));
         assertThat(innerNl.joinPhase().projections().get(0), instanceOf(EvalProjection.class));
 
@@ -785,6 +786,25 @@ public class SelectPlannerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(collect.nodeIds().size(), is(2));
     }
 
+    @Test
+    public void testWindowFunctionsWithPartitionByUseSortedSourceIfCollectCanSort() {
+        Merge localMerge = e.plan("select sum(ints) OVER (partition by awesome) from users");
+        Merge distMerge = (Merge) localMerge.subPlan();
+        WindowAggProjection windowAggProjection = (WindowAggProjection) distMerge.mergePhase().projections().get(0);
+        assertThat(windowAggProjection.sourceIsSorted(), is(true));
+        assertThat(distMerge.mergePhase().orderByPositions(), notNullValue());
+    }
+
+    @Test
+    public void testWindowFunctionsWithoutPartitionByAndOrderByDoNotRequireSortedSource() {
+        Merge merge = e.plan("select sum(ints) OVER () from users");
+        WindowAggProjection windowAggProjection = (WindowAggProjection) merge.mergePhase().projections().get(0);
+        assertThat(windowAggProjection.sourceIsSorted(), is(false));
+        assertThat(merge.mergePhase().orderByPositions(), nullValue());
+        RoutedCollectPhase collectPhase = ((RoutedCollectPhase) ((Collect) merge.subPlan()).collectPhase());
+        assertThat(collectPhase.orderBy(), nullValue());
+    }
+
     @Test
     public void testSeqNoAndPrimaryTermFilteringRequirePrimaryKey() {
         expectedException.expect(VersioninigValidationException.class);
@@ -78,15 +78,41 @@ public class EquiJoinDetectorTest extends CrateDummyClusterServiceUnitTest {
     }
 
     @Test
-    public void testNotPossibleIfNotAnInnerJoin() {
+    public void testNotPossibleOnCrossJoin() {
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.CROSS, null), is(false));
+    }
 
+    @Test
+    public void testPossibleOnOuterJoins() {
+        Symbol joinCondition = sqlExpressions.asSymbol("t1.x = t2.y");
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.RIGHT, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.FULL, joinCondition), is(true));
+    }
+
+    @Test
+    public void testNotPossibleOnSemiAndAntiJoins() {
         Symbol joinCondition = sqlExpressions.asSymbol("t1.x = t2.y");
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.RIGHT, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.FULL, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.ANTI, joinCondition), is(false));
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.SEMI, joinCondition), is(false));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.ANTI, joinCondition), is(false));
+    }
+
+    @Test
+    public void testNotPossibleOnOuterJoinWithoutEquiJoinCondition() {
+        Symbol joinCondition = sqlExpressions.asSymbol("t1.x > t2.y");
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(false));
+    }
+
+    @Test
+    public void testPossibleOnOuterJoinWithSingleRelationConjuncts() {
+        Symbol joinCondition = sqlExpressions.asSymbol("t2.y = 1 and t1.x = t2.y and t2.i = t2.y");
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(true));
+    }
+
+    @Test
+    public void testNotPossibleIfOnlySingleRelationEqConditions() {
+        Symbol joinCondition = sqlExpressions.asSymbol("t2.y = 1 and t2.i = t2.y and t1.x > t2.y");
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(false));
     }
 
     @Test
@@ -91,4 +91,13 @@ public class HashJoinConditionSymbolsExtractorTest extends CrateDummyClusterServ
             isFunction(ArithmeticFunctions.Names.ADD, isLiteral(1), isReference("i"))));
         assertThat(symbolsPerRelation.get(tr2.relationName()), containsInAnyOrder(isReference("b"), isReference("i"), isReference("y")));
     }
+
+    @Test
+    public void testSingleRelationEqConditionsAreNotExtracted() {
+        Symbol joinCondition = sqlExpressions.asSymbol("t2.y = 1 and t1.x = t2.y and t2.i = t2.y");
+        Map<RelationName, List<Symbol>> symbolsPerRelation = HashJoinConditionSymbolsExtractor.extract(joinCondition);
+        assertThat(symbolsPerRelation.keySet(), containsInAnyOrder(tr1.relationName(), tr2.relationName()));
+        assertThat(symbolsPerRelation.get(tr1.relationName()), contains(isReference("x")));
+        assertThat(symbolsPerRelation.get(tr2.relationName()), contains(isReference("y")));
+    }
 }
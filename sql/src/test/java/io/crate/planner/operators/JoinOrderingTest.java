@@ -31,7 +31,10 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.contains;
@@ -79,4 +82,71 @@ public class JoinOrderingTest {
         );
         assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3));
     }
+
+    @Test
+    public void testOrderByCostStartsWithTheMostSelectiveJoin() {
+        // SELECT * FROM fact, d1, d2, d3 WHERE fact.d1 = d1.id AND fact.d2 = d2.id AND fact.d3 = d3.id
+        RelationName fact = new RelationName("doc", "fact");
+        RelationName d1 = new RelationName("doc", "d1");
+        RelationName d2 = new RelationName("doc", "d2");
+        RelationName d3 = new RelationName("doc", "d3");
+        Map<RelationName, Long> numRows = Map.of(fact, 1_000_000L, d1, 1000L, d2, 10L, d3, 50L);
+        Map<Set<RelationName>, Double> selectivity = Map.of(
+            Set.of(fact, d1), 0.001,
+            Set.of(fact, d2), 0.01,
+            Set.of(fact, d3), 0.01
+        );
+        assertThat(
+            JoinOrdering.orderByCost(List.of(d1, d2, d3, fact), numRows, selectivity),
+            contains(d2, fact, d3, d1)
+        );
+    }
+
+    @Test
+    public void testOrderByCostJoinsRelationWithoutJoinConditionLast() {
+        Map<RelationName, Long> numRows = Map.of(T3.T1, 1L, T3.T2, 100L, T3.T3, 100L);
+        Map<Set<RelationName>, Double> selectivity = Map.of(Set.of(T3.T1, T3.T2), 0.01);
+        assertThat(
+            JoinOrdering.orderByCost(List.of(T3.T1, T3.T3, T3.T2), numRows, selectivity),
+            contains(T3.T1, T3.T2, T3.T3)
+        );
+    }
+
+    @Test
+    public void testOrderByCostKeepsOrderOnEqualCosts() {
+        Map<RelationName, Long> numRows = Map.of(T3.T1, 10L, T3.T2, 10L, T3.T3, 10L);
+        Map<Set<RelationName>, Double> selectivity = Map.of(
+            Set.of(T3.T1, T3.T2), 0.1,
+            Set.of(T3.T2, T3.T3), 0.1,
+            Set.of(T3.T1, T3.T3), 0.1
+        );
+        assertThat(
+            JoinOrdering.orderByCost(List.of(T3.T3, T3.T1, T3.T2), numRows, selectivity),
+            contains(T3.T3, T3.T1, T3.T2)
+        );
+    }
+
+    @Test
+    public void testOrderByCostWithManyRelationsIsGreedyAndAvoidsCrossJoins() {
+        // A chain t0 - t1 - ... - t11 where the relations become smaller towards the end of the chain
+        int numRelations = JoinOrdering.MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH + 2;
+        List<RelationName> relations = new ArrayList<>();
+        Map<RelationName, Long> numRows = new HashMap<>();
+        Map<Set<RelationName>, Double> selectivity = new HashMap<>();
+        for (int i = 0; i < numRelations; i++) {
+            RelationName relation = new RelationName("doc", "t" + i);
+            relations.add(relation);
+            numRows.put(relation, (long) (numRelations - i) * 1000);
+            if (i > 0) {
+                selectivity.put(Set.of(relations.get(i - 1), relation), 1.0 / numRows.get(relations.get(i - 1)));
+            }
+        }
+        List<RelationName> ordered = JoinOrdering.orderByCost(relations, numRows, selectivity);
+
+        List<RelationName> expected = new ArrayList<>(relations.subList(0, numRelations - 2));
+        Collections.reverse(expected);
+        expected.add(0, relations.get(numRelations - 1));
+        expected.add(0, relations.get(numRelations - 2));
+        assertThat(ordered, is(expected));
+    }
 }
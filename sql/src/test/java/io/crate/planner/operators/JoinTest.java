@@ -108,7 +108,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             mss.where(),
             mss.joinPairs(),
             rel -> logicalPlanner.normalizeAndPlan(rel, plannerCtx, subqueryPlanner, Set.of()),
-            txnCtx.sessionContext().isHashJoinEnabled()
+            txnCtx.sessionContext().isHashJoinEnabled(),
+            tableStats
         );
     }
 
@@ -144,6 +145,7 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
 
     @Test
     public void testNestedLoop_TablesAreSwitchedIfBlockJoinAndRightIsSmallerThanLeft() throws IOException {
+        txnCtx.sessionContext().setHashJoinEnabled(false);
         // blockNL is only possible on single node clusters
         e = SQLExecutor.builder(clusterService)
             .addTable("create table j.left_table (id int)")
@@ -198,7 +200,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             mss.where(),
             mss.joinPairs(),
             rel -> logicalPlanner.normalizeAndPlan(rel, plannerCtx, subqueryPlanner, Set.of()),
-            false
+            false,
+            tableStats
         );
         Join nl = (Join) operator.build(
             context, projectionBuilder, -1, 0, null, null, Row.EMPTY, SubQueryResults.EMPTY);
@@ -239,8 +242,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
 
         TableStats tableStats = new TableStats();
         Map<RelationName, Stats> rowCountByTable = new HashMap<>();
-        rowCountByTable.put(USER_TABLE_IDENT, new Stats(100, 0, Map.of()));
-        rowCountByTable.put(TEST_DOC_LOCATIONS_TABLE_IDENT, new Stats(10, 0, Map.of()));
+        rowCountByTable.put(USER_TABLE_IDENT, new Stats(10, 0, Map.of()));
+        rowCountByTable.put(TEST_DOC_LOCATIONS_TABLE_IDENT, new Stats(100, 0, Map.of()));
         tableStats.updateTableStats(rowCountByTable);
 
         LogicalPlan operator = createLogicalPlan(mss, tableStats);
@@ -252,11 +255,31 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
     }
 
     @Test
-    public void testHashJoin_TablesSwitchWhenRightBiggerThanLeft() {
+    public void testHashJoin_TablesSwitchWhenLeftBiggerThanRight() {
         QueriedSelectRelation mss = e.analyze("select users.name, locations.id " +
                                               "from users " +
                                               "join locations on users.id = locations.id");
 
+        TableStats tableStats = new TableStats();
+        Map<RelationName, Stats> rowCountByTable = new HashMap<>();
+        rowCountByTable.put(USER_TABLE_IDENT, new Stats(100, 0, Map.of()));
+        rowCountByTable.put(TEST_DOC_LOCATIONS_TABLE_IDENT, new Stats(10, 0, Map.of()));
+        tableStats.updateTableStats(rowCountByTable);
+
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).concreteRelation.toString(), is("DocTableRelation{doc.locations}"));
+
+        Join join = buildJoin(operator);
+        assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("loc"));
+    }
+
+    @Test
+    public void testHashJoin_OuterJoinTypeIsInvertedWhenTablesAreSwitched() {
+        QueriedSelectRelation mss = e.analyze("select users.name, locations.id " +
+                                              "from users " +
+                                              "left join locations on users.id = locations.id");
+
         TableStats tableStats = new TableStats();
         Map<RelationName, Stats> rowCountByTable = new HashMap<>();
         rowCountByTable.put(USER_TABLE_IDENT, new Stats(10, 0, Map.of()));
@@ -265,10 +288,59 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
 
         LogicalPlan operator = createLogicalPlan(mss, tableStats);
         assertThat(operator, instanceOf(HashJoin.class));
-        assertThat(((HashJoin) operator).concreteRelation.toString(), is("DocTableRelation{doc.locations}"));
+        assertThat(((HashJoin) operator).joinType(), is(JoinType.LEFT));
 
         Join join = buildJoin(operator);
+        assertThat(join.joinPhase(), instanceOf(HashJoinPhase.class));
+        assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("other_id"));
+        assertThat(join.joinPhase().joinType(), is(JoinType.LEFT));
+
+        rowCountByTable.put(USER_TABLE_IDENT, new Stats(100, 0, Map.of()));
+        rowCountByTable.put(TEST_DOC_LOCATIONS_TABLE_IDENT, new Stats(10, 0, Map.of()));
+        tableStats.updateTableStats(rowCountByTable);
+
+        join = plan(mss, tableStats);
         assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("loc"));
+        assertThat(join.joinPhase().joinType(), is(JoinType.RIGHT));
+    }
+
+    @Test
+    public void testHashJoin_NumExpectedRowsUsesJoinSelectivity() {
+        TableStats tableStats = new TableStats();
+        Map<RelationName, Stats> rowCountByTable = new HashMap<>();
+        rowCountByTable.put(USER_TABLE_IDENT, new Stats(100, 0, Map.of()));
+        rowCountByTable.put(TEST_DOC_LOCATIONS_TABLE_IDENT, new Stats(10, 0, Map.of()));
+        tableStats.updateTableStats(rowCountByTable);
+
+        // Without column statistics the join columns are assumed to be unique: 100 * 10 / max(100, 10)
+        QueriedSelectRelation mss = e.analyze("select users.name, locations.id " +
+                                              "from users " +
+                                              "join locations on users.id = locations.id");
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(operator.numExpectedRows(), is(10L));
+
+        // Every row of the outer side is returned at least once
+        mss = e.analyze("select users.name, locations.id " +
+                        "from users " +
+                        "left join locations on users.id = locations.id");
+        operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(operator.numExpectedRows(), is(100L));
+    }
+
+    @Test
+    public void testHashJoin_SingleRelationConjunctOfOuterJoinIsNotUsedAsHashKey() {
+        QueriedSelectRelation mss = e.analyze("select t1.a, t2.b " +
+                                              "from t1 " +
+                                              "left join t2 on t2.y = 1 and t1.x = t2.y and t2.i = t2.y");
+        LogicalPlan operator = createLogicalPlan(mss, new TableStats());
+        assertThat(operator, instanceOf(HashJoin.class));
+
+        Join join = buildJoin(operator);
+        HashJoinPhase joinPhase = (HashJoinPhase) join.joinPhase();
+        assertThat(joinPhase.leftJoinConditionInputs().size(), is(1));
+        assertThat(joinPhase.rightJoinConditionInputs().size(), is(1));
     }
 
     @Test
@@ -288,11 +360,37 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
         assertThat(((Join)join.left()).joinPhase(), instanceOf(HashJoinPhase.class));
     }
 
+    @Test
+    public void testJoinOrderIsChosenByEstimatedCosts() {
+        QueriedSelectRelation mss = e.analyze("select t1.a, t2.b, t3.c " +
+                                              "from t1 inner join t2 on t1.x = t2.y " +
+                                              "inner join t3 on t2.y = t3.z");
+        TableStats tableStats = new TableStats();
+        tableStats.updateTableStats(Map.of(
+            T3.T1, new Stats(1_000_000, 0, Map.of()),
+            T3.T2, new Stats(100, 0, Map.of()),
+            T3.T3, new Stats(10, 0, Map.of())
+        ));
+
+        // t2 ⋈ t3 is expected to result in 10 rows and t1 ⋈ t2 in 100 rows
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, isPlan(e.functions(),
+            "HashJoin[\n" +
+            "    HashJoin[\n" +
+            "        Collect[doc.t2 | [b, y, i] | true]\n" +
+            "        --- INNER ---\n" +
+            "        Collect[doc.t3 | [c, z] | true]\n" +
+            "]\n" +
+            "    --- INNER ---\n" +
+            "    Collect[doc.t1 | [a, x, i] | true]\n" +
+            "]\n"));
+    }
+
     @Test
     public void testMixedHashJoinNestedLoop() {
         QueriedSelectRelation mss = e.analyze("select * " +
                                               "from t1 inner join t2 on t1.a = t2.b " +
-                                              "left join t3 on t3.c = t2.b");
+                                              "left join t3 on t3.c > t2.b");
 
         LogicalPlan operator = createLogicalPlan(mss, new TableStats());
         assertThat(operator, instanceOf(NestedLoopJoin.class));
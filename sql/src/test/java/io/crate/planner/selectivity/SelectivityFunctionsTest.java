@@ -9,6 +9,7 @@ import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.ColumnIdent;
 import io.crate.statistics.ColumnStats;
 import io.crate.statistics.Stats;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SqlExpressions;
 import io.crate.testing.T3;
@@ -16,6 +17,7 @@ import io.crate.types.DataTypes;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -105,4 +107,95 @@ public class SelectivityFunctionsTest extends CrateDummyClusterServiceUnitTest {
         Stats stats = new Stats(100, 16, Map.of(new ColumnIdent("x"), columnStats));
         assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(50L));
     }
+
+    @Test
+    public void test_join_selectivity_is_based_on_max_approx_distinct_of_both_columns() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol joinCondition = expressions.asSymbol("t1.x = t2.y");
+        var numbers = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        var xStats = ColumnStats.fromSortedValues(numbers.subList(0, 10), DataTypes.INTEGER, 0, 10);
+        var yStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 100);
+        TableStats tableStats = new TableStats();
+        tableStats.updateTableStats(Map.of(
+            T3.T1, new Stats(10, 16, Map.of(new ColumnIdent("x"), xStats)),
+            T3.T2, new Stats(100, 16, Map.of(new ColumnIdent("y"), yStats))
+        ));
+        assertThat(SelectivityFunctions.estimateJoinSelectivity(tableStats, joinCondition), Matchers.is(0.01));
+    }
+
+    @Test
+    public void test_join_selectivity_assumes_unique_columns_without_column_stats() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol joinCondition = expressions.asSymbol("t1.x = t2.y and t1.a = 'foo'");
+        TableStats tableStats = new TableStats();
+        tableStats.updateTableStats(Map.of(
+            T3.T1, new Stats(1000, 16, Map.of()),
+            T3.T2, new Stats(100, 16, Map.of())
+        ));
+        // 1 / 1000 for the join condition and the default selectivity of 0.005 for `t1.a = 'foo'`
+        assertThat(SelectivityFunctions.estimateJoinSelectivity(tableStats, joinCondition), Matchers.closeTo(0.000005, 1e-12));
+    }
+
+    @Test
+    public void test_range_selectivity_is_estimated_using_the_histogram() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x < 5001");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat((double) SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.closeTo(5000.0, 50.0));
+
+        query = expressions.asSymbol("x >= ?");
+        assertThat((double) SelectivityFunctions.estimateNumRows(stats, query, new Row1(15_001)), Matchers.closeTo(5000.0, 50.0));
+    }
+
+    @Test
+    public void test_range_selectivity_includes_the_frequencies_of_matching_most_common_values() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        var numbers = Lists2.concat(
+            Collections.nCopies(1000, 1),
+            IntStream.range(2, 1002).boxed().collect(Collectors.toList())
+        );
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, numbers.size());
+        Stats stats = new Stats(numbers.size(), 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, expressions.asSymbol("x <= 1"), null), Matchers.is(1000L));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, expressions.asSymbol("x > 1"), null), Matchers.is(1000L));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, expressions.asSymbol("1 < x"), null), Matchers.is(1000L));
+    }
+
+    @Test
+    public void test_eq_value_not_in_mcv_only_considers_the_values_which_are_not_most_common() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        var numbers = Lists2.concat(
+            Collections.nCopies(1000, 1),
+            IntStream.range(2, 1002).boxed().collect(Collectors.toList())
+        );
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, numbers.size());
+        Stats stats = new Stats(numbers.size(), 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, expressions.asSymbol("x = 1"), null), Matchers.is(1000L));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, expressions.asSymbol("x = 500"), null), Matchers.is(1L));
+    }
+
+    @Test
+    public void test_any_eq_selectivity_is_the_sum_of_the_eq_selectivities() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        var numbers = Lists2.concat(
+            Collections.nCopies(1000, 1),
+            IntStream.range(2, 1002).boxed().collect(Collectors.toList())
+        );
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, numbers.size());
+        Stats stats = new Stats(numbers.size(), 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(
+            SelectivityFunctions.estimateNumRows(stats, expressions.asSymbol("x in (1, 500, 501)"), null),
+            Matchers.is(1002L));
+    }
+
+    @Test
+    public void test_num_rows_are_unknown_without_stats() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x = 10");
+        assertThat(SelectivityFunctions.estimateNumRows(Stats.EMPTY, query, null), Matchers.is(-1L));
+    }
 }
@@ -25,6 +25,7 @@ package io.crate.protocols.postgres;
 import io.crate.action.sql.BaseResultReceiver;
 import io.crate.action.sql.Session;
 import io.crate.action.sql.SessionContext;
+import io.crate.action.sql.StatementCache;
 import io.crate.analyze.AnalyzedStatement;
 import io.crate.auth.user.AccessControl;
 import io.crate.data.InMemoryBatchIterator;
@@ -102,7 +103,8 @@ public class BatchPortalTest extends CrateDummyClusterServiceUnitTest {
             false,
             executor,
             AccessControl.DISABLED,
-            SessionContext.systemSessionContext());
+            SessionContext.systemSessionContext(),
+            new StatementCache(0));
 
         session.parse("S_1", "insert into t1(x) values(1)", Collections.emptyList());
         session.bind("Portal", "S_1", Collections.emptyList(), null);
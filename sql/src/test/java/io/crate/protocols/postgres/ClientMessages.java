@@ -152,4 +152,23 @@ class ClientMessages {
         buffer.writeByte('X');
         buffer.writeInt(4);
     }
+
+    static void sendCopyData(ByteBuf buffer, byte[] data) {
+        buffer.writeByte('d');
+        buffer.writeInt(4 + data.length);
+        buffer.writeBytes(data);
+    }
+
+    static void sendCopyDone(ByteBuf buffer) {
+        buffer.writeByte('c');
+        buffer.writeInt(4);
+    }
+
+    static void sendCopyFail(ByteBuf buffer, String message) {
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        buffer.writeByte('f');
+        buffer.writeInt(4 + messageBytes.length + 1);
+        buffer.writeBytes(messageBytes);
+        buffer.writeByte(0);
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.data.Row;
+import io.crate.data.Row1;
+import io.crate.data.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+public class DataRowEncoderTest extends CrateUnitTest {
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUpChannel() {
+        channel = new EmbeddedChannel();
+    }
+
+    @After
+    public void releaseChannel() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRowsAreEncodedIntoOneBufferUntilWritePending() {
+        DataRowEncoder encoder = new DataRowEncoder(
+            channel, Arrays.asList(DataTypes.INTEGER, DataTypes.STRING), null);
+        encoder.writeRow(new RowN($(10, null)));
+        encoder.writeRow(new RowN($(20, "foo")));
+        channel.flush();
+        assertThat(channel.outboundMessages().size(), is(0));
+
+        encoder.flush();
+        assertThat(channel.outboundMessages().size(), is(1));
+
+        ByteBuf buffer = channel.readOutbound();
+        try {
+            assertThat((char) buffer.readByte(), is('D'));
+            assertThat(buffer.readInt(), is(16));
+            buffer.skipBytes(12);
+
+            assertThat((char) buffer.readByte(), is('D'));
+            assertThat(buffer.readInt(), is(4 + 2 + 4 + 2 + 4 + 3));
+            assertThat(buffer.readShort(), is((short) 2));
+            assertThat(buffer.readInt(), is(2));
+            buffer.skipBytes(2);
+            assertThat(buffer.readInt(), is(3));
+            buffer.skipBytes(3);
+            assertThat(buffer.isReadable(), is(false));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testEncodedRowsAreWrittenOnceTheThresholdIsExceeded() {
+        DataRowEncoder encoder = new DataRowEncoder(channel, List.of(DataTypes.INTEGER), null);
+        Row1 row = new Row1(1);
+        int rowSize = 1 + 4 + 2 + 4 + 1;
+        int rowsPerWrite = (DataRowEncoder.WRITE_THRESHOLD_BYTES + rowSize - 1) / rowSize;
+        for (int i = 0; i < rowsPerWrite; i++) {
+            encoder.writeRow(row);
+        }
+        channel.flush();
+        assertThat(channel.outboundMessages().size(), is(1));
+        ByteBuf buffer = channel.readOutbound();
+        try {
+            assertThat(buffer.readableBytes(), greaterThanOrEqualTo(DataRowEncoder.WRITE_THRESHOLD_BYTES));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testPartiallyEncodedRowIsDiscardedIfGetValueFromRowFails() {
+        DataRowEncoder encoder = new DataRowEncoder(
+            channel, Arrays.asList(DataTypes.INTEGER, DataTypes.INTEGER), null);
+        encoder.writeRow(new RowN($(1, 2)));
+        try {
+            encoder.writeRow(new Row() {
+                @Override
+                public int numColumns() {
+                    return 2;
+                }
+
+                @Override
+                public Object get(int index) {
+                    if (index == 1) {
+                        throw new IllegalArgumentException("Dummy");
+                    }
+                    return 3;
+                }
+            });
+            fail("writeRow should raise an exception");
+        } catch (IllegalArgumentException ignored) {
+        }
+        encoder.flush();
+        ByteBuf buffer = channel.readOutbound();
+        try {
+            assertThat(buffer.readableBytes(), is(1 + 4 + 2 + 4 + 1 + 4 + 1));
+        } finally {
+            buffer.release();
+        }
+    }
+}
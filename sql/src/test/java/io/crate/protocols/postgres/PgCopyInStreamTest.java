@@ -0,0 +1,79 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.test.integration.CrateUnitTest;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+
+public class PgCopyInStreamTest extends CrateUnitTest {
+
+    @Test
+    public void testDataIsReadUntilCopyDone() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        PgCopyInStream stream = new PgCopyInStream(channel.config());
+        stream.add("{\"id\": 1}\n{\"id\"".getBytes(StandardCharsets.UTF_8));
+        stream.add(": 2}\n".getBytes(StandardCharsets.UTF_8));
+        stream.finish();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        assertThat(reader.readLine(), is("{\"id\": 1}"));
+        assertThat(reader.readLine(), is("{\"id\": 2}"));
+        assertThat(reader.readLine(), is((String) null));
+    }
+
+    @Test
+    public void testReadFailsOnCopyFail() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        PgCopyInStream stream = new PgCopyInStream(channel.config());
+        stream.add("{\"id\": 1}\n".getBytes(StandardCharsets.UTF_8));
+        stream.fail("aborted by user");
+
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("COPY from stdin failed: aborted by user");
+        stream.read(new byte[10], 0, 10);
+    }
+
+    @Test
+    public void testReadingFromTheChannelIsPausedWhileTooMuchDataIsBuffered() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        PgCopyInStream stream = new PgCopyInStream(channel.config());
+        byte[] chunk = new byte[PgCopyInStream.LOW_WATERMARK];
+        for (int i = 0; i < PgCopyInStream.HIGH_WATERMARK / chunk.length; i++) {
+            stream.add(chunk);
+        }
+        assertThat(channel.config().isAutoRead(), is(false));
+
+        byte[] buffer = new byte[chunk.length];
+        while (channel.config().isAutoRead() == false) {
+            assertThat(stream.read(buffer, 0, buffer.length), is(chunk.length));
+        }
+        assertThat(stream.available(), is(0));
+    }
+}
@@ -23,15 +23,18 @@
 package io.crate.protocols.postgres;
 
 import io.crate.action.sql.DescribeResult;
+import io.crate.action.sql.ResultReceiver;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
 import io.crate.action.sql.SessionContext;
+import io.crate.action.sql.StatementCache;
 import io.crate.auth.AlwaysOKNullAuthentication;
 import io.crate.auth.Authentication;
 import io.crate.auth.AuthenticationMethod;
 import io.crate.auth.user.AccessControl;
 import io.crate.auth.user.User;
 import io.crate.auth.user.UserManager;
+import io.crate.data.Row1;
 import io.crate.exceptions.JobKilledException;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.planner.DependencyCarrier;
@@ -52,9 +55,10 @@ import org.elasticsearch.common.settings.Settings;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.Mockito;
+import org.mockito.ArgumentCaptor;
 
 import javax.annotation.Nullable;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -70,6 +74,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isOneOf;
 import static org.mockito.ArgumentMatchers.anyChar;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -94,7 +99,8 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
             new JobsLogs(() -> true),
             Settings.EMPTY,
             clusterService,
-            USER_MANAGER_PROVIDER
+            USER_MANAGER_PROVIDER,
+            new StatementCache(0)
         ) {
             @Override
             public Session createSession(@Nullable String defaultSchema, @Nullable User user) {
@@ -485,16 +491,127 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
         readReadyForQueryMessage(channel);
     }
 
-    private void submitQueriesThroughSimpleQueryMode(String statements, @Nullable Throwable failure) {
-        SQLOperations sqlOperations = Mockito.mock(SQLOperations.class);
+    @Test
+    public void test_copy_from_stdin_passes_copy_data_to_the_execution_until_copy_done() throws Exception {
+        Session session = mockSession();
+        when(session.isCopyFromStdin("")).thenReturn(true);
+        CompletableFuture<Object> execution = new CompletableFuture<>();
+        when(session.sync()).thenReturn(execution);
+        PostgresWireProtocol ctx = startSession(session);
+
+        sendSimpleQuery(ctx, "copy t from stdin");
+        ArgumentCaptor<InputStream> copyIn = ArgumentCaptor.forClass(InputStream.class);
+        verify(session).setCopyInStream(eq(""), copyIn.capture());
+        verify(session).execute(eq(""), eq(0), any(RowCountReceiver.class));
+        readCopyResponse(channel, 'G');
+
+        ByteBuf buffer = Unpooled.buffer();
+        ClientMessages.sendCopyData(buffer, "{\"x\": 1}\n{\"x\"".getBytes(StandardCharsets.UTF_8));
+        ClientMessages.sendCopyData(buffer, ": 2}\n".getBytes(StandardCharsets.UTF_8));
+        ClientMessages.sendCopyDone(buffer);
+        channel.writeInbound(buffer);
+        channel.releaseInbound();
+
+        byte[] data = copyIn.getValue().readAllBytes();
+        assertThat(new String(data, StandardCharsets.UTF_8), is("{\"x\": 1}\n{\"x\": 2}\n"));
+
+        execution.complete(null);
+        readReadyForQueryMessage(channel);
+        channel.runPendingTasks();
+
+        // CopyData after the copy finished is ignored
+        buffer = Unpooled.buffer();
+        ClientMessages.sendCopyData(buffer, "{\"x\": 3}\n".getBytes(StandardCharsets.UTF_8));
+        channel.writeInbound(buffer);
+        channel.releaseInbound();
+        assertThat(channel.outboundMessages().size(), is(0));
+    }
+
+    @Test
+    public void test_copy_fail_fails_the_reader_of_the_copy_from_stdin() throws Exception {
+        Session session = mockSession();
+        when(session.isCopyFromStdin("")).thenReturn(true);
+        CompletableFuture<Object> execution = new CompletableFuture<>();
+        when(session.sync()).thenReturn(execution);
+        PostgresWireProtocol ctx = startSession(session);
+
+        sendSimpleQuery(ctx, "copy t from stdin");
+        ArgumentCaptor<InputStream> copyIn = ArgumentCaptor.forClass(InputStream.class);
+        verify(session).setCopyInStream(eq(""), copyIn.capture());
+        readCopyResponse(channel, 'G');
+
+        ByteBuf buffer = Unpooled.buffer();
+        ClientMessages.sendCopyData(buffer, "{\"x\": 1}\n".getBytes(StandardCharsets.UTF_8));
+        ClientMessages.sendCopyFail(buffer, "aborted by the client");
+        channel.writeInbound(buffer);
+        channel.releaseInbound();
+
+        IllegalStateException e = expectThrows(IllegalStateException.class, () -> copyIn.getValue().read());
+        assertThat(e.getMessage(), is("COPY from stdin failed: aborted by the client"));
+
+        execution.completeExceptionally(e);
+        readReadyForQueryMessage(channel);
+    }
+
+    @Test
+    public void test_copy_to_stdout_sends_each_row_as_copy_data_followed_by_copy_done() throws Exception {
+        Session session = mockSession();
+        when(session.isCopyToStdout("")).thenReturn(true);
+        CompletableFuture<Object> execution = new CompletableFuture<>();
+        when(session.sync()).thenReturn(execution);
+        PostgresWireProtocol ctx = startSession(session);
+
+        sendSimpleQuery(ctx, "copy t to stdout");
+        verify(session).setCopyToStdout("");
+        ArgumentCaptor<ResultReceiver> receiverCaptor = ArgumentCaptor.forClass(ResultReceiver.class);
+        verify(session).execute(eq(""), eq(CopyOutReceiver.BATCH_SIZE), receiverCaptor.capture());
+        readCopyResponse(channel, 'H');
+
+        ResultReceiver receiver = receiverCaptor.getValue();
+        receiver.setNextRow(new Row1("{\"x\":1}"));
+        receiver.setNextRow(new Row1("{\"x\":2}"));
+        receiver.batchFinished();
+        verify(session).resume("");
+        readCopyData(channel, "{\"x\":1}\n");
+        readCopyData(channel, "{\"x\":2}\n");
+
+        receiver.allFinished(false);
+        ByteBuf copyDone = channel.readOutbound();
+        try {
+            byte[] responseBytes = new byte[5];
+            copyDone.readBytes(responseBytes);
+            // CopyDone: 'c' | int32 len
+            assertThat(responseBytes, is(new byte[]{'c', 0, 0, 0, 4}));
+        } finally {
+            copyDone.release();
+        }
+        ByteBuf commandComplete = channel.readOutbound();
+        try {
+            // CommandComplete: 'C' | int32 len | string tag
+            assertThat((char) commandComplete.readByte(), is('C'));
+            assertThat(commandComplete.readInt(), is(11));
+            assertThat(PostgresWireProtocol.readCString(commandComplete), is("COPY 2"));
+        } finally {
+            commandComplete.release();
+        }
+
+        execution.complete(null);
+        readReadyForQueryMessage(channel);
+    }
+
+    private static Session mockSession() {
         Session session = mock(Session.class);
         SessionContext sessionContext = new SessionContext(Set.of(), User.CRATE_USER);
         when(session.sessionContext()).thenReturn(sessionContext);
-        when(sqlOperations.createSession(any(String.class), any(User.class))).thenReturn(session);
         DescribeResult describeResult = mock(DescribeResult.class);
         when(describeResult.getFields()).thenReturn(null);
         when(session.describe(anyChar(), anyString())).thenReturn(describeResult);
+        return session;
+    }
 
+    private PostgresWireProtocol startSession(Session session) {
+        SQLOperations sqlOperations = mock(SQLOperations.class);
+        when(sqlOperations.createSession(any(String.class), any(User.class))).thenReturn(session);
         PostgresWireProtocol ctx =
             new PostgresWireProtocol(
                 sqlOperations,
@@ -502,31 +619,62 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 new AlwaysOKNullAuthentication(),
                 null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
-
-        if (failure != null) {
-            when(session.sync()).thenAnswer(invocationOnMock -> {
-                Messages.sendErrorResponse(channel, failure);
-                return CompletableFuture.failedFuture(failure);
-            });
-        } else {
-            when(session.sync()).thenReturn(CompletableFuture.completedFuture(null));
-        }
-
         sendStartupMessage(channel);
         readAuthenticationOK(channel);
         skipParameterMessages(channel);
         readReadyForQueryMessage(channel);
+        return ctx;
+    }
 
+    private void sendSimpleQuery(PostgresWireProtocol ctx, String statement) {
         ByteBuf query = Unpooled.buffer();
         try {
-            // the actual statements don't have to be valid as they are not executed
-            Messages.writeCString(query, statements.getBytes(StandardCharsets.UTF_8));
+            Messages.writeCString(query, statement.getBytes(StandardCharsets.UTF_8));
             ctx.handleSimpleQuery(query, channel);
         } finally {
             query.release();
         }
     }
 
+    private static void readCopyResponse(EmbeddedChannel channel, char msgType) {
+        ByteBuf response = channel.readOutbound();
+        byte[] responseBytes = new byte[8];
+        response.readBytes(responseBytes);
+        response.release();
+        // CopyInResponse/CopyOutResponse: 'G'/'H' | int32 len | int8 format | int16 numCols
+        assertThat(responseBytes, is(new byte[]{(byte) msgType, 0, 0, 0, 7, 0, 0, 0}));
+    }
+
+    private static void readCopyData(EmbeddedChannel channel, String expectedData) {
+        ByteBuf response = channel.readOutbound();
+        try {
+            // CopyData: 'd' | int32 len | byteN data
+            assertThat((char) response.readByte(), is('d'));
+            int length = response.readInt();
+            byte[] data = new byte[length - 4];
+            response.readBytes(data);
+            assertThat(new String(data, StandardCharsets.UTF_8), is(expectedData));
+        } finally {
+            response.release();
+        }
+    }
+
+    private void submitQueriesThroughSimpleQueryMode(String statements, @Nullable Throwable failure) {
+        Session session = mockSession();
+        if (failure != null) {
+            when(session.sync()).thenAnswer(invocationOnMock -> {
+                Messages.sendErrorResponse(channel, failure);
+                return CompletableFuture.failedFuture(failure);
+            });
+        } else {
+            when(session.sync()).thenReturn(CompletableFuture.completedFuture(null));
+        }
+        PostgresWireProtocol ctx = startSession(session);
+
+        // the actual statements don't have to be valid as they are not executed
+        sendSimpleQuery(ctx, statements);
+    }
+
     private static void sendStartupMessage(EmbeddedChannel channel) {
         ByteBuf startupMsg = Unpooled.buffer();
         ClientMessages.sendStartupMessage(startupMsg, "db");
@@ -0,0 +1,169 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.SQLActionException;
+import io.crate.data.RowN;
+import io.crate.expression.symbol.Literal;
+import io.crate.expression.symbol.ScopedSymbol;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.RelationName;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import io.crate.types.ObjectType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+
+public class ColumnarResultEncoderTest extends CrateUnitTest {
+
+    private static final RelationName RELATION = new RelationName("doc", "dummy");
+
+    private final List<Symbol> fields = List.of(
+        new ScopedSymbol(RELATION, new ColumnIdent("name"), DataTypes.STRING),
+        new ScopedSymbol(RELATION, new ColumnIdent("x"), DataTypes.INTEGER),
+        new ScopedSymbol(RELATION, new ColumnIdent("flag"), DataTypes.BOOLEAN),
+        new ScopedSymbol(RELATION, new ColumnIdent("obj"), ObjectType.untyped())
+    );
+
+    private static String readString(ByteBuf buffer, int length) {
+        return buffer.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    @Test
+    public void testSchemaAndBatchesAreEncodedColumnWise() throws Exception {
+        ChunkOutputStream out = new ChunkOutputStream(UnpooledByteBufAllocator.DEFAULT);
+        ColumnarResultEncoder encoder = new ColumnarResultEncoder(out, fields);
+        encoder.addRow(new RowN("foo", 1, true, Map.of("a", 1)));
+        encoder.addRow(new RowN(null, null, false, null));
+        encoder.addRow(new RowN("bar", 3, null, null));
+        encoder.finishBatch();
+        encoder.finish(3L, System.nanoTime());
+
+        ByteBuf buffer = out.takeChunk();
+        try {
+            assertThat((char) buffer.readByte(), is('S'));
+            assertThat(buffer.readShortLE(), is((short) 4));
+            assertThat(readString(buffer, buffer.readIntLE()), is("name"));
+            assertThat(buffer.readIntLE(), is(DataTypes.STRING.id()));
+            assertThat(buffer.readByte(), is(ColumnarResultEncoder.UTF8));
+            assertThat(readString(buffer, buffer.readIntLE()), is("x"));
+            assertThat(buffer.readIntLE(), is(DataTypes.INTEGER.id()));
+            assertThat(buffer.readByte(), is(ColumnarResultEncoder.INT32));
+            assertThat(readString(buffer, buffer.readIntLE()), is("flag"));
+            assertThat(buffer.readIntLE(), is(DataTypes.BOOLEAN.id()));
+            assertThat(buffer.readByte(), is(ColumnarResultEncoder.BOOL));
+            assertThat(readString(buffer, buffer.readIntLE()), is("obj"));
+            assertThat(buffer.readIntLE(), is(ObjectType.ID));
+            assertThat(buffer.readByte(), is(ColumnarResultEncoder.JSON));
+
+            assertThat((char) buffer.readByte(), is('B'));
+            assertThat(buffer.readIntLE(), is(3));
+
+            // name: UTF8
+            assertThat(buffer.readByte(), is((byte) 0b101));
+            assertThat(buffer.readIntLE(), is(0));
+            assertThat(buffer.readIntLE(), is(3));
+            assertThat(buffer.readIntLE(), is(3));
+            assertThat(buffer.readIntLE(), is(6));
+            assertThat(readString(buffer, 6), is("foobar"));
+
+            // x: INT32
+            assertThat(buffer.readByte(), is((byte) 0b101));
+            assertThat(buffer.readIntLE(), is(1));
+            assertThat(buffer.readIntLE(), is(0));
+            assertThat(buffer.readIntLE(), is(3));
+
+            // flag: BOOL
+            assertThat(buffer.readByte(), is((byte) 0b011));
+            assertThat(buffer.readByte(), is((byte) 0b001));
+
+            // obj: JSON
+            assertThat(buffer.readByte(), is((byte) 0b001));
+            assertThat(buffer.readIntLE(), is(0));
+            assertThat(buffer.readIntLE(), is(7));
+            assertThat(buffer.readIntLE(), is(7));
+            assertThat(buffer.readIntLE(), is(7));
+            assertThat(readString(buffer, 7), is("{\"a\":1}"));
+
+            assertThat((char) buffer.readByte(), is('E'));
+            assertThat(buffer.readLongLE(), is(3L));
+            buffer.readDoubleLE();
+            assertThat(buffer.isReadable(), is(false));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testColumnBuffersAreResetAfterEachBatch() throws Exception {
+        ChunkOutputStream out = new ChunkOutputStream(UnpooledByteBufAllocator.DEFAULT);
+        ColumnarResultEncoder encoder = new ColumnarResultEncoder(
+            out, List.of(Literal.of("dummy")));
+        out.takeChunk().release();
+
+        encoder.addRow(new RowN("foo"));
+        encoder.finishBatch();
+        out.takeChunk().release();
+
+        encoder.addRow(new RowN("ba"));
+        encoder.finishBatch();
+        ByteBuf buffer = out.takeChunk();
+        try {
+            assertThat((char) buffer.readByte(), is('B'));
+            assertThat(buffer.readIntLE(), is(1));
+            assertThat(buffer.readByte(), is((byte) 1));
+            assertThat(buffer.readIntLE(), is(0));
+            assertThat(buffer.readIntLE(), is(2));
+            assertThat(readString(buffer, 2), is("ba"));
+            assertThat(buffer.isReadable(), is(false));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testErrorIsEncodedWithCodeAndMessage() throws Exception {
+        ChunkOutputStream out = new ChunkOutputStream(UnpooledByteBufAllocator.DEFAULT);
+        ColumnarResultEncoder encoder = new ColumnarResultEncoder(out, List.of());
+        out.takeChunk().release();
+
+        assertThat(encoder.writeError(new SQLActionException("dummy", 5000, HttpResponseStatus.INTERNAL_SERVER_ERROR), false), is(true));
+        ByteBuf buffer = out.takeChunk();
+        try {
+            assertThat((char) buffer.readByte(), is('X'));
+            assertThat(buffer.readIntLE(), is(5000));
+            assertThat(readString(buffer, buffer.readIntLE()), is("SQLActionException[dummy]"));
+        } finally {
+            buffer.release();
+        }
+    }
+}
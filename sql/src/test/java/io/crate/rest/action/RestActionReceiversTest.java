@@ -23,6 +23,7 @@
 package io.crate.rest.action;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.action.sql.SQLActionException;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.data.Row;
@@ -35,14 +36,32 @@ import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.RelationName;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.http.netty4.cors.Netty4CorsConfigBuilder;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 
 public class RestActionReceiversTest extends CrateUnitTest {
 
@@ -125,4 +144,118 @@ public class RestActionReceiversTest extends CrateUnitTest {
         String s = Strings.toString(builder.build());
         assertEquals(s, "{\"results\":[{\"rowcount\":1},{\"rowcount\":2},{\"rowcount\":3}]}");
     }
+
+    private RestStreamingResultSetReceiver streamingReceiver(EmbeddedChannel channel,
+                                                             RestStreamingResultSetReceiver.Format format,
+                                                             Runnable resume) throws IOException {
+        return new RestStreamingResultSetReceiver(
+            channel,
+            new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/_sql?stream"),
+            Netty4CorsConfigBuilder.forAnyOrigin().build(),
+            format,
+            fields,
+            0L,
+            true,
+            t -> new SQLActionException(t.getMessage(), 4000, HttpResponseStatus.BAD_REQUEST),
+            false,
+            resume
+        );
+    }
+
+    private static String readStreamedResponse(EmbeddedChannel channel) {
+        Object header = channel.readOutbound();
+        assertThat(header, instanceOf(HttpResponse.class));
+        assertThat(HttpUtil.isTransferEncodingChunked((HttpResponse) header), is(true));
+        StringBuilder content = new StringBuilder();
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ByteBuf buf = ((HttpContent) msg).content();
+            content.append(buf.toString(StandardCharsets.UTF_8));
+            ((HttpContent) msg).release();
+            if (msg instanceof LastHttpContent) {
+                break;
+            }
+        }
+        return content.toString();
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiverProducesSameJsonAsRestResultSetReceiver() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        AtomicInteger numResumes = new AtomicInteger(0);
+        RestStreamingResultSetReceiver receiver = streamingReceiver(
+            channel, RestStreamingResultSetReceiver.Format.JSON, numResumes::incrementAndGet);
+        receiver.setNextRow(rows.get(0));
+        receiver.setNextRow(rows.get(1));
+        receiver.batchFinished();
+        receiver.setNextRow(rows.get(2));
+        receiver.allFinished(false);
+        assertThat(numResumes.get(), is(1));
+        assertThat(receiver.completionFuture().isDone(), is(true));
+
+        ResultToXContentBuilder builder = ResultToXContentBuilder.builder(JsonXContent.contentBuilder());
+        builder.cols(fields);
+        builder.colTypes(fields);
+        builder.startRows();
+        for (Row row : rows) {
+            builder.addRow(row, 3);
+        }
+        builder.finishRows();
+        builder.rowCount(rows.size());
+
+        assertEquals(
+            stripDuration(Strings.toString(builder.build())),
+            stripDuration(readStreamedResponse(channel))
+        );
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiverWritesNewlineDelimitedJson() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RestStreamingResultSetReceiver receiver = streamingReceiver(
+            channel, RestStreamingResultSetReceiver.Format.NDJSON, () -> {});
+        for (Row row : rows) {
+            receiver.setNextRow(row);
+        }
+        receiver.allFinished(false);
+
+        String[] lines = readStreamedResponse(channel).split("\n");
+        assertThat(lines.length, is(5));
+        assertThat(lines[0], startsWith("{\"cols\":["));
+        assertThat(lines[0], endsWith("\"col_types\":[4,9,3]}"));
+        assertThat(lines[1], is("[\"foo\",1,true]"));
+        assertThat(lines[2], is("[\"bar\",2,false]"));
+        assertThat(lines[3], is("[\"foobar\",3,null]"));
+        assertThat(lines[4], startsWith("{\"rowcount\":3,\"duration\":"));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiverFailureAfterFirstBatchIsSentAsLastLine() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RestStreamingResultSetReceiver receiver = streamingReceiver(
+            channel, RestStreamingResultSetReceiver.Format.NDJSON, () -> {});
+        receiver.setNextRow(rows.get(0));
+        receiver.batchFinished();
+        receiver.fail(new IllegalStateException("dummy"));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(false));
+
+        String[] lines = readStreamedResponse(channel).split("\n");
+        assertThat(lines.length, is(3));
+        assertThat(lines[2], startsWith("{\"error\":{\"message\":"));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiverFailureBeforeFirstBatchFailsCompletionFuture() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RestStreamingResultSetReceiver receiver = streamingReceiver(
+            channel, RestStreamingResultSetReceiver.Format.JSON, () -> {});
+        receiver.setNextRow(rows.get(0));
+        receiver.fail(new IllegalStateException("dummy"));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(true));
+        assertThat(channel.outboundMessages().isEmpty(), is(true));
+        channel.finishAndReleaseAll();
+    }
 }